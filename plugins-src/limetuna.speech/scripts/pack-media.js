@@ -0,0 +1,130 @@
+#!/usr/bin/env node
+
+// Packs the game's images and audio under www/ into one uncompressed blob,
+// www/media.pack, and removes the loose copies, so the WebView's requests for
+// them are served from one memory-mapped asset (PackedAssets / MediaPack)
+// instead of one APK asset open each.
+//
+// As an after_prepare hook it rewrites the android platform's www copy; the
+// project's own www/ is left alone. Set LIMETUNA_PACK_MEDIA=0 to skip it.
+// Standalone (for tools/MediaPackBench): node scripts/pack-media.js <wwwDir> <out.pack>
+//
+// Layout (big-endian, see MediaPack.java): "LTPK", version, entry count,
+// index bytes; then [u16 path length][utf-8 path][u64 offset][u32 length]
+// per entry; then the entry bytes.
+
+const fs = require("fs");
+const path = require("path");
+
+const MAGIC = 0x4c54504b; // "LTPK"
+const VERSION = 1;
+const HEADER_BYTES = 16;
+const PACK_NAME = "media.pack";
+const PACKED_DIRS = ["img", "audio"];
+const PACKED_EXTENSIONS = [".webp", ".png", ".jpg", ".jpeg", ".gif", ".svg", ".mp3", ".wav", ".ogg", ".m4a"];
+
+function listMedia(wwwDir) {
+    const files = [];
+    const walk = (rel) => {
+        const abs = path.join(wwwDir, rel);
+        if (!fs.existsSync(abs)) {
+            return;
+        }
+        for (const name of fs.readdirSync(abs).sort()) {
+            const childRel = rel + "/" + name;
+            const stat = fs.statSync(path.join(wwwDir, childRel));
+            if (stat.isDirectory()) {
+                walk(childRel);
+            } else if (PACKED_EXTENSIONS.includes(path.extname(name).toLowerCase())) {
+                files.push({ path: childRel, size: stat.size });
+            }
+        }
+    };
+    PACKED_DIRS.forEach(walk);
+    return files;
+}
+
+function writePack(wwwDir, outFile) {
+    const files = listMedia(wwwDir);
+    const names = files.map((f) => Buffer.from(f.path, "utf8"));
+    const indexBytes = names.reduce((sum, name) => sum + 2 + name.length + 8 + 4, 0);
+    const index = Buffer.alloc(HEADER_BYTES + indexBytes);
+    index.writeUInt32BE(MAGIC, 0);
+    index.writeUInt32BE(VERSION, 4);
+    index.writeUInt32BE(files.length, 8);
+    index.writeUInt32BE(indexBytes, 12);
+
+    let pos = HEADER_BYTES;
+    let offset = HEADER_BYTES + indexBytes;
+    files.forEach((file, i) => {
+        index.writeUInt16BE(names[i].length, pos);
+        names[i].copy(index, pos + 2);
+        pos += 2 + names[i].length;
+        index.writeBigUInt64BE(BigInt(offset), pos);
+        index.writeUInt32BE(file.size, pos + 8);
+        pos += 12;
+        offset += file.size;
+    });
+
+    const fd = fs.openSync(outFile, "w");
+    try {
+        fs.writeSync(fd, index);
+        for (const file of files) {
+            fs.writeSync(fd, fs.readFileSync(path.join(wwwDir, file.path)));
+        }
+    } finally {
+        fs.closeSync(fd);
+    }
+    return { files, bytes: offset };
+}
+
+function removeLoose(wwwDir, files) {
+    for (const file of files) {
+        fs.unlinkSync(path.join(wwwDir, file.path));
+    }
+    const prune = (rel) => {
+        const abs = path.join(wwwDir, rel);
+        if (!fs.existsSync(abs) || !fs.statSync(abs).isDirectory()) {
+            return;
+        }
+        for (const name of fs.readdirSync(abs)) {
+            prune(rel + "/" + name);
+        }
+        if (fs.readdirSync(abs).length === 0) {
+            fs.rmdirSync(abs);
+        }
+    };
+    PACKED_DIRS.forEach(prune);
+}
+
+module.exports = function (context) {
+    if (process.env.LIMETUNA_PACK_MEDIA === "0") {
+        console.log("[limetuna.speech] LIMETUNA_PACK_MEDIA=0, leaving media unpacked");
+        return;
+    }
+    const platforms = context.opts.platforms || [];
+    if (!platforms.includes("android")) {
+        return;
+    }
+
+    const wwwDir = path.join(context.opts.projectRoot, "platforms", "android", "app", "src", "main", "assets", "www");
+    if (!fs.existsSync(wwwDir)) {
+        return;
+    }
+
+    const { files, bytes } = writePack(wwwDir, path.join(wwwDir, PACK_NAME));
+    removeLoose(wwwDir, files);
+    console.log(`[limetuna.speech] Packed ${files.length} media files (${bytes} bytes) into www/${PACK_NAME}`);
+};
+
+module.exports.writePack = writePack;
+
+if (require.main === module) {
+    const [wwwDir, outFile] = process.argv.slice(2);
+    if (!wwwDir || !outFile) {
+        console.error("usage: node scripts/pack-media.js <wwwDir> <out.pack>");
+        process.exit(2);
+    }
+    const { files, bytes } = writePack(wwwDir, outFile);
+    console.log(`Packed ${files.length} media files (${bytes} bytes) into ${outFile}`);
+}
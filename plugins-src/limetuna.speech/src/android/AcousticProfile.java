@@ -0,0 +1,176 @@
+package com.limetuna.speech;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * What we have learned about one device + recognizer service: ambient RMS
+ * baseline, typical speech peak and typical speech-end-to-results gap, all
+ * in onRmsChanged dB / ms. Seeded by calibrate() and folded forward after
+ * every attempt, so the first attempt of a session starts from the previous
+ * session's baseline instead of an empty one.
+ *
+ * Android-free; LimeTunaSpeech persists {@link #encode()} in
+ * SharedPreferences and tools/EndpointerTraceReplay --carryBaseline uses it
+ * on the JVM. Recognizer thread only.
+ */
+final class AcousticProfile {
+
+    static final int VERSION = 1;
+    // Per-attempt EMA weights; a calibration replaces the baseline outright.
+    static final float BASELINE_ALPHA = 0.3f;
+    static final float PEAK_ALPHA = 0.2f;
+    static final float GAP_ALPHA = 0.2f;
+    // Attempts with fewer silence samples than this don't move the baseline.
+    static final int MIN_BASELINE_SAMPLES = 3;
+    // Calibration takes a low percentile so a cough or a word doesn't lift the baseline.
+    static final float CALIBRATION_PERCENTILE = 0.3f;
+
+    private float baselineDb = Float.NaN;
+    private float typicalPeakDb = Float.NaN;
+    private long speechToResultsMs = -1L;
+    private int attempts = 0;
+    private boolean calibrated = false;
+
+    float getBaselineDb() {
+        return baselineDb;
+    }
+
+    float getTypicalPeakDb() {
+        return typicalPeakDb;
+    }
+
+    /** Typical gap from speech end to the engine's results, -1 if unknown. */
+    long getSpeechToResultsMs() {
+        return speechToResultsMs;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    boolean isCalibrated() {
+        return calibrated;
+    }
+
+    boolean isEmpty() {
+        return Float.isNaN(baselineDb) && Float.isNaN(typicalPeakDb) && speechToResultsMs < 0;
+    }
+
+    void applyCalibration(float ambientDb) {
+        if (Float.isNaN(ambientDb)) {
+            return;
+        }
+        baselineDb = ambientDb;
+        calibrated = true;
+    }
+
+    /**
+     * Folds one finished attempt in. Pass NaN / -1 for values the attempt
+     * didn't produce (no silence samples, no speech, no results).
+     *
+     * @param noiseFloorDb low percentile of the attempt's recent RMS; stands in
+     *                     (at half weight) when the attempt never reached a
+     *                     silence window, e.g. a failsafe commit in a noisy room
+     */
+    void onAttemptFinished(float attemptBaselineDb, int baselineSamples, float noiseFloorDb,
+                           float peakDb, long speechToResults) {
+        attempts++;
+        float ambientDb = Float.NaN;
+        float alpha = BASELINE_ALPHA;
+        if (!Float.isNaN(attemptBaselineDb) && baselineSamples >= MIN_BASELINE_SAMPLES) {
+            ambientDb = attemptBaselineDb;
+        } else if (!Float.isNaN(noiseFloorDb)) {
+            ambientDb = noiseFloorDb;
+            alpha = BASELINE_ALPHA / 2;
+        }
+        if (!Float.isNaN(ambientDb)) {
+            baselineDb = Float.isNaN(baselineDb)
+                    ? ambientDb
+                    : baselineDb + alpha * (ambientDb - baselineDb);
+        }
+        if (!Float.isNaN(peakDb) && !Float.isInfinite(peakDb)) {
+            typicalPeakDb = Float.isNaN(typicalPeakDb)
+                    ? peakDb
+                    : typicalPeakDb + PEAK_ALPHA * (peakDb - typicalPeakDb);
+        }
+        if (speechToResults >= 0) {
+            speechToResultsMs = speechToResultsMs < 0
+                    ? speechToResults
+                    : Math.round(speechToResultsMs + GAP_ALPHA * (speechToResults - speechToResultsMs));
+        }
+    }
+
+    /** Ambient level from calibration samples; NaN when there are none. */
+    static float estimateAmbientDb(float[] samples, int count) {
+        if (count <= 0) {
+            return Float.NaN;
+        }
+        float[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(CALIBRATION_PERCENTILE * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, rank))];
+    }
+
+    /** Compact key=value form for SharedPreferences. */
+    String encode() {
+        return String.format(Locale.US, "v=%d;baseline=%s;peak=%s;gap=%d;attempts=%d;calibrated=%d",
+                VERSION, formatDb(baselineDb), formatDb(typicalPeakDb), speechToResultsMs, attempts,
+                calibrated ? 1 : 0);
+    }
+
+    /** Inverse of {@link #encode()}; unknown versions and garbage give an empty profile. */
+    static AcousticProfile decode(String encoded) {
+        AcousticProfile profile = new AcousticProfile();
+        if (encoded == null || encoded.isEmpty()) {
+            return profile;
+        }
+        try {
+            int version = -1;
+            for (String part : encoded.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq <= 0) continue;
+                String key = part.substring(0, eq);
+                String value = part.substring(eq + 1);
+                switch (key) {
+                    case "v":
+                        version = Integer.parseInt(value);
+                        break;
+                    case "baseline":
+                        profile.baselineDb = parseDb(value);
+                        break;
+                    case "peak":
+                        profile.typicalPeakDb = parseDb(value);
+                        break;
+                    case "gap":
+                        profile.speechToResultsMs = Long.parseLong(value);
+                        break;
+                    case "attempts":
+                        profile.attempts = Integer.parseInt(value);
+                        break;
+                    case "calibrated":
+                        profile.calibrated = "1".equals(value);
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return version == VERSION ? profile : new AcousticProfile();
+        } catch (NumberFormatException e) {
+            return new AcousticProfile();
+        }
+    }
+
+    private static String formatDb(float db) {
+        return Float.isNaN(db) ? "nan" : String.format(Locale.US, "%.2f", db);
+    }
+
+    private static float parseDb(String value) {
+        return "nan".equals(value) ? Float.NaN : Float.parseFloat(value);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
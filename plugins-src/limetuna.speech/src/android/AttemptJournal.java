@@ -0,0 +1,452 @@
+package com.limetuna.speech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of finished attempts in app-private storage:
+ * raw timestamps, the attempt's threshold config and computed thresholds,
+ * the RMS tail and how it was committed / how it ended. Recognized text is
+ * deliberately not stored.
+ *
+ * Layout: an 8-byte header ({@link #MAGIC}, version) followed by frames of
+ * [int payload length][payload][int CRC32 of payload], big-endian. A frame
+ * torn by a crash fails its length or CRC check; readers stop there and the
+ * writer truncates it away when it reopens the file.
+ *
+ * Size is bounded: when {@link #CURRENT_NAME} would exceed maxFileBytes it
+ * becomes {@link #ROTATED_NAME} (replacing the previous one) and a fresh file
+ * is started, so at most two files' worth is kept.
+ *
+ * Android-free so tools/AttemptJournalExport can read journals on the JVM.
+ * Writer methods do file I/O: call them off the main thread. They are
+ * synchronized, so any pool thread will do; appends that arrive after
+ * {@link #close()} are dropped.
+ */
+final class AttemptJournal {
+
+    static final int MAGIC = 0x4C544A31; // "LTJ1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final String CURRENT_NAME = "attempts.ltj";
+    static final String ROTATED_NAME = "attempts.1.ltj";
+    static final long DEFAULT_MAX_FILE_BYTES = 256L * 1024L;
+    static final long MIN_MAX_FILE_BYTES = 16L * 1024L;
+
+    private static final byte RECORD_ATTEMPT = 1;
+    // A frame can't be bigger than this; anything larger is corruption.
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+    private static final int MAX_STRING_BYTES = 255;
+    private static final int FRAME_OVERHEAD = 8;
+
+    /** One finished attempt, snapshotted on the recognizer thread and encoded by the writer. */
+    static final class Record {
+        final long attemptId;
+        final long wallClockMs;
+        final int commitReason;
+        final int outcome;
+        final String errorCode;
+        final String expectedLetter;
+        final String engineStart;
+        final String engineBackend;
+        final String vadCapture;
+        final long[] raw;
+        final ThresholdConfig thresholds;
+        final float baselineDb;
+        final float endThresholdDb;
+        final long postSilenceDelayMs;
+        final float[] rmsTail;
+
+        Record(long attemptId, long wallClockMs, int commitReason, int outcome, String errorCode,
+               String expectedLetter, String engineStart, String engineBackend, String vadCapture,
+               long[] raw, ThresholdConfig thresholds, float baselineDb, float endThresholdDb,
+               long postSilenceDelayMs, float[] rmsTail) {
+            this.attemptId = attemptId;
+            this.wallClockMs = wallClockMs;
+            this.commitReason = commitReason;
+            this.outcome = outcome;
+            this.errorCode = errorCode;
+            this.expectedLetter = expectedLetter;
+            this.engineStart = engineStart;
+            this.engineBackend = engineBackend;
+            this.vadCapture = vadCapture;
+            this.raw = raw;
+            this.thresholds = thresholds;
+            this.baselineDb = baselineDb;
+            this.endThresholdDb = endThresholdDb;
+            this.postSilenceDelayMs = postSilenceDelayMs;
+            this.rmsTail = rmsTail;
+        }
+
+        /** Snapshot of a finished attempt; errorCode is null for a result. */
+        static Record of(AttemptTiming timing, String errorCode, ThresholdConfig thresholds,
+                         float baselineDb, float endThresholdDb, long postSilenceDelayMs,
+                         float[] rmsTail, long wallClockMs) {
+            long[] raw = new long[AttemptTiming.RAW_KEYS.length];
+            for (int i = 0; i < raw.length; i++) {
+                raw[i] = timing.rawValue(i);
+            }
+            return new Record(timing.attemptId, wallClockMs, AttemptMetrics.commitReason(timing),
+                    AttemptMetrics.outcome(timing, errorCode), errorCode, timing.expectedLetter,
+                    timing.engineStart, timing.engineBackend, timing.vadCapture, raw, thresholds,
+                    baselineDb, endThresholdDb, postSilenceDelayMs, rmsTail);
+        }
+
+        /** Raw timestamps back in an AttemptTiming, for its duration helpers. */
+        AttemptTiming toTiming() {
+            AttemptTiming timing = new AttemptTiming();
+            for (int i = 0; i < raw.length && i < AttemptTiming.RAW_KEYS.length; i++) {
+                timing.setRawValue(i, raw[i]);
+            }
+            timing.attemptId = attemptId;
+            timing.expectedLetter = expectedLetter;
+            timing.engineStart = engineStart;
+            timing.engineBackend = engineBackend;
+            timing.vadCapture = vadCapture;
+            timing.partialFallback = outcome == AttemptMetrics.OUTCOME_PARTIAL_FALLBACK;
+            return timing;
+        }
+    }
+
+    private final File directory;
+    private long maxFileBytes;
+    private final CRC32 crc = new CRC32();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private ByteBuffer frameBuffer = ByteBuffer.allocate(1024);
+    private long records = 0L;
+    private long rotations = 0L;
+    // Set by close(): appends still queued on the pool must not reopen the file.
+    private boolean closed = false;
+
+    AttemptJournal(File directory, long maxFileBytes) {
+        this.directory = directory;
+        this.maxFileBytes = Math.max(MIN_MAX_FILE_BYTES, maxFileBytes);
+    }
+
+    synchronized long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /** New size bound; a current file already past it rotates on the next append. */
+    synchronized void setMaxFileBytes(long maxFileBytes) {
+        this.maxFileBytes = Math.max(MIN_MAX_FILE_BYTES, maxFileBytes);
+    }
+
+    /** Records appended by this instance. */
+    synchronized long getRecordCount() {
+        return records;
+    }
+
+    synchronized long getRotationCount() {
+        return rotations;
+    }
+
+    /** Dropped once {@link #close()} has been called. */
+    synchronized void append(Record record) throws IOException {
+        if (closed) {
+            return;
+        }
+        int payloadLength = encode(record);
+        int frameLength = payloadLength + FRAME_OVERHEAD;
+        openIfNeeded();
+        if (channel.size() > HEADER_BYTES && channel.size() + frameLength > maxFileBytes) {
+            rotate();
+        }
+        frameBuffer.flip();
+        channel.position(channel.size());
+        while (frameBuffer.hasRemaining()) {
+            channel.write(frameBuffer);
+        }
+        records++;
+    }
+
+    /**
+     * Whole journal (rotated file, then current) as one stream with a single
+     * header, readable by {@link #read(byte[])}.
+     */
+    synchronized byte[] export() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+        byte[] older = readValid(new File(directory, ROTATED_NAME));
+        byte[] newer = readValid(new File(directory, CURRENT_NAME));
+        int olderFrames = Math.max(0, older.length - HEADER_BYTES);
+        int newerFrames = Math.max(0, newer.length - HEADER_BYTES);
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + olderFrames + newerFrames);
+        out.putInt(MAGIC).putInt(VERSION);
+        out.put(older, Math.min(HEADER_BYTES, older.length), olderFrames);
+        out.put(newer, Math.min(HEADER_BYTES, newer.length), newerFrames);
+        return out.array();
+    }
+
+    synchronized void clear() throws IOException {
+        closeFile();
+        new File(directory, CURRENT_NAME).delete();
+        new File(directory, ROTATED_NAME).delete();
+    }
+
+    /** Final: later appends are no-ops. export() and clear() still work on the files. */
+    synchronized void close() throws IOException {
+        closed = true;
+        closeFile();
+    }
+
+    private void closeFile() throws IOException {
+        if (file != null) {
+            try {
+                file.close();
+            } finally {
+                file = null;
+                channel = null;
+            }
+        }
+    }
+
+    private void openIfNeeded() throws IOException {
+        if (channel != null) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("cannot create " + directory);
+        }
+        File current = new File(directory, CURRENT_NAME);
+        file = new RandomAccessFile(current, "rw");
+        channel = file.getChannel();
+        long validEnd = validLength(channel);
+        if (validEnd < HEADER_BYTES) {
+            // Missing, foreign or pre-header garbage: start over.
+            channel.truncate(0);
+            writeHeader(channel);
+        } else if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        File current = new File(directory, CURRENT_NAME);
+        File rotated = new File(directory, ROTATED_NAME);
+        if (rotated.exists() && !rotated.delete()) {
+            throw new IOException("cannot delete " + rotated);
+        }
+        if (!current.renameTo(rotated)) {
+            throw new IOException("cannot rotate " + current);
+        }
+        rotations++;
+        openIfNeeded();
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    /** Bytes of header plus intact frames; 0 if the header itself is bad. */
+    private static long validLength(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            return 0L;
+        }
+        ByteBuffer data = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        channel.position(0);
+        while (data.hasRemaining() && channel.read(data) >= 0) {
+            // keep reading
+        }
+        data.flip();
+        return validLength(data);
+    }
+
+    private static int validLength(ByteBuffer data) {
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            return 0;
+        }
+        CRC32 check = new CRC32();
+        int end = data.position();
+        while (data.remaining() >= FRAME_OVERHEAD) {
+            int length = data.getInt();
+            if (length <= 0 || length > MAX_PAYLOAD_BYTES || data.remaining() < length + 4) {
+                break;
+            }
+            check.reset();
+            check.update(data.array(), data.arrayOffset() + data.position(), length);
+            data.position(data.position() + length);
+            if ((int) check.getValue() != data.getInt()) {
+                break;
+            }
+            end = data.position();
+        }
+        return end;
+    }
+
+    private static byte[] readValid(File f) throws IOException {
+        if (!f.isFile()) {
+            return new byte[0];
+        }
+        byte[] bytes = Files.readAllBytes(f.toPath());
+        int valid = validLength(ByteBuffer.wrap(bytes));
+        byte[] out = new byte[valid];
+        System.arraycopy(bytes, 0, out, 0, valid);
+        return out;
+    }
+
+    // ---- Encoding ------------------------------------------------------------
+
+    /** Encodes one frame into frameBuffer (left unflipped); returns the payload length. */
+    private int encode(Record r) {
+        int tail = r.rmsTail != null ? Math.min(r.rmsTail.length, 255) : 0;
+        int worstCase = 128 + 5 * (MAX_STRING_BYTES + 1) + 8 * r.raw.length + 4 * tail + FRAME_OVERHEAD;
+        if (frameBuffer.capacity() < worstCase) {
+            frameBuffer = ByteBuffer.allocate(worstCase);
+        }
+        ByteBuffer b = frameBuffer;
+        b.clear();
+        b.putInt(0); // length, patched below
+        int payloadStart = b.position();
+        b.put(RECORD_ATTEMPT);
+        b.putLong(r.attemptId);
+        b.putLong(r.wallClockMs);
+        b.put((byte) r.commitReason);
+        b.put((byte) r.outcome);
+        putString(b, r.errorCode);
+        putString(b, r.expectedLetter);
+        putString(b, r.engineStart);
+        putString(b, r.engineBackend);
+        putString(b, r.vadCapture);
+        b.put((byte) r.raw.length);
+        for (long value : r.raw) {
+            b.putLong(value);
+        }
+        ThresholdConfig t = r.thresholds != null ? r.thresholds : ThresholdConfig.defaults();
+        b.putFloat(t.rmsStartThresholdDb);
+        b.putFloat(t.rmsEndThresholdDb);
+        b.putFloat(t.rmsResumeDeltaDb);
+        b.putInt((int) t.postSilenceMs);
+        b.putInt((int) t.minPostSilenceMs);
+        b.putInt((int) t.maxUtteranceMs);
+        b.putFloat(t.rmsVoiceTriggerDb);
+        b.put((byte) t.rmsSmoothTailSamples);
+        b.putInt((int) t.silenceHoldMs);
+        b.putFloat(r.baselineDb);
+        b.putFloat(r.endThresholdDb);
+        b.putInt((int) r.postSilenceDelayMs);
+        b.put((byte) tail);
+        // Keep the newest samples if the tail is ever longer than a byte count allows.
+        for (int i = 0; i < tail; i++) {
+            b.putFloat(r.rmsTail[r.rmsTail.length - tail + i]);
+        }
+        int payloadLength = b.position() - payloadStart;
+        b.putInt(0, payloadLength);
+        crc.reset();
+        crc.update(b.array(), payloadStart, payloadLength);
+        b.putInt((int) crc.getValue());
+        return payloadLength;
+    }
+
+    private static void putString(ByteBuffer b, String s) {
+        if (s == null) {
+            b.put((byte) 0);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int n = Math.min(bytes.length, MAX_STRING_BYTES);
+        b.put((byte) n);
+        b.put(bytes, 0, n);
+    }
+
+    private static String getString(ByteBuffer b) {
+        int n = b.get() & 0xFF;
+        if (n == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[n];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---- Reading -------------------------------------------------------------
+
+    /** Records in a journal file or {@link #export()} stream; stops at the first damaged frame. */
+    static List<Record> read(byte[] data) {
+        List<Record> out = new ArrayList<>();
+        ByteBuffer whole = ByteBuffer.wrap(data);
+        int valid = validLength(whole.duplicate());
+        if (valid < HEADER_BYTES) {
+            return out;
+        }
+        whole.position(HEADER_BYTES).limit(valid);
+        while (whole.remaining() >= FRAME_OVERHEAD) {
+            int length = whole.getInt();
+            ByteBuffer payload = whole.slice();
+            payload.limit(length);
+            whole.position(whole.position() + length + 4);
+            try {
+                Record record = decode(payload);
+                if (record != null) {
+                    out.add(record);
+                }
+            } catch (BufferUnderflowException e) {
+                break;
+            }
+        }
+        return out;
+    }
+
+    /** Rotated file then current file in {@code directory}, oldest first. */
+    static List<Record> readDirectory(File directory) throws IOException {
+        List<Record> out = new ArrayList<>();
+        for (String name : new String[]{ROTATED_NAME, CURRENT_NAME}) {
+            File f = new File(directory, name);
+            if (f.isFile()) {
+                out.addAll(read(Files.readAllBytes(f.toPath())));
+            }
+        }
+        return out;
+    }
+
+    private static Record decode(ByteBuffer b) {
+        if (b.get() != RECORD_ATTEMPT) {
+            return null; // newer record type; skip it
+        }
+        long attemptId = b.getLong();
+        long wallClockMs = b.getLong();
+        int commitReason = b.get();
+        int outcome = b.get();
+        String errorCode = getString(b);
+        String expectedLetter = getString(b);
+        String engineStart = getString(b);
+        String engineBackend = getString(b);
+        String vadCapture = getString(b);
+        long[] raw = new long[b.get() & 0xFF];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = b.getLong();
+        }
+        ThresholdConfig thresholds = new ThresholdConfig(
+                b.getFloat(), b.getFloat(), b.getFloat(),
+                b.getInt(), b.getInt(), b.getInt(),
+                b.getFloat(), b.get(), b.getInt());
+        float baselineDb = b.getFloat();
+        float endThresholdDb = b.getFloat();
+        long postSilenceDelayMs = b.getInt();
+        float[] rmsTail = new float[b.get() & 0xFF];
+        for (int i = 0; i < rmsTail.length; i++) {
+            rmsTail[i] = b.getFloat();
+        }
+        return new Record(attemptId, wallClockMs, commitReason, outcome, errorCode, expectedLetter,
+                engineStart, engineBackend, vadCapture, raw, thresholds, baselineDb, endThresholdDb,
+                postSilenceDelayMs, rmsTail);
+    }
+}
@@ -0,0 +1,246 @@
+package com.limetuna.speech;
+
+/**
+ * Plugin-lifetime latency and outcome counters, read by the getMetrics
+ * action. One {@link LatencyHistogram} per stage in {@link #STAGE_KEYS}
+ * (same names as the per-attempt native_durations), plus counts of how each
+ * attempt was committed, how it ended and, when raced, which path answered.
+ * Engine processing is also kept per recognition mode (online / offline),
+ * and recognizer rebuilds are counted by whether they were planned.
+ *
+ * Everything is preallocated; {@link #record(AttemptTiming, String)} does
+ * not allocate. Android-free; recognizer thread only.
+ */
+final class AttemptMetrics {
+
+    /** Indices into {@link #STAGE_KEYS} and {@link #stage(int)}. */
+    static final int STAGE_QUEUE_NATIVE = 0;
+    static final int STAGE_ENGINE_READY = 1;
+    static final int STAGE_USER_SPEECH_TO_ENGINE = 2;
+    static final int STAGE_ENGINE_PROCESSING = 3;
+    static final int STAGE_NORMALIZE = 4;
+    static final int STAGE_SPEECH_END_TO_CALLBACK = 5;
+    static final int STAGE_TOTAL = 6;
+    static final int STAGE_CONFIDENT_PARTIAL_TO_CALLBACK = 7;
+    static final String[] STAGE_KEYS = {
+            "d_queue_native_ms",
+            "d_engine_ready_ms",
+            "d_user_speech_to_engine_ms",
+            "d_engine_processing_ms",
+            "d_normalize_ms",
+            "d_speech_end_to_callback_ms",
+            "d_total_ms",
+            "d_confident_partial_to_callback_ms"
+    };
+
+    /**
+     * Who ended the listen: our post-silence timer, our failsafe, the engine
+     * itself, or a confident partial (earlyCommit).
+     */
+    static final int COMMIT_POST_SILENCE = 0;
+    static final int COMMIT_FAILSAFE = 1;
+    static final int COMMIT_ENGINE = 2;
+    static final int COMMIT_EARLY = 3;
+    static final String[] COMMIT_KEYS = {"post_silence", "failsafe", "engine", "early"};
+
+    /**
+     * Raced listens (init option hedged): which path's answer was accepted,
+     * or that neither was and the better miss was used.
+     */
+    static final int HEDGE_PRIMARY = 0;
+    static final int HEDGE_SECONDARY = 1;
+    static final int HEDGE_UNACCEPTED = 2;
+    static final String[] HEDGE_KEYS = {"primary", "secondary", "unaccepted"};
+
+    /**
+     * d_engine_processing_ms per {@link AttemptTiming#recognitionMode}, so
+     * on-device and network recognition can be compared (init option offlineFirst).
+     */
+    static final String[] MODE_KEYS = {
+            AttemptTiming.MODE_ONLINE, AttemptTiming.MODE_OFFLINE, AttemptTiming.MODE_ONLINE_FALLBACK
+    };
+
+    /**
+     * Recognizer rebuilds: proactive ones run between rounds because the
+     * {@link RecognizerHealth} score dropped; reactive ones follow an engine
+     * error, a preflight or an explicit reset.
+     */
+    static final int REBUILD_PROACTIVE = 0;
+    static final int REBUILD_REACTIVE = 1;
+    static final String[] REBUILD_KEYS = {"proactive", "reactive"};
+
+    static final int OUTCOME_RESULT = 0;
+    static final int OUTCOME_PARTIAL_FALLBACK = 1;
+    static final int OUTCOME_NO_MATCH = 2;
+    static final int OUTCOME_SPEECH_TIMEOUT = 3;
+    static final int OUTCOME_ENGINE_ERROR = 4;
+    /** stop() or endSession(); not counted in stages or commits. */
+    static final int OUTCOME_ABORTED = 5;
+    static final String[] OUTCOME_KEYS = {
+            "result", "partial_fallback", "no_match", "speech_timeout", "engine_error", "aborted"
+    };
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_KEYS.length];
+    private final long[] commits = new long[COMMIT_KEYS.length];
+    private final long[] outcomes = new long[OUTCOME_KEYS.length];
+    private final long[] hedges = new long[HEDGE_KEYS.length];
+    private final long[] rebuilds = new long[REBUILD_KEYS.length];
+    private final LatencyHistogram[] engineProcessingByMode = new LatencyHistogram[MODE_KEYS.length];
+    private long attempts = 0L;
+    private long sinceMs;
+
+    AttemptMetrics(long nowMs) {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < engineProcessingByMode.length; i++) {
+            engineProcessingByMode[i] = new LatencyHistogram();
+        }
+        sinceMs = nowMs;
+    }
+
+    /**
+     * Folds in one finished attempt.
+     *
+     * @param errorCode null for a result, else the error code sent to JS
+     */
+    void record(AttemptTiming timing, String errorCode) {
+        if (timing == null) {
+            return;
+        }
+        int outcome = outcome(timing, errorCode);
+        attempts++;
+        outcomes[outcome]++;
+        if (outcome == OUTCOME_ABORTED) {
+            return;
+        }
+        commits[commitReason(timing)]++;
+        if (timing.hedgeWinner >= 0) {
+            hedges[timing.hedgeAccepted ? timing.hedgeWinner : HEDGE_UNACCEPTED]++;
+        }
+        for (int i = 0; i < stages.length; i++) {
+            stages[i].record(stageValue(timing, i));
+        }
+        int mode = modeIndex(timing.recognitionMode);
+        if (mode >= 0) {
+            engineProcessingByMode[mode].record(timing.engineProcessingMs());
+        }
+    }
+
+    void recordRebuild(int kind) {
+        rebuilds[kind]++;
+    }
+
+    void reset(long nowMs) {
+        for (LatencyHistogram stage : stages) {
+            stage.reset();
+        }
+        for (LatencyHistogram mode : engineProcessingByMode) {
+            mode.reset();
+        }
+        for (int i = 0; i < commits.length; i++) {
+            commits[i] = 0L;
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = 0L;
+        }
+        for (int i = 0; i < hedges.length; i++) {
+            hedges[i] = 0L;
+        }
+        for (int i = 0; i < rebuilds.length; i++) {
+            rebuilds[i] = 0L;
+        }
+        attempts = 0L;
+        sinceMs = nowMs;
+    }
+
+    long getAttempts() {
+        return attempts;
+    }
+
+    /** Clock value of construction or the last reset. */
+    long getSinceMs() {
+        return sinceMs;
+    }
+
+    LatencyHistogram stage(int index) {
+        return stages[index];
+    }
+
+    long commitCount(int index) {
+        return commits[index];
+    }
+
+    long outcomeCount(int index) {
+        return outcomes[index];
+    }
+
+    long hedgeCount(int index) {
+        return hedges[index];
+    }
+
+    long rebuildCount(int index) {
+        return rebuilds[index];
+    }
+
+    LatencyHistogram engineProcessing(int modeIndex) {
+        return engineProcessingByMode[modeIndex];
+    }
+
+    static int modeIndex(String mode) {
+        for (int i = 0; i < MODE_KEYS.length; i++) {
+            if (MODE_KEYS[i].equals(mode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int commitReason(AttemptTiming timing) {
+        if (timing.nativeEarlyCommitMs > 0) {
+            return COMMIT_EARLY;
+        }
+        if (timing.nativePostSilenceCommitMs > 0) {
+            return COMMIT_POST_SILENCE;
+        }
+        if (timing.nativeFailSafeCommitMs > 0) {
+            return COMMIT_FAILSAFE;
+        }
+        return COMMIT_ENGINE;
+    }
+
+    static int outcome(AttemptTiming timing, String errorCode) {
+        if (errorCode == null) {
+            return timing.partialFallback ? OUTCOME_PARTIAL_FALLBACK : OUTCOME_RESULT;
+        }
+        return outcomeForError(errorCode);
+    }
+
+    static int outcomeForError(String errorCode) {
+        switch (errorCode) {
+            case "NO_MATCH":
+                return OUTCOME_NO_MATCH;
+            case "SPEECH_TIMEOUT":
+                return OUTCOME_SPEECH_TIMEOUT;
+            case "STOPPED":
+            case "SESSION_ENDED":
+                return OUTCOME_ABORTED;
+            default:
+                return OUTCOME_ENGINE_ERROR;
+        }
+    }
+
+    static long stageValue(AttemptTiming timing, int index) {
+        switch (index) {
+            case STAGE_QUEUE_NATIVE: return timing.queueNativeMs();
+            case STAGE_ENGINE_READY: return timing.engineReadyMs();
+            case STAGE_USER_SPEECH_TO_ENGINE: return timing.userSpeechToEngineMs();
+            case STAGE_ENGINE_PROCESSING: return timing.engineProcessingMs();
+            case STAGE_NORMALIZE: return timing.normalizeMs();
+            case STAGE_SPEECH_END_TO_CALLBACK: return timing.speechEndToCallbackMs();
+            case STAGE_TOTAL: return timing.totalMs();
+            case STAGE_CONFIDENT_PARTIAL_TO_CALLBACK: return timing.confidentPartialToCallbackMs();
+            default: throw new IndexOutOfBoundsException("stage index " + index);
+        }
+    }
+}
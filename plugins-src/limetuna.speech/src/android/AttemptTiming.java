@@ -0,0 +1,213 @@
+package com.limetuna.speech;
+
+/**
+ * Raw elapsed-realtime timestamps for one listening attempt. A zero field
+ * means the stage was never reached.
+ */
+final class AttemptTiming {
+    long nativeReceivedMs;
+    long nativeStartListeningMs;
+    long nativeReadyForSpeechMs;
+    long nativeBeginningOfSpeechMs;
+    long nativeFirstRmsAboveThresholdMs;
+    long nativeRmsSpeechStartMs;
+    long nativeRmsSpeechEndMs;
+    long nativePostSilenceCommitMs;
+    long nativeFailSafeCommitMs;
+    long nativeEndOfSpeechMs;
+    long nativeResultsMs;
+    long nativeErrorMs;
+    long nativeNormalizeDoneMs;
+    long nativeCallbackSentMs;
+    long nativeVadSpeechStartMs;
+    long nativeVadSpeechEndMs;
+    // First partial that was a confident hit on the expected target; recorded
+    // with or without earlyCommit, so the lead it would have given shows.
+    long nativeConfidentPartialMs;
+    long nativeEarlyCommitMs;
+
+    String expectedLetter;
+    long attemptId;
+
+    /** How the recognizer for this attempt was obtained. */
+    static final String START_COLD = "cold";
+    static final String START_WARM = "warm";
+    static final String START_REUSED = "reused";
+    /** Session mode: attached to a listen that was already armed and ready. */
+    static final String START_HOT = "hot";
+
+    String engineStart;
+    String engineBackend;
+    /** RecognizerHealth score of the recognizer when the attempt started, -1 if unknown. */
+    int engineHealth = -1;
+
+    /**
+     * Shortest post-silence delay the attempt's RMS silence windows ran with,
+     * -1 if none opened; and the longest of those windows that speech resumed
+     * out of (a pause inside the answer), 0 if none.
+     */
+    long postSilenceDelayMs = -1L;
+    long longestPauseMs;
+    /** Learned post-silence delay for the attempt (init option adaptivePostSilence), null when off. */
+    PostSilencePolicy.Plan postSilencePlan;
+
+    /**
+     * Which recognition served the attempt: online (offlineFirst off), offline
+     * (EXTRA_PREFER_OFFLINE with the model installed) or online_fallback
+     * (offlineFirst on, model not known to be installed).
+     */
+    static final String MODE_ONLINE = "online";
+    static final String MODE_OFFLINE = "offline";
+    static final String MODE_ONLINE_FALLBACK = "online_fallback";
+
+    String recognitionMode;
+    /** Started offline, found the model unusable before any speech, and restarted online. */
+    boolean offlineRetried;
+    // Plugin-lifetime start counters, snapshotted when the attempt began.
+    int warmStarts;
+    int coldStarts;
+    int reusedStarts;
+    int hotStarts;
+
+    /** Own-capture VAD for this attempt: null (off), "active", "silenced" or "failed". */
+    String vadCapture;
+
+    /** The result came from the last partial (empty results or NO_MATCH). */
+    boolean partialFallback;
+
+    /**
+     * Hedged recognition (init option hedged): the path whose answer was used
+     * ({@link HedgedRecognizerBackend#PRIMARY} or SECONDARY), -1 when the
+     * listen was not raced or was ended before either answered.
+     */
+    int hedgeWinner = -1;
+    /** The winner passed the acceptance check; false when it was the better of two misses. */
+    boolean hedgeAccepted;
+    /** The other path at the decision: rejected, error or cancelled (still listening). */
+    String hedgeLoser;
+    // ms after the listen started that the winner answered, and how long after it the loser did.
+    long hedgeWinnerMs = -1L;
+    long hedgeMarginMs;
+    boolean hedgeMarginKnown;
+
+    // ---- Stage durations (native_durations and AttemptMetrics) --------------
+    // Each returns -1 when a stage it spans was never reached.
+
+    static long span(long end, long start) {
+        return (end > 0 && start > 0 && end >= start) ? end - start : -1L;
+    }
+
+    long queueNativeMs() {
+        return span(nativeStartListeningMs, nativeReceivedMs);
+    }
+
+    long engineReadyMs() {
+        return span(nativeReadyForSpeechMs, nativeStartListeningMs);
+    }
+
+    long userSpeechToEngineMs() {
+        long anchorStart = nativeReadyForSpeechMs > 0 ? nativeReadyForSpeechMs : nativeStartListeningMs;
+        long anchorEnd = nativeRmsSpeechStartMs > 0
+                ? nativeRmsSpeechStartMs
+                : (nativeBeginningOfSpeechMs > 0 ? nativeBeginningOfSpeechMs : nativeFirstRmsAboveThresholdMs);
+        return span(anchorEnd, anchorStart);
+    }
+
+    /** When the user stopped talking: our RMS speech end, else the engine's end-of-speech. */
+    long speechEndMs() {
+        return nativeRmsSpeechEndMs > 0 ? nativeRmsSpeechEndMs : nativeEndOfSpeechMs;
+    }
+
+    long engineProcessingMs() {
+        return span(nativeResultsMs, speechEndMs());
+    }
+
+    long normalizeMs() {
+        return span(nativeNormalizeDoneMs, nativeResultsMs);
+    }
+
+    /** The latency the child feels: stopped talking to result/error handed to JS. */
+    long speechEndToCallbackMs() {
+        return span(nativeCallbackSentMs, speechEndMs());
+    }
+
+    long totalMs() {
+        return span(nativeCallbackSentMs, nativeReceivedMs);
+    }
+
+    /** From the first confident partial to the callback; what an early commit saves, or saved. */
+    long confidentPartialToCallbackMs() {
+        return span(nativeCallbackSentMs, nativeConfidentPartialMs);
+    }
+
+    /** JSON keys for the raw timestamps, indexed like {@link #rawValue(int)}. */
+    static final String[] RAW_KEYS = {
+            "native_received_ms",
+            "native_startListening_ms",
+            "native_readyForSpeech_ms",
+            "native_beginningOfSpeech_ms",
+            "native_firstRmsAboveThreshold_ms",
+            "native_rmsSpeechStart_ms",
+            "native_rmsSpeechEnd_ms",
+            "native_postSilenceCommit_ms",
+            "native_failSafeCommit_ms",
+            "native_endOfSpeech_ms",
+            "native_results_ms",
+            "native_error_ms",
+            "native_normalize_done_ms",
+            "native_callback_sent_ms",
+            "native_vadSpeechStart_ms",
+            "native_vadSpeechEnd_ms",
+            "native_confidentPartial_ms",
+            "native_earlyCommit_ms"
+    };
+
+    long rawValue(int index) {
+        switch (index) {
+            case 0: return nativeReceivedMs;
+            case 1: return nativeStartListeningMs;
+            case 2: return nativeReadyForSpeechMs;
+            case 3: return nativeBeginningOfSpeechMs;
+            case 4: return nativeFirstRmsAboveThresholdMs;
+            case 5: return nativeRmsSpeechStartMs;
+            case 6: return nativeRmsSpeechEndMs;
+            case 7: return nativePostSilenceCommitMs;
+            case 8: return nativeFailSafeCommitMs;
+            case 9: return nativeEndOfSpeechMs;
+            case 10: return nativeResultsMs;
+            case 11: return nativeErrorMs;
+            case 12: return nativeNormalizeDoneMs;
+            case 13: return nativeCallbackSentMs;
+            case 14: return nativeVadSpeechStartMs;
+            case 15: return nativeVadSpeechEndMs;
+            case 16: return nativeConfidentPartialMs;
+            case 17: return nativeEarlyCommitMs;
+            default: throw new IndexOutOfBoundsException("raw timing index " + index);
+        }
+    }
+
+    /** Inverse of {@link #rawValue(int)}; used when reading attempts back from the journal. */
+    void setRawValue(int index, long value) {
+        switch (index) {
+            case 0: nativeReceivedMs = value; break;
+            case 1: nativeStartListeningMs = value; break;
+            case 2: nativeReadyForSpeechMs = value; break;
+            case 3: nativeBeginningOfSpeechMs = value; break;
+            case 4: nativeFirstRmsAboveThresholdMs = value; break;
+            case 5: nativeRmsSpeechStartMs = value; break;
+            case 6: nativeRmsSpeechEndMs = value; break;
+            case 7: nativePostSilenceCommitMs = value; break;
+            case 8: nativeFailSafeCommitMs = value; break;
+            case 9: nativeEndOfSpeechMs = value; break;
+            case 10: nativeResultsMs = value; break;
+            case 11: nativeErrorMs = value; break;
+            case 12: nativeNormalizeDoneMs = value; break;
+            case 13: nativeCallbackSentMs = value; break;
+            case 14: nativeVadSpeechStartMs = value; break;
+            case 15: nativeVadSpeechEndMs = value; break;
+            case 16: nativeConfidentPartialMs = value; break;
+            case 17: nativeEarlyCommitMs = value; break;
+            default: throw new IndexOutOfBoundsException("raw timing index " + index);
+        }
+    }
+}
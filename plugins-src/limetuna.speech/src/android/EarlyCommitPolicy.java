@@ -0,0 +1,90 @@
+package com.limetuna.speech;
+
+import java.util.List;
+
+/**
+ * Decides whether a partial result is already a confident hit on the
+ * prompted target, so the attempt can be committed without waiting for the
+ * post-silence window and the engine's final result (init option
+ * earlyCommit). Only hits on the expected target qualify: a wrong answer
+ * always takes the normal path, where the final result may still correct it.
+ *
+ * A target registered with registerVocabulary is matched with
+ * {@link VocabularyMatcher} and must be within {@link #maxKeywordDistance}
+ * by text; a phonetic match is never confident enough. Anything else is
+ * scored as a letter with {@link LetterScorer} and must reach
+ * {@link #minLetterScore} (expected-letter bias included: 5 for the whole
+ * phrase, 4 for a word, 3.5 for a partial form).
+ *
+ * Immutable; Android-free so tools/EarlyCommitReplay can run it on the JVM.
+ */
+final class EarlyCommitPolicy {
+
+    static final double DEFAULT_MIN_LETTER_SCORE = 4.0;
+    static final int DEFAULT_MAX_KEYWORD_DISTANCE = 0;
+    static final int DEFAULT_STABLE_PARTIALS = 1;
+
+    /** A qualifying partial: the text to report and what it scored. */
+    static final class Hit {
+        final String text;
+        final String target;
+        final double score;
+
+        Hit(String text, String target, double score) {
+            this.text = text;
+            this.target = target;
+            this.score = score;
+        }
+    }
+
+    final boolean enabled;
+    final double minLetterScore;
+    final int maxKeywordDistance;
+    /** Consecutive qualifying partials needed before committing. */
+    final int stablePartials;
+
+    EarlyCommitPolicy(boolean enabled, double minLetterScore, int maxKeywordDistance, int stablePartials) {
+        this.enabled = enabled;
+        this.minLetterScore = minLetterScore;
+        this.maxKeywordDistance = maxKeywordDistance;
+        this.stablePartials = Math.max(1, stablePartials);
+    }
+
+    static EarlyCommitPolicy disabled() {
+        return new EarlyCommitPolicy(false, DEFAULT_MIN_LETTER_SCORE, DEFAULT_MAX_KEYWORD_DISTANCE,
+                DEFAULT_STABLE_PARTIALS);
+    }
+
+    /**
+     * Scores one partial against the expected target. Returns null unless it
+     * is a confident hit on exactly that target. Evaluated whether or not the
+     * policy is enabled, so disabled attempts still report the lead they
+     * would have had.
+     */
+    Hit evaluate(List<String> partial, String expected, VocabularyMatcher vocabulary) {
+        if (partial == null || partial.isEmpty() || expected == null) {
+            return null;
+        }
+        if (vocabulary != null && vocabulary.hasTarget(expected)) {
+            VocabularyMatcher.Match match = vocabulary.match(partial, expected);
+            if (match == null || !expected.equals(match.targetId)
+                    || match.distance < 0 || match.distance > maxKeywordDistance) {
+                return null;
+            }
+            return new Hit(partial.get(0), expected, match.distance);
+        }
+        LetterScorer.Choice choice = LetterScorer.get().choose(partial, expected);
+        if (choice.letter == null || !choice.letter.equalsIgnoreCase(expected) || choice.score < minLetterScore) {
+            return null;
+        }
+        return new Hit(partial.get(0), choice.letter, choice.score);
+    }
+
+    @Override
+    public String toString() {
+        return "enabled=" + enabled +
+                " minLetterScore=" + minLetterScore +
+                " maxKeywordDistance=" + maxKeywordDistance +
+                " stablePartials=" + stablePartials;
+    }
+}
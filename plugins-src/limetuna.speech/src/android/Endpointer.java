@@ -0,0 +1,444 @@
+package com.limetuna.speech;
+
+/**
+ * RMS endpointing state machine (IDLE -> SPEECH -> SILENCE_WINDOW -> COMMIT).
+ *
+ * Android-free: time comes from an injected {@link Clock} and delayed work goes
+ * through an injected {@link Timer}. LimeTunaSpeech backs both with
+ * SystemClock/Handler; tools/EndpointerTraceReplay backs them with a virtual
+ * clock so commit latency can be measured offline.
+ *
+ * In VAD-driven mode (own PCM capture, see {@link FrameVad}) speech start/end
+ * come from {@link #onVadSpeechStart}/{@link #onVadSpeechEnd} and RMS samples
+ * only update statistics. Because the VAD end time is frame-accurate and already
+ * includes its hangover, the silence window only waits out the remainder of
+ * {@code minPostSilenceMs} instead of the RMS path's hold + adaptive delay.
+ *
+ * A planned delay ({@link #setPostSilencePlan}, learned per target by
+ * {@link PostSilenceModel}) replaces the RMS path's adaptive delay and its
+ * no-partial boost. Either way the attempt's timing records the shortest
+ * delay its silence windows ran with and the longest pause speech resumed
+ * from, which is what the model learns from.
+ *
+ * Not thread-safe; every call must come from the thread that runs the timer.
+ */
+final class Endpointer {
+
+    static final float END_BASELINE_DELTA_PERCENT = 0.45f;
+    static final float END_BASELINE_DELTA_DB_MIN = 2.0f;
+    static final long NO_PARTIAL_POST_SILENCE_BOOST_MS = 350L;
+    static final float NO_PARTIAL_END_THRESHOLD_DELTA_DB = 0.4f;
+    // Weight of the carried-over baseline, in silence samples (~0.5 s of onRmsChanged).
+    static final int PRIOR_BASELINE_WEIGHT = 8;
+
+    enum State {
+        IDLE,
+        SPEECH,
+        SILENCE_WINDOW,
+        COMMIT
+    }
+
+    interface Clock {
+        long nowMs();
+    }
+
+    interface Timer {
+        void postDelayed(Runnable task, long delayMs);
+
+        void cancel(Runnable task);
+    }
+
+    interface Listener {
+        void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs);
+
+        /** Post-silence timer expired; the caller should stop the recognizer. */
+        void onPostSilenceCommit(long nowMs);
+
+        /** Max utterance timer expired; the caller should stop the recognizer. */
+        void onFailSafeCommit(long nowMs);
+    }
+
+    private final Clock clock;
+    private final Timer timer;
+    private final Listener listener;
+    private final RmsStats rmsStats = new RmsStats();
+
+    private ThresholdConfig thresholds = ThresholdConfig.defaults();
+    private AttemptTiming timing;
+    private State state = State.IDLE;
+    private boolean active = false;
+    private boolean vadDriven = false;
+    private float baselinePriorDb = Float.NaN;
+    private long plannedPostSilenceMs = -1L;
+    private long silenceWindowStartMs = 0L;
+    private Runnable silenceTimeoutRunnable;
+    private Runnable speechFailSafeRunnable;
+    private float sessionPeakRmsDb = Float.NEGATIVE_INFINITY;
+    private float adaptiveEndThresholdDb = ThresholdConfig.RMS_END_THRESHOLD_DB;
+    private long belowEndThresholdSinceMs = 0L;
+    private boolean partialResultsSeen = false;
+    private boolean awaitingPartialAfterBos = false;
+    private long lastComputedPostSilenceDelayMs = ThresholdConfig.POST_SILENCE_MS;
+    private float lastComputedEndThresholdDb = ThresholdConfig.RMS_END_THRESHOLD_DB;
+
+    Endpointer(Clock clock, Timer timer, Listener listener) {
+        this.clock = clock;
+        this.timer = timer;
+        this.listener = listener;
+    }
+
+    /** Arms the state machine for a new attempt. */
+    void begin(AttemptTiming attemptTiming, ThresholdConfig config) {
+        state = State.IDLE;
+        cancelSilenceTimer(false);
+        cancelSpeechFailSafe();
+        thresholds = config != null ? config : ThresholdConfig.defaults();
+        timing = attemptTiming;
+        active = true;
+        rmsStats.reset();
+        rmsStats.seedBaseline(baselinePriorDb, PRIOR_BASELINE_WEIGHT);
+        partialResultsSeen = false;
+        awaitingPartialAfterBos = false;
+        belowEndThresholdSinceMs = 0L;
+        silenceWindowStartMs = 0L;
+        sessionPeakRmsDb = Float.NEGATIVE_INFINITY;
+        adaptiveEndThresholdDb = computeEndThresholdDb();
+        lastComputedPostSilenceDelayMs = thresholds.postSilenceMs;
+        lastComputedEndThresholdDb = adaptiveEndThresholdDb;
+    }
+
+    /**
+     * Ambient baseline carried across attempts (calibration / earlier attempts),
+     * applied from the next {@link #begin}. NaN starts each attempt without one.
+     */
+    void setBaselinePrior(float baselineDb) {
+        baselinePriorDb = baselineDb;
+    }
+
+    void onBeginningOfSpeech(long nowMs) {
+        awaitingPartialAfterBos = true;
+        if (vadDriven) {
+            // The VAD owns speech start; still arm the failsafe if it hasn't fired yet.
+            ensureRmsSpeechStart(nowMs);
+            return;
+        }
+        state = State.SPEECH;
+        ensureRmsSpeechStart(nowMs);
+    }
+
+    /**
+     * Post-silence delay for the RMS path's silence windows, applied from the
+     * next {@link #begin}; -1 uses the adaptive delay.
+     */
+    void setPostSilencePlan(long delayMs) {
+        plannedPostSilenceMs = delayMs;
+    }
+
+    /**
+     * Switches speech start/end decisions to the frame VAD for the current
+     * attempt. Turning it off (e.g. capture was silenced) hands control back
+     * to the RMS path from whatever state the attempt is in.
+     */
+    void setVadDriven(boolean enabled) {
+        vadDriven = enabled;
+        belowEndThresholdSinceMs = 0L;
+    }
+
+    boolean isVadDriven() {
+        return vadDriven;
+    }
+
+    /** Frame VAD confirmed speech that began at {@code speechStartMs}. */
+    void onVadSpeechStart(long speechStartMs) {
+        if (!active || !vadDriven) {
+            return;
+        }
+        if (state == State.IDLE || state == State.SILENCE_WINDOW) {
+            cancelSilenceTimer(true);
+            state = State.SPEECH;
+        }
+        ensureRmsSpeechStart(speechStartMs);
+    }
+
+    /**
+     * Frame VAD saw its hangover of non-speech after speech that ended at
+     * {@code speechEndMs}; {@code nowMs} is when that decision was made.
+     */
+    void onVadSpeechEnd(long nowMs, long speechEndMs) {
+        if (!active || !vadDriven || state != State.SPEECH) {
+            return;
+        }
+        long alreadyWaited = Math.max(0L, nowMs - speechEndMs);
+        beginSilenceWindow(nowMs, speechEndMs, Math.max(0L, thresholds.minPostSilenceMs - alreadyWaited));
+    }
+
+    /**
+     * Feeds one RMS sample. Stats are always updated; the state machine only
+     * advances while the attempt is active.
+     *
+     * @return the smoothed RMS used for detection
+     */
+    float onRms(float rmsDb, long nowMs) {
+        float smoothedRmsDb = rmsStats.update(rmsDb, nowMs, state);
+        float detectionRmsDb = Float.isNaN(smoothedRmsDb) ? rmsDb : smoothedRmsDb;
+
+        sessionPeakRmsDb = Math.max(sessionPeakRmsDb, detectionRmsDb);
+        float endThresholdFloor = computeEndThresholdDb();
+        if (shouldDeferCommitForMissingPartials()) {
+            endThresholdFloor = Math.max(thresholds.rmsVoiceTriggerDb, endThresholdFloor - NO_PARTIAL_END_THRESHOLD_DELTA_DB);
+        }
+        // A carried-over baseline may lift the cap: in a room louder than the static
+        // end threshold assumes, silence would otherwise never drop below it.
+        float endThresholdCap = Float.isNaN(baselinePriorDb)
+                ? thresholds.rmsEndThresholdDb
+                : Math.max(thresholds.rmsEndThresholdDb, endThresholdFloor);
+        if (!Float.isInfinite(sessionPeakRmsDb)) {
+            float candidate = detectionRmsDb * 0.8f; // 20% below peak
+            float floored = Math.max(candidate, endThresholdFloor);
+            adaptiveEndThresholdDb = Math.min(endThresholdCap, floored);
+        } else {
+            adaptiveEndThresholdDb = endThresholdFloor;
+        }
+        lastComputedEndThresholdDb = adaptiveEndThresholdDb;
+        if (timing != null && timing.nativeFirstRmsAboveThresholdMs == 0 && detectionRmsDb > thresholds.rmsVoiceTriggerDb) {
+            timing.nativeFirstRmsAboveThresholdMs = nowMs;
+        }
+
+        if (!active || vadDriven) {
+            return detectionRmsDb;
+        }
+
+        switch (state) {
+            case IDLE:
+                state = State.SPEECH;
+                ensureRmsSpeechStart(nowMs);
+                cancelSilenceTimer(true);
+                belowEndThresholdSinceMs = 0L;
+                break;
+            case SPEECH:
+                if (detectionRmsDb < adaptiveEndThresholdDb) {
+                    if (belowEndThresholdSinceMs == 0L) {
+                        belowEndThresholdSinceMs = nowMs;
+                    }
+                    if ((nowMs - belowEndThresholdSinceMs) >= thresholds.silenceHoldMs) {
+                        beginSilenceWindow(nowMs, nowMs, -1L);
+                    }
+                } else {
+                    belowEndThresholdSinceMs = 0L;
+                }
+                break;
+            case SILENCE_WINDOW: {
+                if (detectionRmsDb >= adaptiveEndThresholdDb + thresholds.rmsResumeDeltaDb) {
+                    if (timing != null && silenceWindowStartMs > 0) {
+                        // A pause inside the answer, not its end.
+                        timing.longestPauseMs = Math.max(timing.longestPauseMs, nowMs - silenceWindowStartMs);
+                    }
+                    cancelSilenceTimer(true);
+                    state = State.SPEECH;
+                    ensureRmsSpeechStart(nowMs);
+                    belowEndThresholdSinceMs = 0L;
+                }
+                break;
+            }
+            case COMMIT:
+                // Waiting for commit; ignore further RMS.
+                break;
+        }
+        return detectionRmsDb;
+    }
+
+    void onPartialResults(int count) {
+        if (count > 0) {
+            partialResultsSeen = true;
+            awaitingPartialAfterBos = false;
+        }
+    }
+
+    void onEndOfSpeech(long nowMs) {
+        beginSilenceWindow(nowMs, nowMs, -1L);
+    }
+
+    /** The recognizer was told to stop; drop the silence timer and stop advancing. */
+    void stop() {
+        cancelSilenceTimer(false);
+        active = false;
+        state = State.IDLE;
+    }
+
+    /** The attempt finished (result, error or teardown). */
+    void reset() {
+        cancelSilenceTimer(false);
+        cancelSpeechFailSafe();
+        state = State.IDLE;
+        active = false;
+        vadDriven = false;
+        timing = null;
+        belowEndThresholdSinceMs = 0L;
+        silenceWindowStartMs = 0L;
+        awaitingPartialAfterBos = false;
+        partialResultsSeen = false;
+        lastComputedPostSilenceDelayMs = ThresholdConfig.POST_SILENCE_MS;
+        lastComputedEndThresholdDb = ThresholdConfig.RMS_END_THRESHOLD_DB;
+    }
+
+    State getState() {
+        return state;
+    }
+
+    RmsStats getRmsStats() {
+        return rmsStats;
+    }
+
+    ThresholdConfig getThresholds() {
+        return thresholds;
+    }
+
+    long getLastComputedPostSilenceDelayMs() {
+        return lastComputedPostSilenceDelayMs;
+    }
+
+    float getLastComputedEndThresholdDb() {
+        return lastComputedEndThresholdDb;
+    }
+
+    boolean isPartialResultsSeen() {
+        return partialResultsSeen;
+    }
+
+    boolean shouldDeferCommitForMissingPartials() {
+        return awaitingPartialAfterBos && !partialResultsSeen;
+    }
+
+    /**
+     * @param speechEndMs  when speech actually ended (earlier than nowMs for the VAD)
+     * @param fixedDelayMs post-silence delay to use, or -1 for the adaptive delay
+     */
+    private void beginSilenceWindow(long nowMs, long speechEndMs, long fixedDelayMs) {
+        if (state == State.SILENCE_WINDOW || state == State.COMMIT) {
+            return;
+        }
+
+        state = State.SILENCE_WINDOW;
+        belowEndThresholdSinceMs = 0L;
+        if (timing != null && timing.nativeRmsSpeechEndMs == 0) {
+            timing.nativeRmsSpeechEndMs = speechEndMs;
+        }
+
+        cancelSpeechFailSafe();
+
+        boolean planned = fixedDelayMs < 0 && plannedPostSilenceMs >= 0;
+        long postSilenceDelayMs;
+        if (planned) {
+            postSilenceDelayMs = plannedPostSilenceMs;
+        } else {
+            postSilenceDelayMs = fixedDelayMs >= 0 ? fixedDelayMs : computePostSilenceDelay(nowMs);
+            if (shouldDeferCommitForMissingPartials()) {
+                postSilenceDelayMs = Math.min(thresholds.maxUtteranceMs,
+                        postSilenceDelayMs + NO_PARTIAL_POST_SILENCE_BOOST_MS);
+            }
+        }
+        if (fixedDelayMs >= 0) {
+            silenceWindowStartMs = 0L;
+        } else {
+            silenceWindowStartMs = nowMs;
+            if (timing != null && (timing.postSilenceDelayMs < 0 || postSilenceDelayMs < timing.postSilenceDelayMs)) {
+                timing.postSilenceDelayMs = postSilenceDelayMs;
+            }
+        }
+        lastComputedPostSilenceDelayMs = postSilenceDelayMs;
+        listener.onEnterSilenceWindow(nowMs, postSilenceDelayMs);
+
+        silenceTimeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (!active) {
+                    return;
+                }
+                state = State.COMMIT;
+                cancelSpeechFailSafe();
+                long now = clock.nowMs();
+                if (timing != null && timing.nativePostSilenceCommitMs == 0) {
+                    timing.nativePostSilenceCommitMs = now;
+                }
+                listener.onPostSilenceCommit(now);
+            }
+        };
+        timer.postDelayed(silenceTimeoutRunnable, postSilenceDelayMs);
+    }
+
+    private long computePostSilenceDelay(long nowMs) {
+        long speechStart = 0L;
+        if (timing != null) {
+            speechStart = timing.nativeRmsSpeechStartMs > 0
+                    ? timing.nativeRmsSpeechStartMs
+                    : timing.nativeBeginningOfSpeechMs;
+        }
+        long speechDuration = speechStart > 0 ? Math.max(0, nowMs - speechStart) : 0L;
+        long adaptive;
+        if (speechDuration > 0) {
+            long reduction = speechDuration / 3;
+            adaptive = Math.max(thresholds.minPostSilenceMs, thresholds.postSilenceMs - reduction);
+        } else {
+            adaptive = Math.max(thresholds.minPostSilenceMs, thresholds.postSilenceMs);
+        }
+        return adaptive;
+    }
+
+    private void cancelSilenceTimer(boolean clearEndTime) {
+        if (silenceTimeoutRunnable != null) {
+            timer.cancel(silenceTimeoutRunnable);
+        }
+        silenceTimeoutRunnable = null;
+        belowEndThresholdSinceMs = 0L;
+        if (clearEndTime && timing != null && state == State.SILENCE_WINDOW) {
+            timing.nativeRmsSpeechEndMs = 0;
+        }
+    }
+
+    private void ensureRmsSpeechStart(long startMs) {
+        if (timing != null && timing.nativeRmsSpeechStartMs == 0) {
+            timing.nativeRmsSpeechStartMs = startMs;
+            scheduleSpeechFailSafe();
+        }
+    }
+
+    private void scheduleSpeechFailSafe() {
+        cancelSpeechFailSafe();
+        speechFailSafeRunnable = new Runnable() {
+            @Override
+            public void run() {
+                if (!active || state == State.COMMIT) {
+                    return;
+                }
+                state = State.COMMIT;
+                long now = clock.nowMs();
+                if (timing != null && timing.nativeRmsSpeechEndMs == 0) {
+                    timing.nativeRmsSpeechEndMs = now;
+                }
+                if (timing != null && timing.nativeFailSafeCommitMs == 0) {
+                    timing.nativeFailSafeCommitMs = now;
+                }
+                listener.onFailSafeCommit(now);
+            }
+        };
+        timer.postDelayed(speechFailSafeRunnable, thresholds.maxUtteranceMs);
+    }
+
+    private void cancelSpeechFailSafe() {
+        if (speechFailSafeRunnable != null) {
+            timer.cancel(speechFailSafeRunnable);
+        }
+        speechFailSafeRunnable = null;
+    }
+
+    private float computeEndThresholdDb() {
+        float base = thresholds.rmsEndThresholdDb;
+        float baseline = rmsStats.getBaselineRmsDb();
+        if (!Float.isNaN(baseline)) {
+            float deltaFromBaseline = Math.max(END_BASELINE_DELTA_DB_MIN,
+                    Math.abs(baseline) * END_BASELINE_DELTA_PERCENT);
+            base = baseline + deltaFromBaseline;
+        }
+        return base;
+    }
+}
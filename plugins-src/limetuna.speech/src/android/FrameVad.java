@@ -0,0 +1,237 @@
+package com.limetuna.speech;
+
+/**
+ * Frame-level voice activity detector over 16-bit mono PCM: per-frame energy
+ * (dBFS) against an adaptive noise floor, with zero-crossing rate to reject
+ * hiss-like frames that are only moderately loud.
+ *
+ * Android-free so it can be run on WAV files on the JVM
+ * (tools/FrameVadWavCheck). Times are milliseconds from the start of the
+ * stream, derived from the frame index, so decisions are frame-accurate
+ * regardless of when the caller gets to see them.
+ *
+ * Not thread-safe; feed it from the capture thread only.
+ */
+final class FrameVad {
+
+    static final int EVENT_NONE = 0;
+    static final int EVENT_SPEECH_START = 1;
+    static final int EVENT_SPEECH_END = 2;
+
+    static final int DEFAULT_SAMPLE_RATE = 16000;
+    static final int DEFAULT_FRAME_MS = 20;
+    static final int MIN_FRAME_MS = 10;
+    static final int MAX_FRAME_MS = 30;
+
+    // A frame is speech-like when it is this far above the noise floor...
+    static final float START_MARGIN_DB = 9.0f;
+    // ...or, once in speech, at least this far (hysteresis).
+    static final float CONTINUE_MARGIN_DB = 5.0f;
+    // Frames this far above the floor count as speech whatever their ZCR (fricatives).
+    static final float LOUD_MARGIN_DB = 18.0f;
+    static final float MAX_VOICED_ZCR = 0.35f;
+    static final float MIN_SPEECH_DBFS = -60.0f;
+    static final int START_CONFIRM_MS = 60;
+    static final int HANGOVER_MS = 240;
+    // Noise floor tracking: fast down, slow up, frozen during speech.
+    static final float FLOOR_DOWN_ALPHA = 0.3f;
+    static final float FLOOR_UP_ALPHA = 0.02f;
+    static final float INITIAL_FLOOR_DBFS = -50.0f;
+    private static final double SILENCE_DBFS = -100.0;
+
+    private final int sampleRate;
+    private final int frameMs;
+    private final int frameSamples;
+    private final int startConfirmFrames;
+    private final int hangoverFrames;
+
+    private long frameIndex = 0L;
+    private float noiseFloorDb = INITIAL_FLOOR_DBFS;
+    private boolean floorSeeded = false;
+    private boolean inSpeech = false;
+    private int speechRun = 0;
+    private int silenceRun = 0;
+    private long candidateStartFrame = -1L;
+    private long lastSpeechFrame = -1L;
+    private long speechStartMs = -1L;
+    private long speechEndMs = -1L;
+    private float lastFrameDb = (float) SILENCE_DBFS;
+    private float lastZcr = 0f;
+    private long digitalSilenceFrames = 0L;
+
+    FrameVad() {
+        this(DEFAULT_SAMPLE_RATE, DEFAULT_FRAME_MS);
+    }
+
+    FrameVad(int sampleRate, int frameMs) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("sampleRate must be positive");
+        }
+        this.sampleRate = sampleRate;
+        this.frameMs = Math.max(MIN_FRAME_MS, Math.min(MAX_FRAME_MS, frameMs));
+        this.frameSamples = sampleRate * this.frameMs / 1000;
+        this.startConfirmFrames = Math.max(1, START_CONFIRM_MS / this.frameMs);
+        this.hangoverFrames = Math.max(1, HANGOVER_MS / this.frameMs);
+    }
+
+    int getSampleRate() {
+        return sampleRate;
+    }
+
+    int getFrameMs() {
+        return frameMs;
+    }
+
+    /** Samples per frame; {@link #process} expects exactly this many. */
+    int getFrameSamples() {
+        return frameSamples;
+    }
+
+    void reset() {
+        frameIndex = 0L;
+        noiseFloorDb = INITIAL_FLOOR_DBFS;
+        floorSeeded = false;
+        inSpeech = false;
+        speechRun = 0;
+        silenceRun = 0;
+        candidateStartFrame = -1L;
+        lastSpeechFrame = -1L;
+        speechStartMs = -1L;
+        speechEndMs = -1L;
+        lastFrameDb = (float) SILENCE_DBFS;
+        lastZcr = 0f;
+        digitalSilenceFrames = 0L;
+    }
+
+    /**
+     * Consumes one frame of {@link #getFrameSamples()} samples starting at
+     * {@code offset}.
+     *
+     * @return {@link #EVENT_SPEECH_START}, {@link #EVENT_SPEECH_END} or {@link #EVENT_NONE}
+     */
+    int process(short[] pcm, int offset) {
+        double sumSquares = 0;
+        int crossings = 0;
+        boolean allZero = true;
+        short prev = pcm[offset];
+        for (int i = 0; i < frameSamples; i++) {
+            short s = pcm[offset + i];
+            if (s != 0) allZero = false;
+            sumSquares += (double) s * s;
+            if (i > 0 && ((s >= 0) != (prev >= 0))) {
+                crossings++;
+            }
+            prev = s;
+        }
+        if (allZero) {
+            digitalSilenceFrames++;
+        }
+
+        double meanSquare = sumSquares / frameSamples;
+        double db = meanSquare > 0
+                ? 10.0 * Math.log10(meanSquare / (32768.0 * 32768.0))
+                : SILENCE_DBFS;
+        float frameDb = (float) Math.max(SILENCE_DBFS, db);
+        float zcr = frameSamples > 1 ? (float) crossings / (frameSamples - 1) : 0f;
+        lastFrameDb = frameDb;
+        lastZcr = zcr;
+
+        if (!floorSeeded) {
+            noiseFloorDb = frameDb;
+            floorSeeded = true;
+        }
+
+        boolean speechLike = isSpeechLike(frameDb, zcr);
+        int event = EVENT_NONE;
+        long frame = frameIndex++;
+
+        if (speechLike) {
+            silenceRun = 0;
+            lastSpeechFrame = frame;
+            if (!inSpeech) {
+                if (speechRun == 0) {
+                    candidateStartFrame = frame;
+                }
+                speechRun++;
+                if (speechRun >= startConfirmFrames) {
+                    inSpeech = true;
+                    speechStartMs = candidateStartFrame * frameMs;
+                    speechEndMs = -1L;
+                    event = EVENT_SPEECH_START;
+                }
+            }
+        } else {
+            speechRun = 0;
+            if (inSpeech) {
+                silenceRun++;
+                if (silenceRun >= hangoverFrames) {
+                    inSpeech = false;
+                    speechEndMs = (lastSpeechFrame + 1) * frameMs;
+                    event = EVENT_SPEECH_END;
+                }
+            }
+            updateNoiseFloor(frameDb);
+        }
+        return event;
+    }
+
+    private boolean isSpeechLike(float frameDb, float zcr) {
+        if (frameDb < MIN_SPEECH_DBFS) {
+            return false;
+        }
+        float margin = frameDb - noiseFloorDb;
+        if (margin >= LOUD_MARGIN_DB) {
+            return true;
+        }
+        float needed = inSpeech ? CONTINUE_MARGIN_DB : START_MARGIN_DB;
+        return margin >= needed && zcr <= MAX_VOICED_ZCR;
+    }
+
+    private void updateNoiseFloor(float frameDb) {
+        if (inSpeech) {
+            return;
+        }
+        float alpha = frameDb < noiseFloorDb ? FLOOR_DOWN_ALPHA : FLOOR_UP_ALPHA;
+        noiseFloorDb += alpha * (frameDb - noiseFloorDb);
+    }
+
+    boolean isInSpeech() {
+        return inSpeech;
+    }
+
+    /** Start of the most recent speech segment (ms from stream start), -1 if none. */
+    long getSpeechStartMs() {
+        return speechStartMs;
+    }
+
+    /** End of the last speech frame of the most recent segment, -1 while in speech or if none. */
+    long getSpeechEndMs() {
+        return speechEndMs;
+    }
+
+    /** Stream position after the last processed frame. */
+    long getPositionMs() {
+        return frameIndex * frameMs;
+    }
+
+    long getFrameCount() {
+        return frameIndex;
+    }
+
+    /** Frames that were exactly zero, e.g. because another client holds the mic. */
+    long getDigitalSilenceFrames() {
+        return digitalSilenceFrames;
+    }
+
+    float getNoiseFloorDb() {
+        return noiseFloorDb;
+    }
+
+    float getLastFrameDb() {
+        return lastFrameDb;
+    }
+
+    float getLastZcr() {
+        return lastZcr;
+    }
+}
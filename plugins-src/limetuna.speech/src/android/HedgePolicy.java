@@ -0,0 +1,62 @@
+package com.limetuna.speech;
+
+import java.util.List;
+
+/**
+ * Settings for hedged recognition (init option hedged): whether to race a
+ * second recognizer, which final result is good enough to end the race, and
+ * how long to wait on the other path once one has answered without being
+ * good enough.
+ *
+ * A result is accepted when its best confidence reaches
+ * {@link #minConfidence}, or when it is a confident hit on the expected
+ * target by the same test {@link EarlyCommitPolicy} applies to partials
+ * (engines that report no confidences still get accepted on a clean answer).
+ *
+ * Immutable; Android-free so tools/HedgedRecognitionReplay can run it on the JVM.
+ */
+final class HedgePolicy {
+
+    static final double DEFAULT_MIN_CONFIDENCE = 0.7;
+    static final long DEFAULT_GRACE_MS = 400L;
+
+    final boolean enabled;
+    final double minConfidence;
+    /** After an unaccepted answer, how long the other path may still win. */
+    final long graceMs;
+    private final EarlyCommitPolicy targetCheck;
+
+    HedgePolicy(boolean enabled, double minConfidence, long graceMs) {
+        this.enabled = enabled;
+        this.minConfidence = minConfidence;
+        this.graceMs = Math.max(0L, graceMs);
+        this.targetCheck = new EarlyCommitPolicy(true, EarlyCommitPolicy.DEFAULT_MIN_LETTER_SCORE,
+                EarlyCommitPolicy.DEFAULT_MAX_KEYWORD_DISTANCE, 1);
+    }
+
+    static HedgePolicy disabled() {
+        return new HedgePolicy(false, DEFAULT_MIN_CONFIDENCE, DEFAULT_GRACE_MS);
+    }
+
+    /** True when a final result may end the race without hearing from the other path. */
+    boolean accepts(List<String> matches, float[] confidences, String expected, VocabularyMatcher vocabulary) {
+        if (matches == null || matches.isEmpty()) {
+            return false;
+        }
+        if (confidences != null) {
+            for (float confidence : confidences) {
+                if (confidence >= minConfidence) {
+                    return true;
+                }
+            }
+        }
+        return targetCheck.evaluate(matches, expected, vocabulary) != null;
+    }
+
+    @Override
+    public String toString() {
+        return "enabled=" + enabled +
+                " minConfidence=" + minConfidence +
+                " graceMs=" + graceMs;
+    }
+}
@@ -0,0 +1,365 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Races two engines on the same listen (init option hedged): the primary
+ * (the default or recognizerService engine) and a secondary (on-device, or
+ * hedgeService). The first final result the {@link Acceptor} takes ends the
+ * race; the other path is cancelled. A result it does not take waits up to
+ * {@link HedgePolicy#graceMs} for the other path, and when neither answers
+ * well the primary's result wins over the secondary's, and any result over
+ * an error. An error on one path leaves the other running alone, so an
+ * engine that cannot share the microphone just drops out of the race.
+ *
+ * The listener sees one listen: ready, speech begin/end and RMS come from
+ * whichever path reported first (the other takes over if it ends early),
+ * partials from both, and exactly one result or error. {@link #getOutcome()}
+ * says how the last listen was decided.
+ *
+ * Android-free; runs on the caller's thread like every backend, so
+ * tools/HedgedRecognitionReplay drives it with scripted engines on a
+ * virtual clock.
+ */
+final class HedgedRecognizerBackend implements RecognizerBackend {
+
+    private static final String TAG = "LimeTunaSpeech";
+
+    static final int PRIMARY = 0;
+    static final int SECONDARY = 1;
+
+    // Path states in an Outcome.
+    static final String PATH_LISTENING = "listening";
+    static final String PATH_ACCEPTED = "accepted";
+    static final String PATH_REJECTED = "rejected";
+    static final String PATH_ERROR = "error";
+    static final String PATH_CANCELLED = "cancelled";
+    static final String PATH_ABSENT = "absent";
+
+    /** Decides whether a final result ends the race. */
+    interface Acceptor {
+        boolean accept(List<String> matches, float[] confidences);
+    }
+
+    static final class Factory implements RecognizerBackend.Factory {
+        private final RecognizerBackend.Factory primary;
+        private final RecognizerBackend.Factory secondary;
+        private final Endpointer.Clock clock;
+        private final Endpointer.Timer timer;
+        private final HedgePolicy policy;
+        private final Acceptor acceptor;
+
+        Factory(RecognizerBackend.Factory primary, RecognizerBackend.Factory secondary, Endpointer.Clock clock,
+                Endpointer.Timer timer, HedgePolicy policy, Acceptor acceptor) {
+            this.primary = primary;
+            this.secondary = secondary;
+            this.clock = clock;
+            this.timer = timer;
+            this.policy = policy;
+            this.acceptor = acceptor;
+        }
+
+        @Override
+        public String getName() {
+            return "hedged";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return primary.isAvailable();
+        }
+
+        @Override
+        public RecognizerBackend create(Listener listener) {
+            return new HedgedRecognizerBackend(this, listener);
+        }
+    }
+
+    /** How one listen was decided. Times are ms after startListening, -1 if never. */
+    static final class Outcome {
+        final String[] names = new String[2];
+        final String[] states = {PATH_ABSENT, PATH_ABSENT};
+        final long[] endMs = {-1L, -1L};
+        final int[] errors = {0, 0};
+        int winner = -1;
+        /** The winner passed the acceptor; false when it was only the better of two misses. */
+        boolean accepted;
+        long decidedMs = -1L;
+        private boolean taken;
+
+        /**
+         * How long after the winner the other path ended: positive when the
+         * winner was faster, negative when the other answered first but was
+         * not taken. Only meaningful when {@link #hasMargin()}; a path
+         * cancelled before it answered has no end time.
+         */
+        long marginMs() {
+            return endMs[1 - winner] - endMs[winner];
+        }
+
+        boolean hasMargin() {
+            return winner >= 0 && endMs[winner] >= 0 && endMs[1 - winner] >= 0;
+        }
+    }
+
+    private final class PathListener implements Listener {
+        final int path;
+
+        PathListener(int path) {
+            this.path = path;
+        }
+
+        @Override
+        public void onReadyForSpeech() {
+            if (open && isLead(path) && !readySent) {
+                readySent = true;
+                listener.onReadyForSpeech();
+            }
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            if (open && isLead(path) && !speechBegunSent) {
+                speechBegunSent = true;
+                listener.onBeginningOfSpeech();
+            }
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) {
+            if (open && isLead(path)) {
+                listener.onRmsChanged(rmsdB);
+            }
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            if (open && isLead(path) && !speechEndSent) {
+                speechEndSent = true;
+                listener.onEndOfSpeech();
+            }
+        }
+
+        @Override
+        public void onPartialResults(List<String> partial) {
+            if (open && PATH_LISTENING.equals(outcome.states[path])) {
+                listener.onPartialResults(partial);
+            }
+        }
+
+        @Override
+        public void onResults(List<String> matches, float[] confidences) {
+            onTerminal(path, matches, confidences, 0);
+        }
+
+        @Override
+        public void onError(int error) {
+            onTerminal(path, null, null, error);
+        }
+    }
+
+    private final Factory factory;
+    private final Listener listener;
+    private final RecognizerBackend[] paths = new RecognizerBackend[2];
+
+    // Current listen
+    private boolean open = false;
+    private int generation = 0;
+    private long startMs;
+    private int lead = -1;
+    private boolean readySent;
+    private boolean speechBegunSent;
+    private boolean speechEndSent;
+    private final List<List<String>> heldMatches = new ArrayList<>(Arrays.asList(null, null));
+    private final float[][] heldConfidences = new float[2][];
+    private Outcome outcome = new Outcome();
+
+    private final Runnable graceRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (open) {
+                finishBest();
+            }
+        }
+    };
+
+    private HedgedRecognizerBackend(Factory factory, Listener listener) {
+        this.factory = factory;
+        this.listener = listener;
+        paths[PRIMARY] = factory.primary.create(new PathListener(PRIMARY));
+        if (factory.secondary != null && factory.secondary.isAvailable()) {
+            try {
+                paths[SECONDARY] = factory.secondary.create(new PathListener(SECONDARY));
+            } catch (RuntimeException e) {
+                SpeechLog.w(TAG, "Hedge secondary unavailable, listening on primary only", e);
+            }
+        }
+    }
+
+    Outcome getOutcome() {
+        return outcome;
+    }
+
+    /** The last listen's outcome once it is decided, at most once per listen; else null. */
+    Outcome takeOutcome() {
+        if (outcome.winner < 0 || outcome.taken) {
+            return null;
+        }
+        outcome.taken = true;
+        return outcome;
+    }
+
+    @Override
+    public void startListening(Request request) {
+        if (open) {
+            final int g = generation;
+            factory.timer.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation && open) {
+                        listener.onError(ERROR_RECOGNIZER_BUSY);
+                    }
+                }
+            }, 0L);
+            return;
+        }
+        generation++;
+        open = true;
+        startMs = factory.clock.nowMs();
+        lead = -1;
+        readySent = false;
+        speechBegunSent = false;
+        speechEndSent = false;
+        heldMatches.set(PRIMARY, null);
+        heldMatches.set(SECONDARY, null);
+        heldConfidences[PRIMARY] = heldConfidences[SECONDARY] = null;
+        outcome = new Outcome();
+        outcome.names[PRIMARY] = factory.primary.getName();
+        outcome.states[PRIMARY] = PATH_LISTENING;
+        if (paths[SECONDARY] != null) {
+            outcome.names[SECONDARY] = factory.secondary.getName();
+            outcome.states[SECONDARY] = PATH_LISTENING;
+        }
+
+        paths[PRIMARY].startListening(request);
+        if (paths[SECONDARY] != null && open) {
+            paths[SECONDARY].startListening(new Request(request.language, request.maxResults,
+                    request.partialResults, true, request.completeSilenceMs, request.possiblyCompleteSilenceMs,
+                    request.minimumLengthMs));
+        }
+    }
+
+    @Override
+    public void stopListening() {
+        for (int p = PRIMARY; p <= SECONDARY; p++) {
+            if (PATH_LISTENING.equals(outcome.states[p])) {
+                paths[p].stopListening();
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        factory.timer.cancel(graceRunnable);
+        for (int p = PRIMARY; p <= SECONDARY; p++) {
+            if (PATH_LISTENING.equals(outcome.states[p])) {
+                outcome.states[p] = PATH_CANCELLED;
+                paths[p].cancel();
+            }
+        }
+        open = false;
+        generation++;
+    }
+
+    @Override
+    public void destroy() {
+        cancel();
+        for (RecognizerBackend path : paths) {
+            if (path != null) {
+                path.destroy();
+            }
+        }
+    }
+
+    /** RMS and speech begin/end follow one path, the first to report. */
+    private boolean isLead(int path) {
+        if (lead < 0) {
+            lead = path;
+        }
+        return lead == path;
+    }
+
+    private void onTerminal(int path, List<String> matches, float[] confidences, int error) {
+        if (!open || !PATH_LISTENING.equals(outcome.states[path])) {
+            return;
+        }
+        outcome.endMs[path] = factory.clock.nowMs() - startMs;
+        heldMatches.set(path, matches);
+        heldConfidences[path] = confidences;
+        outcome.errors[path] = error;
+        if (error == 0 && factory.acceptor.accept(matches, confidences)) {
+            outcome.states[path] = PATH_ACCEPTED;
+            finish(path, true);
+            return;
+        }
+        outcome.states[path] = error == 0 ? PATH_REJECTED : PATH_ERROR;
+
+        int other = 1 - path;
+        if (!PATH_LISTENING.equals(outcome.states[other])) {
+            finishBest();
+            return;
+        }
+        if (lead == path) {
+            lead = other;
+        }
+        if (error == 0) {
+            // An answer in hand: the other path gets a bounded chance to beat it.
+            factory.timer.cancel(graceRunnable);
+            factory.timer.postDelayed(graceRunnable, factory.policy.graceMs);
+        }
+    }
+
+    /** Nothing was accepted: any result beats an error, the primary breaks ties. */
+    private void finishBest() {
+        int best = -1;
+        for (int p = PRIMARY; p <= SECONDARY && best < 0; p++) {
+            if (PATH_REJECTED.equals(outcome.states[p]) && heldMatches.get(p) != null
+                    && !heldMatches.get(p).isEmpty()) {
+                best = p;
+            }
+        }
+        for (int p = PRIMARY; p <= SECONDARY && best < 0; p++) {
+            if (PATH_REJECTED.equals(outcome.states[p])) {
+                best = p;
+            }
+        }
+        for (int p = PRIMARY; p <= SECONDARY && best < 0; p++) {
+            if (PATH_ERROR.equals(outcome.states[p])) {
+                best = p;
+            }
+        }
+        if (best >= 0) {
+            finish(best, false);
+        }
+    }
+
+    private void finish(int winner, boolean accepted) {
+        factory.timer.cancel(graceRunnable);
+        int other = 1 - winner;
+        if (PATH_LISTENING.equals(outcome.states[other])) {
+            outcome.states[other] = PATH_CANCELLED;
+            paths[other].cancel();
+        }
+        open = false;
+        outcome.winner = winner;
+        outcome.accepted = accepted;
+        outcome.decidedMs = factory.clock.nowMs() - startMs;
+        if (outcome.errors[winner] != 0) {
+            listener.onError(outcome.errors[winner]);
+        } else {
+            listener.onResults(heldMatches.get(winner), heldConfidences[winner]);
+        }
+    }
+}
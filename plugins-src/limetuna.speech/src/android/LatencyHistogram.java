@@ -0,0 +1,117 @@
+package com.limetuna.speech;
+
+/**
+ * Fixed-memory log-linear histogram of millisecond latencies. Values below
+ * {@link #SUB_BUCKETS} get a bucket each; above that every power of two is
+ * split into {@link #SUB_BUCKETS} equal buckets, so a reported percentile is
+ * at most 1/{@value #SUB_BUCKETS} (6.25%) above the true value. Values at or
+ * above {@link #MAX_TRACKABLE_MS} land in the last bucket; max stays exact.
+ *
+ * {@link #record(long)} only touches the preallocated counts, so it is safe
+ * on the recognizer callback path. Android-free; not thread-safe.
+ */
+final class LatencyHistogram {
+
+    static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 2^20 ms is ~17 minutes; nothing in an attempt legitimately takes longer.
+    static final int MAX_BITS = 20;
+    static final long MAX_TRACKABLE_MS = 1L << MAX_BITS;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_BITS - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long count = 0L;
+    private long sum = 0L;
+    private long min = Long.MAX_VALUE;
+    private long max = 0L;
+
+    /** Records one value; negative values (a stage that was never reached) are ignored. */
+    void record(long valueMs) {
+        if (valueMs < 0) {
+            return;
+        }
+        counts[bucketIndex(valueMs)]++;
+        count++;
+        sum += valueMs;
+        if (valueMs < min) min = valueMs;
+        if (valueMs > max) max = valueMs;
+    }
+
+    void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0L;
+        }
+        count = 0L;
+        sum = 0L;
+        min = Long.MAX_VALUE;
+        max = 0L;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    /** Smallest recorded value, -1 when empty. */
+    long getMin() {
+        return count > 0 ? min : -1L;
+    }
+
+    /** Mean of the recorded values (exact, not bucketed), NaN when empty. */
+    double getMean() {
+        return count > 0 ? (double) sum / count : Double.NaN;
+    }
+
+    /**
+     * Upper edge of the bucket holding the value at fraction p (0..1) of the
+     * recorded values, clamped to [min, max]. -1 when empty.
+     */
+    long percentile(double p) {
+        if (count == 0) {
+            return -1L;
+        }
+        long rank = (long) Math.ceil(p * count);
+        if (rank < 1) rank = 1;
+        if (rank > count) rank = count;
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, bucketUpperMs(i)));
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long valueMs) {
+        if (valueMs < SUB_BUCKETS) {
+            return (int) valueMs;
+        }
+        if (valueMs >= MAX_TRACKABLE_MS) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = (63 - Long.numberOfLeadingZeros(valueMs)) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((valueMs >> shift) - SUB_BUCKETS);
+    }
+
+    static long bucketLowerMs(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return sub << shift;
+    }
+
+    static long bucketUpperMs(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        long sub = (index - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
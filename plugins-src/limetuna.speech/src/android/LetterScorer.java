@@ -0,0 +1,285 @@
+package com.limetuna.speech;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Native port of chooseLetterFromResults/scorePhraseForLetter from
+ * www/LimeTunaSpeech.js. Keep PHONETIC_MAP and the scoring rules in sync with
+ * the JS copy; tools/LetterScorerConformance checks both against
+ * tools/fixtures/letter_scoring.txt.
+ *
+ * All phonetic forms are compiled once into a character trie whose nodes carry
+ * 26-bit letter masks, so a phrase is scored for every letter in one walk per
+ * word instead of 26 letters x forms string comparisons.
+ */
+final class LetterScorer {
+
+    static final String[][] PHONETIC_MAP = {
+            /* A */ {"a", "ay", "eh", "ei"},
+            /* B */ {"b", "bee", "be"},
+            /* C */ {"c", "see", "cee", "sea"},
+            /* D */ {"d", "dee"},
+            /* E */ {"e", "ee"},
+            /* F */ {"f", "ef"},
+            /* G */ {"g", "gee"},
+            /* H */ {"h", "aitch"},
+            /* I */ {"i", "eye", "aye"},
+            /* J */ {"j", "jay"},
+            /* K */ {"k", "kay"},
+            /* L */ {"l", "el"},
+            /* M */ {"m", "em"},
+            /* N */ {"n", "en", "in", "inn", "ehn"},
+            /* O */ {"o", "oh"},
+            /* P */ {"p", "pee"},
+            /* Q */ {"q", "cue", "queue"},
+            /* R */ {"r", "ar"},
+            /* S */ {"s", "ess"},
+            /* T */ {"t", "tee"},
+            /* U */ {"u", "you", "yu", "yoo"},
+            /* V */ {"v", "vee"},
+            /* W */ {"w", "double you", "double-u"},
+            /* X */ {"x", "ex"},
+            /* Y */ {"y", "why"},
+            /* Z */ {"z", "zee", "zed"}
+    };
+
+    static final int LETTER_COUNT = 26;
+    static final double MIN_ACCEPT_SCORE = 2.0;
+
+    private static final int SCORE_WHOLE_PHRASE = 4;
+    private static final int SCORE_WORD = 3;
+    private static final int SCORE_PARTIAL = 2;
+
+    // Trie alphabet: a-z, space, '-' (only reachable through forms like "double-u").
+    private static final int ALPHABET = 28;
+
+    private static final LetterScorer INSTANCE = new LetterScorer();
+
+    /** Result of {@link #choose}; letter is null when nothing scored high enough. */
+    static final class Choice {
+        final String letter;
+        final double score;
+
+        Choice(String letter, double score) {
+            this.letter = letter;
+            this.score = score;
+        }
+    }
+
+    private int[][] children;
+    // Letters whose form ends exactly at this node.
+    private int[] terminalMask;
+    // Letters with a form strictly longer than this node's prefix.
+    private int[] descendantMask;
+    private int nodeCount;
+
+    private LetterScorer() {
+        children = new int[64][];
+        terminalMask = new int[64];
+        descendantMask = new int[64];
+        nodeCount = 1;
+        children[0] = newChildren();
+        for (int letter = 0; letter < LETTER_COUNT; letter++) {
+            for (String form : PHONETIC_MAP[letter]) {
+                insert(form, letter);
+            }
+        }
+    }
+
+    static LetterScorer get() {
+        return INSTANCE;
+    }
+
+    private static int[] newChildren() {
+        int[] arr = new int[ALPHABET];
+        Arrays.fill(arr, -1);
+        return arr;
+    }
+
+    private static int charIndex(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c == ' ') return 26;
+        if (c == '-') return 27;
+        return -1;
+    }
+
+    private void insert(String form, int letter) {
+        int bit = 1 << letter;
+        int node = 0;
+        for (int i = 0; i < form.length(); i++) {
+            descendantMask[node] |= bit;
+            int idx = charIndex(form.charAt(i));
+            if (idx < 0) {
+                throw new IllegalArgumentException("Unsupported character in phonetic form: " + form);
+            }
+            int next = children[node][idx];
+            if (next < 0) {
+                next = allocNode();
+                children[node][idx] = next;
+            }
+            node = next;
+        }
+        terminalMask[node] |= bit;
+    }
+
+    private int allocNode() {
+        if (nodeCount == children.length) {
+            int size = nodeCount * 2;
+            children = Arrays.copyOf(children, size);
+            terminalMask = Arrays.copyOf(terminalMask, size);
+            descendantMask = Arrays.copyOf(descendantMask, size);
+        }
+        children[nodeCount] = newChildren();
+        return nodeCount++;
+    }
+
+    /** Same output as normalizePhrase() in LimeTunaSpeech.js. */
+    static String normalize(String phrase) {
+        if (phrase == null || phrase.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(phrase.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < phrase.length(); i++) {
+            char c = Character.toLowerCase(phrase.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(c);
+            } else if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Scores one phrase for every letter at once; {@code out[i]} receives the
+     * same value scorePhraseForLetter(phrase, 'A' + i) returns in JS.
+     */
+    void scorePhrase(String phrase, int[] out) {
+        Arrays.fill(out, 0, LETTER_COUNT, 0);
+        String norm = normalize(phrase);
+        if (norm.isEmpty()) {
+            return;
+        }
+
+        // Exact phonetic match of whole phrase (multi-word forms included).
+        int node = walk(norm, 0, norm.length());
+        if (node >= 0) {
+            raise(out, terminalMask[node], SCORE_WHOLE_PHRASE);
+        }
+
+        // Any word matches a form exactly, or one is a prefix of the other.
+        int start = 0;
+        while (start < norm.length()) {
+            int end = norm.indexOf(' ', start);
+            if (end < 0) end = norm.length();
+            scoreWord(norm, start, end, out);
+            start = end + 1;
+        }
+
+        char first = norm.charAt(0);
+        int firstLetter = first - 'a';
+        if (norm.length() == 1) {
+            raiseLetter(out, firstLetter, SCORE_WHOLE_PHRASE);
+        }
+        if (norm.length() <= 3) {
+            raiseLetter(out, firstLetter, SCORE_PARTIAL);
+        }
+    }
+
+    private void scoreWord(String norm, int start, int end, int[] out) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            int idx = charIndex(norm.charAt(i));
+            int next = idx >= 0 ? children[node][idx] : -1;
+            if (next < 0) {
+                return;
+            }
+            node = next;
+            if (i < end - 1) {
+                // A form is a proper prefix of the word (word.startsWith(form)).
+                raise(out, terminalMask[node], SCORE_PARTIAL);
+            }
+        }
+        raise(out, terminalMask[node], SCORE_WORD);
+        // The word is a proper prefix of a form (form.startsWith(word)).
+        raise(out, descendantMask[node], SCORE_PARTIAL);
+    }
+
+    private int walk(String s, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            int idx = charIndex(s.charAt(i));
+            if (idx < 0) return -1;
+            node = children[node][idx];
+            if (node < 0) return -1;
+        }
+        return node;
+    }
+
+    private static void raise(int[] out, int mask, int score) {
+        while (mask != 0) {
+            int letter = Integer.numberOfTrailingZeros(mask);
+            if (out[letter] < score) {
+                out[letter] = score;
+            }
+            mask &= mask - 1;
+        }
+    }
+
+    private static void raiseLetter(int[] out, int letter, int score) {
+        if (letter >= 0 && letter < LETTER_COUNT && out[letter] < score) {
+            out[letter] = score;
+        }
+    }
+
+    /**
+     * Port of chooseLetterFromResults: best letter across the N-best list with
+     * a bias toward {@code expectedLetter}.
+     */
+    Choice choose(List<String> results, String expectedLetter) {
+        int[] best = new int[LETTER_COUNT];
+        int[] scratch = new int[LETTER_COUNT];
+        if (results != null) {
+            for (String phrase : results) {
+                scorePhrase(phrase, scratch);
+                for (int i = 0; i < LETTER_COUNT; i++) {
+                    if (scratch[i] > best[i]) best[i] = scratch[i];
+                }
+            }
+        }
+
+        int expected = -1;
+        if (expectedLetter != null && expectedLetter.length() == 1) {
+            char c = Character.toUpperCase(expectedLetter.charAt(0));
+            if (c >= 'A' && c <= 'Z') expected = c - 'A';
+        }
+
+        int bestLetter = -1;
+        double bestScore = 0;
+        for (int i = 0; i < LETTER_COUNT; i++) {
+            double letterScore = best[i];
+            if (letterScore <= 0) continue;
+
+            if (i == expected) {
+                double lowConfidenceBonus = letterScore <= 2 ? 1.5 : 1.0;
+                letterScore += 1.0 * lowConfidenceBonus;
+            }
+
+            if (letterScore > bestScore) {
+                bestScore = letterScore;
+                bestLetter = i;
+            }
+        }
+
+        if (bestLetter >= 0 && bestScore >= MIN_ACCEPT_SCORE) {
+            return new Choice(String.valueOf((char) ('A' + bestLetter)), bestScore);
+        }
+        return new Choice(null, bestScore);
+    }
+}
@@ -4,15 +4,15 @@ import android.Manifest;
 import android.app.Activity;
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.media.AudioManager;
-import android.os.Bundle;
+import android.os.Build;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
 import android.os.SystemClock;
-import android.speech.RecognitionListener;
-import android.speech.RecognizerIntent;
 import android.speech.SpeechRecognizer;
 import android.util.Log;
 import android.view.Window;
@@ -21,6 +21,7 @@ import android.view.WindowManager;
 import org.apache.cordova.CallbackContext;
 import org.apache.cordova.CordovaInterface;
 import org.apache.cordova.CordovaPlugin;
+import org.apache.cordova.CordovaPluginPathHandler;
 import org.apache.cordova.CordovaWebView;
 import org.apache.cordova.PermissionHelper;
 import org.apache.cordova.PluginResult;
@@ -29,43 +30,112 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.util.ArrayDeque;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 
-public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener {
+public class LimeTunaSpeech extends CordovaPlugin implements RecognizerBackend.Listener {
 
     private static final String TAG = "LimeTunaSpeech";
     private static final int REQ_RECORD_AUDIO = 7001;
-    // Debug-only speech indicator thresholds. Keep these in sync with
-    // www/js/letters.js so we can retune or remove the indicator together.
-    // RMS_VOICE_TRIGGER_DB: first RMS level we count as "speech started" for
-    // timing indicator purposes (not an ASR gate).
-    private static final float RMS_VOICE_TRIGGER_DB = -2.0f;
-
-    // Start gating is disabled: begin tracking speech immediately and rely only on the end threshold.
-    private static final float RMS_START_THRESHOLD_DB = -1000f;
-    private static final float RMS_END_THRESHOLD_DB = 2.5f;
-    private static final float END_BASELINE_DELTA_PERCENT = 0.45f;
-    private static final float END_BASELINE_DELTA_DB_MIN = 2.0f;
-    private static final float RMS_RESUME_DELTA_DB = 0.6f;
-    private static final long POST_SILENCE_MS = 800L;
-    private static final long NO_PARTIAL_POST_SILENCE_BOOST_MS = 350L;
-    private static final long MIN_POST_SILENCE_MS = 450L;
-    private static final long MAX_UTTERANCE_MS = 3800L;
-    private static final float NO_PARTIAL_END_THRESHOLD_DELTA_DB = 0.4f;
-    private static final int ZERO_RMS_STREAK_THRESHOLD = 12;
-    private static final int RMS_SMOOTH_TAIL_SAMPLES = 8;
-    private static final long SILENCE_HOLD_MS = 340L;
-
-    private SpeechRecognizer speechRecognizer;
+
+    private RecognizerBackend speechRecognizer;
+    // Health of speechRecognizer, new with every create or standby swap; a degraded
+    // one is rebuilt between rounds. Recognizer thread only.
+    private RecognizerHealth recognizerHealth;
+    private static final String HEALTH_REBUILD_PREFIX = "health_";
+    // Backoff and circuit breaker over every rebuild; created with the clock in initialize().
+    private RebuildGovernor rebuildGovernor;
+    // A start whose preflight rebuild waits out the backoff; recognizer thread only.
+    private Runnable deferredStart;
+    private CallbackContext deferredStartCallback;
+    // Pre-created between rounds so a preflight rebuild is a swap instead of a cold create.
+    // Recognizer thread only.
+    private RecognizerBackend standbyRecognizer;
+    private RecognizerBackend.Factory standbyFactory;
+    private static final long STANDBY_BUILD_DELAY_MS = 300L;
+    private String nextStartKind = AttemptTiming.START_COLD;
+    private int warmStarts = 0;
+    private int coldStarts = 0;
+    private int reusedStarts = 0;
+    private int hotStarts = 0;
+
+    // Session mode (startSession/nextTarget/endSession): one recognizer and one intent
+    // across rounds. Between rounds the recognizer is re-armed with no target so the next
+    // target can attach to an already-ready listen. Recognizer thread only.
+    private CallbackContext sessionCallback;
+    private RecognizerBackend.Request sessionRequest;
+    private boolean sessionIdleArmed = false;
+    private boolean sessionIdleReady = false;
+    private boolean sessionIdleSpeechSeen = false;
+    private int sessionIdleRearms = 0;
+    private static final int MAX_SESSION_IDLE_REARMS = 3;
     private CallbackContext currentCallback;
 
     private String language = "en-US";
     private ComponentName recognizerServiceOverride = null;
-
-    private Handler handler;
+    // Engine selection (init option recognizerBackend); rebuilt lazily when options change.
+    // Written on the recognizer thread; backendScripts is also read by init's validation.
+    private String recognizerBackendName = BACKEND_SPEECH_RECOGNIZER;
+    private volatile List<ScriptedRecognizerBackend.Script> backendScripts = null;
+    private RecognizerBackend.Factory recognizerFactory;
+    private static final String BACKEND_SPEECH_RECOGNIZER = "speech_recognizer";
+    private static final String BACKEND_SCRIPTED = "scripted";
+    // Offline-first recognition (init option offlineFirst): EXTRA_PREFER_OFFLINE only while the
+    // on-device model for the language is known to be installed (ensureOfflineModel / init check).
+    private volatile boolean offlineFirst = false;
+    private volatile String offlineModelState = OfflineModel.STATE_UNKNOWN;
+    private volatile String offlineModelLanguage;
+
+    // Ambient baseline / peak / results gap learned per device + recognizer, persisted
+    // across launches and carried into every attempt's endpointer. Recognizer thread only.
+    private static final String PREFS_NAME = "LimeTunaSpeech";
+    private static final String PROFILE_PREF_PREFIX = "acoustic_profile.";
+    private AcousticProfile acousticProfile;
+    private String acousticProfileKey;
+    private boolean acousticProfileDirty = false;
+    // Every apply() rewrites the whole prefs file: learned state is written in one batch every
+    // LEARNED_PERSIST_EVERY changes, on calibration, and when the activity pauses.
+    private static final int LEARNED_PERSIST_EVERY = 16;
+    private int learnedChangesSincePersist = 0;
+    // Post-silence history per expected target on the same device + recognizer, persisted the
+    // same way; with init option adaptivePostSilence it picks each attempt's delay.
+    private static final String POST_SILENCE_PREF_PREFIX = "post_silence.";
+    private static final String POST_SILENCE_INDEX_PREF = "post_silence_index";
+    private final AtomicReference<PostSilencePolicy> postSilencePolicy =
+            new AtomicReference<>(PostSilencePolicy.disabled());
+    private PostSilenceModelStore postSilenceModels;
+
+    // calibrate(durationMs): a listen with no attempt that only collects RMS. Recognizer thread only.
+    private CallbackContext calibrationCallback;
+    private boolean calibrationReady = false;
+    private final float[] calibrationSamples = new float[CALIBRATION_MAX_SAMPLES];
+    private int calibrationSampleCount = 0;
+    private float calibrationPeakDb = Float.NEGATIVE_INFINITY;
+    private long calibrationStartedMs = 0L;
+    private static final int CALIBRATION_MAX_SAMPLES = 256;
+    private static final long CALIBRATION_DEFAULT_MS = 1500L;
+    private static final long CALIBRATION_MIN_MS = 300L;
+    private static final long CALIBRATION_MAX_MS = 5000L;
+
+    // The recognizer thread owns the plugin state below, runs the endpointer timers and receives
+    // RecognizerBackend callbacks. It is the main looper unless init option recognizerThread is
+    // "background", which moves it to a HandlerThread so callbacks, JSON building and
+    // sendPluginResult stay off the UI thread. Only window flags (setKeepScreenOn) stay on the UI thread.
+    private volatile Handler handler;
+    private volatile HandlerThread recognizerThread;
+    private volatile String requestedRecognizerThread = RECOGNIZER_THREAD_MAIN;
+    private static final String RECOGNIZER_THREAD_MAIN = "main";
+    private static final String RECOGNIZER_THREAD_BACKGROUND = "background";
+    private Endpointer.Clock recognizerClock;
+    private Endpointer.Timer recognizerTimer;
     private boolean isListening = false;
 
     // Runtime permission during init()
@@ -78,244 +148,180 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
     private int originalRingVolume = -1;
     private boolean volumesMuted = false;
 
-    private ListeningState listeningState = ListeningState.IDLE;
-    private Runnable silenceTimeoutRunnable;
-    private Runnable speechFailSafeRunnable;
+    private Endpointer endpointer;
     private boolean stopIssued = false;
     private ArrayList<String> lastPartialResults = null;
 
     private AttemptTiming currentTiming;
     private long attemptCounter = 0L;
-    private float sessionPeakRmsDb = Float.NEGATIVE_INFINITY;
-    private float adaptiveEndThresholdDb = RMS_END_THRESHOLD_DB;
-    private RmsStats rmsStats = new RmsStats();
+    // Stage histograms and commit/outcome counts for getMetrics(). Recognizer thread only.
+    private final AttemptMetrics attemptMetrics = new AttemptMetrics(SystemClock.elapsedRealtime());
+    // Binary attempt journal in app-private storage (init options journal / journalMaxKb).
+    // Snapshotted on the recognizer thread, appended on the Cordova thread pool.
+    private static final String JOURNAL_DIR = "limetuna_journal";
+    private volatile boolean journalEnabled = true;
+    // One instance for the plugin's lifetime: a second writer on the same files would interleave frames.
+    private volatile AttemptJournal attemptJournal;
     private long lastRmsDispatchMs = 0L;
     private static final long RMS_DISPATCH_INTERVAL_MS = 80L;
-    private static final float RMS_AVG_ALPHA = 0.2f;
+    // Opt-in binary RMS stream: frames are batched and sent as ArrayBuffers instead of per-sample JSON.
+    // Both are set and read on the recognizer thread.
+    private boolean rmsBinaryStream = false;
+    private final RmsFrameBatcher rmsBatcher = new RmsFrameBatcher();
+    // Milestone events carry only what changed since the previous event of the attempt;
+    // the full timing document goes out once with the final result/error.
+    private boolean milestoneEventsEnabled = true;
+    private final long[] lastSentRawTiming = new long[AttemptTiming.RAW_KEYS.length];
+    private long lastSentPostSilenceDelayMs = -1L;
+    private float lastSentEndThresholdDb = Float.NaN;
+    private float lastSentBaselineRmsDb = Float.NaN;
+    private int lastSentNoPartialAdjust = -1;
+    // Opt-in own-microphone capture with a frame VAD driving the endpointer (init option captureVad).
+    private boolean captureVadEnabled = false;
+    private int vadFrameMs = FrameVad.DEFAULT_FRAME_MS;
+    private PcmVadCapture pcmVadCapture;
     private boolean recognizerResetPending = false;
     private int consecutiveZeroRmsWindows = 0;
-    private long belowEndThresholdSinceMs = 0L;
-    private boolean partialResultsSeen = false;
-    private boolean awaitingPartialAfterBos = false;
-    private long lastComputedPostSilenceDelayMs = POST_SILENCE_MS;
-    private float lastComputedEndThresholdDb = RMS_END_THRESHOLD_DB;
+    // Longest zero-RMS run of the current attempt, a RecognizerHealth signal.
+    private int longestZeroRmsRun = 0;
     private final AtomicReference<ThresholdConfig> thresholdConfig =
             new AtomicReference<>(ThresholdConfig.defaults());
+    // Set by registerVocabulary(); results are matched against it natively.
+    private final AtomicReference<VocabularyMatcher> vocabulary = new AtomicReference<>();
+    // Opt-in commit on a partial that already names the expected target (init option earlyCommit).
+    private final AtomicReference<EarlyCommitPolicy> earlyCommitPolicy =
+            new AtomicReference<>(EarlyCommitPolicy.disabled());
+    private int confidentPartialStreak = 0;
+    // Opt-in race of a second (on-device or hedgeService) recognizer against the primary
+    // (init option hedged); the acceptor scores each final against the current attempt.
+    private final AtomicReference<HedgePolicy> hedgePolicy = new AtomicReference<>(HedgePolicy.disabled());
+    // init option hedgeService; recognizer thread only.
+    private ComponentName hedgeServiceOverride = null;
+    private final HedgedRecognizerBackend.Acceptor hedgeAcceptor = new HedgedRecognizerBackend.Acceptor() {
+        @Override
+        public boolean accept(List<String> matches, float[] confidences) {
+            String expected = currentTiming != null ? currentTiming.expectedLetter : null;
+            return hedgePolicy.get().accepts(matches, confidences, expected, vocabulary.get());
+        }
+    };
+    // Native game sounds (preloadSounds / playSound / playThenListen), decoded once into a
+    // byte-budgeted PCM cache. A playThenListen waits here while its prompt plays; its attempt
+    // starts when the prompt ends. Recognizer thread only.
+    private SoundPlayer soundPlayer;
+    // www/media.pack (images + audio) served to the WebView; null answers fall through to assets.
+    private PackedAssets packedAssets;
+    private CordovaPluginPathHandler packedAssetsHandler;
+    private CallbackContext promptCallback;
 
-    private enum ListeningState {
-        IDLE,
-        SPEECH,
-        SILENCE_WINDOW,
-        COMMIT
-    }
-
-    private static class RmsStats {
-        float lastRmsDb = Float.NaN;
-        float smoothedRmsDb = Float.NaN;
-        float avgRmsDb = Float.NaN;
-        float minRmsDb = Float.NaN;
-        float maxRmsDb = Float.NaN;
-        long lastUpdateMs = 0L;
-        private static final int MAX_RECENT_SAMPLES = 40;
-        ArrayDeque<Float> recentRmsDb = new ArrayDeque<>();
-        double baselineSum = 0;
-        int baselineCount = 0;
-        float baselineRmsDb = Float.NaN;
-
-        void reset() {
-            lastRmsDb = Float.NaN;
-            smoothedRmsDb = Float.NaN;
-            avgRmsDb = Float.NaN;
-            minRmsDb = Float.NaN;
-            maxRmsDb = Float.NaN;
-            lastUpdateMs = 0L;
-            recentRmsDb.clear();
-            baselineSum = 0;
-            baselineCount = 0;
-            baselineRmsDb = Float.NaN;
-        }
-
-        float update(float rmsDb, long nowMs, ListeningState state) {
-            lastRmsDb = rmsDb;
-            lastUpdateMs = nowMs;
-
-            if (Float.isNaN(avgRmsDb)) {
-                avgRmsDb = rmsDb;
-            } else {
-                avgRmsDb = (RMS_AVG_ALPHA * rmsDb) + ((1 - RMS_AVG_ALPHA) * avgRmsDb);
+    @Override
+    public void initialize(CordovaInterface cordova, CordovaWebView webView) {
+        super.initialize(cordova, webView);
+        SpeechLog.setSink(new SpeechLog.Sink() {
+            @Override
+            public void println(int level, String tag, String message, Throwable error) {
+                if (error == null) {
+                    Log.println(level, tag, message);
+                } else if (level >= SpeechLog.ERROR) {
+                    Log.e(tag, message, error);
+                } else {
+                    Log.w(tag, message, error);
+                }
             }
-
-            if (Float.isNaN(minRmsDb) || rmsDb < minRmsDb) {
-                minRmsDb = rmsDb;
+        });
+        handler = new Handler(Looper.getMainLooper());
+        recognizerClock = new Endpointer.Clock() {
+            @Override
+            public long nowMs() {
+                return SystemClock.elapsedRealtime();
             }
-            if (Float.isNaN(maxRmsDb) || rmsDb > maxRmsDb) {
-                maxRmsDb = rmsDb;
+        };
+        rebuildGovernor = new RebuildGovernor(recognizerClock, new Random());
+        recognizerTimer = new Endpointer.Timer() {
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
             }
 
-            if (state == ListeningState.IDLE || state == ListeningState.SILENCE_WINDOW) {
-                baselineSum += rmsDb;
-                baselineCount += 1;
-                baselineRmsDb = (float) (baselineSum / baselineCount);
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
             }
-
-            if (recentRmsDb.size() >= MAX_RECENT_SAMPLES) {
-                recentRmsDb.removeFirst();
+        };
+        packedAssets = new PackedAssets(cordova.getActivity().getAssets());
+        packedAssetsHandler = new CordovaPluginPathHandler(packedAssets);
+        // Map and index the pack before the page's first image request needs it.
+        cordova.getThreadPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                packedAssets.pack();
             }
-            recentRmsDb.addLast(rmsDb);
-
-            smoothedRmsDb = computeTailAverage(RMS_SMOOTH_TAIL_SAMPLES);
-            return smoothedRmsDb;
-        }
-
-        float getSmoothedRmsDb() {
-            return smoothedRmsDb;
-        }
-
-        private float computeTailAverage(int sampleCount) {
-            if (recentRmsDb.isEmpty() || sampleCount <= 0) {
-                return lastRmsDb;
+        });
+        soundPlayer = new SoundPlayer(cordova.getActivity().getAssets(), packedAssets, cordova.getThreadPool(),
+                recognizerTimer, PcmCache.DEFAULT_BUDGET_BYTES);
+        attemptJournal = new AttemptJournal(
+                new File(cordova.getActivity().getFilesDir(), JOURNAL_DIR),
+                AttemptJournal.DEFAULT_MAX_FILE_BYTES);
+        pcmVadCapture = new PcmVadCapture(new PcmVadCapture.Callback() {
+            @Override
+            public void onVadEvent(final long attemptId, final int event, final long eventMs, final long decidedMs) {
+                runOnRecognizerThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        handleVadEvent(attemptId, event, eventMs, decidedMs);
+                    }
+                });
             }
-            double sum = 0;
-            int count = 0;
-            Iterator<Float> it = recentRmsDb.descendingIterator();
-            while (it.hasNext() && count < sampleCount) {
-                sum += it.next();
-                count++;
+
+            @Override
+            public void onCaptureSilenced(final long attemptId) {
+                runOnRecognizerThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        fallBackFromVadCapture(attemptId, "silenced");
+                    }
+                });
             }
-            if (count == 0) return lastRmsDb;
-            return (float) (sum / count);
-        }
 
-        JSONObject toJson() throws JSONException {
-            JSONObject obj = new JSONObject();
-            if (!Float.isNaN(lastRmsDb)) obj.put("last_rms_db", lastRmsDb);
-            if (!Float.isNaN(smoothedRmsDb)) obj.put("smoothed_rms_db", smoothedRmsDb);
-            if (!Float.isNaN(avgRmsDb)) obj.put("avg_rms_db", avgRmsDb);
-            if (!Float.isNaN(minRmsDb)) obj.put("min_rms_db", minRmsDb);
-            if (!Float.isNaN(maxRmsDb)) obj.put("max_rms_db", maxRmsDb);
-            if (!Float.isNaN(baselineRmsDb)) obj.put("baseline_rms_db", baselineRmsDb);
-            if (lastUpdateMs > 0) obj.put("last_update_ms", lastUpdateMs);
-            if (obj.length() == 0) return null;
-            return obj;
-        }
-
-        float getBaselineRmsDb() {
-            return baselineRmsDb;
-        }
-
-        JSONArray recentSamplesToJson() {
-            JSONArray arr = new JSONArray();
-            for (Float f : recentRmsDb) {
-                arr.put(f);
-            }
-            if (arr.length() == 0) {
-                return null;
-            }
-            return arr;
-        }
-    }
-
-    private static class AttemptTiming {
-        long nativeReceivedMs;
-        long nativeStartListeningMs;
-        long nativeReadyForSpeechMs;
-        long nativeBeginningOfSpeechMs;
-        long nativeFirstRmsAboveThresholdMs;
-        long nativeRmsSpeechStartMs;
-        long nativeRmsSpeechEndMs;
-        long nativePostSilenceCommitMs;
-        long nativeFailSafeCommitMs;
-        long nativeEndOfSpeechMs;
-        long nativeResultsMs;
-        long nativeErrorMs;
-        long nativeNormalizeDoneMs;
-        long nativeCallbackSentMs;
-
-        String expectedLetter;
-        long attemptId;
-    }
-
-    private static class ThresholdConfig {
-        final float rmsStartThresholdDb;
-        final float rmsEndThresholdDb;
-        final float rmsResumeDeltaDb;
-        final long postSilenceMs;
-        final long minPostSilenceMs;
-        final long maxUtteranceMs;
-        final float rmsVoiceTriggerDb;
-        final int rmsSmoothTailSamples;
-        final long silenceHoldMs;
-
-        private ThresholdConfig(float rmsStartThresholdDb,
-                                float rmsEndThresholdDb,
-                                float rmsResumeDeltaDb,
-                                long postSilenceMs,
-                                long minPostSilenceMs,
-                                long maxUtteranceMs,
-                                float rmsVoiceTriggerDb,
-                                int rmsSmoothTailSamples,
-                                long silenceHoldMs) {
-            this.rmsStartThresholdDb = rmsStartThresholdDb;
-            this.rmsEndThresholdDb = rmsEndThresholdDb;
-            this.rmsResumeDeltaDb = rmsResumeDeltaDb;
-            this.postSilenceMs = postSilenceMs;
-            this.minPostSilenceMs = minPostSilenceMs;
-            this.maxUtteranceMs = maxUtteranceMs;
-            this.rmsVoiceTriggerDb = rmsVoiceTriggerDb;
-            this.rmsSmoothTailSamples = rmsSmoothTailSamples;
-            this.silenceHoldMs = silenceHoldMs;
-        }
-
-        static ThresholdConfig defaults() {
-            return new ThresholdConfig(
-                    RMS_START_THRESHOLD_DB,
-                    RMS_END_THRESHOLD_DB,
-                    RMS_RESUME_DELTA_DB,
-                    POST_SILENCE_MS,
-                    MIN_POST_SILENCE_MS,
-                    MAX_UTTERANCE_MS,
-                    RMS_VOICE_TRIGGER_DB,
-                    RMS_SMOOTH_TAIL_SAMPLES,
-                    SILENCE_HOLD_MS
-            );
-        }
-
-        JSONObject toJson(float baselineRmsDb,
-                          float adaptiveEndThresholdDb,
-                          long postSilenceDelayMs,
-                          boolean noPartialAdjustActive,
-                          long noPartialPostSilenceBoostMs) throws JSONException {
-            JSONObject thresholds = new JSONObject();
-            thresholds.put("rms_voice_trigger_db", rmsVoiceTriggerDb);
-            if (Float.isInfinite(rmsStartThresholdDb)) {
-                thresholds.put("rms_start_threshold_db", "-Infinity");
-            } else {
-                thresholds.put("rms_start_threshold_db", rmsStartThresholdDb);
-            }
-            thresholds.put("rms_end_threshold_db", rmsEndThresholdDb);
-            thresholds.put("rms_resume_delta_db", rmsResumeDeltaDb);
-            thresholds.put("post_silence_ms", postSilenceMs);
-            thresholds.put("min_post_silence_ms", minPostSilenceMs);
-            thresholds.put("max_utterance_ms", maxUtteranceMs);
-            thresholds.put("rms_smooth_tail_samples", rmsSmoothTailSamples);
-            thresholds.put("silence_hold_ms", silenceHoldMs);
-            thresholds.put("adaptive_end_threshold_db", adaptiveEndThresholdDb);
-            thresholds.put("post_silence_ms_effective", postSilenceDelayMs);
-            thresholds.put("no_partial_adjust_active", noPartialAdjustActive);
-            thresholds.put("no_partial_post_silence_boost_ms", Math.max(0, noPartialPostSilenceBoostMs));
-            if (!Float.isNaN(baselineRmsDb)) {
-                thresholds.put("baseline_rms_db", baselineRmsDb);
+            @Override
+            public void onCaptureFailed(final long attemptId, final String reason) {
+                SpeechLog.w(TAG, "VAD capture failed: {}", reason);
+                runOnRecognizerThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        fallBackFromVadCapture(attemptId, "failed");
+                    }
+                });
             }
-            return thresholds;
-        }
-    }
+        });
+        endpointer = new Endpointer(
+                recognizerClock,
+                recognizerTimer,
+                new Endpointer.Listener() {
+                    @Override
+                    public void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs) {
+                        sendMilestoneEvent("enter_silence_window", null);
+                    }
 
-    @Override
-    public void initialize(CordovaInterface cordova, CordovaWebView webView) {
-        super.initialize(cordova, webView);
-        handler = new Handler(Looper.getMainLooper());
+                    @Override
+                    public void onPostSilenceCommit(long nowMs) {
+                        if (stopIssued) {
+                            return;
+                        }
+                        sendMilestoneEvent("post_silence_commit", buildCommitExtras("post_silence_commit", true));
+                        stopListeningInternal(false);
+                    }
+
+                    @Override
+                    public void onFailSafeCommit(long nowMs) {
+                        if (stopIssued) {
+                            return;
+                        }
+                        sendMilestoneEvent("failsafe_commit", buildCommitExtras("max_utterance_commit", false));
+                        stopListeningInternal(false);
+                    }
+                });
         audioManager = (AudioManager) cordova.getActivity().getSystemService(Context.AUDIO_SERVICE);
-        Log.d(TAG, "LimeTunaSpeech initialize");
+        SpeechLog.d(TAG, "LimeTunaSpeech initialize");
     }
 
     private boolean hasAudioPermission() {
@@ -330,53 +336,265 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         );
     }
 
-    // Must be called ONLY on main thread
-    private void createRecognizerIfNeededOnMainThread() {
+    /**
+     * runOnUiThread for the recognizer thread: runs inline when already on it. A task queued
+     * on a looper that init() has since swapped out is forwarded to the current one.
+     */
+    private void runOnRecognizerThread(final Runnable task) {
+        final Handler target = handler;
+        if (Looper.myLooper() == target.getLooper()) {
+            task.run();
+            return;
+        }
+        Runnable forward = new Runnable() {
+            @Override
+            public void run() {
+                if (handler != target) {
+                    runOnRecognizerThread(task);
+                } else {
+                    task.run();
+                }
+            }
+        };
+        if (!target.post(forward)) {
+            // The previous recognizer thread quit between reading the field and posting.
+            handler.post(task);
+        }
+    }
+
+    /**
+     * Moves the recognizer thread to what init option recognizerThread asked for. Only while
+     * idle: the recognizers are torn down and rebuilt lazily on the new looper. Returns true
+     * if it switched, in which case the caller is on the old looper and should re-post.
+     */
+    // Must be called ONLY on the recognizer thread
+    private boolean switchRecognizerThreadIfRequested() {
+        boolean background = RECOGNIZER_THREAD_BACKGROUND.equals(requestedRecognizerThread);
+        if (background == (recognizerThread != null)) {
+            return false;
+        }
+        if (isListening || sessionCallback != null || calibrationCallback != null || promptCallback != null) {
+            SpeechLog.w(TAG, "recognizerThread {} ignored while a listen is active", requestedRecognizerThread);
+            requestedRecognizerThread = recognizerThread != null ? RECOGNIZER_THREAD_BACKGROUND : RECOGNIZER_THREAD_MAIN;
+            return false;
+        }
+
+        // destroyRecognizer() restores muted volumes; keep setBeepsMuted(true) across the switch.
+        boolean muted = volumesMuted;
+        destroyRecognizer();
+        destroyStandbyRecognizer();
+        // Sounds in flight belong to the old looper; the decoded cache carries over.
+        soundPlayer.stopAll();
+        if (muted) {
+            applyBeepsMuted(true);
+        }
+        recognizerFactory = null;
+        HandlerThread previous = recognizerThread;
+        if (background) {
+            HandlerThread thread = new HandlerThread("LimeTunaSpeech", Process.THREAD_PRIORITY_FOREGROUND);
+            thread.start();
+            recognizerThread = thread;
+            handler = new Handler(thread.getLooper());
+        } else {
+            recognizerThread = null;
+            handler = new Handler(Looper.getMainLooper());
+        }
+        if (previous != null) {
+            // Already-queued tasks still run and forward themselves to the new looper.
+            previous.quitSafely();
+        }
+        SpeechLog.i(TAG, "Recognizer thread {}", requestedRecognizerThread);
+        return true;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void createRecognizerIfNeededOnRecognizerThread() {
         if (speechRecognizer == null) {
-            Log.d(TAG, "Creating SpeechRecognizer");
-            if (!SpeechRecognizer.isRecognitionAvailable(
-                    cordova.getActivity().getApplicationContext())) {
-                Log.e(TAG, "Speech recognition NOT available on this device");
+            SpeechLog.d(TAG, "Creating recognizer backend={}", recognizerFactory().getName());
+            if (!recognizerFactory().isAvailable()) {
+                SpeechLog.e(TAG, "Speech recognition NOT available on this device");
                 return;
             }
 
-            if (recognizerServiceOverride != null) {
-                speechRecognizer = SpeechRecognizer.createSpeechRecognizer(
-                        cordova.getActivity().getApplicationContext(),
-                        recognizerServiceOverride
-                );
+            speechRecognizer = recognizerFactory().create(this);
+            recognizerHealth = new RecognizerHealth(SystemClock.elapsedRealtime());
+            nextStartKind = AttemptTiming.START_COLD;
+        }
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private RecognizerBackend.Factory recognizerFactory() {
+        if (recognizerFactory == null) {
+            if (BACKEND_SCRIPTED.equals(recognizerBackendName) && backendScripts != null) {
+                recognizerFactory = new ScriptedRecognizerBackend.Factory(recognizerTimer, backendScripts);
             } else {
-                speechRecognizer = SpeechRecognizer.createSpeechRecognizer(
-                        cordova.getActivity().getApplicationContext()
-                );
+                recognizerFactory = onEngineThread(new SpeechRecognizerBackend.Factory(
+                        cordova.getActivity(), recognizerServiceOverride));
+                HedgePolicy hedge = hedgePolicy.get();
+                if (hedge.enabled) {
+                    SpeechRecognizerBackend.Factory secondary = hedgeServiceOverride != null
+                            ? new SpeechRecognizerBackend.Factory(cordova.getActivity(), hedgeServiceOverride)
+                            : SpeechRecognizerBackend.Factory.onDevice(cordova.getActivity());
+                    if (secondary.isAvailable()) {
+                        recognizerFactory = new HedgedRecognizerBackend.Factory(recognizerFactory,
+                                onEngineThread(secondary), recognizerClock, recognizerTimer, hedge, hedgeAcceptor);
+                    } else {
+                        SpeechLog.w(TAG, "hedged: no {} recognizer on this device; listening on one",
+                                secondary.getName());
+                    }
+                }
+            }
+        }
+        return recognizerFactory;
+    }
+
+    /** SpeechRecognizer is main-thread only; a background recognizer thread drives it through the main looper. */
+    private RecognizerBackend.Factory onEngineThread(RecognizerBackend.Factory engine) {
+        if (recognizerThread == null) {
+            return engine;
+        }
+        return new LooperRecognizerBackend.Factory(engine, new Handler(Looper.getMainLooper()), handler);
+    }
+
+    private final Runnable buildStandbyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (standbyRecognizer != null || isListening || calibrationCallback != null) {
+                return;
+            }
+            if (!recognizerFactory().isAvailable()) {
+                return;
+            }
+            try {
+                standbyFactory = recognizerFactory();
+                standbyRecognizer = standbyFactory.create(LimeTunaSpeech.this);
+                SpeechLog.d(TAG, "Standby recognizer ready");
+            } catch (Exception e) {
+                SpeechLog.w(TAG, "Failed to build standby recognizer", e);
+                standbyRecognizer = null;
             }
-            speechRecognizer.setRecognitionListener(this);
+        }
+    };
+
+    /** Builds the standby recognizer once the recognizer thread is idle between rounds. */
+    private void scheduleStandbyRecognizer() {
+        if (handler == null) return;
+        handler.removeCallbacks(buildStandbyRunnable);
+        handler.postDelayed(buildStandbyRunnable, STANDBY_BUILD_DELAY_MS);
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private RecognizerBackend takeStandbyRecognizer() {
+        RecognizerBackend standby = standbyRecognizer;
+        standbyRecognizer = null;
+        if (standby != null && standbyFactory != recognizerFactory()) {
+            // Built for a recognizerService/backend that init() has since changed.
+            destroyQuietly(standby);
+            return null;
+        }
+        return standby;
+    }
+
+    private void destroyQuietly(RecognizerBackend recognizer) {
+        try {
+            recognizer.destroy();
+        } catch (Exception e) {
+            SpeechLog.w(TAG, "Error destroying recognizer", e);
         }
     }
 
-    private void rebuildRecognizerOnMainThread(String reason) {
+    private void rebuildRecognizerOnRecognizerThread(String reason) {
         Runnable rebuild = new Runnable() {
             @Override
             public void run() {
-                Log.w(TAG, "Rebuilding SpeechRecognizer reason=" + reason);
+                SpeechLog.w(TAG, "Rebuilding recognizer reason={}", reason);
+                rebuildGovernor.onRebuild();
+                attemptMetrics.recordRebuild(reason.startsWith(HEALTH_REBUILD_PREFIX)
+                        ? AttemptMetrics.REBUILD_PROACTIVE : AttemptMetrics.REBUILD_REACTIVE);
                 destroyRecognizer();
-                createRecognizerIfNeededOnMainThread();
+                RecognizerBackend standby = takeStandbyRecognizer();
+                if (standby != null) {
+                    speechRecognizer = standby;
+                    recognizerHealth = new RecognizerHealth(SystemClock.elapsedRealtime());
+                    nextStartKind = AttemptTiming.START_WARM;
+                    SpeechLog.d(TAG, "Swapped in standby recognizer");
+                } else {
+                    createRecognizerIfNeededOnRecognizerThread();
+                }
                 recognizerResetPending = false;
+                scheduleStandbyRecognizer();
+                if (sessionCallback != null && handler != null) {
+                    handler.post(armSessionIdleRunnable);
+                }
             }
         };
 
-        if (Looper.myLooper() == Looper.getMainLooper()) {
+        if (handler == null) {
+            return;
+        }
+        if (Looper.myLooper() == handler.getLooper()) {
             rebuild.run();
-        } else if (handler != null) {
+        } else {
             handler.post(rebuild);
         }
     }
 
-    private void requestRecognizerReset(String reason) {
-        requestRecognizerReset(reason, true);
+    private final Runnable healthRebuildRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // A round that started first keeps the recognizer; the next gap checks again.
+            if (isListening || currentCallback != null || calibrationCallback != null || recognizerResetPending
+                    || recognizerHealth == null || deferredStart != null || rebuildGovernor.backoffMs() > 0) {
+                return;
+            }
+            long now = SystemClock.elapsedRealtime();
+            if (!recognizerHealth.shouldRebuild(now)) {
+                return;
+            }
+            SpeechLog.i(TAG, "Recognizer health {} after {} listens",
+                    recognizerHealth.score(now), recognizerHealth.getListens());
+            rebuildRecognizerOnRecognizerThread(HEALTH_REBUILD_PREFIX
+                    + RecognizerHealth.SIGNAL_KEYS[recognizerHealth.worstSignal(now)]);
+        }
+    };
+
+    /**
+     * Folds the attempt into the recognizer's health and, when the score has
+     * dropped, queues a rebuild for the gap before the next round.
+     */
+    // Must be called ONLY on the recognizer thread
+    private void recordRecognizerHealth(AttemptTiming timing, String errorCode) {
+        if (timing == null || recognizerHealth == null) {
+            return;
+        }
+        int outcome = AttemptMetrics.outcome(timing, errorCode);
+        if (outcome == AttemptMetrics.OUTCOME_ABORTED) {
+            return;
+        }
+        boolean speechHeard = timing.nativeBeginningOfSpeechMs > 0 || timing.nativeRmsSpeechStartMs > 0;
+        if (outcome == AttemptMetrics.OUTCOME_ENGINE_ERROR) {
+            rebuildGovernor.onAttemptFailed();
+        } else if (timing.nativeReadyForSpeechMs > 0 || speechHeard) {
+            rebuildGovernor.onAttemptSucceeded();
+        }
+        recognizerHealth.record(outcome == AttemptMetrics.OUTCOME_ENGINE_ERROR, longestZeroRmsRun,
+                timing.engineReadyMs(), speechHeard, lastPartialResults != null);
+        if (handler != null && recognizerHealth.shouldRebuild(SystemClock.elapsedRealtime())) {
+            handler.removeCallbacks(healthRebuildRunnable);
+            handler.post(healthRebuildRunnable);
+        }
+    }
+
+    private int recognizerHealthScore() {
+        return recognizerHealth != null ? recognizerHealth.score(SystemClock.elapsedRealtime()) : -1;
     }
 
-    private void requestRecognizerReset(String reason, boolean notifyCurrentAttempt) {
+    /**
+     * Rebuilds the recognizer after the current callback returns, or once the
+     * rebuild backoff has passed. Never fails the attempt in flight: callers
+     * have already ended it or are between rounds.
+     */
+    private void requestRecognizerReset(String reason) {
         if (recognizerResetPending) {
             return;
         }
@@ -385,18 +603,85 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             handler.post(new Runnable() {
                 @Override
                 public void run() {
-                    if (isListening && currentCallback != null && notifyCurrentAttempt) {
-                        sendErrorToCallback("ENGINE_RESET", "Recognizer reset: " + reason, currentTiming);
+                    if (!recognizerResetPending) {
+                        // A preflight rebuild got there first.
+                        return;
+                    }
+                    long waitMs = rebuildGovernor.backoffMs();
+                    if (waitMs > 0) {
+                        SpeechLog.d(TAG, "Recognizer reset backing off {} ms", waitMs);
+                        rebuildGovernor.onDeferred();
+                        handler.postDelayed(this, waitMs);
+                        return;
                     }
-                    rebuildRecognizerOnMainThread(reason);
+                    rebuildRecognizerOnRecognizerThread(reason);
                 }
             });
         } else {
-            if (isListening && currentCallback != null && notifyCurrentAttempt) {
-                sendErrorToCallback("ENGINE_RESET", "Recognizer reset: " + reason, currentTiming);
+            rebuildRecognizerOnRecognizerThread(reason);
+        }
+    }
+
+    /**
+     * Fails a start with ENGINE_CIRCUIT_OPEN (and retry_after_ms) while the
+     * rebuild circuit is open; true if it did.
+     */
+    // Must be called ONLY on the recognizer thread
+    private boolean rejectWhileCircuitOpen(CallbackContext callbackContext) {
+        if (rebuildGovernor.allowStart()) {
+            return false;
+        }
+        try {
+            JSONObject err = new JSONObject();
+            err.put("code", "ENGINE_CIRCUIT_OPEN");
+            err.put("message", "Speech service keeps failing; recognizer rebuilds are paused");
+            err.put("retry_after_ms", rebuildGovernor.retryAfterMs());
+            callbackContext.error(err.toString());
+        } catch (JSONException e) {
+            callbackContext.error(buildErrorJson("ENGINE_CIRCUIT_OPEN", "Recognizer rebuilds are paused"));
+        }
+        return true;
+    }
+
+    /**
+     * A preflight rebuild inside the backoff window: runs {@code start} again
+     * once the window has passed instead of rebuilding now; true if deferred.
+     * One start waits at a time; stop() cancels it.
+     */
+    // Must be called ONLY on the recognizer thread
+    private boolean deferForRebuildBackoff(final Runnable start, CallbackContext callbackContext) {
+        long waitMs = rebuildGovernor.backoffMs();
+        if (waitMs <= 0 || handler == null) {
+            return false;
+        }
+        SpeechLog.i(TAG, "Start waits {} ms for the rebuild backoff", waitMs);
+        rebuildGovernor.onDeferred();
+        deferredStartCallback = callbackContext;
+        deferredStart = new Runnable() {
+            @Override
+            public void run() {
+                if (deferredStart != this) {
+                    return;
+                }
+                deferredStart = null;
+                deferredStartCallback = null;
+                start.run();
             }
-            rebuildRecognizerOnMainThread(reason);
+        };
+        handler.postDelayed(deferredStart, waitMs);
+        return true;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void cancelDeferredStart(String code, String message) {
+        if (deferredStart == null) {
+            return;
         }
+        handler.removeCallbacks(deferredStart);
+        CallbackContext callback = deferredStartCallback;
+        deferredStart = null;
+        deferredStartCallback = null;
+        callback.error(buildErrorJson(code, message));
     }
 
     // ---- Global beep muting --------------------------------------------------
@@ -416,9 +701,9 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                 audioManager.setStreamVolume(AudioManager.STREAM_RING, 0, 0);
 
                 volumesMuted = true;
-                Log.d(TAG, "System/notification/ring volumes muted");
+                SpeechLog.d(TAG, "System/notification/ring volumes muted");
             } catch (Exception e) {
-                Log.w(TAG, "Failed to mute system/notification/ring", e);
+                SpeechLog.w(TAG, "Failed to mute system/notification/ring", e);
             }
         } else {
             if (!volumesMuted) return;
@@ -432,9 +717,9 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                 if (originalRingVolume >= 0) {
                     audioManager.setStreamVolume(AudioManager.STREAM_RING, originalRingVolume, 0);
                 }
-                Log.d(TAG, "System/notification/ring volumes restored");
+                SpeechLog.d(TAG, "System/notification/ring volumes restored");
             } catch (Exception e) {
-                Log.w(TAG, "Failed to restore system/notification/ring", e);
+                SpeechLog.w(TAG, "Failed to restore system/notification/ring", e);
             } finally {
                 volumesMuted = false;
                 originalSystemVolume = -1;
@@ -448,7 +733,7 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
 
     @Override
     public boolean execute(String action, JSONArray args, CallbackContext callbackContext) throws JSONException {
-        Log.d(TAG, "execute: " + action);
+        SpeechLog.d(TAG, "execute: {}", action);
 
         switch (action) {
             case "init":
@@ -463,187 +748,1349 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                 return handleSetKeepScreenOn(args, callbackContext);
             case "resetRecognizer":
                 return handleResetRecognizer(callbackContext);
+            case "registerVocabulary":
+                return handleRegisterVocabulary(args, callbackContext);
+            case "startSession":
+                return handleStartSession(callbackContext);
+            case "nextTarget":
+                return handleNextTarget(args, callbackContext);
+            case "endSession":
+                return handleEndSession(callbackContext);
+            case "calibrate":
+                return handleCalibrate(args, callbackContext);
+            case "getMetrics":
+                return handleGetMetrics(false, callbackContext);
+            case "resetMetrics":
+                return handleGetMetrics(true, callbackContext);
+            case "exportJournal":
+                return handleExportJournal(args, callbackContext);
+            case "preloadSounds":
+                return handlePreloadSounds(args, callbackContext);
+            case "playSound":
+                return handlePlaySound(args, callbackContext);
+            case "getSoundCacheStats":
+                return handleGetSoundCacheStats(callbackContext);
+            case "playThenListen":
+                return handlePlayThenListen(args, callbackContext);
+            case "ensureOfflineModel":
+                return handleEnsureOfflineModel(args, callbackContext);
             default:
                 return false;
         }
     }
 
-    private boolean handleInit(final JSONArray args, final CallbackContext callbackContext) {
-        try {
-            if (args != null && args.length() > 0 && !args.isNull(0)) {
-                JSONObject opts = args.getJSONObject(0);
-                if (opts.has("language")) {
-                    language = opts.getString("language");
-                }
-                updateThresholdConfigFromOptions(opts);
-                updateRecognizerServiceFromOptions(opts);
-            }
+    private boolean handleInit(final JSONArray args, final CallbackContext callbackContext) {
+        try {
+            if (args != null && args.length() > 0 && !args.isNull(0)) {
+                JSONObject opts = args.getJSONObject(0);
+                updateLogLevelFromOptions(opts);
+                if (opts.has("language")) {
+                    language = opts.getString("language");
+                }
+                updateThresholdConfigFromOptions(opts);
+                updateRecognizerServiceFromOptions(opts);
+                updateRecognizerBackendFromOptions(opts);
+                updateRmsStreamFromOptions(opts);
+                updateVadCaptureFromOptions(opts);
+                updateJournalFromOptions(opts);
+                updateRecognizerThreadFromOptions(opts);
+                updateSoundCacheFromOptions(opts);
+                updateEarlyCommitFromOptions(opts);
+                updateHedgeFromOptions(opts);
+                updateOfflineFirstFromOptions(opts);
+                updatePostSilenceModelFromOptions(opts);
+                updateMilestoneEventsFromOptions(opts);
+            }
+
+            if (!hasAudioPermission()) {
+                SpeechLog.d(TAG, "No RECORD_AUDIO permission, requesting");
+                pendingInitCallback = callbackContext;
+                requestAudioPermission();
+                return true;
+            }
+
+            runOnRecognizerThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (switchRecognizerThreadIfRequested()) {
+                        runOnRecognizerThread(this);
+                        return;
+                    }
+                    if (!recognizerFactory().isAvailable()) {
+                        SpeechLog.e(TAG, "Speech recognition NOT available on this device");
+                        callbackContext.error(buildErrorJson(
+                                "ENGINE_UNAVAILABLE",
+                                "Speech recognition not available"
+                        ));
+                        return;
+                    }
+
+                    createRecognizerIfNeededOnRecognizerThread();
+                    if (speechRecognizer == null) {
+                        callbackContext.error(buildErrorJson(
+                                "ENGINE_CREATE_FAILED",
+                                "Failed to create recognizer"
+                        ));
+                        return;
+                    }
+
+                    scheduleStandbyRecognizer();
+                    callbackContext.success(buildInitInfo());
+                }
+            });
+
+            return true;
+
+        } catch (JSONException e) {
+            SpeechLog.e(TAG, "Error parsing init options", e);
+            callbackContext.error("INIT_OPTIONS_ERROR");
+            return true;
+        } catch (IllegalArgumentException e) {
+            SpeechLog.e(TAG, "Invalid recognizer backend options", e);
+            callbackContext.error(buildErrorJson("INIT_OPTIONS_ERROR", "Invalid recognizer backend options: " + e.getMessage()));
+            return true;
+        }
+    }
+
+    private boolean handleStartLetter(final JSONArray args, final CallbackContext callbackContext) {
+        if (!hasAudioPermission()) {
+            callbackContext.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission not granted"));
+            return true;
+        }
+
+        final String expected = (args != null && args.length() > 0) ? args.optString(0, null) : null;
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                SpeechLog.d(TAG, "handleStartLetter on recognizer thread");
+                if (promptCallback != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "A playThenListen prompt is playing"));
+                    return;
+                }
+                if (deferredStart != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "A start is waiting for the recognizer"));
+                    return;
+                }
+                startLetterOnRecognizerThread(expected, callbackContext);
+            }
+        });
+
+        return true;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void startLetterOnRecognizerThread(final String expected, final CallbackContext callbackContext) {
+        finishCalibrationEarly();
+
+        // Refuse before any preflight rebuild or backoff deferral: a stray startLetter
+        // must not tear down the recognizer of the listen or session it is refused for,
+        // nor wait out a backoff only to be refused.
+        if (isListening || deferredStart != null) {
+            SpeechLog.w(TAG, "Already listening");
+            callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Already listening"));
+            return;
+        }
+
+        if (sessionCallback != null) {
+            callbackContext.error(buildErrorJson("SESSION_ACTIVE", "Use nextTarget while a session is active"));
+            return;
+        }
+
+        if (!recognizerFactory().isAvailable()) {
+            SpeechLog.e(TAG, "Speech recognition NOT available in startLetter");
+            callbackContext.error(buildErrorJson(
+                    "ENGINE_UNAVAILABLE",
+                    "Speech recognition not available"
+            ));
+            return;
+        }
+
+        if (rejectWhileCircuitOpen(callbackContext)) {
+            return;
+        }
+        if (stopIssued || recognizerResetPending || speechRecognizer == null) {
+            if (deferForRebuildBackoff(new Runnable() {
+                @Override
+                public void run() {
+                    startLetterOnRecognizerThread(expected, callbackContext);
+                }
+            }, callbackContext)) {
+                return;
+            }
+            SpeechLog.w(TAG, "Preflight rebuild (stopIssued={}, pendingReset={})", stopIssued, recognizerResetPending);
+            rebuildRecognizerOnRecognizerThread("start_preflight");
+        }
+
+        createRecognizerIfNeededOnRecognizerThread();
+        if (speechRecognizer == null) {
+            callbackContext.error(buildErrorJson(
+                    "ENGINE_CREATE_FAILED",
+                    "Failed to create recognizer"
+            ));
+            return;
+        }
+
+        ThresholdConfig thresholds = thresholdConfig.get();
+        beginAttempt(callbackContext, expected, thresholds);
+        startListeningForCurrentAttempt(buildRecognitionRequest(thresholds));
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void beginAttempt(CallbackContext callbackContext, String expected, ThresholdConfig thresholds) {
+        currentCallback = callbackContext;
+        isListening = true;
+        stopIssued = false;
+        lastRmsDispatchMs = 0L;
+        lastPartialResults = null;
+        consecutiveZeroRmsWindows = 0;
+        longestZeroRmsRun = 0;
+        confidentPartialStreak = 0;
+
+        AttemptTiming timing = new AttemptTiming();
+        timing.nativeReceivedMs = SystemClock.elapsedRealtime();
+        timing.attemptId = ++attemptCounter;
+        timing.expectedLetter = expected;
+        timing.engineStart = nextStartKind;
+        timing.engineBackend = recognizerFactory().getName();
+        if (AttemptTiming.START_WARM.equals(nextStartKind)) {
+            warmStarts++;
+        } else if (AttemptTiming.START_COLD.equals(nextStartKind)) {
+            coldStarts++;
+        } else if (AttemptTiming.START_HOT.equals(nextStartKind)) {
+            hotStarts++;
+        } else {
+            reusedStarts++;
+        }
+        timing.warmStarts = warmStarts;
+        timing.coldStarts = coldStarts;
+        timing.reusedStarts = reusedStarts;
+        timing.hotStarts = hotStarts;
+        nextStartKind = AttemptTiming.START_REUSED;
+        currentTiming = timing;
+        endpointer.setBaselinePrior(acousticProfile().getBaselineDb());
+        timing.postSilencePlan = postSilencePolicy.get().plan(postSilenceModel(expected), thresholds);
+        endpointer.setPostSilencePlan(timing.postSilencePlan != null ? timing.postSilencePlan.delayMs : -1L);
+        endpointer.begin(timing, thresholds);
+        rmsBatcher.reset(timing.attemptId, timing.nativeReceivedMs);
+        resetMilestoneDelta();
+        SpeechLog.d(TAG, "LimeTunaSpeech stage=received t={} expected={}", timing.nativeReceivedMs, timing.expectedLetter);
+    }
+
+    private RecognizerBackend.Request buildRecognitionRequest(ThresholdConfig thresholds) {
+        return new RecognizerBackend.Request(
+                language,
+                10,
+                true,
+                offlineModelReady(),
+                thresholds.postSilenceMs,
+                Math.max(500L, thresholds.postSilenceMs / 2),
+                500L
+        );
+    }
+
+    /** offlineFirst and the on-device model for the current language is installed. */
+    private boolean offlineModelReady() {
+        return offlineFirst && OfflineModel.STATE_INSTALLED.equals(offlineModelState)
+                && OfflineModel.sameLanguage(offlineModelLanguage, language);
+    }
+
+    private String recognitionMode(RecognizerBackend.Request request) {
+        if (request.preferOffline) {
+            return AttemptTiming.MODE_OFFLINE;
+        }
+        return offlineFirst ? AttemptTiming.MODE_ONLINE_FALLBACK : AttemptTiming.MODE_ONLINE;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void startListeningForCurrentAttempt(RecognizerBackend.Request request) {
+        try {
+            if (currentTiming != null) {
+                currentTiming.recognitionMode = recognitionMode(request);
+                currentTiming.engineHealth = recognizerHealthScore();
+                currentTiming.nativeStartListeningMs = SystemClock.elapsedRealtime();
+                SpeechLog.d(TAG, "LimeTunaSpeech stage=startListening t={}", currentTiming.nativeStartListeningMs);
+            }
+            SpeechLog.d(TAG, "Calling startListening");
+            sendMilestoneEvent("startListening", null);
+            // Before startListening so the recognizer is the most recent capture client.
+            startVadCaptureIfEnabled();
+            speechRecognizer.startListening(request);
+        } catch (Exception e) {
+            SpeechLog.e(TAG, "startListening failed", e);
+            sendErrorToCallback("START_FAILED", "Failed to start listening", currentTiming);
+        }
+    }
+
+    // ---- Sound player ----------------------------------------------------------
+
+    private static List<String> soundPaths(JSONArray args, int index) {
+        List<String> paths = new ArrayList<>();
+        if (args == null || args.isNull(index)) {
+            return paths;
+        }
+        JSONArray list = args.optJSONArray(index);
+        if (list == null) {
+            String single = args.optString(index, "");
+            if (!single.isEmpty()) {
+                paths.add(single);
+            }
+            return paths;
+        }
+        for (int i = 0; i < list.length(); i++) {
+            String path = list.optString(i, "");
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    /** preloadSounds(paths): decodes clips into the PCM cache ahead of playSound / playThenListen. */
+    private boolean handlePreloadSounds(final JSONArray args, final CallbackContext callbackContext) {
+        final List<String> paths = soundPaths(args, 0);
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                soundPlayer.preload(paths, new SoundPlayer.PreloadListener() {
+                    @Override
+                    public void onPreloaded(List<PcmCache.Clip> loaded, List<String> failed) {
+                        PcmCache cache = soundPlayer.getCache();
+                        SpeechLog.i(TAG, "Sounds preloaded loaded={} failed={} cacheBytes={}",
+                                loaded.size(), failed, cache.getBytes());
+                        try {
+                            JSONObject info = new JSONObject();
+                            JSONObject durations = new JSONObject();
+                            for (PcmCache.Clip clip : loaded) {
+                                durations.put(clip.id, clip.durationMs());
+                            }
+                            info.put("duration_ms", durations);
+                            info.put("failed", new JSONArray(failed));
+                            info.put("cache", soundCacheStatsToJson());
+                            callbackContext.success(info);
+                        } catch (JSONException e) {
+                            callbackContext.success();
+                        }
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    /**
+     * playSound(path): plays one clip natively, overlapping anything else playing. Succeeds
+     * with {played: true} when the clip ends; errors if it could not be played, so the page
+     * can fall back to its own audio element.
+     */
+    private boolean handlePlaySound(final JSONArray args, final CallbackContext callbackContext) {
+        final String path = (args != null && args.length() > 0) ? args.optString(0, "") : "";
+        if (path.isEmpty()) {
+            callbackContext.error(buildErrorJson("BAD_ARGUMENTS", "playSound needs a path"));
+            return true;
+        }
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                soundPlayer.play(path, new SoundPlayer.Listener() {
+                    @Override
+                    public void onFinished(boolean played) {
+                        if (!played) {
+                            callbackContext.error(buildErrorJson("SOUND_FAILED", "Could not play " + path));
+                            return;
+                        }
+                        try {
+                            JSONObject info = new JSONObject();
+                            info.put("played", true);
+                            callbackContext.success(info);
+                        } catch (JSONException e) {
+                            callbackContext.success();
+                        }
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    private boolean handleGetSoundCacheStats(final CallbackContext callbackContext) {
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    callbackContext.success(soundCacheStatsToJson());
+                } catch (JSONException e) {
+                    callbackContext.error(buildErrorJson("METRICS_FAILED", e.getMessage()));
+                }
+            }
+        });
+        return true;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private JSONObject soundCacheStatsToJson() throws JSONException {
+        PcmCache cache = soundPlayer.getCache();
+        JSONObject json = new JSONObject();
+        json.put("budget_bytes", cache.getBudgetBytes());
+        json.put("bytes", cache.getBytes());
+        json.put("clips", cache.getClipCount());
+        json.put("hits", cache.getHits());
+        json.put("misses", cache.getMisses());
+        json.put("evictions", cache.getEvictions());
+        json.put("uncacheable", cache.getUncacheable());
+        json.put("decodes", soundPlayer.getDecodeCount());
+        json.put("decode_ms_total", soundPlayer.getDecodeMsTotal());
+        return json;
+    }
+
+    /**
+     * playThenListen(clips, target): plays the clip(s) natively and starts the attempt for
+     * target on the recognizer thread as the last clip ends, with no bridge hop in between.
+     * Callbacks are the same as startLetter's. Clips that fail to load are skipped.
+     */
+    private boolean handlePlayThenListen(final JSONArray args, final CallbackContext callbackContext) {
+        if (!hasAudioPermission()) {
+            callbackContext.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission not granted"));
+            return true;
+        }
+
+        final List<String> paths = soundPaths(args, 0);
+        final String expected = (args != null && args.length() > 1) ? args.optString(1, null) : null;
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (isListening || promptCallback != null || deferredStart != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Already listening"));
+                    return;
+                }
+                if (sessionCallback != null) {
+                    callbackContext.error(buildErrorJson("SESSION_ACTIVE", "Use nextTarget while a session is active"));
+                    return;
+                }
+                if (rejectWhileCircuitOpen(callbackContext)) {
+                    return;
+                }
+                // Do the preflight rebuild while the prompt plays rather than after it
+                // (inside the backoff it waits for the start after the prompt).
+                if ((stopIssued || recognizerResetPending || speechRecognizer == null)
+                        && recognizerFactory().isAvailable() && rebuildGovernor.backoffMs() == 0) {
+                    rebuildRecognizerOnRecognizerThread("prompt_preflight");
+                }
+
+                promptCallback = callbackContext;
+                soundPlayer.playSequence(paths, new SoundPlayer.Listener() {
+                    @Override
+                    public void onFinished(boolean played) {
+                        CallbackContext callback = promptCallback;
+                        promptCallback = null;
+                        if (callback == null) {
+                            return;
+                        }
+                        SpeechLog.d(TAG, "LimeTunaSpeech stage=prompt_end t={}", SystemClock.elapsedRealtime());
+                        startLetterOnRecognizerThread(expected, callback);
+                    }
+                });
+            }
+        });
+        return true;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void cancelPrompt(String code, String message) {
+        if (promptCallback == null) {
+            return;
+        }
+        soundPlayer.stopSequence();
+        CallbackContext callback = promptCallback;
+        promptCallback = null;
+        callback.error(buildErrorJson(code, message));
+    }
+
+    // ---- Session mode --------------------------------------------------------
+
+    private boolean handleStartSession(final CallbackContext callbackContext) {
+        if (!hasAudioPermission()) {
+            callbackContext.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission not granted"));
+            return true;
+        }
+
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                finishCalibrationEarly();
+                if (sessionCallback != null) {
+                    callbackContext.error(buildErrorJson("SESSION_ACTIVE", "Session already active"));
+                    return;
+                }
+                if (isListening || deferredStart != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Already listening"));
+                    return;
+                }
+                if (!recognizerFactory().isAvailable()) {
+                    callbackContext.error(buildErrorJson(
+                            "ENGINE_UNAVAILABLE",
+                            "Speech recognition not available"
+                    ));
+                    return;
+                }
+                if (rejectWhileCircuitOpen(callbackContext)) {
+                    return;
+                }
+
+                if (stopIssued || recognizerResetPending || speechRecognizer == null) {
+                    if (deferForRebuildBackoff(this, callbackContext)) {
+                        return;
+                    }
+                    rebuildRecognizerOnRecognizerThread("session_start");
+                }
+                createRecognizerIfNeededOnRecognizerThread();
+                if (speechRecognizer == null) {
+                    callbackContext.error(buildErrorJson(
+                            "ENGINE_CREATE_FAILED",
+                            "Failed to create recognizer"
+                    ));
+                    return;
+                }
+
+                sessionCallback = callbackContext;
+                sessionRequest = buildRecognitionRequest(thresholdConfig.get());
+                sessionIdleRearms = 0;
+                SpeechLog.i(TAG, "Session started");
+                sendSessionEvent("started", true);
+                armSessionIdle();
+            }
+        });
+        return true;
+    }
+
+    private boolean handleNextTarget(final JSONArray args, final CallbackContext callbackContext) {
+        final String target = (args != null && args.length() > 0) ? args.optString(0, null) : null;
+
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (sessionCallback == null) {
+                    callbackContext.error(buildErrorJson("NO_SESSION", "startSession first"));
+                    return;
+                }
+                if (isListening || currentCallback != null || deferredStart != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Previous target still listening"));
+                    return;
+                }
+                if (rejectWhileCircuitOpen(callbackContext)) {
+                    return;
+                }
+
+                if (recognizerResetPending || speechRecognizer == null) {
+                    if (deferForRebuildBackoff(this, callbackContext)) {
+                        return;
+                    }
+                    rebuildRecognizerOnRecognizerThread("session_preflight");
+                }
+                createRecognizerIfNeededOnRecognizerThread();
+                if (speechRecognizer == null) {
+                    callbackContext.error(buildErrorJson(
+                            "ENGINE_CREATE_FAILED",
+                            "Failed to create recognizer"
+                    ));
+                    return;
+                }
+
+                // Attach to the idle listen only if it is ready and hasn't picked up
+                // speech (e.g. our own feedback audio); otherwise restart it.
+                boolean hot = sessionIdleArmed && sessionIdleReady && !sessionIdleSpeechSeen;
+                if (hot) {
+                    nextStartKind = AttemptTiming.START_HOT;
+                }
+                beginAttempt(sessionCallback, target, thresholdConfig.get());
+
+                if (hot) {
+                    sessionIdleArmed = false;
+                    long now = SystemClock.elapsedRealtime();
+                    currentTiming.nativeStartListeningMs = now;
+                    currentTiming.nativeReadyForSpeechMs = now;
+                    currentTiming.recognitionMode = recognitionMode(sessionRequest);
+                    currentTiming.engineHealth = recognizerHealthScore();
+                    SpeechLog.d(TAG, "LimeTunaSpeech stage=ready t={} (hot session attach)", now);
+                    sendMilestoneEvent("onReadyForSpeech", null);
+                } else {
+                    if (sessionIdleArmed) {
+                        sessionIdleArmed = false;
+                        try {
+                            speechRecognizer.cancel();
+                        } catch (Exception e) {
+                            SpeechLog.w(TAG, "Error cancelling idle session listen", e);
+                        }
+                    }
+                    startListeningForCurrentAttempt(sessionRequest);
+                }
+
+                try {
+                    JSONObject ack = new JSONObject();
+                    ack.put("attempt_id", currentTiming != null ? currentTiming.attemptId : 0L);
+                    ack.put("hot", hot);
+                    callbackContext.success(ack);
+                } catch (JSONException e) {
+                    callbackContext.success();
+                }
+            }
+        });
+        return true;
+    }
+
+    private boolean handleEndSession(final CallbackContext callbackContext) {
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                CallbackContext session = sessionCallback;
+                if (session == null) {
+                    callbackContext.success();
+                    return;
+                }
+
+                if (currentCallback == session) {
+                    stopListeningInternal(true);
+                    sendErrorToCallback("SESSION_ENDED", "Session ended", currentTiming);
+                }
+                if (handler != null) {
+                    handler.removeCallbacks(armSessionIdleRunnable);
+                }
+                if (sessionIdleArmed && speechRecognizer != null) {
+                    try {
+                        speechRecognizer.cancel();
+                    } catch (Exception e) {
+                        SpeechLog.w(TAG, "Error cancelling idle session listen", e);
+                    }
+                }
+                sessionIdleArmed = false;
+                sendSessionEvent("ended", false);
+                sessionCallback = null;
+                sessionRequest = null;
+                SpeechLog.i(TAG, "Session ended");
+                callbackContext.success();
+            }
+        });
+        return true;
+    }
+
+    private void sendSessionEvent(String event, boolean keepCallback) {
+        if (sessionCallback == null) return;
+        try {
+            JSONObject json = new JSONObject();
+            json.put("type", "session");
+            json.put("event", event);
+            PluginResult pr = new PluginResult(PluginResult.Status.OK, json);
+            pr.setKeepCallback(keepCallback);
+            sessionCallback.sendPluginResult(pr);
+        } catch (JSONException e) {
+            SpeechLog.w(TAG, "Failed to build session event", e);
+        }
+    }
+
+    private final Runnable armSessionIdleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            armSessionIdle();
+        }
+    };
+
+    // Must be called ONLY on the recognizer thread
+    private void armSessionIdle() {
+        if (sessionCallback == null || sessionRequest == null || isListening || currentCallback != null
+                || speechRecognizer == null || recognizerResetPending || sessionIdleArmed) {
+            return;
+        }
+        if (sessionIdleRearms >= MAX_SESSION_IDLE_REARMS) {
+            SpeechLog.d(TAG, "Session idle re-arm limit reached; next target starts listening itself");
+            return;
+        }
+        sessionIdleRearms++;
+        sessionIdleArmed = true;
+        sessionIdleReady = false;
+        sessionIdleSpeechSeen = false;
+        try {
+            speechRecognizer.startListening(sessionRequest);
+            // A new listen supersedes the last round's stopListening().
+            stopIssued = false;
+            SpeechLog.d(TAG, "Session armed idle (rearm {})", sessionIdleRearms);
+        } catch (Exception e) {
+            SpeechLog.w(TAG, "Failed to arm idle session listen", e);
+            sessionIdleArmed = false;
+        }
+    }
+
+    /** The idle listen ended on its own (timeout, stray result); re-arm or reset. */
+    private void onSessionIdleListenEnded(int error) {
+        sessionIdleArmed = false;
+        if (error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY || error == SpeechRecognizer.ERROR_CLIENT) {
+            requestRecognizerReset("session_idle_" + mapErrorLabel(error).toLowerCase());
+            return;
+        }
+        armSessionIdle();
+    }
+
+    // ---- Calibration / acoustic profile ---------------------------------------
+
+    private boolean handleCalibrate(final JSONArray args, final CallbackContext callbackContext) {
+        if (!hasAudioPermission()) {
+            callbackContext.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission not granted"));
+            return true;
+        }
+        long requested = (args != null && args.length() > 0) ? args.optLong(0, CALIBRATION_DEFAULT_MS) : CALIBRATION_DEFAULT_MS;
+        final long durationMs = Math.max(CALIBRATION_MIN_MS, Math.min(CALIBRATION_MAX_MS, requested));
+
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (calibrationCallback != null) {
+                    callbackContext.error(buildErrorJson("CALIBRATION_ACTIVE", "Calibration already running"));
+                    return;
+                }
+                if (sessionCallback != null) {
+                    callbackContext.error(buildErrorJson("SESSION_ACTIVE", "Calibrate before startSession"));
+                    return;
+                }
+                if (isListening || currentCallback != null || deferredStart != null) {
+                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Already listening"));
+                    return;
+                }
+                if (!recognizerFactory().isAvailable()) {
+                    callbackContext.error(buildErrorJson(
+                            "ENGINE_UNAVAILABLE",
+                            "Speech recognition not available"
+                    ));
+                    return;
+                }
+                if (rejectWhileCircuitOpen(callbackContext)) {
+                    return;
+                }
+                if (stopIssued || recognizerResetPending || speechRecognizer == null) {
+                    if (deferForRebuildBackoff(this, callbackContext)) {
+                        return;
+                    }
+                    rebuildRecognizerOnRecognizerThread("calibrate_preflight");
+                }
+                createRecognizerIfNeededOnRecognizerThread();
+                if (speechRecognizer == null) {
+                    callbackContext.error(buildErrorJson(
+                            "ENGINE_CREATE_FAILED",
+                            "Failed to create recognizer"
+                    ));
+                    return;
+                }
+
+                calibrationCallback = callbackContext;
+                calibrationReady = false;
+                calibrationSampleCount = 0;
+                calibrationPeakDb = Float.NEGATIVE_INFINITY;
+                calibrationStartedMs = SystemClock.elapsedRealtime();
+                nextStartKind = AttemptTiming.START_REUSED;
+                try {
+                    speechRecognizer.startListening(buildRecognitionRequest(thresholdConfig.get()));
+                } catch (Exception e) {
+                    SpeechLog.e(TAG, "Calibration startListening failed", e);
+                    calibrationCallback = null;
+                    callbackContext.error(buildErrorJson("START_FAILED", "Failed to start listening"));
+                    return;
+                }
+                SpeechLog.i(TAG, "Calibrating ambient RMS for {}ms", durationMs);
+                handler.postDelayed(finishCalibrationRunnable, durationMs);
+            }
+        });
+        return true;
+    }
+
+    private final Runnable finishCalibrationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            finishCalibration(true);
+        }
+    };
+
+    private void onCalibrationRms(float rmsdB) {
+        // Samples before onReadyForSpeech are the engine warming up, not the room.
+        if (!calibrationReady || calibrationSampleCount >= CALIBRATION_MAX_SAMPLES) {
+            return;
+        }
+        calibrationSamples[calibrationSampleCount++] = rmsdB;
+        calibrationPeakDb = Math.max(calibrationPeakDb, rmsdB);
+    }
+
+    /** A game start while calibrating takes what has been sampled so far. */
+    private void finishCalibrationEarly() {
+        if (calibrationCallback != null) {
+            SpeechLog.i(TAG, "Calibration cut short by a start");
+            finishCalibration(true);
+        }
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void finishCalibration(boolean cancelRecognizer) {
+        CallbackContext callback = calibrationCallback;
+        if (callback == null) {
+            return;
+        }
+        calibrationCallback = null;
+        handler.removeCallbacks(finishCalibrationRunnable);
+        if (cancelRecognizer && speechRecognizer != null) {
+            try {
+                speechRecognizer.cancel();
+            } catch (Exception e) {
+                SpeechLog.w(TAG, "Error cancelling calibration listen", e);
+            }
+        }
+
+        float ambientDb = AcousticProfile.estimateAmbientDb(calibrationSamples, calibrationSampleCount);
+        if (Float.isNaN(ambientDb)) {
+            callback.error(buildErrorJson("CALIBRATION_FAILED", "No RMS samples during calibration"));
+        } else {
+            AcousticProfile profile = acousticProfile();
+            profile.applyCalibration(ambientDb);
+            acousticProfileDirty = true;
+            persistLearnedState();
+            SpeechLog.i(TAG, "Calibrated ambient={} samples={}", ambientDb, calibrationSampleCount);
+            try {
+                JSONObject info = new JSONObject();
+                info.put("ambient_db", ambientDb);
+                info.put("peak_db", calibrationPeakDb);
+                info.put("samples", calibrationSampleCount);
+                info.put("duration_ms", SystemClock.elapsedRealtime() - calibrationStartedMs);
+                info.put("profile", acousticProfileToJson(profile));
+                callback.success(info);
+            } catch (JSONException e) {
+                callback.success();
+            }
+        }
+        scheduleStandbyRecognizer();
+    }
+
+    private String currentProfileKey() {
+        String service = recognizerServiceOverride != null
+                ? recognizerServiceOverride.flattenToShortString()
+                : "default";
+        return recognizerFactory().getName() + "/" + service + "/" + Build.MODEL;
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private AcousticProfile acousticProfile() {
+        String key = currentProfileKey();
+        if (acousticProfile == null || !key.equals(acousticProfileKey)) {
+            // The old key's unsaved attempts go out before it is replaced.
+            persistLearnedState();
+            SharedPreferences prefs = cordova.getActivity()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            acousticProfile = AcousticProfile.decode(prefs.getString(PROFILE_PREF_PREFIX + key, null));
+            acousticProfileKey = key;
+            SpeechLog.d(TAG, "Acoustic profile {}: {}", key, acousticProfile);
+        }
+        return acousticProfile;
+    }
+
+    /**
+     * Writes the acoustic profile and the post-silence models changed since the last call
+     * in one SharedPreferences batch.
+     */
+    // Must be called ONLY on the recognizer thread
+    private void persistLearnedState() {
+        learnedChangesSincePersist = 0;
+        boolean profile = acousticProfileDirty && acousticProfile != null && acousticProfileKey != null;
+        if (!profile && (postSilenceModels == null || !postSilenceModels.hasChanges())) {
+            return;
+        }
+        final SharedPreferences.Editor editor = cordova.getActivity()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit();
+        if (profile) {
+            editor.putString(PROFILE_PREF_PREFIX + acousticProfileKey, acousticProfile.encode());
+            acousticProfileDirty = false;
+        }
+        if (postSilenceModels != null) {
+            postSilenceModels.flush(new PostSilenceModelStore.Writer() {
+                @Override
+                public void save(String key, String encoded) {
+                    editor.putString(POST_SILENCE_PREF_PREFIX + key, encoded);
+                }
+
+                @Override
+                public void remove(String key) {
+                    editor.remove(POST_SILENCE_PREF_PREFIX + key);
+                }
+
+                @Override
+                public void saveIndex(String encodedIndex) {
+                    editor.putString(POST_SILENCE_INDEX_PREF, encodedIndex);
+                }
+            });
+        }
+        editor.apply();
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void onLearnedStateChanged() {
+        if (++learnedChangesSincePersist >= LEARNED_PERSIST_EVERY) {
+            persistLearnedState();
+        }
+    }
 
-            if (!hasAudioPermission()) {
-                Log.d(TAG, "No RECORD_AUDIO permission, requesting");
-                pendingInitCallback = callbackContext;
-                requestAudioPermission();
-                return true;
-            }
+    private void foldAttemptIntoProfile(AttemptTiming timing) {
+        if (timing == null) {
+            return;
+        }
+        RmsStats stats = endpointer.getRmsStats();
+        float peakDb = timing.nativeRmsSpeechStartMs > 0 ? stats.maxRmsDb : Float.NaN;
+        long gapMs = -1L;
+        if (timing.nativeResultsMs > 0 && timing.nativeRmsSpeechEndMs > 0
+                && timing.nativeResultsMs >= timing.nativeRmsSpeechEndMs) {
+            gapMs = timing.nativeResultsMs - timing.nativeRmsSpeechEndMs;
+        }
+        acousticProfile().onAttemptFinished(
+                stats.getAttemptBaselineRmsDb(), stats.getBaselineSampleCount(), stats.getNoiseFloorDb(),
+                peakDb, gapMs);
+        acousticProfileDirty = true;
+        onLearnedStateChanged();
+    }
 
-            cordova.getActivity().runOnUiThread(new Runnable() {
-                @Override
-                public void run() {
-                    if (!SpeechRecognizer.isRecognitionAvailable(
-                            cordova.getActivity().getApplicationContext())) {
-                        Log.e(TAG, "Speech recognition NOT available on this device");
-                        callbackContext.error(buildErrorJson(
-                                "ENGINE_UNAVAILABLE",
-                                "Speech recognition not available"
-                        ));
-                        return;
-                    }
+    private String postSilenceModelKey(String expected) {
+        // Keys are stored one per line in the index.
+        String target = expected != null ? expected.trim().toLowerCase(Locale.ROOT).replace('\n', ' ') : "";
+        return currentProfileKey() + "/" + (target.isEmpty() ? "*" : target);
+    }
 
-                    createRecognizerIfNeededOnMainThread();
-                    if (speechRecognizer == null) {
-                        callbackContext.error(buildErrorJson(
-                                "ENGINE_CREATE_FAILED",
-                                "Failed to create SpeechRecognizer"
-                        ));
-                        return;
-                    }
+    // Must be called ONLY on the recognizer thread
+    private PostSilenceModel postSilenceModel(String expected) {
+        return postSilenceModels().get(postSilenceModelKey(expected));
+    }
 
-                    callbackContext.success();
+    // Must be called ONLY on the recognizer thread
+    private PostSilenceModelStore postSilenceModels() {
+        if (postSilenceModels == null) {
+            final SharedPreferences prefs = cordova.getActivity()
+                    .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            String index = prefs.getString(POST_SILENCE_INDEX_PREF, null);
+            List<String> keys;
+            if (index != null) {
+                keys = PostSilenceModelStore.decodeIndex(index);
+            } else {
+                // Models saved before the index existed: adopt them so the cap covers them too.
+                keys = new ArrayList<>();
+                for (String name : prefs.getAll().keySet()) {
+                    if (name.startsWith(POST_SILENCE_PREF_PREFIX)) {
+                        keys.add(name.substring(POST_SILENCE_PREF_PREFIX.length()));
+                    }
                 }
-            });
+            }
+            postSilenceModels = new PostSilenceModelStore(new PostSilenceModelStore.Source() {
+                @Override
+                public String load(String key) {
+                    return prefs.getString(POST_SILENCE_PREF_PREFIX + key, null);
+                }
+            }, keys);
+            SpeechLog.d(TAG, "Post-silence models known={}", postSilenceModels.size());
+        }
+        return postSilenceModels;
+    }
 
-            return true;
+    /**
+     * Teaches the target's post-silence model from an attempt our timer or the
+     * engine ended after a silence window; early, failsafe and aborted
+     * attempts say nothing about where the answer ended.
+     */
+    // Must be called ONLY on the recognizer thread
+    private void foldAttemptIntoPostSilenceModel(AttemptTiming timing, String errorCode) {
+        if (timing == null || timing.postSilenceDelayMs <= 0) {
+            return;
+        }
+        int outcome = AttemptMetrics.outcome(timing, errorCode);
+        if (outcome == AttemptMetrics.OUTCOME_ABORTED || outcome == AttemptMetrics.OUTCOME_ENGINE_ERROR) {
+            return;
+        }
+        int commit = AttemptMetrics.commitReason(timing);
+        if (commit != AttemptMetrics.COMMIT_POST_SILENCE && commit != AttemptMetrics.COMMIT_ENGINE) {
+            return;
+        }
+        long gapMs = -1L;
+        if (timing.nativeResultsMs > 0 && timing.nativeRmsSpeechEndMs > 0
+                && timing.nativeResultsMs >= timing.nativeRmsSpeechEndMs) {
+            gapMs = timing.nativeResultsMs - timing.nativeRmsSpeechEndMs;
+        }
+        String key = postSilenceModelKey(timing.expectedLetter);
+        postSilenceModels().get(key).record(timing.postSilenceDelayMs, timing.longestPauseMs, gapMs,
+                commit == AttemptMetrics.COMMIT_POST_SILENCE);
+        postSilenceModels().markDirty(key);
+        onLearnedStateChanged();
+    }
 
-        } catch (JSONException e) {
-            Log.e(TAG, "Error parsing init options", e);
-            callbackContext.error("INIT_OPTIONS_ERROR");
-            return true;
+    private JSONObject acousticProfileToJson(AcousticProfile profile) throws JSONException {
+        JSONObject json = new JSONObject();
+        if (!Float.isNaN(profile.getBaselineDb())) {
+            json.put("baseline_db", profile.getBaselineDb());
         }
+        if (!Float.isNaN(profile.getTypicalPeakDb())) {
+            json.put("typical_peak_db", profile.getTypicalPeakDb());
+        }
+        if (profile.getSpeechToResultsMs() >= 0) {
+            json.put("speech_to_results_ms", profile.getSpeechToResultsMs());
+        }
+        json.put("attempts", profile.getAttempts());
+        json.put("calibrated", profile.isCalibrated());
+        return json;
     }
 
-    private boolean handleStartLetter(final JSONArray args, final CallbackContext callbackContext) {
-        if (!hasAudioPermission()) {
-            callbackContext.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission not granted"));
-            return true;
+    private JSONObject buildInitInfo() {
+        JSONObject info = new JSONObject();
+        try {
+            info.put("backend", recognizerFactory().getName());
+            info.put("recognizer_thread", recognizerThread != null ? RECOGNIZER_THREAD_BACKGROUND : RECOGNIZER_THREAD_MAIN);
+            info.put("offline_model", OfflineModel.sameLanguage(offlineModelLanguage, language)
+                    ? offlineModelState : OfflineModel.STATE_UNKNOWN);
+            info.put("profile", acousticProfileToJson(acousticProfile()));
+        } catch (JSONException e) {
+            SpeechLog.w(TAG, "Failed to build init info", e);
         }
+        return info;
+    }
 
-        cordova.getActivity().runOnUiThread(new Runnable() {
+    private boolean handleStop(final CallbackContext callbackContext) {
+        runOnRecognizerThread(new Runnable() {
             @Override
             public void run() {
-                Log.d(TAG, "handleStartLetter on UI thread");
+                boolean sessionAttempt = sessionCallback != null && currentCallback == sessionCallback;
+                cancelPrompt("STOPPED", "Stopped by stop()");
+                cancelDeferredStart("STOPPED", "Stopped by stop()");
+                stopListeningInternal(true);
+                if (sessionAttempt) {
+                    // cancel() produces no callback; close the attempt so the session can take a next target.
+                    sendErrorToCallback("STOPPED", "Stopped by stop()", currentTiming);
+                }
+                callbackContext.success();
+            }
+        });
+        return true;
+    }
 
-                if (!SpeechRecognizer.isRecognitionAvailable(
-                        cordova.getActivity().getApplicationContext())) {
-                    Log.e(TAG, "Speech recognition NOT available in startLetter");
-                    callbackContext.error(buildErrorJson(
-                            "ENGINE_UNAVAILABLE",
-                            "Speech recognition not available"
-                    ));
+    private boolean handleResetRecognizer(final CallbackContext callbackContext) {
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (rejectWhileCircuitOpen(callbackContext)) {
                     return;
                 }
-
-                if (stopIssued || recognizerResetPending || speechRecognizer == null) {
-                    Log.w(TAG, "Preflight rebuild (stopIssued=" + stopIssued + ", pendingReset=" + recognizerResetPending + ")");
-                    rebuildRecognizerOnMainThread("start_preflight");
+                if (rebuildGovernor.backoffMs() > 0) {
+                    // Inside the backoff: queue it; a start meanwhile waits for it.
+                    requestRecognizerReset("js_reset_request");
+                    callbackContext.success();
+                    return;
                 }
-
-                createRecognizerIfNeededOnMainThread();
-                if (speechRecognizer == null) {
+                rebuildRecognizerOnRecognizerThread("js_reset_request");
+                if (speechRecognizer != null) {
+                    callbackContext.success();
+                } else {
                     callbackContext.error(buildErrorJson(
                             "ENGINE_CREATE_FAILED",
-                            "Failed to create SpeechRecognizer"
+                            "Failed to reset recognizer"
                     ));
-                    return;
                 }
+            }
+        });
+        return true;
+    }
 
-                if (isListening) {
-                    Log.w(TAG, "Already listening");
-                    callbackContext.error(buildErrorJson("ALREADY_LISTENING", "Already listening"));
-                    return;
+    /** getMetrics / resetMetrics: resetMetrics returns the snapshot it cleared. */
+    private boolean handleGetMetrics(final boolean reset, final CallbackContext callbackContext) {
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                long now = SystemClock.elapsedRealtime();
+                try {
+                    JSONObject snapshot = metricsToJson(attemptMetrics, now);
+                    if (reset) {
+                        attemptMetrics.reset(now);
+                    }
+                    callbackContext.success(snapshot);
+                } catch (JSONException e) {
+                    callbackContext.error(buildErrorJson("METRICS_FAILED", e.getMessage()));
                 }
+            }
+        });
+        return true;
+    }
+
+    private JSONObject metricsToJson(AttemptMetrics metrics, long nowMs) throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("window_ms", nowMs - metrics.getSinceMs());
+        json.put("attempts", metrics.getAttempts());
+
+        JSONObject commits = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.COMMIT_KEYS.length; i++) {
+            commits.put(AttemptMetrics.COMMIT_KEYS[i], metrics.commitCount(i));
+        }
+        json.put("commits", commits);
 
-                ThresholdConfig thresholds = thresholdConfig.get();
-
-                currentCallback = callbackContext;
-                isListening = true;
-                stopIssued = false;
-                listeningState = ListeningState.IDLE;
-                cancelSilenceTimer(true);
-                rmsStats.reset();
-                lastRmsDispatchMs = 0L;
-                lastPartialResults = null;
-                partialResultsSeen = false;
-                awaitingPartialAfterBos = false;
-                consecutiveZeroRmsWindows = 0;
-                belowEndThresholdSinceMs = 0L;
-                sessionPeakRmsDb = Float.NEGATIVE_INFINITY;
-                adaptiveEndThresholdDb = computeEndThresholdDb(thresholds);
-                lastComputedPostSilenceDelayMs = thresholds.postSilenceMs;
-                lastComputedEndThresholdDb = adaptiveEndThresholdDb;
-
-                AttemptTiming timing = new AttemptTiming();
-                timing.nativeReceivedMs = SystemClock.elapsedRealtime();
-                timing.attemptId = ++attemptCounter;
-                timing.expectedLetter = (args != null && args.length() > 0) ? args.optString(0, null) : null;
-                currentTiming = timing;
-                Log.d(TAG, "LimeTunaSpeech stage=received t=" + timing.nativeReceivedMs + " expected=" + timing.expectedLetter);
-
-                Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
-                intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL,
-                        RecognizerIntent.LANGUAGE_MODEL_WEB_SEARCH);
-                intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, language);
-                intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_PREFERENCE, language);
-                intent.putExtra(RecognizerIntent.EXTRA_ONLY_RETURN_LANGUAGE_PREFERENCE, language);
-                intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE,
-                        cordova.getActivity().getPackageName());
-                intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, 10);
-                intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, true);
-                intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, false);
-                intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, thresholds.postSilenceMs);
-                intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_POSSIBLY_COMPLETE_SILENCE_LENGTH_MILLIS, Math.max(500L, thresholds.postSilenceMs / 2));
-                intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_MINIMUM_LENGTH_MILLIS, 500L);
+        JSONObject outcomes = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.OUTCOME_KEYS.length; i++) {
+            outcomes.put(AttemptMetrics.OUTCOME_KEYS[i], metrics.outcomeCount(i));
+        }
+        json.put("outcomes", outcomes);
+
+        JSONObject hedges = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.HEDGE_KEYS.length; i++) {
+            hedges.put(AttemptMetrics.HEDGE_KEYS[i], metrics.hedgeCount(i));
+        }
+        json.put("hedges", hedges);
+
+        JSONObject stages = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.STAGE_KEYS.length; i++) {
+            stages.put(AttemptMetrics.STAGE_KEYS[i], histogramToJson(metrics.stage(i)));
+        }
+        json.put("stages", stages);
+
+        // d_engine_processing_ms per recognition mode: what serving offline saves.
+        JSONObject modes = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.MODE_KEYS.length; i++) {
+            modes.put(AttemptMetrics.MODE_KEYS[i], histogramToJson(metrics.engineProcessing(i)));
+        }
+        json.put("engine_processing_by_mode", modes);
+
+        JSONObject recognizer = new JSONObject();
+        if (recognizerHealth != null) {
+            recognizer.put("score", recognizerHealth.score(nowMs));
+            recognizer.put("listens", recognizerHealth.getListens());
+            recognizer.put("age_ms", recognizerHealth.ageMs(nowMs));
+            JSONObject penalties = new JSONObject();
+            for (int i = 0; i < RecognizerHealth.SIGNAL_KEYS.length; i++) {
+                penalties.put(RecognizerHealth.SIGNAL_KEYS[i], Math.round(recognizerHealth.penalty(i, nowMs)));
+            }
+            recognizer.put("penalties", penalties);
+        }
+        JSONObject rebuilds = new JSONObject();
+        for (int i = 0; i < AttemptMetrics.REBUILD_KEYS.length; i++) {
+            rebuilds.put(AttemptMetrics.REBUILD_KEYS[i], metrics.rebuildCount(i));
+        }
+        recognizer.put("rebuilds", rebuilds);
+
+        JSONObject circuit = new JSONObject();
+        circuit.put("state", rebuildGovernor.getState());
+        circuit.put("retry_after_ms", rebuildGovernor.retryAfterMs());
+        circuit.put("backoff_ms", rebuildGovernor.backoffMs());
+        circuit.put("rebuild_streak", rebuildGovernor.getStreak());
+        circuit.put("opens", rebuildGovernor.getOpens());
+        circuit.put("rejected_starts", rebuildGovernor.getRejectedStarts());
+        circuit.put("deferrals", rebuildGovernor.getDeferrals());
+        recognizer.put("circuit", circuit);
+        json.put("recognizer", recognizer);
+        return json;
+    }
+
+    private JSONObject histogramToJson(LatencyHistogram histogram) throws JSONException {
+        JSONObject stage = new JSONObject();
+        stage.put("count", histogram.getCount());
+        if (histogram.getCount() > 0) {
+            stage.put("p50", histogram.percentile(0.50));
+            stage.put("p90", histogram.percentile(0.90));
+            stage.put("p99", histogram.percentile(0.99));
+            stage.put("max", histogram.getMax());
+            stage.put("mean", Math.round(histogram.getMean()));
+        }
+        return stage;
+    }
 
+    /** exportJournal([clear]): the whole journal as one ArrayBuffer, optionally cleared after. */
+    private boolean handleExportJournal(final JSONArray args, final CallbackContext callbackContext) {
+        final boolean clear = args != null && args.optBoolean(0, false);
+        final AttemptJournal journal = attemptJournal;
+        if (journal == null) {
+            callbackContext.error(buildErrorJson("JOURNAL_UNAVAILABLE", "Attempt journal not initialized"));
+            return true;
+        }
+        cordova.getThreadPool().execute(new Runnable() {
+            @Override
+            public void run() {
                 try {
-                    if (currentTiming != null) {
-                        currentTiming.nativeStartListeningMs = SystemClock.elapsedRealtime();
-                        Log.d(TAG, "LimeTunaSpeech stage=startListening t=" + currentTiming.nativeStartListeningMs);
+                    byte[] data = journal.export();
+                    if (clear) {
+                        journal.clear();
                     }
-                    Log.d(TAG, "Calling startListening");
-                    sendMilestoneEvent("startListening", null);
-                    speechRecognizer.startListening(intent);
-                } catch (Exception e) {
-                    Log.e(TAG, "startListening failed", e);
-                    sendErrorToCallback("START_FAILED", "Failed to start listening", currentTiming);
+                    callbackContext.sendPluginResult(new PluginResult(PluginResult.Status.OK, data));
+                } catch (IOException e) {
+                    SpeechLog.w(TAG, "Journal export failed", e);
+                    callbackContext.error(buildErrorJson("JOURNAL_EXPORT_FAILED", String.valueOf(e.getMessage())));
                 }
             }
         });
-
         return true;
     }
 
-    private boolean handleStop(final CallbackContext callbackContext) {
-        cordova.getActivity().runOnUiThread(new Runnable() {
+    /** Queues the finished attempt for the journal; the snapshot is taken here, on the recognizer thread. */
+    private void journalAttempt(AttemptTiming timing, String errorCode) {
+        if (!journalEnabled || attemptJournal == null || timing == null) {
+            return;
+        }
+        RmsStats stats = endpointer.getRmsStats();
+        final AttemptJournal journal = attemptJournal;
+        final AttemptJournal.Record record = AttemptJournal.Record.of(
+                timing,
+                errorCode,
+                thresholdConfig.get(),
+                stats.getBaselineRmsDb(),
+                endpointer.getLastComputedEndThresholdDb(),
+                endpointer.getLastComputedPostSilenceDelayMs(),
+                stats.recentSamples(),
+                System.currentTimeMillis());
+        cordova.getThreadPool().execute(new Runnable() {
             @Override
             public void run() {
-                stopListeningInternal(true);
-                callbackContext.success();
+                try {
+                    journal.append(record);
+                } catch (IOException e) {
+                    SpeechLog.w(TAG, "Journal append failed", e);
+                }
             }
         });
+    }
+
+    private void closeJournalQuietly(AttemptJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            SpeechLog.w(TAG, "Journal close failed", e);
+        }
+    }
+
+    /**
+     * ensureOfflineModel({language, download}): reports whether the on-device model for the
+     * language (default: init language) is installed, pending, downloadable or unsupported, and
+     * with download (default true) asks the engine to fetch a downloadable one.
+     */
+    private boolean handleEnsureOfflineModel(final JSONArray args, final CallbackContext callbackContext) {
+        JSONObject opts = args != null ? args.optJSONObject(0) : null;
+        String requested = opts != null ? opts.optString("language", "").trim() : "";
+        String target = requested.isEmpty() ? language : requested;
+        boolean download = opts == null || opts.optBoolean("download", true);
+        checkOfflineModel(target, download, callbackContext);
         return true;
     }
 
-    private boolean handleResetRecognizer(final CallbackContext callbackContext) {
-        cordova.getActivity().runOnUiThread(new Runnable() {
+    /**
+     * checkRecognitionSupport (and triggerModelDownload) on the main thread for {@code target};
+     * the answer updates the offline-first state. Android before 13 reports "unknown".
+     */
+    private void checkOfflineModel(final String target, final boolean download, final CallbackContext callbackContext) {
+        if (Build.VERSION.SDK_INT < 33) {
+            replyOfflineModel(callbackContext, target, OfflineModel.STATE_UNKNOWN, false, null, null);
+            return;
+        }
+        runOnRecognizerThread(new Runnable() {
             @Override
             public void run() {
-                rebuildRecognizerOnMainThread("js_reset_request");
-                if (speechRecognizer != null) {
+                // recognizerService is applied on this thread; a check queued by the same init sees it.
+                final ComponentName service = recognizerServiceOverride;
+                cordova.getActivity().runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            OfflineModelCheck.run(cordova.getActivity(), service, target, download,
+                                    new OfflineModelCheck.Callback() {
+                                        @Override
+                                        public void onChecked(String state, boolean downloadRequested,
+                                                              List<String> installed, List<String> pending) {
+                                            offlineModelLanguage = target;
+                                            offlineModelState = state;
+                                            SpeechLog.i(TAG, "Offline model {}: {}", target, state);
+                                            replyOfflineModel(callbackContext, target, state, downloadRequested, installed, pending);
+                                        }
+
+                                        @Override
+                                        public void onFailed(int error) {
+                                            SpeechLog.w(TAG, "checkRecognitionSupport failed: {}", mapErrorLabel(error));
+                                            if (callbackContext != null) {
+                                                callbackContext.error(buildErrorJson("OFFLINE_CHECK_FAILED",
+                                                        "checkRecognitionSupport failed: " + mapErrorLabel(error)));
+                                            }
+                                        }
+                                    });
+                        } catch (RuntimeException e) {
+                            SpeechLog.w(TAG, "checkRecognitionSupport unavailable", e);
+                            if (callbackContext != null) {
+                                callbackContext.error(buildErrorJson("OFFLINE_CHECK_FAILED", String.valueOf(e.getMessage())));
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void replyOfflineModel(CallbackContext callbackContext, String target, String state,
+                                   boolean downloadRequested, List<String> installed, List<String> pending) {
+        if (callbackContext == null) {
+            return;
+        }
+        try {
+            JSONObject info = new JSONObject();
+            info.put("language", target);
+            info.put("state", state);
+            info.put("download_requested", downloadRequested);
+            info.put("offline_first", offlineFirst);
+            if (installed != null) {
+                info.put("installed_languages", new JSONArray(installed));
+            }
+            if (pending != null) {
+                info.put("pending_languages", new JSONArray(pending));
+            }
+            callbackContext.success(info);
+        } catch (JSONException e) {
+            callbackContext.error(buildErrorJson("OFFLINE_CHECK_FAILED", e.getMessage()));
+        }
+    }
+
+    private boolean handleRegisterVocabulary(final JSONArray args, final CallbackContext callbackContext) {
+        final JSONArray targets = args != null ? args.optJSONArray(0) : null;
+        if (targets == null) {
+            callbackContext.error(buildErrorJson("BAD_ARGUMENTS", "registerVocabulary expects an array of targets"));
+            return true;
+        }
+
+        cordova.getThreadPool().execute(new Runnable() {
+            @Override
+            public void run() {
+                Map<String, List<String>> keywordsById = new LinkedHashMap<>();
+                for (int i = 0; i < targets.length(); i++) {
+                    JSONObject target = targets.optJSONObject(i);
+                    String id = target != null ? target.optString("id", null) : null;
+                    if (id == null || id.isEmpty()) {
+                        continue;
+                    }
+                    List<String> keywords = new ArrayList<>();
+                    JSONArray arr = target.optJSONArray("keywords");
+                    if (arr != null) {
+                        for (int k = 0; k < arr.length(); k++) {
+                            String kw = arr.optString(k, null);
+                            if (kw != null) {
+                                keywords.add(kw);
+                            }
+                        }
+                    }
+                    if (keywords.isEmpty()) {
+                        keywords.add(id);
+                    }
+                    keywordsById.put(id, keywords);
+                }
+
+                VocabularyMatcher matcher = new VocabularyMatcher(keywordsById);
+                vocabulary.set(matcher);
+                SpeechLog.i(TAG, "Vocabulary registered: targets={} keywords={} phoneticKeys={}",
+                        matcher.getTargetCount(), matcher.getKeywordCount(), matcher.getPhoneticKeyCount());
+
+                try {
+                    JSONObject json = new JSONObject();
+                    json.put("targets", matcher.getTargetCount());
+                    json.put("keywords", matcher.getKeywordCount());
+                    json.put("phonetic_keys", matcher.getPhoneticKeyCount());
+                    callbackContext.success(json);
+                } catch (JSONException e) {
                     callbackContext.success();
-                } else {
-                    callbackContext.error(buildErrorJson(
-                            "ENGINE_CREATE_FAILED",
-                            "Failed to reset SpeechRecognizer"
-                    ));
                 }
             }
         });
@@ -653,7 +2100,7 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
     private boolean handleSetBeepsMuted(final JSONArray args, final CallbackContext callbackContext) {
         final boolean mute = (args != null && args.length() > 0) && args.optBoolean(0, true);
 
-        cordova.getActivity().runOnUiThread(new Runnable() {
+        runOnRecognizerThread(new Runnable() {
             @Override
             public void run() {
                 applyBeepsMuted(mute);
@@ -676,10 +2123,10 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                     if (window != null) {
                         if (keepOn) {
                             window.addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-                            Log.d(TAG, "FLAG_KEEP_SCREEN_ON enabled");
+                            SpeechLog.d(TAG, "FLAG_KEEP_SCREEN_ON enabled");
                         } else {
                             window.clearFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
-                            Log.d(TAG, "FLAG_KEEP_SCREEN_ON cleared");
+                            SpeechLog.d(TAG, "FLAG_KEEP_SCREEN_ON cleared");
                         }
                     }
                 }
@@ -703,22 +2150,52 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
 
     private void sendErrorToCallback(String code, String message, AttemptTiming timing) {
         if (currentCallback != null) {
+            flushRmsBatch();
+            stopVadCapture();
+            foldAttemptIntoProfile(timing);
             try {
                 if (timing != null) {
                     timing.nativeErrorMs = SystemClock.elapsedRealtime();
                     timing.nativeCallbackSentMs = timing.nativeErrorMs;
                 }
                 JSONObject obj = buildErrorJsonObject(code, message, timing);
-                currentCallback.error(obj.toString());
+                sendFinalResult(PluginResult.Status.ERROR, obj.toString());
             } catch (JSONException e) {
-                currentCallback.error(buildErrorJson(code, message));
+                sendFinalResult(PluginResult.Status.ERROR, buildErrorJson(code, message));
             }
-            currentCallback = null;
+            attemptMetrics.record(timing, code);
+            recordRecognizerHealth(timing, code);
+            foldAttemptIntoPostSilenceModel(timing, code);
+            journalAttempt(timing, code);
+            finishAttemptCallback();
         }
         lastPartialResults = null;
         isListening = false;
         resetListeningState();
         currentTiming = null;
+        scheduleStandbyRecognizer();
+    }
+
+    /** Result/error for the current attempt; session callbacks stay open for the next target. */
+    private void sendFinalResult(PluginResult.Status status, String payload) {
+        if (currentCallback == sessionCallback) {
+            PluginResult pr = new PluginResult(status, payload);
+            pr.setKeepCallback(true);
+            currentCallback.sendPluginResult(pr);
+        } else if (status == PluginResult.Status.OK) {
+            currentCallback.success(payload);
+        } else {
+            currentCallback.error(payload);
+        }
+    }
+
+    private void finishAttemptCallback() {
+        boolean sessionAttempt = currentCallback == sessionCallback;
+        currentCallback = null;
+        if (sessionAttempt && handler != null) {
+            sessionIdleRearms = 0;
+            handler.post(armSessionIdleRunnable);
+        }
     }
 
     private void sendSuccessToCallback(String text, Float confidence,
@@ -726,6 +2203,9 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                                        AttemptTiming timing) {
 
         if (currentCallback != null) {
+            flushRmsBatch();
+            stopVadCapture();
+            foldAttemptIntoProfile(timing);
             try {
                 JSONObject json = new JSONObject();
                 json.put("text", text != null ? text : "");
@@ -739,6 +2219,26 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                 if (all != null) {
                     json.put("allResults", new JSONArray(all));
                 }
+
+                LetterScorer.Choice choice = LetterScorer.get().choose(
+                        all, timing != null ? timing.expectedLetter : null);
+                json.put("normalized_letter", choice.letter != null ? choice.letter : JSONObject.NULL);
+                json.put("letter_score", choice.score);
+                json.put("early_commit", timing != null && timing.nativeEarlyCommitMs > 0);
+
+                VocabularyMatcher matcher = vocabulary.get();
+                if (matcher != null) {
+                    VocabularyMatcher.Match match = matcher.match(
+                            all, timing != null ? timing.expectedLetter : null);
+                    if (match != null) {
+                        json.put("matched_target", match.targetId);
+                        json.put("matched_keyword", match.keyword);
+                        json.put("match_distance", match.distance);
+                        json.put("match_strategy", match.strategy);
+                    } else {
+                        json.put("matched_target", JSONObject.NULL);
+                    }
+                }
                 if (confs != null) {
                     JSONArray confArr = new JSONArray();
                     for (float c : confs) {
@@ -756,22 +2256,28 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                     json.put("timing", buildTimingJson(timing));
                 }
 
-                currentCallback.success(json.toString());
+                sendFinalResult(PluginResult.Status.OK, json.toString());
             } catch (JSONException e) {
-                Log.e(TAG, "Error building success JSON", e);
-                currentCallback.success(text != null ? text : "");
+                SpeechLog.e(TAG, "Error building success JSON", e);
+                sendFinalResult(PluginResult.Status.OK, text != null ? text : "");
             }
+            attemptMetrics.record(timing, null);
+            recordRecognizerHealth(timing, null);
+            foldAttemptIntoPostSilenceModel(timing, null);
+            journalAttempt(timing, null);
 
-            currentCallback = null;
+            finishAttemptCallback();
         }
 
         isListening = false;
         resetListeningState();
         currentTiming = null;
+        scheduleStandbyRecognizer();
     }
 
     private void stopListeningInternal(boolean cancel) {
-        cancelSilenceTimer(false);
+        endpointer.stop();
+        stopVadCapture();
 
         if (!stopIssued && speechRecognizer != null && isListening) {
             sendMilestoneEvent("stop_listening", null);
@@ -783,159 +2289,160 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
                 }
                 stopIssued = true;
             } catch (Exception e) {
-                Log.w(TAG, "Error stopping recognizer", e);
+                SpeechLog.w(TAG, "Error stopping recognizer", e);
             }
         }
 
         isListening = false;
-        listeningState = ListeningState.IDLE;
     }
 
-    // RecognitionListener ------------------------------------------------------
+    // RecognizerBackend.Listener ----------------------------------------------
 
     @Override
-    public void onReadyForSpeech(Bundle params) {
-        Log.d(TAG, "onReadyForSpeech");
+    public void onReadyForSpeech() {
+        SpeechLog.d(TAG, "onReadyForSpeech");
+        if (calibrationCallback != null) {
+            calibrationReady = true;
+            return;
+        }
+        if (sessionIdleArmed) {
+            sessionIdleReady = true;
+            return;
+        }
         if (currentTiming != null) {
             currentTiming.nativeReadyForSpeechMs = SystemClock.elapsedRealtime();
-            Log.d(TAG, "LimeTunaSpeech stage=ready t=" + currentTiming.nativeReadyForSpeechMs);
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=ready t={}", currentTiming.nativeReadyForSpeechMs);
             sendMilestoneEvent("onReadyForSpeech", null);
         }
     }
 
     @Override
     public void onBeginningOfSpeech() {
-        Log.d(TAG, "onBeginningOfSpeech");
-        listeningState = ListeningState.SPEECH;
-        awaitingPartialAfterBos = true;
+        SpeechLog.d(TAG, "onBeginningOfSpeech");
+        if (calibrationCallback != null) {
+            return;
+        }
+        if (sessionIdleArmed) {
+            sessionIdleSpeechSeen = true;
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
         if (currentTiming != null) {
-            currentTiming.nativeBeginningOfSpeechMs = SystemClock.elapsedRealtime();
-            ensureRmsSpeechStart(currentTiming.nativeBeginningOfSpeechMs);
-            Log.d(TAG, "LimeTunaSpeech stage=begin_speech t=" + currentTiming.nativeBeginningOfSpeechMs);
+            currentTiming.nativeBeginningOfSpeechMs = now;
+        }
+        endpointer.onBeginningOfSpeech(now);
+        if (currentTiming != null) {
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=begin_speech t={}", currentTiming.nativeBeginningOfSpeechMs);
             sendMilestoneEvent("onBeginningOfSpeech", null);
         }
     }
 
     @Override
     public void onRmsChanged(float rmsdB) {
-        Log.v(TAG, "onRmsChanged: " + rmsdB);
-        ThresholdConfig thresholds = thresholdConfig.get();
-        long now = SystemClock.elapsedRealtime();
-        float smoothedRmsDb = rmsStats.update(rmsdB, now, listeningState);
-        float detectionRmsDb = Float.isNaN(smoothedRmsDb) ? rmsdB : smoothedRmsDb;
-
-        sessionPeakRmsDb = Math.max(sessionPeakRmsDb, detectionRmsDb);
-        float endThresholdFloor = computeEndThresholdDb(thresholds);
-        if (shouldDeferCommitForMissingPartials()) {
-            endThresholdFloor = Math.max(thresholds.rmsVoiceTriggerDb, endThresholdFloor - NO_PARTIAL_END_THRESHOLD_DELTA_DB);
-        }
-        if (!Float.isInfinite(sessionPeakRmsDb)) {
-            float candidate = detectionRmsDb * 0.8f; // 20% below peak
-            float floored = Math.max(candidate, endThresholdFloor);
-            adaptiveEndThresholdDb = Math.min(thresholds.rmsEndThresholdDb, floored);
-        } else {
-            adaptiveEndThresholdDb = endThresholdFloor;
+        SpeechLog.v(TAG, "onRmsChanged: {}", rmsdB);
+        if (sessionIdleArmed) {
+            return;
+        }
+        if (calibrationCallback != null) {
+            onCalibrationRms(rmsdB);
+            return;
         }
-        lastComputedEndThresholdDb = adaptiveEndThresholdDb;
-        if (currentTiming != null && currentTiming.nativeFirstRmsAboveThresholdMs == 0 && detectionRmsDb > thresholds.rmsVoiceTriggerDb) {
-            currentTiming.nativeFirstRmsAboveThresholdMs = SystemClock.elapsedRealtime();
-            Log.d(TAG, "LimeTunaSpeech stage=rms_threshold t=" + currentTiming.nativeFirstRmsAboveThresholdMs + " rmsdB=" + detectionRmsDb);
+        long now = SystemClock.elapsedRealtime();
+        boolean thresholdSeen = currentTiming != null && currentTiming.nativeFirstRmsAboveThresholdMs != 0;
+        float detectionRmsDb = endpointer.onRms(rmsdB, now);
+        if (!thresholdSeen && currentTiming != null && currentTiming.nativeFirstRmsAboveThresholdMs != 0) {
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=rms_threshold t={} rmsdB={}", currentTiming.nativeFirstRmsAboveThresholdMs, detectionRmsDb);
         }
 
         if (!isListening) {
             return;
         }
 
-        switch (listeningState) {
-            case IDLE:
-                listeningState = ListeningState.SPEECH;
-                ensureRmsSpeechStart(now);
-                cancelSilenceTimer(true);
-                belowEndThresholdSinceMs = 0L;
-                break;
-            case SPEECH:
-                if (detectionRmsDb < adaptiveEndThresholdDb) {
-                    if (belowEndThresholdSinceMs == 0L) {
-                        belowEndThresholdSinceMs = now;
-                    }
-                    if ((now - belowEndThresholdSinceMs) >= thresholds.silenceHoldMs) {
-                        beginSilenceWindow(now);
-                    }
-                } else {
-                    belowEndThresholdSinceMs = 0L;
-                }
-                break;
-            case SILENCE_WINDOW: {
-                if (detectionRmsDb >= adaptiveEndThresholdDb + thresholds.rmsResumeDeltaDb) {
-                    cancelSilenceTimer(true);
-                    listeningState = ListeningState.SPEECH;
-                    ensureRmsSpeechStart(now);
-                    belowEndThresholdSinceMs = 0L;
-                }
-                break;
-            }
-            case COMMIT:
-                // Waiting for commit; ignore further RMS.
-                break;
-        }
-
-        if (isListening) {
-            sendRmsUpdateToCallback(rmsdB, detectionRmsDb, now);
-        }
+        sendRmsUpdateToCallback(rmsdB, detectionRmsDb, now);
 
         if (rmsdB == 0f) {
+            // Not reset mid-attempt: the streak counts against the recognizer's health,
+            // which rebuilds it before the next round.
             consecutiveZeroRmsWindows++;
-            if (consecutiveZeroRmsWindows >= ZERO_RMS_STREAK_THRESHOLD && !recognizerResetPending) {
-                Log.w(TAG, "Zero-RMS streak detected; scheduling recognizer reset");
-                requestRecognizerReset("zero_rms_streak");
+            if (consecutiveZeroRmsWindows > longestZeroRmsRun) {
+                longestZeroRmsRun = consecutiveZeroRmsWindows;
+                if (longestZeroRmsRun == RecognizerHealth.ZERO_RMS_RUN_WINDOWS) {
+                    SpeechLog.w(TAG, "Zero-RMS streak detected; recognizer health degraded");
+                }
             }
         } else {
             consecutiveZeroRmsWindows = 0;
         }
     }
 
-    @Override
-    public void onBufferReceived(byte[] buffer) {
-        // not used
-    }
-
     @Override
     public void onEndOfSpeech() {
-        Log.d(TAG, "onEndOfSpeech");
+        SpeechLog.d(TAG, "onEndOfSpeech");
+        if (sessionIdleArmed || calibrationCallback != null) {
+            return;
+        }
         long now = SystemClock.elapsedRealtime();
-        beginSilenceWindow(now);
+        endpointer.onEndOfSpeech(now);
         if (currentTiming != null) {
             currentTiming.nativeEndOfSpeechMs = now;
             if (currentTiming.nativeRmsSpeechEndMs == 0) {
                 currentTiming.nativeRmsSpeechEndMs = currentTiming.nativeEndOfSpeechMs;
             }
-            Log.d(TAG, "LimeTunaSpeech stage=end_speech t=" + currentTiming.nativeEndOfSpeechMs);
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=end_speech t={}", currentTiming.nativeEndOfSpeechMs);
         }
     }
 
     @Override
     public void onError(int error) {
-        Log.d(TAG, "onError: " + error);
+        SpeechLog.d(TAG, "onError: {}", error);
+
+        if (sessionIdleArmed) {
+            onSessionIdleListenEnded(error);
+            return;
+        }
+
+        if (calibrationCallback != null) {
+            // The engine gave up early (e.g. speech timeout); use what we sampled.
+            finishCalibration(false);
+            if (error == SpeechRecognizer.ERROR_RECOGNIZER_BUSY || error == SpeechRecognizer.ERROR_CLIENT) {
+                requestRecognizerReset("calibration_" + mapErrorLabel(error).toLowerCase());
+            }
+            return;
+        }
 
         if (!isListening && currentCallback == null) {
             return;
         }
 
+        if (currentTiming != null && AttemptTiming.MODE_OFFLINE.equals(currentTiming.recognitionMode)
+                && !stopIssued && currentTiming.nativeBeginningOfSpeechMs == 0 && lastPartialResults == null
+                && (error == SpeechRecognizer.ERROR_LANGUAGE_NOT_SUPPORTED
+                || error == SpeechRecognizer.ERROR_LANGUAGE_UNAVAILABLE)) {
+            retryAttemptOnline(error);
+            return;
+        }
+
+        recordHedgeOutcome(currentTiming);
         if (currentTiming != null) {
             currentTiming.nativeErrorMs = SystemClock.elapsedRealtime();
-            Log.d(TAG, "LimeTunaSpeech stage=error t=" + currentTiming.nativeErrorMs + " code=" + error);
-            JSONObject extras = new JSONObject();
-            try {
-                extras.put("error_code", error);
-                extras.put("error_label", mapErrorLabel(error));
-            } catch (JSONException e) {
-                Log.w(TAG, "Failed to build error milestone extras", e);
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=error t={} code={}", currentTiming.nativeErrorMs, error);
+            if (milestoneEventsEnabled) {
+                JSONObject extras = new JSONObject();
+                try {
+                    extras.put("error_code", error);
+                    extras.put("error_label", mapErrorLabel(error));
+                } catch (JSONException e) {
+                    SpeechLog.w(TAG, "Failed to build error milestone extras", e);
+                }
+                sendMilestoneEvent("onError", extras);
             }
-            sendMilestoneEvent("onError", extras);
         }
 
         if (error == SpeechRecognizer.ERROR_NO_MATCH && lastPartialResults != null && !lastPartialResults.isEmpty()) {
-            Log.i(TAG, "NO_MATCH with partials; emitting partial fallback result");
+            SpeechLog.i(TAG, "NO_MATCH with partials; emitting partial fallback result");
+            if (currentTiming != null) {
+                currentTiming.partialFallback = true;
+            }
             sendSuccessToCallback(lastPartialResults.get(0), null, new ArrayList<>(lastPartialResults), null, currentTiming);
             return;
         }
@@ -954,7 +2461,7 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             case SpeechRecognizer.ERROR_RECOGNIZER_BUSY:
             case SpeechRecognizer.ERROR_CLIENT:
                 code = "ENGINE_RESTART_REQUIRED";
-                requestRecognizerReset(mapErrorLabel(error).toLowerCase(), false);
+                requestRecognizerReset(mapErrorLabel(error).toLowerCase());
                 break;
             default:
                 code = "ERROR_" + error;
@@ -965,29 +2472,42 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
     }
 
     @Override
-    public void onResults(Bundle results) {
-        Log.d(TAG, "onResults");
+    public void onResults(List<String> resultMatches, float[] resultConfidences) {
+        SpeechLog.d(TAG, "onResults");
+
+        if (sessionIdleArmed) {
+            // Something was heard between rounds (prompt/feedback audio); no target to score it against.
+            onSessionIdleListenEnded(0);
+            return;
+        }
+
+        if (calibrationCallback != null) {
+            finishCalibration(false);
+            return;
+        }
 
         if (!isListening && currentCallback == null) {
             return;
         }
 
+        recordHedgeOutcome(currentTiming);
         if (currentTiming != null) {
             currentTiming.nativeResultsMs = SystemClock.elapsedRealtime();
-            Log.d(TAG, "LimeTunaSpeech stage=results t=" + currentTiming.nativeResultsMs);
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=results t={}", currentTiming.nativeResultsMs);
         }
 
-        ArrayList<String> matches =
-                results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
-        float[] confidences =
-                results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES);
+        ArrayList<String> matches = resultMatches != null ? new ArrayList<>(resultMatches) : null;
+        float[] confidences = resultConfidences;
 
-        Log.d(TAG, "matches=" + matches + " confidences=" + (confidences == null ? "null" : confidences.length));
+        SpeechLog.d(TAG, "matches={} confidences={}", matches, confidences == null ? -1 : confidences.length);
 
         if ((matches == null || matches.isEmpty()) && lastPartialResults != null && !lastPartialResults.isEmpty()) {
-            Log.i(TAG, "Falling back to partial results: " + lastPartialResults);
+            SpeechLog.i(TAG, "Falling back to partial results: {}", lastPartialResults);
             matches = new ArrayList<>(lastPartialResults);
             confidences = null;
+            if (currentTiming != null) {
+                currentTiming.partialFallback = true;
+            }
             sendMilestoneEvent("partial_fallback", null);
         }
 
@@ -1019,32 +2539,133 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         sendSuccessToCallback(bestText, bestConf, matches, confidences, currentTiming);
     }
 
+    /**
+     * The offline model went missing under an offlineFirst attempt before it heard anything:
+     * forget it was installed and restart the same attempt online.
+     */
+    // Must be called ONLY on the recognizer thread
+    private void retryAttemptOnline(int error) {
+        SpeechLog.w(TAG, "Offline model for {} unusable ({}); retrying online", language, mapErrorLabel(error));
+        offlineModelState = OfflineModel.STATE_UNKNOWN;
+        currentTiming.offlineRetried = true;
+        sendMilestoneEvent("offline_fallback", null);
+        RecognizerBackend.Request request = buildRecognitionRequest(thresholdConfig.get());
+        if (sessionCallback != null) {
+            sessionRequest = request;
+        }
+        startListeningForCurrentAttempt(request);
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void recordHedgeOutcome(AttemptTiming timing) {
+        if (timing == null || !(speechRecognizer instanceof HedgedRecognizerBackend)) {
+            return;
+        }
+        HedgedRecognizerBackend.Outcome outcome = ((HedgedRecognizerBackend) speechRecognizer).takeOutcome();
+        if (outcome == null || outcome.names[HedgedRecognizerBackend.SECONDARY] == null) {
+            return;
+        }
+        int loser = 1 - outcome.winner;
+        timing.hedgeWinner = outcome.winner;
+        timing.hedgeAccepted = outcome.accepted;
+        timing.hedgeLoser = outcome.states[loser];
+        timing.hedgeWinnerMs = outcome.endMs[outcome.winner];
+        timing.hedgeMarginKnown = outcome.hasMargin();
+        timing.hedgeMarginMs = timing.hedgeMarginKnown ? outcome.marginMs() : 0L;
+        SpeechLog.d(TAG, "LimeTunaSpeech stage=hedge winner={} at={}ms loser={}",
+                AttemptMetrics.HEDGE_KEYS[outcome.accepted ? outcome.winner : AttemptMetrics.HEDGE_UNACCEPTED],
+                timing.hedgeWinnerMs, timing.hedgeLoser);
+    }
+
     @Override
-    public void onPartialResults(Bundle partialResults) {
+    public void onPartialResults(List<String> partial) {
+        if (sessionIdleArmed || calibrationCallback != null) {
+            return;
+        }
         if (!isListening && currentCallback == null) {
             return;
         }
 
-        ArrayList<String> partial =
-                partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION);
         if (partial != null && !partial.isEmpty()) {
             lastPartialResults = new ArrayList<>(partial);
-            partialResultsSeen = true;
-            awaitingPartialAfterBos = false;
-            JSONObject extras = new JSONObject();
+            endpointer.onPartialResults(partial.size());
+            if (milestoneEventsEnabled) {
+                JSONObject extras = new JSONObject();
+                try {
+                    extras.put("partial_size", partial.size());
+                    extras.put("partial_top", partial.get(0));
+                    LetterScorer.Choice choice = LetterScorer.get().choose(
+                            partial, currentTiming != null ? currentTiming.expectedLetter : null);
+                    extras.put("normalized_letter", choice.letter != null ? choice.letter : JSONObject.NULL);
+                    extras.put("letter_score", choice.score);
+                } catch (JSONException e) {
+                    SpeechLog.w(TAG, "Failed to build partial extras", e);
+                }
+                sendMilestoneEvent("partial_results", extras);
+            }
+            if (currentTiming != null && currentCallback != null) {
+                maybeCommitEarly(partial);
+            }
+        }
+    }
+
+    // Must be called ONLY on the recognizer thread
+    private void maybeCommitEarly(List<String> partial) {
+        EarlyCommitPolicy policy = earlyCommitPolicy.get();
+        EarlyCommitPolicy.Hit hit = policy.evaluate(partial, currentTiming.expectedLetter, vocabulary.get());
+        if (hit == null) {
+            confidentPartialStreak = 0;
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (currentTiming.nativeConfidentPartialMs == 0) {
+            currentTiming.nativeConfidentPartialMs = now;
+        }
+        confidentPartialStreak++;
+        if (!policy.enabled || confidentPartialStreak < policy.stablePartials) {
+            return;
+        }
+
+        currentTiming.nativeEarlyCommitMs = now;
+        SpeechLog.d(TAG, "LimeTunaSpeech stage=early_commit t={} target={} score={}", now, hit.target, hit.score);
+        JSONObject extras = buildCommitExtras("early_commit", true);
+        if (extras != null) {
             try {
-                extras.put("partial_size", partial.size());
-                extras.put("partial_top", partial.get(0));
+                extras.put("target", hit.target);
+                extras.put("score", hit.score);
             } catch (JSONException e) {
-                Log.w(TAG, "Failed to build partial extras", e);
+                SpeechLog.w(TAG, "Failed to build early commit extras", e);
             }
-            sendMilestoneEvent("partial_results", extras);
         }
+        sendMilestoneEvent("early_commit", extras);
+        if (stopIssued) {
+            // Post-silence already stopped the listen; don't wait for its final result either.
+            try {
+                speechRecognizer.cancel();
+            } catch (Exception e) {
+                SpeechLog.w(TAG, "Error cancelling recognizer", e);
+            }
+        } else {
+            stopListeningInternal(true);
+        }
+        currentTiming.nativeNormalizeDoneMs = SystemClock.elapsedRealtime();
+        sendSuccessToCallback(hit.text, null, new ArrayList<>(partial), null, currentTiming);
     }
 
-    @Override
-    public void onEvent(int eventType, Bundle params) {
-        // not used
+    /**
+     * What an early commit saved, estimated: the normal path would have
+     * answered at the user's speech end plus the median speech-end-to-results
+     * time of recent attempts (post-silence window plus engine). Speech that
+     * has not ended yet counts as ending now, so this is a lower bound.
+     */
+    private long estimateEarlyCommitSavingMs(AttemptTiming timing, long postSilenceDelayMs) {
+        LatencyHistogram engine = attemptMetrics.stage(AttemptMetrics.STAGE_ENGINE_PROCESSING);
+        long speechEndToResultsMs = engine.getCount() > 0 ? engine.percentile(0.50) : postSilenceDelayMs;
+        long speechEnd = timing.speechEndMs();
+        if (speechEnd <= 0 || speechEnd > timing.nativeEarlyCommitMs) {
+            speechEnd = timing.nativeEarlyCommitMs;
+        }
+        return Math.max(0L, speechEnd + speechEndToResultsMs - timing.nativeEarlyCommitMs);
     }
 
     // Permission result --------------------------------------------------------
@@ -1070,31 +2691,36 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         }
 
         if (pendingInitCallback != null) {
+            final CallbackContext initCallback = pendingInitCallback;
             if (granted) {
-                cordova.getActivity().runOnUiThread(new Runnable() {
+                runOnRecognizerThread(new Runnable() {
                     @Override
                     public void run() {
-                        if (!SpeechRecognizer.isRecognitionAvailable(
-                                cordova.getActivity().getApplicationContext())) {
-                            pendingInitCallback.error(buildErrorJson(
+                        if (switchRecognizerThreadIfRequested()) {
+                            runOnRecognizerThread(this);
+                            return;
+                        }
+                        if (!recognizerFactory().isAvailable()) {
+                            initCallback.error(buildErrorJson(
                                     "ENGINE_UNAVAILABLE",
                                     "Speech recognition not available"
                             ));
                         } else {
-                            createRecognizerIfNeededOnMainThread();
+                            createRecognizerIfNeededOnRecognizerThread();
                             if (speechRecognizer == null) {
-                                pendingInitCallback.error(buildErrorJson(
+                                initCallback.error(buildErrorJson(
                                         "ENGINE_CREATE_FAILED",
-                                        "Failed to create SpeechRecognizer"
+                                        "Failed to create recognizer"
                                 ));
                             } else {
-                                pendingInitCallback.success();
+                                scheduleStandbyRecognizer();
+                                initCallback.success(buildInitInfo());
                             }
                         }
                     }
                 });
             } else {
-                pendingInitCallback.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission denied"));
+                initCallback.error(buildErrorJson("PERMISSION_DENIED", "Microphone permission denied"));
             }
             pendingInitCallback = null;
         }
@@ -1105,23 +2731,83 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
     @Override
     public void onReset() {
         super.onReset();
-        destroyRecognizer();
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                cancelPrompt("STOPPED", "Page reset");
+                cancelDeferredStart("STOPPED", "Page reset");
+                destroyRecognizer();
+                destroyStandbyRecognizer();
+            }
+        });
+    }
+
+    @Override
+    public void onPause(boolean multitasking) {
+        super.onPause(multitasking);
+        // The process may not come back; write what this run has learned.
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                persistLearnedState();
+            }
+        });
+    }
+
+    /** Asked by Cordova's asset loader for every www/ request, before the APK asset open. */
+    @Override
+    public CordovaPluginPathHandler getPathHandler() {
+        return packedAssetsHandler;
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
-        destroyRecognizer();
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                cancelPrompt("STOPPED", "Plugin destroyed");
+                cancelDeferredStart("STOPPED", "Plugin destroyed");
+                soundPlayer.release();
+                packedAssets.close();
+                destroyRecognizer();
+                destroyStandbyRecognizer();
+                persistLearnedState();
+                closeJournalQuietly(attemptJournal);
+            }
+        });
+        HandlerThread thread = recognizerThread;
+        if (thread != null) {
+            thread.quitSafely();
+        }
+    }
+
+    private void destroyStandbyRecognizer() {
+        if (handler != null) {
+            handler.removeCallbacks(buildStandbyRunnable);
+        }
+        if (standbyRecognizer != null) {
+            destroyQuietly(standbyRecognizer);
+            standbyRecognizer = null;
+        }
     }
 
     private void destroyRecognizer() {
+        sessionIdleArmed = false;
+        if (calibrationCallback != null) {
+            handler.removeCallbacks(finishCalibrationRunnable);
+            calibrationCallback.error(buildErrorJson("CALIBRATION_ABORTED", "Recognizer was torn down"));
+            calibrationCallback = null;
+        }
+        stopVadCapture();
         if (speechRecognizer != null) {
             try {
                 speechRecognizer.destroy();
             } catch (Exception e) {
-                Log.w(TAG, "Error destroying recognizer", e);
+                SpeechLog.w(TAG, "Error destroying recognizer", e);
             }
             speechRecognizer = null;
+            recognizerHealth = null;
         }
         currentCallback = null;
         isListening = false;
@@ -1150,60 +2836,129 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         JSONObject timingJson = new JSONObject();
         JSONObject raw = new JSONObject();
 
-        putIfPositive(raw, "native_received_ms", timing.nativeReceivedMs);
-        putIfPositive(raw, "native_startListening_ms", timing.nativeStartListeningMs);
-        putIfPositive(raw, "native_readyForSpeech_ms", timing.nativeReadyForSpeechMs);
-        putIfPositive(raw, "native_beginningOfSpeech_ms", timing.nativeBeginningOfSpeechMs);
-        putIfPositive(raw, "native_firstRmsAboveThreshold_ms", timing.nativeFirstRmsAboveThresholdMs);
-        putIfPositive(raw, "native_rmsSpeechStart_ms", timing.nativeRmsSpeechStartMs);
-        putIfPositive(raw, "native_rmsSpeechEnd_ms", timing.nativeRmsSpeechEndMs);
-        putIfPositive(raw, "native_postSilenceCommit_ms", timing.nativePostSilenceCommitMs);
-        putIfPositive(raw, "native_failSafeCommit_ms", timing.nativeFailSafeCommitMs);
-        putIfPositive(raw, "native_endOfSpeech_ms", timing.nativeEndOfSpeechMs);
-        putIfPositive(raw, "native_results_ms", timing.nativeResultsMs);
-        putIfPositive(raw, "native_error_ms", timing.nativeErrorMs);
-        putIfPositive(raw, "native_normalize_done_ms", timing.nativeNormalizeDoneMs);
-        putIfPositive(raw, "native_callback_sent_ms", timing.nativeCallbackSentMs);
+        for (int i = 0; i < AttemptTiming.RAW_KEYS.length; i++) {
+            putIfPositive(raw, AttemptTiming.RAW_KEYS[i], timing.rawValue(i));
+        }
 
         if (timing.expectedLetter != null) {
             raw.put("expected_letter", timing.expectedLetter);
         }
 
-        JSONObject rmsJson = rmsStats.toJson();
+        JSONObject rmsJson = rmsStatsToJson(endpointer.getRmsStats());
         if (rmsJson != null) {
             timingJson.put("rms_debug", rmsJson);
         }
 
         JSONObject durations = new JSONObject();
-        putDuration(durations, "d_queue_native_ms", timing.nativeStartListeningMs, timing.nativeReceivedMs);
-        putDuration(durations, "d_engine_ready_ms", timing.nativeReadyForSpeechMs, timing.nativeStartListeningMs);
-
-        long speechAnchorStart = timing.nativeReadyForSpeechMs > 0 ? timing.nativeReadyForSpeechMs : timing.nativeStartListeningMs;
-        long speechAnchorEnd = timing.nativeRmsSpeechStartMs > 0
-                ? timing.nativeRmsSpeechStartMs
-                : (timing.nativeBeginningOfSpeechMs > 0 ? timing.nativeBeginningOfSpeechMs : timing.nativeFirstRmsAboveThresholdMs);
-        putDuration(durations, "d_user_speech_to_engine_ms", speechAnchorEnd, speechAnchorStart);
-
-        long speechAnchorStop = timing.nativeRmsSpeechEndMs > 0 ? timing.nativeRmsSpeechEndMs : timing.nativeEndOfSpeechMs;
-        putDuration(durations, "d_engine_processing_ms", timing.nativeResultsMs, speechAnchorStop);
-        putDuration(durations, "d_normalize_ms", timing.nativeNormalizeDoneMs, timing.nativeResultsMs);
+        putDuration(durations, "d_queue_native_ms", timing.queueNativeMs());
+        putDuration(durations, "d_engine_ready_ms", timing.engineReadyMs());
+        putDuration(durations, "d_user_speech_to_engine_ms", timing.userSpeechToEngineMs());
+        putDuration(durations, "d_engine_processing_ms", timing.engineProcessingMs());
+        putDuration(durations, "d_normalize_ms", timing.normalizeMs());
+        putDuration(durations, "d_speech_end_to_callback_ms", timing.speechEndToCallbackMs());
+        putDuration(durations, "d_total_ms", timing.totalMs());
+        putDuration(durations, "d_confident_partial_to_callback_ms", timing.confidentPartialToCallbackMs());
 
         ThresholdConfig thresholds = thresholdConfig.get();
         if (thresholds == null) {
             thresholds = ThresholdConfig.defaults();
         }
-        long postSilenceBoostMs = lastComputedPostSilenceDelayMs - thresholds.postSilenceMs;
-        JSONObject thresholdsJson = thresholds.toJson(
-                rmsStats.getBaselineRmsDb(),
-                lastComputedEndThresholdDb,
-                lastComputedPostSilenceDelayMs,
-                shouldDeferCommitForMissingPartials(),
+        long postSilenceDelayMs = endpointer.getLastComputedPostSilenceDelayMs();
+        long postSilenceBoostMs = postSilenceDelayMs - thresholds.postSilenceMs;
+        JSONObject thresholdsJson = thresholdsToJson(
+                thresholds,
+                endpointer.getRmsStats().getBaselineRmsDb(),
+                endpointer.getLastComputedEndThresholdDb(),
+                postSilenceDelayMs,
+                endpointer.shouldDeferCommitForMissingPartials(),
                 postSilenceBoostMs);
 
+        JSONObject engine = new JSONObject();
+        if (timing.engineStart != null) {
+            engine.put("start", timing.engineStart);
+        }
+        if (timing.engineBackend != null) {
+            engine.put("backend", timing.engineBackend);
+        }
+        if (timing.recognitionMode != null) {
+            engine.put("mode", timing.recognitionMode);
+            if (timing.offlineRetried) {
+                engine.put("offline_retried", true);
+            }
+        }
+        engine.put("warm_starts", timing.warmStarts);
+        engine.put("cold_starts", timing.coldStarts);
+        engine.put("reused_starts", timing.reusedStarts);
+        engine.put("hot_starts", timing.hotStarts);
+        if (timing.engineHealth >= 0) {
+            engine.put("health", timing.engineHealth);
+        }
+
         timingJson.put("native_raw", raw);
         timingJson.put("native_durations", durations);
+        timingJson.put("native_engine", engine);
+        timingJson.put("native_profile", acousticProfileToJson(acousticProfile()));
+        if (timing.vadCapture != null) {
+            JSONObject vadJson = new JSONObject();
+            vadJson.put("capture", timing.vadCapture);
+            FrameVad vad = pcmVadCapture != null ? pcmVadCapture.getLastVad() : null;
+            if (vad != null && !pcmVadCapture.isRunning()) {
+                vadJson.put("frame_ms", vad.getFrameMs());
+                vadJson.put("frames", vad.getFrameCount());
+                vadJson.put("digital_silence_frames", vad.getDigitalSilenceFrames());
+                vadJson.put("noise_floor_dbfs", vad.getNoiseFloorDb());
+            }
+            timingJson.put("native_vad", vadJson);
+        }
         timingJson.put("native_thresholds", thresholdsJson);
 
+        EarlyCommitPolicy earlyCommit = earlyCommitPolicy.get();
+        if (earlyCommit.enabled || timing.nativeConfidentPartialMs > 0) {
+            JSONObject earlyJson = new JSONObject();
+            earlyJson.put("enabled", earlyCommit.enabled);
+            earlyJson.put("taken", timing.nativeEarlyCommitMs > 0);
+            if (timing.nativeEarlyCommitMs > 0) {
+                earlyJson.put("saved_ms_est", estimateEarlyCommitSavingMs(timing, postSilenceDelayMs));
+            } else {
+                // Measured: how much sooner a confident partial could have answered.
+                putDuration(earlyJson, "lead_ms", timing.confidentPartialToCallbackMs());
+            }
+            timingJson.put("native_early_commit", earlyJson);
+        }
+
+        PostSilencePolicy.Plan plan = timing.postSilencePlan;
+        if (plan != null) {
+            JSONObject planJson = new JSONObject();
+            planJson.put("source", plan.source);
+            planJson.put("delay_ms", plan.delayMs);
+            planJson.put("samples", plan.samples);
+            planJson.put("max_premature_rate", postSilencePolicy.get().maxPrematureRate);
+            if (plan.predictedPrematureRate >= 0) {
+                planJson.put("predicted_premature_rate", plan.predictedPrematureRate);
+            }
+            putDuration(planJson, "predicted_gap_ms", plan.predictedGapMs);
+            // What the attempt then did, for comparing against the prediction.
+            putDuration(planJson, "applied_ms", timing.postSilenceDelayMs);
+            planJson.put("longest_pause_ms", timing.longestPauseMs);
+            if (timing.nativeResultsMs > 0 && timing.nativeRmsSpeechEndMs > 0) {
+                putDuration(planJson, "gap_ms", timing.nativeResultsMs - timing.nativeRmsSpeechEndMs);
+            }
+            timingJson.put("native_post_silence", planJson);
+        }
+
+        if (timing.hedgeWinner >= 0) {
+            JSONObject hedgeJson = new JSONObject();
+            hedgeJson.put("winner", AttemptMetrics.HEDGE_KEYS[timing.hedgeWinner]);
+            hedgeJson.put("accepted", timing.hedgeAccepted);
+            hedgeJson.put("winner_ms", timing.hedgeWinnerMs);
+            hedgeJson.put("loser", timing.hedgeLoser);
+            if (timing.hedgeMarginKnown) {
+                // Positive: the loser answered this much later; negative: it answered first but was not taken.
+                hedgeJson.put("margin_ms", timing.hedgeMarginMs);
+            }
+            timingJson.put("native_hedge", hedgeJson);
+        }
+
         return timingJson;
     }
 
@@ -1213,151 +2968,112 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         }
     }
 
-    private void putDuration(JSONObject obj, String key, long end, long start) throws JSONException {
-        if (end > 0 && start > 0 && end >= start) {
-            obj.put(key, end - start);
+    private void putDuration(JSONObject obj, String key, long durationMs) throws JSONException {
+        if (durationMs >= 0) {
+            obj.put(key, durationMs);
         }
     }
 
-    private void beginSilenceWindow(long now) {
-        if (listeningState == ListeningState.SILENCE_WINDOW || listeningState == ListeningState.COMMIT) {
-            return;
-        }
-
-        listeningState = ListeningState.SILENCE_WINDOW;
-        belowEndThresholdSinceMs = 0L;
-        if (currentTiming != null && currentTiming.nativeRmsSpeechEndMs == 0) {
-            currentTiming.nativeRmsSpeechEndMs = now;
-        }
-
-        cancelSpeechFailSafe();
-        sendMilestoneEvent("enter_silence_window", null);
-
-        if (handler != null) {
-            ThresholdConfig thresholds = thresholdConfig.get();
-            long postSilenceDelayMs = computePostSilenceDelay(now, thresholds);
-            if (shouldDeferCommitForMissingPartials()) {
-                postSilenceDelayMs = Math.min(thresholds.maxUtteranceMs, postSilenceDelayMs + NO_PARTIAL_POST_SILENCE_BOOST_MS);
-            }
-            lastComputedPostSilenceDelayMs = postSilenceDelayMs;
-            silenceTimeoutRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    if (stopIssued) {
-                        return;
-                    }
-                    listeningState = ListeningState.COMMIT;
-                    cancelSpeechFailSafe();
-                    if (currentTiming != null && currentTiming.nativePostSilenceCommitMs == 0) {
-                        currentTiming.nativePostSilenceCommitMs = SystemClock.elapsedRealtime();
-                    }
-                    sendMilestoneEvent("post_silence_commit", buildCommitExtras("post_silence_commit", true));
-                    stopListeningInternal(false);
-                }
-            };
-            handler.postDelayed(silenceTimeoutRunnable, postSilenceDelayMs);
-        }
+    private JSONObject rmsStatsToJson(RmsStats stats) throws JSONException {
+        JSONObject obj = new JSONObject();
+        if (!Float.isNaN(stats.lastRmsDb)) obj.put("last_rms_db", stats.lastRmsDb);
+        if (!Float.isNaN(stats.smoothedRmsDb)) obj.put("smoothed_rms_db", stats.smoothedRmsDb);
+        if (!Float.isNaN(stats.avgRmsDb)) obj.put("avg_rms_db", stats.avgRmsDb);
+        if (!Float.isNaN(stats.minRmsDb)) obj.put("min_rms_db", stats.minRmsDb);
+        if (!Float.isNaN(stats.maxRmsDb)) obj.put("max_rms_db", stats.maxRmsDb);
+        if (!Float.isNaN(stats.baselineRmsDb)) obj.put("baseline_rms_db", stats.baselineRmsDb);
+        float p50 = stats.getPercentileRmsDb(0.5f);
+        if (!Float.isNaN(p50)) obj.put("p50_rms_db", p50);
+        float p90 = stats.getPercentileRmsDb(0.9f);
+        if (!Float.isNaN(p90)) obj.put("p90_rms_db", p90);
+        float noiseFloor = stats.getNoiseFloorDb();
+        if (!Float.isNaN(noiseFloor)) obj.put("noise_floor_db", noiseFloor);
+        if (stats.lastUpdateMs > 0) obj.put("last_update_ms", stats.lastUpdateMs);
+        if (obj.length() == 0) return null;
+        return obj;
     }
 
-    private long computePostSilenceDelay(long now, ThresholdConfig thresholds) {
-        long speechStart = 0L;
-        if (currentTiming != null) {
-            speechStart = currentTiming.nativeRmsSpeechStartMs > 0
-                    ? currentTiming.nativeRmsSpeechStartMs
-                    : currentTiming.nativeBeginningOfSpeechMs;
-        }
-        long speechDuration = speechStart > 0 ? Math.max(0, now - speechStart) : 0L;
-        long adaptive = thresholds.postSilenceMs;
-        if (speechDuration > 0) {
-            long reduction = speechDuration / 3;
-            adaptive = Math.max(thresholds.minPostSilenceMs, thresholds.postSilenceMs - reduction);
+    private JSONObject thresholdsToJson(ThresholdConfig config,
+                                        float baselineRmsDb,
+                                        float adaptiveEndThresholdDb,
+                                        long postSilenceDelayMs,
+                                        boolean noPartialAdjustActive,
+                                        long noPartialPostSilenceBoostMs) throws JSONException {
+        JSONObject thresholds = new JSONObject();
+        thresholds.put("rms_voice_trigger_db", config.rmsVoiceTriggerDb);
+        if (Float.isInfinite(config.rmsStartThresholdDb)) {
+            thresholds.put("rms_start_threshold_db", "-Infinity");
         } else {
-            adaptive = Math.max(thresholds.minPostSilenceMs, thresholds.postSilenceMs);
-        }
-        return adaptive;
+            thresholds.put("rms_start_threshold_db", config.rmsStartThresholdDb);
+        }
+        thresholds.put("rms_end_threshold_db", config.rmsEndThresholdDb);
+        thresholds.put("rms_resume_delta_db", config.rmsResumeDeltaDb);
+        thresholds.put("post_silence_ms", config.postSilenceMs);
+        thresholds.put("min_post_silence_ms", config.minPostSilenceMs);
+        thresholds.put("max_utterance_ms", config.maxUtteranceMs);
+        thresholds.put("rms_smooth_tail_samples", config.rmsSmoothTailSamples);
+        thresholds.put("silence_hold_ms", config.silenceHoldMs);
+        thresholds.put("adaptive_end_threshold_db", adaptiveEndThresholdDb);
+        thresholds.put("post_silence_ms_effective", postSilenceDelayMs);
+        thresholds.put("no_partial_adjust_active", noPartialAdjustActive);
+        thresholds.put("no_partial_post_silence_boost_ms", Math.max(0, noPartialPostSilenceBoostMs));
+        if (!Float.isNaN(baselineRmsDb)) {
+            thresholds.put("baseline_rms_db", baselineRmsDb);
+        }
+        return thresholds;
     }
 
-    private void cancelSilenceTimer(boolean clearEndTime) {
-        if (handler != null && silenceTimeoutRunnable != null) {
-            handler.removeCallbacks(silenceTimeoutRunnable);
-        }
-        silenceTimeoutRunnable = null;
-        belowEndThresholdSinceMs = 0L;
-        if (clearEndTime && currentTiming != null && listeningState == ListeningState.SILENCE_WINDOW) {
-            currentTiming.nativeRmsSpeechEndMs = 0;
+    // Must be called ONLY on the recognizer thread
+    private void startVadCaptureIfEnabled() {
+        if (!captureVadEnabled || pcmVadCapture == null || currentTiming == null) {
+            return;
         }
+        currentTiming.vadCapture = "active";
+        endpointer.setVadDriven(true);
+        pcmVadCapture.start(currentTiming.attemptId, vadFrameMs);
     }
 
-    private void ensureRmsSpeechStart(long startMs) {
-        if (currentTiming != null && currentTiming.nativeRmsSpeechStartMs == 0) {
-            currentTiming.nativeRmsSpeechStartMs = startMs;
-            scheduleSpeechFailSafe(startMs);
+    private void stopVadCapture() {
+        if (pcmVadCapture != null && pcmVadCapture.isRunning()) {
+            pcmVadCapture.stop();
         }
     }
 
-    private void scheduleSpeechFailSafe(long startMs) {
-        cancelSpeechFailSafe();
-        if (handler != null) {
-            speechFailSafeRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    if (stopIssued || listeningState == ListeningState.COMMIT) {
-                        return;
-                    }
-                    listeningState = ListeningState.COMMIT;
-                    long now = SystemClock.elapsedRealtime();
-                    if (currentTiming != null && currentTiming.nativeRmsSpeechEndMs == 0) {
-                        currentTiming.nativeRmsSpeechEndMs = now;
-                    }
-                    if (currentTiming != null && currentTiming.nativeFailSafeCommitMs == 0) {
-                        currentTiming.nativeFailSafeCommitMs = now;
-                    }
-                    sendMilestoneEvent("failsafe_commit", buildCommitExtras("max_utterance_commit", false));
-                    stopListeningInternal(false);
-                }
-            };
-            ThresholdConfig thresholds = thresholdConfig.get();
-            handler.postDelayed(speechFailSafeRunnable, thresholds.maxUtteranceMs);
+    private void handleVadEvent(long attemptId, int event, long eventMs, long decidedMs) {
+        if (currentTiming == null || currentTiming.attemptId != attemptId || !endpointer.isVadDriven()) {
+            return;
         }
-    }
-
-    private void cancelSpeechFailSafe() {
-        if (handler != null && speechFailSafeRunnable != null) {
-            handler.removeCallbacks(speechFailSafeRunnable);
+        long now = SystemClock.elapsedRealtime();
+        if (event == FrameVad.EVENT_SPEECH_START) {
+            if (currentTiming.nativeVadSpeechStartMs == 0) {
+                currentTiming.nativeVadSpeechStartMs = eventMs;
+            }
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=vad_speech_start t={} decided={}", eventMs, decidedMs);
+            endpointer.onVadSpeechStart(eventMs);
+            sendMilestoneEvent("vad_speech_start", null);
+        } else if (event == FrameVad.EVENT_SPEECH_END) {
+            currentTiming.nativeVadSpeechEndMs = eventMs;
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=vad_speech_end t={} decided={}", eventMs, decidedMs);
+            endpointer.onVadSpeechEnd(now, eventMs);
+            sendMilestoneEvent("vad_speech_end", null);
         }
-        speechFailSafeRunnable = null;
     }
 
-    private float computeEndThresholdDb(ThresholdConfig thresholds) {
-        if (thresholds == null) {
-            return RMS_END_THRESHOLD_DB;
-        }
-        float base = thresholds.rmsEndThresholdDb;
-        float baseline = rmsStats.getBaselineRmsDb();
-        if (!Float.isNaN(baseline)) {
-            float deltaFromBaseline = Math.max(END_BASELINE_DELTA_DB_MIN,
-                    Math.abs(baseline) * END_BASELINE_DELTA_PERCENT);
-            base = baseline + deltaFromBaseline;
+    private void fallBackFromVadCapture(long attemptId, String reason) {
+        if (currentTiming == null || currentTiming.attemptId != attemptId) {
+            return;
         }
-        return base;
-    }
-
-    private boolean shouldDeferCommitForMissingPartials() {
-        return awaitingPartialAfterBos && !partialResultsSeen &&
-                (lastPartialResults == null || lastPartialResults.isEmpty());
+        SpeechLog.w(TAG, "VAD capture {}; falling back to RMS endpointing for attempt {}", reason, attemptId);
+        currentTiming.vadCapture = reason;
+        endpointer.setVadDriven(false);
+        sendMilestoneEvent("vad_fallback", null);
     }
 
     private void resetListeningState() {
-        cancelSilenceTimer(false);
-        cancelSpeechFailSafe();
-        listeningState = ListeningState.IDLE;
+        stopVadCapture();
+        endpointer.reset();
         stopIssued = false;
         consecutiveZeroRmsWindows = 0;
-        belowEndThresholdSinceMs = 0L;
-        awaitingPartialAfterBos = false;
-        partialResultsSeen = false;
-        lastComputedPostSilenceDelayMs = POST_SILENCE_MS;
-        lastComputedEndThresholdDb = RMS_END_THRESHOLD_DB;
     }
 
     private void sendRmsUpdateToCallback(float rmsdB, float smoothedRmsDb, long now) {
@@ -1365,6 +3081,13 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             return;
         }
 
+        if (rmsBinaryStream) {
+            if (rmsBatcher.add(now, rmsdB, smoothedRmsDb, endpointer.getRmsStats().getBaselineRmsDb())) {
+                flushRmsBatch();
+            }
+            return;
+        }
+
         if (lastRmsDispatchMs > 0 && (now - lastRmsDispatchMs) < RMS_DISPATCH_INTERVAL_MS) {
             return;
         }
@@ -1373,6 +3096,7 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
         try {
             JSONObject obj = new JSONObject();
             obj.put("type", "rms");
+            RmsStats rmsStats = endpointer.getRmsStats();
             obj.put("rms_db", rmsStats.lastRmsDb);
             if (!Float.isNaN(smoothedRmsDb)) obj.put("smoothed_rms_db", smoothedRmsDb);
             if (!Float.isNaN(rmsStats.avgRmsDb)) obj.put("avg_rms_db", rmsStats.avgRmsDb);
@@ -1391,12 +3115,33 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             pr.setKeepCallback(true);
             currentCallback.sendPluginResult(pr);
         } catch (JSONException e) {
-            Log.w(TAG, "Failed to send RMS update", e);
+            SpeechLog.w(TAG, "Failed to send RMS update", e);
+        }
+    }
+
+    private void flushRmsBatch() {
+        if (!rmsBinaryStream || currentCallback == null) {
+            return;
+        }
+        byte[] batch = rmsBatcher.drain();
+        if (batch == null) {
+            return;
         }
+        PluginResult pr = new PluginResult(PluginResult.Status.OK, batch);
+        pr.setKeepCallback(true);
+        currentCallback.sendPluginResult(pr);
+    }
+
+    private void resetMilestoneDelta() {
+        Arrays.fill(lastSentRawTiming, 0L);
+        lastSentPostSilenceDelayMs = -1L;
+        lastSentEndThresholdDb = Float.NaN;
+        lastSentBaselineRmsDb = Float.NaN;
+        lastSentNoPartialAdjust = -1;
     }
 
     private void sendMilestoneEvent(String stage, JSONObject extras) {
-        if (currentCallback == null || currentTiming == null) {
+        if (!milestoneEventsEnabled || currentCallback == null || currentTiming == null) {
             return;
         }
 
@@ -1405,21 +3150,71 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             obj.put("type", "event");
             obj.put("event", stage);
             obj.put("attempt_id", currentTiming.attemptId);
+            obj.put("t_ms", SystemClock.elapsedRealtime());
             if (currentTiming.expectedLetter != null) {
                 obj.put("expected_letter", currentTiming.expectedLetter);
             }
-            obj.put("timing", buildTimingJson(currentTiming));
+            JSONObject delta = buildTimingDelta(currentTiming);
+            if (delta != null) {
+                obj.put("timing_delta", delta);
+            }
             if (extras != null) {
-                JSONObject extrasCopy = new JSONObject(extras.toString());
-                obj.put("extras", extrasCopy);
+                obj.put("extras", extras);
             }
 
             PluginResult pr = new PluginResult(PluginResult.Status.OK, obj);
             pr.setKeepCallback(true);
             currentCallback.sendPluginResult(pr);
         } catch (JSONException e) {
-            Log.w(TAG, "Failed to send milestone event " + stage, e);
+            SpeechLog.w(TAG, "Failed to send milestone event {}", stage, e);
+        }
+    }
+
+    private JSONObject buildTimingDelta(AttemptTiming timing) throws JSONException {
+        JSONObject raw = null;
+        for (int i = 0; i < AttemptTiming.RAW_KEYS.length; i++) {
+            long value = timing.rawValue(i);
+            if (value != lastSentRawTiming[i]) {
+                if (raw == null) raw = new JSONObject();
+                // 0 means the stage was cleared (e.g. speech resumed after a silence window).
+                raw.put(AttemptTiming.RAW_KEYS[i], value);
+                lastSentRawTiming[i] = value;
+            }
+        }
+
+        JSONObject thresholds = null;
+        long postSilenceDelayMs = endpointer.getLastComputedPostSilenceDelayMs();
+        if (postSilenceDelayMs != lastSentPostSilenceDelayMs) {
+            thresholds = new JSONObject();
+            thresholds.put("post_silence_ms_effective", postSilenceDelayMs);
+            lastSentPostSilenceDelayMs = postSilenceDelayMs;
+        }
+        float endThresholdDb = endpointer.getLastComputedEndThresholdDb();
+        if (Float.compare(endThresholdDb, lastSentEndThresholdDb) != 0) {
+            if (thresholds == null) thresholds = new JSONObject();
+            thresholds.put("adaptive_end_threshold_db", endThresholdDb);
+            lastSentEndThresholdDb = endThresholdDb;
+        }
+        float baselineRmsDb = endpointer.getRmsStats().getBaselineRmsDb();
+        if (!Float.isNaN(baselineRmsDb) && Float.compare(baselineRmsDb, lastSentBaselineRmsDb) != 0) {
+            if (thresholds == null) thresholds = new JSONObject();
+            thresholds.put("baseline_rms_db", baselineRmsDb);
+            lastSentBaselineRmsDb = baselineRmsDb;
+        }
+        int noPartialAdjust = endpointer.shouldDeferCommitForMissingPartials() ? 1 : 0;
+        if (noPartialAdjust != lastSentNoPartialAdjust) {
+            if (thresholds == null) thresholds = new JSONObject();
+            thresholds.put("no_partial_adjust_active", noPartialAdjust == 1);
+            lastSentNoPartialAdjust = noPartialAdjust;
         }
+
+        if (raw == null && thresholds == null) {
+            return null;
+        }
+        JSONObject delta = new JSONObject();
+        if (raw != null) delta.put("native_raw", raw);
+        if (thresholds != null) delta.put("native_thresholds", thresholds);
+        return delta;
     }
 
     private String mapErrorLabel(int error) {
@@ -1465,81 +3260,338 @@ public class LimeTunaSpeech extends CordovaPlugin implements RecognitionListener
             if (opts.has("rmsEndThresholdDb")) {
                 double candidate = opts.optDouble("rmsEndThresholdDb", Double.NaN);
                 if (!Double.isNaN(candidate)) {
-                    end = Math.min((float) candidate, RMS_END_THRESHOLD_DB);
+                    end = Math.min((float) candidate, ThresholdConfig.RMS_END_THRESHOLD_DB);
                 }
             }
             if (opts.has("postSilenceMs")) {
                 double candidate = opts.optDouble("postSilenceMs", Double.NaN);
-                if (!Double.isNaN(candidate) && candidate >= MIN_POST_SILENCE_MS) {
+                if (!Double.isNaN(candidate) && candidate >= ThresholdConfig.MIN_POST_SILENCE_MS) {
                     postSilence = (long) candidate;
                 }
             }
             if (opts.has("minPostSilenceMs")) {
                 double candidate = opts.optDouble("minPostSilenceMs", Double.NaN);
-                if (!Double.isNaN(candidate) && candidate >= MIN_POST_SILENCE_MS) {
+                if (!Double.isNaN(candidate) && candidate >= ThresholdConfig.MIN_POST_SILENCE_MS) {
                     minPostSilence = (long) candidate;
                 }
             }
             if (opts.has("maxUtteranceMs")) {
                 double candidate = opts.optDouble("maxUtteranceMs", Double.NaN);
-                if (!Double.isNaN(candidate) && candidate >= MAX_UTTERANCE_MS) {
+                if (!Double.isNaN(candidate) && candidate >= ThresholdConfig.MAX_UTTERANCE_MS) {
                     maxUtterance = (long) candidate;
                 }
             }
             if (opts.has("rmsStartThresholdDb")) {
-                Log.i(TAG, "Ignoring rmsStartThresholdDb override; start gate is disabled");
+                SpeechLog.i(TAG, "Ignoring rmsStartThresholdDb override; start gate is disabled");
             }
         }
 
         postSilence = Math.max(postSilence, minPostSilence);
-        ThresholdConfig newConfig = new ThresholdConfig(start, end, RMS_RESUME_DELTA_DB, postSilence, minPostSilence, maxUtterance, RMS_VOICE_TRIGGER_DB, RMS_SMOOTH_TAIL_SAMPLES, SILENCE_HOLD_MS);
+        ThresholdConfig newConfig = new ThresholdConfig(start, end, ThresholdConfig.RMS_RESUME_DELTA_DB, postSilence, minPostSilence, maxUtterance, ThresholdConfig.RMS_VOICE_TRIGGER_DB, ThresholdConfig.RMS_SMOOTH_TAIL_SAMPLES, ThresholdConfig.SILENCE_HOLD_MS);
         thresholdConfig.set(newConfig);
-        Log.i(TAG, "Threshold config updated start=" + start +
-                " end=" + end +
-                " postSilenceMs=" + postSilence +
-                " minPostSilenceMs=" + minPostSilence +
-                " maxUtteranceMs=" + maxUtterance);
+        SpeechLog.i(TAG, "Threshold config updated {}", newConfig);
     }
 
     private JSONObject buildCommitExtras(String reason, boolean includePartialInfo) {
+        if (!milestoneEventsEnabled) {
+            return null;
+        }
         JSONObject extras = new JSONObject();
         try {
             extras.put("commit_reason", reason);
-            JSONArray tail = rmsStats.recentSamplesToJson();
-            if (tail != null) {
+            RmsStats rmsStats = endpointer.getRmsStats();
+            float[] samples = rmsStats.recentSamples();
+            if (samples.length > 0) {
+                JSONArray tail = new JSONArray();
+                for (float f : samples) {
+                    tail.put(f);
+                }
                 extras.put("rms_tail", tail);
             }
             if (!Float.isNaN(rmsStats.getBaselineRmsDb())) {
                 extras.put("baseline_rms_db", rmsStats.getBaselineRmsDb());
             }
             if (includePartialInfo) {
-                extras.put("partial_results_seen", partialResultsSeen);
+                extras.put("partial_results_seen", endpointer.isPartialResultsSeen());
                 extras.put("partial_results_count", lastPartialResults == null ? 0 : lastPartialResults.size());
             }
         } catch (JSONException e) {
-            Log.w(TAG, "Failed to build commit extras", e);
+            SpeechLog.w(TAG, "Failed to build commit extras", e);
             return null;
         }
         return extras;
     }
 
+    private void updateRmsStreamFromOptions(JSONObject opts) {
+        if (opts == null) return;
+        if (!opts.has("rmsStream") && !opts.has("rmsBatchIntervalMs")) return;
+
+        // onRmsChanged reads both on the recognizer thread; apply them there.
+        final String mode = opts.has("rmsStream") ? opts.optString("rmsStream", "json") : null;
+        final boolean hasInterval = opts.has("rmsBatchIntervalMs");
+        final long interval = opts.optLong("rmsBatchIntervalMs", RmsFrameBatcher.DEFAULT_BATCH_INTERVAL_MS);
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (mode != null) {
+                    rmsBinaryStream = "binary".equalsIgnoreCase(mode);
+                }
+                if (hasInterval) {
+                    rmsBatcher.setBatchIntervalMs(interval);
+                }
+                SpeechLog.i(TAG, "RMS stream mode={} batchIntervalMs={}",
+                        rmsBinaryStream ? "binary" : "json", rmsBatcher.getBatchIntervalMs());
+            }
+        });
+    }
+
+    private void updateVadCaptureFromOptions(JSONObject opts) {
+        if (opts == null) return;
+        if (!opts.has("captureVad") && !opts.has("vadFrameMs")) return;
+
+        // startListeningForCurrentAttempt reads both on the recognizer thread; apply them there.
+        final boolean hasCapture = opts.has("captureVad");
+        final boolean capture = opts.optBoolean("captureVad", false);
+        final boolean hasFrameMs = opts.has("vadFrameMs");
+        final int frameMs = Math.max(FrameVad.MIN_FRAME_MS,
+                Math.min(FrameVad.MAX_FRAME_MS, opts.optInt("vadFrameMs", FrameVad.DEFAULT_FRAME_MS)));
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (hasCapture) {
+                    captureVadEnabled = capture;
+                }
+                if (hasFrameMs) {
+                    vadFrameMs = frameMs;
+                }
+                SpeechLog.i(TAG, "VAD capture {} frameMs={}", captureVadEnabled ? "enabled" : "disabled", vadFrameMs);
+            }
+        });
+    }
+
+    private void updateMilestoneEventsFromOptions(JSONObject opts) {
+        if (opts == null || !opts.has("milestoneEvents")) return;
+
+        // sendMilestoneEvent reads it on the recognizer thread; apply it there.
+        final boolean enabled = opts.optBoolean("milestoneEvents", true);
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                milestoneEventsEnabled = enabled;
+                SpeechLog.i(TAG, "Milestone events {}", enabled ? "enabled" : "disabled");
+            }
+        });
+    }
+
+    private void updateLogLevelFromOptions(JSONObject opts) {
+        if (opts == null || !opts.has("logLevel")) return;
+
+        String name = opts.optString("logLevel", "");
+        int level = SpeechLog.parseLevel(name);
+        if (level < 0) {
+            SpeechLog.w(TAG, "Ignoring unknown logLevel: {}", name);
+            return;
+        }
+        SpeechLog.setLevel(level);
+        if (!SpeechLog.DEBUG_BUILD && level < SpeechLog.INFO) {
+            SpeechLog.i(TAG, "logLevel {} requested; verbose/debug logging is compiled out", name);
+        }
+    }
+
+    private void updateRecognizerThreadFromOptions(JSONObject opts) {
+        if (opts == null || !opts.has("recognizerThread")) return;
+
+        String name = opts.optString("recognizerThread", RECOGNIZER_THREAD_MAIN);
+        requestedRecognizerThread = RECOGNIZER_THREAD_BACKGROUND.equals(name)
+                ? RECOGNIZER_THREAD_BACKGROUND : RECOGNIZER_THREAD_MAIN;
+    }
+
+    private void updateSoundCacheFromOptions(JSONObject opts) {
+        if (opts == null || !opts.has("audioCacheKb")) return;
+
+        final long budgetBytes = Math.max(PcmCache.MIN_BUDGET_BYTES,
+                opts.optLong("audioCacheKb", PcmCache.DEFAULT_BUDGET_BYTES / 1024L) * 1024L);
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                soundPlayer.getCache().setBudgetBytes(budgetBytes);
+                SpeechLog.i(TAG, "Sound cache budgetBytes={}", budgetBytes);
+            }
+        });
+    }
+
+    private void updateEarlyCommitFromOptions(JSONObject opts) {
+        if (opts == null) return;
+        if (!opts.has("earlyCommit") && !opts.has("earlyCommitMinScore")
+                && !opts.has("earlyCommitMaxDistance") && !opts.has("earlyCommitStablePartials")) {
+            return;
+        }
+
+        EarlyCommitPolicy current = earlyCommitPolicy.get();
+        EarlyCommitPolicy policy = new EarlyCommitPolicy(
+                opts.optBoolean("earlyCommit", current.enabled),
+                opts.optDouble("earlyCommitMinScore", current.minLetterScore),
+                Math.max(0, opts.optInt("earlyCommitMaxDistance", current.maxKeywordDistance)),
+                opts.optInt("earlyCommitStablePartials", current.stablePartials));
+        earlyCommitPolicy.set(policy);
+        SpeechLog.i(TAG, "Early commit {}", policy);
+    }
+
+    private void updatePostSilenceModelFromOptions(JSONObject opts) {
+        if (opts == null) return;
+        if (!opts.has("adaptivePostSilence") && !opts.has("maxPrematureCommitRate")
+                && !opts.has("postSilenceExploreEvery")) {
+            return;
+        }
+
+        PostSilencePolicy current = postSilencePolicy.get();
+        PostSilencePolicy policy = new PostSilencePolicy(
+                opts.optBoolean("adaptivePostSilence", current.enabled),
+                opts.optDouble("maxPrematureCommitRate", current.maxPrematureRate),
+                opts.optInt("postSilenceExploreEvery", current.exploreEvery));
+        postSilencePolicy.set(policy);
+        SpeechLog.i(TAG, "Adaptive post-silence {}", policy);
+    }
+
+    private void updateHedgeFromOptions(JSONObject opts) {
+        if (opts == null) return;
+
+        boolean serviceChanged = false;
+        ComponentName service = null;
+        if (opts.has("hedgeService")) {
+            String candidate = opts.optString("hedgeService", "").trim();
+            service = candidate.isEmpty() ? null : ComponentName.unflattenFromString(candidate);
+            if (service == null && !candidate.isEmpty()) {
+                SpeechLog.w(TAG, "Invalid hedgeService: {}", candidate);
+            } else {
+                serviceChanged = true;
+            }
+        }
+        boolean policyChanged = opts.has("hedged") || opts.has("hedgeMinConfidence") || opts.has("hedgeGraceMs");
+        if (policyChanged) {
+            HedgePolicy current = hedgePolicy.get();
+            HedgePolicy policy = new HedgePolicy(
+                    opts.optBoolean("hedged", current.enabled),
+                    opts.optDouble("hedgeMinConfidence", current.minConfidence),
+                    opts.optLong("hedgeGraceMs", current.graceMs));
+            hedgePolicy.set(policy);
+            SpeechLog.i(TAG, "Hedged recognition {}", policy);
+        }
+        if (!serviceChanged && !policyChanged) {
+            return;
+        }
+
+        // The hedged factory holds the service and policy; rebuild it on the recognizer thread,
+        // where recognizerFactory() reads both.
+        final boolean applyService = serviceChanged;
+        final ComponentName hedgeService = service;
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (applyService) {
+                    hedgeServiceOverride = hedgeService;
+                }
+                recognizerFactory = null;
+            }
+        });
+    }
+
+    private void updateOfflineFirstFromOptions(JSONObject opts) {
+        if (opts == null || !opts.has("offlineFirst")) return;
+
+        offlineFirst = opts.optBoolean("offlineFirst", false);
+        SpeechLog.i(TAG, "Offline-first recognition {}", offlineFirst ? "enabled" : "disabled");
+        if (offlineFirst) {
+            // Learn whether the model is installed; attempts stay online until it is known to be.
+            checkOfflineModel(language, false, null);
+        }
+    }
+
+    private void updateJournalFromOptions(JSONObject opts) {
+        if (opts == null) return;
+
+        if (opts.has("journal")) {
+            journalEnabled = opts.optBoolean("journal", true);
+        }
+        if (opts.has("journalMaxKb")) {
+            long maxBytes = Math.max(AttemptJournal.MIN_MAX_FILE_BYTES,
+                    opts.optLong("journalMaxKb", AttemptJournal.DEFAULT_MAX_FILE_BYTES / 1024L) * 1024L);
+            if (attemptJournal != null) {
+                attemptJournal.setMaxFileBytes(maxBytes);
+            }
+        }
+        SpeechLog.i(TAG, "Attempt journal {} maxFileBytes={}", journalEnabled ? "enabled" : "disabled",
+                attemptJournal != null ? attemptJournal.getMaxFileBytes() : -1L);
+    }
+
     private void updateRecognizerServiceFromOptions(JSONObject opts) {
         if (opts == null) return;
 
         if (opts.has("recognizerService")) {
             String candidate = opts.optString("recognizerService", "").trim();
-            if (candidate.isEmpty()) {
-                recognizerServiceOverride = null;
-                Log.i(TAG, "Recognizer service override cleared (empty string)");
+            final ComponentName cn = candidate.isEmpty() ? null : ComponentName.unflattenFromString(candidate);
+            if (cn == null && !candidate.isEmpty()) {
+                SpeechLog.w(TAG, "Invalid recognizerService override: {}", candidate);
                 return;
             }
-            ComponentName cn = ComponentName.unflattenFromString(candidate);
-            if (cn != null) {
-                recognizerServiceOverride = cn;
-                Log.i(TAG, "Recognizer service override set to " + cn.flattenToShortString());
+            // recognizerFactory() reads the override on the recognizer thread; swap it there.
+            runOnRecognizerThread(new Runnable() {
+                @Override
+                public void run() {
+                    recognizerServiceOverride = cn;
+                    recognizerFactory = null;
+                }
+            });
+            if (cn == null) {
+                SpeechLog.i(TAG, "Recognizer service override cleared (empty string)");
             } else {
-                Log.w(TAG, "Invalid recognizerService override: " + candidate);
+                SpeechLog.i(TAG, "Recognizer service override set to {}", cn.flattenToShortString());
+            }
+        }
+    }
+
+    private void updateRecognizerBackendFromOptions(JSONObject opts) {
+        if (opts == null) return;
+
+        List<ScriptedRecognizerBackend.Script> parsed = null;
+        if (opts.has("backendScript")) {
+            String script = opts.optString("backendScript", "");
+            parsed = ScriptedRecognizerBackend.parse(script);
+            if (parsed.isEmpty()) {
+                throw new IllegalArgumentException("no attempts in script");
             }
+            SpeechLog.i(TAG, "Backend script loaded attempts={}", parsed.size());
+        }
+        String name = null;
+        if (opts.has("recognizerBackend")) {
+            name = opts.optString("recognizerBackend", BACKEND_SPEECH_RECOGNIZER);
+            if (BACKEND_SCRIPTED.equals(name) && parsed == null && backendScripts == null) {
+                throw new IllegalArgumentException("recognizerBackend \"scripted\" needs backendScript");
+            }
+            if (!BACKEND_SCRIPTED.equals(name)) {
+                name = BACKEND_SPEECH_RECOGNIZER;
+            }
+            SpeechLog.i(TAG, "Recognizer backend {}", name);
+        }
+        if (parsed == null && name == null) {
+            return;
         }
+
+        // Parsed and validated here; recognizerFactory() reads the selection on the recognizer thread.
+        final List<ScriptedRecognizerBackend.Script> scripts = parsed;
+        final String backend = name;
+        runOnRecognizerThread(new Runnable() {
+            @Override
+            public void run() {
+                if (scripts != null) {
+                    backendScripts = scripts;
+                    recognizerFactory = null;
+                }
+                if (backend != null && !backend.equals(recognizerBackendName)) {
+                    recognizerBackendName = backend;
+                    recognizerFactory = null;
+                }
+            }
+        });
     }
 }
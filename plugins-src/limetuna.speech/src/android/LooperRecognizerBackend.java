@@ -0,0 +1,229 @@
+package com.limetuna.speech;
+
+import android.os.Handler;
+
+import java.util.List;
+
+/**
+ * Drives a main-thread-only {@link RecognizerBackend} (SpeechRecognizer
+ * throws when called off the main thread) for a plugin running on a
+ * background looper (init option recognizerThread: "background").
+ *
+ * Creation and commands are posted to the engine handler in call order;
+ * listener callbacks are posted back to the callback handler. Each command
+ * that ends a listen bumps a generation, and callbacks the engine produced
+ * for an older generation are dropped on arrival, so a cancelled or
+ * restarted listen calls back no more, as {@link RecognizerBackend} promises.
+ */
+final class LooperRecognizerBackend implements RecognizerBackend {
+
+    private static final String TAG = "LimeTunaSpeech";
+
+    static final class Factory implements RecognizerBackend.Factory {
+        private final RecognizerBackend.Factory engine;
+        private final Handler engineHandler;
+        private final Handler callbackHandler;
+
+        Factory(RecognizerBackend.Factory engine, Handler engineHandler, Handler callbackHandler) {
+            this.engine = engine;
+            this.engineHandler = engineHandler;
+            this.callbackHandler = callbackHandler;
+        }
+
+        @Override
+        public String getName() {
+            return engine.getName();
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return engine.isAvailable();
+        }
+
+        @Override
+        public RecognizerBackend create(Listener listener) {
+            return new LooperRecognizerBackend(engine, engineHandler, callbackHandler, listener);
+        }
+    }
+
+    private final Handler engineHandler;
+    private final Handler callbackHandler;
+    private final Listener listener;
+
+    // Engine handler thread only.
+    private RecognizerBackend engine;
+    private int engineGeneration = 0;
+
+    // Callback handler thread only (the caller's thread).
+    private int generation = 0;
+
+    private LooperRecognizerBackend(final RecognizerBackend.Factory factory, Handler engineHandler,
+                                    Handler callbackHandler, Listener listener) {
+        this.engineHandler = engineHandler;
+        this.callbackHandler = callbackHandler;
+        this.listener = listener;
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    engine = factory.create(engineListener);
+                } catch (RuntimeException e) {
+                    SpeechLog.e(TAG, "Failed to create recognizer on main thread", e);
+                }
+            }
+        });
+    }
+
+    private final Listener engineListener = new Listener() {
+        @Override
+        public void onReadyForSpeech() {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onReadyForSpeech();
+                }
+            });
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onBeginningOfSpeech();
+                }
+            });
+        }
+
+        @Override
+        public void onRmsChanged(final float rmsdB) {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onRmsChanged(rmsdB);
+                }
+            });
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onEndOfSpeech();
+                }
+            });
+        }
+
+        @Override
+        public void onPartialResults(final List<String> partial) {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onPartialResults(partial);
+                }
+            });
+        }
+
+        @Override
+        public void onResults(final List<String> matches, final float[] confidences) {
+            final int g = engineGeneration;
+            callbackHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (g == generation) listener.onResults(matches, confidences);
+                }
+            });
+        }
+
+        @Override
+        public void onError(int error) {
+            postError(engineGeneration, error);
+        }
+    };
+
+    private void postError(final int g, final int error) {
+        callbackHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (g == generation) listener.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public void startListening(final Request request) {
+        final int g = ++generation;
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                engineGeneration = g;
+                if (engine == null) {
+                    postError(g, ERROR_CLIENT);
+                    return;
+                }
+                try {
+                    engine.startListening(request);
+                } catch (RuntimeException e) {
+                    SpeechLog.e(TAG, "startListening failed on main thread", e);
+                    postError(g, ERROR_CLIENT);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void stopListening() {
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (engine == null) return;
+                try {
+                    engine.stopListening();
+                } catch (RuntimeException e) {
+                    SpeechLog.w(TAG, "stopListening failed on main thread", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void cancel() {
+        final int g = ++generation;
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                engineGeneration = g;
+                if (engine == null) return;
+                try {
+                    engine.cancel();
+                } catch (RuntimeException e) {
+                    SpeechLog.w(TAG, "cancel failed on main thread", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        final int g = ++generation;
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                engineGeneration = g;
+                if (engine == null) return;
+                try {
+                    engine.destroy();
+                } catch (RuntimeException e) {
+                    SpeechLog.w(TAG, "destroy failed on main thread", e);
+                }
+                engine = null;
+            }
+        });
+    }
+}
@@ -0,0 +1,181 @@
+package com.limetuna.speech;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read side of www/media.pack, the game's images and audio packed into one
+ * uncompressed asset by scripts/pack-media.js at prepare time. Mapped once;
+ * each entry is served as a read-only slice of the mapping, so a request
+ * costs no asset open and no copy until the WebView reads the stream.
+ *
+ * Layout, big-endian: a 16-byte header ({@link #MAGIC}, version, entry
+ * count, index bytes), the index of [short path length][UTF-8 path]
+ * [long offset][int length] entries with offsets from the start of the
+ * pack, then the entry bytes.
+ *
+ * Immutable after {@link #parse}; slices are independent, so any number of
+ * WebView IO threads may read at once. Android-free so tools/MediaPackBench
+ * can run it on the JVM.
+ */
+final class MediaPack {
+
+    static final int MAGIC = 0x4C54504B; // "LTPK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    /** Under the www/ asset root. */
+    static final String ASSET_NAME = "media.pack";
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("mp3", "audio/mpeg");
+        MIME_TYPES.put("wav", "audio/wav");
+        MIME_TYPES.put("ogg", "audio/ogg");
+        MIME_TYPES.put("m4a", "audio/mp4");
+    }
+
+    private final ByteBuffer data;
+    private final Map<String, Integer> index;
+    private final long[] offsets;
+    private final int[] lengths;
+
+    private MediaPack(ByteBuffer data, Map<String, Integer> index, long[] offsets, int[] lengths) {
+        this.data = data;
+        this.index = index;
+        this.offsets = offsets;
+        this.lengths = lengths;
+    }
+
+    /** Maps {@code length} bytes of {@code channel} from {@code start} (an asset's offset in the APK). */
+    static MediaPack map(FileChannel channel, long start, long length) throws IOException {
+        return parse(channel.map(FileChannel.MapMode.READ_ONLY, start, length));
+    }
+
+    static MediaPack parse(ByteBuffer pack) throws IOException {
+        ByteBuffer in = pack.duplicate();
+        try {
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("not a version " + VERSION + " media pack");
+            }
+            int count = in.getInt();
+            int indexBytes = in.getInt();
+            if (count < 0 || indexBytes < 0 || HEADER_BYTES + (long) indexBytes > in.limit()) {
+                throw new IOException("bad media pack header");
+            }
+            Map<String, Integer> index = new HashMap<>(count * 2);
+            long[] offsets = new long[count];
+            int[] lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                byte[] path = new byte[in.getShort() & 0xffff];
+                in.get(path);
+                offsets[i] = in.getLong();
+                lengths[i] = in.getInt();
+                if (offsets[i] < HEADER_BYTES + indexBytes || lengths[i] < 0
+                        || offsets[i] + lengths[i] > pack.limit()) {
+                    throw new IOException("media pack entry " + i + " out of bounds");
+                }
+                index.put(new String(path, StandardCharsets.UTF_8), i);
+            }
+            return new MediaPack(pack.asReadOnlyBuffer(), index, offsets, lengths);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated media pack", e);
+        }
+    }
+
+    int getEntryCount() {
+        return offsets.length;
+    }
+
+    boolean contains(String path) {
+        return index.containsKey(path);
+    }
+
+    /** Offset of the entry from the start of the pack, or -1 if it isn't packed. */
+    long offsetOf(String path) {
+        Integer i = index.get(path);
+        return i != null ? offsets[i] : -1L;
+    }
+
+    /** Length of the entry, or -1 if it isn't packed. */
+    int lengthOf(String path) {
+        Integer i = index.get(path);
+        return i != null ? lengths[i] : -1;
+    }
+
+    /** The entry's bytes as a read-only view of the pack, or null. Path is relative to www/. */
+    ByteBuffer slice(String path) {
+        Integer i = index.get(path);
+        if (i == null) {
+            return null;
+        }
+        ByteBuffer view = data.duplicate();
+        view.position((int) offsets[i]);
+        view.limit((int) offsets[i] + lengths[i]);
+        return view.slice();
+    }
+
+    /** A stream over {@link #slice}, or null if the path isn't packed. */
+    InputStream open(String path) {
+        ByteBuffer slice = slice(path);
+        return slice != null ? new SliceInputStream(slice) : null;
+    }
+
+    /** Content type from the extension; null for anything the pack doesn't hold. */
+    static String mimeType(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < 0 ? null : MIME_TYPES.get(path.substring(dot + 1).toLowerCase(Locale.US));
+    }
+
+    /** Reads a slice without copying it anywhere but the caller's array. */
+    static final class SliceInputStream extends InputStream {
+        private final ByteBuffer slice;
+
+        SliceInputStream(ByteBuffer slice) {
+            this.slice = slice;
+        }
+
+        @Override
+        public int read() {
+            return slice.hasRemaining() ? slice.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!slice.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, slice.remaining());
+            slice.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0L, Math.min(n, slice.remaining()));
+            slice.position(slice.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return slice.remaining();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.limetuna.speech;
+
+/**
+ * Phonetic key in the style of Philips' original Metaphone: consonant
+ * skeleton with English spelling rules folded ("ph" -> F, soft "c"/"g",
+ * silent "gh"/"kn"/"wr", vowels kept only at the start). Words that sound
+ * alike share a key, so "bare" and "bear" are both BR and "lizzard" and
+ * "lizard" are both LSRT. Keys use 0 for "th" and X for "sh"/"ch".
+ *
+ * Input is text as {@link VocabularyMatcher#normalize} leaves it (a-z and
+ * spaces); spaces are skipped, so "lady bug" and "ladybug" share a key.
+ * Android-free.
+ */
+final class Metaphone {
+
+    private Metaphone() {
+    }
+
+    static String encode(String text) {
+        return encode(text, 0, text.length());
+    }
+
+    /** Key of {@code text[start, end)}; "" when it has no letters. */
+    static String encode(String text, int start, int end) {
+        char[] w = new char[end - start];
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                w[n++] = c;
+            }
+        }
+        if (n == 0) {
+            return "";
+        }
+
+        StringBuilder key = new StringBuilder(n);
+        int begin = 0;
+        char first = w[0];
+        char second = n > 1 ? w[1] : 0;
+        if ((first == 'a' && second == 'e') || (second == 'n' && (first == 'g' || first == 'k' || first == 'p'))
+                || (first == 'w' && second == 'r')) {
+            begin = 1;
+        } else if (first == 'x') {
+            key.append('S');
+            begin = 1;
+        } else if (first == 'w' && second == 'h') {
+            key.append('W');
+            begin = 2;
+        }
+
+        for (int i = begin; i < n; i++) {
+            char c = w[i];
+            char prev = i > 0 ? w[i - 1] : 0;
+            char next = i + 1 < n ? w[i + 1] : 0;
+            char next2 = i + 2 < n ? w[i + 2] : 0;
+            if (c == prev && c != 'c' && i > begin) {
+                continue;
+            }
+            switch (c) {
+                case 'a':
+                case 'e':
+                case 'i':
+                case 'o':
+                case 'u':
+                    if (i == begin) {
+                        key.append(Character.toUpperCase(c));
+                    }
+                    break;
+                case 'b':
+                    // Silent in a final "mb" (lamb).
+                    if (!(prev == 'm' && i == n - 1)) {
+                        key.append('B');
+                    }
+                    break;
+                case 'c':
+                    if (next == 'i' && next2 == 'a') {
+                        key.append('X');
+                    } else if (next == 'h') {
+                        key.append(prev == 's' ? 'K' : 'X');
+                    } else if (next == 'i' || next == 'e' || next == 'y') {
+                        if (prev != 's') {
+                            key.append('S');
+                        }
+                    } else {
+                        key.append('K');
+                    }
+                    break;
+                case 'd':
+                    if (next == 'g' && (next2 == 'e' || next2 == 'i' || next2 == 'y')) {
+                        key.append('J');
+                        i++;
+                    } else {
+                        key.append('T');
+                    }
+                    break;
+                case 'g':
+                    if (next == 'h' && i + 2 < n && !isVowel(next2)) {
+                        break;
+                    }
+                    if (next == 'n' && (i + 2 == n || (next2 == 'e' && i + 4 == n && w[i + 3] == 'd'))) {
+                        break;
+                    }
+                    key.append((next == 'i' || next == 'e' || next == 'y') ? 'J' : 'K');
+                    break;
+                case 'h':
+                    if (isVowel(next) && prev != 'c' && prev != 's' && prev != 'p' && prev != 't' && prev != 'g') {
+                        key.append('H');
+                    }
+                    break;
+                case 'k':
+                    if (prev != 'c') {
+                        key.append('K');
+                    }
+                    break;
+                case 'p':
+                    key.append(next == 'h' ? 'F' : 'P');
+                    break;
+                case 'q':
+                    key.append('K');
+                    break;
+                case 's':
+                    if (next == 'h' || (next == 'i' && (next2 == 'o' || next2 == 'a'))) {
+                        key.append('X');
+                    } else {
+                        key.append('S');
+                    }
+                    break;
+                case 't':
+                    if (next == 'i' && (next2 == 'o' || next2 == 'a')) {
+                        key.append('X');
+                    } else if (next == 'h') {
+                        key.append('0');
+                    } else if (!(next == 'c' && next2 == 'h')) {
+                        key.append('T');
+                    }
+                    break;
+                case 'v':
+                    key.append('F');
+                    break;
+                case 'w':
+                case 'y':
+                    if (isVowel(next)) {
+                        key.append(Character.toUpperCase(c));
+                    }
+                    break;
+                case 'x':
+                    key.append("KS");
+                    break;
+                case 'z':
+                    key.append('S');
+                    break;
+                default:
+                    // f j l m n r
+                    key.append(Character.toUpperCase(c));
+                    break;
+            }
+        }
+        return key.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u';
+    }
+}
@@ -0,0 +1,74 @@
+package com.limetuna.speech;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Whether the on-device model for a language is usable, from the language
+ * lists of a checkRecognitionSupport answer (ensureOfflineModel, and init
+ * option offlineFirst). Tags compare case-insensitively with '_' read as
+ * '-'; a tag without a region matches any region of the same language
+ * ("en" and "en-US"), but two regions never match each other.
+ *
+ * Android-free.
+ */
+final class OfflineModel {
+
+    /** Installed; recognition can run without the network. */
+    static final String STATE_INSTALLED = "installed";
+    /** Downloading or queued for download. */
+    static final String STATE_PENDING = "pending";
+    /** Available for on-device use but not installed (ensureOfflineModel can request it). */
+    static final String STATE_DOWNLOADABLE = "downloadable";
+    /** The engine has no on-device model for this language. */
+    static final String STATE_UNSUPPORTED = "unsupported";
+    /** Not checked yet, the check failed, or Android before 13 cannot say. */
+    static final String STATE_UNKNOWN = "unknown";
+
+    private OfflineModel() {
+    }
+
+    static String classify(String language, List<String> installed, List<String> pending, List<String> supported) {
+        if (contains(installed, language)) {
+            return STATE_INSTALLED;
+        }
+        if (contains(pending, language)) {
+            return STATE_PENDING;
+        }
+        if (contains(supported, language)) {
+            return STATE_DOWNLOADABLE;
+        }
+        return STATE_UNSUPPORTED;
+    }
+
+    static boolean contains(List<String> tags, String language) {
+        if (tags == null || language == null) {
+            return false;
+        }
+        for (String tag : tags) {
+            if (sameLanguage(tag, language)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean sameLanguage(String a, String b) {
+        if (a == null || b == null) {
+            return false;
+        }
+        String x = a.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+        String y = b.trim().replace('_', '-').toLowerCase(Locale.ROOT);
+        if (x.equals(y)) {
+            return true;
+        }
+        int dx = x.indexOf('-');
+        int dy = y.indexOf('-');
+        if ((dx < 0) == (dy < 0)) {
+            return false;
+        }
+        String px = dx < 0 ? x : x.substring(0, dx);
+        String py = dy < 0 ? y : y.substring(0, dy);
+        return !px.isEmpty() && px.equals(py);
+    }
+}
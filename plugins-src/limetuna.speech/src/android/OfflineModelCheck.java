@@ -0,0 +1,77 @@
+package com.limetuna.speech;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.speech.RecognitionSupport;
+import android.speech.RecognitionSupportCallback;
+import android.speech.SpeechRecognizer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One checkRecognitionSupport round trip, plus triggerModelDownload when the
+ * model is downloadable and a download was asked for. API 33+ only: callers
+ * check the SDK level before touching this class, so older devices never
+ * load it (the Callback hands over plain lists for the same reason). Main
+ * thread only, like every SpeechRecognizer call; the short-lived recognizer
+ * is destroyed once the answer arrives.
+ */
+final class OfflineModelCheck {
+
+    private static final String TAG = "LimeTunaSpeech";
+
+    interface Callback {
+        /**
+         * On the main thread. {@code state} is one of the OfflineModel states; the lists are the
+         * engine's installed and pending on-device languages (may be empty).
+         */
+        void onChecked(String state, boolean downloadRequested, List<String> installed, List<String> pending);
+
+        /** On the main thread; a SpeechRecognizer.ERROR_* code. */
+        void onFailed(int error);
+    }
+
+    private OfflineModelCheck() {
+    }
+
+    private static List<String> orEmpty(List<String> list) {
+        return list != null ? list : Collections.<String>emptyList();
+    }
+
+    static void run(Context context, ComponentName service, final String language, final boolean download,
+                    final Callback callback) {
+        final SpeechRecognizer recognizer = service != null
+                ? SpeechRecognizer.createSpeechRecognizer(context, service)
+                : SpeechRecognizer.createSpeechRecognizer(context);
+        final Intent intent = SpeechRecognizerBackend.toIntent(
+                new RecognizerBackend.Request(language, 1, false, true, 0L, 0L, 0L), context.getPackageName());
+        recognizer.checkRecognitionSupport(intent, context.getMainExecutor(), new RecognitionSupportCallback() {
+            @Override
+            public void onSupportResult(RecognitionSupport support) {
+                String state = OfflineModel.classify(language, support.getInstalledOnDeviceLanguages(),
+                        support.getPendingOnDeviceLanguages(), support.getSupportedOnDeviceLanguages());
+                boolean requested = false;
+                if (download && OfflineModel.STATE_DOWNLOADABLE.equals(state)) {
+                    try {
+                        recognizer.triggerModelDownload(intent);
+                        requested = true;
+                        state = OfflineModel.STATE_PENDING;
+                    } catch (RuntimeException e) {
+                        SpeechLog.w(TAG, "triggerModelDownload failed", e);
+                    }
+                }
+                recognizer.destroy();
+                callback.onChecked(state, requested, orEmpty(support.getInstalledOnDeviceLanguages()),
+                        orEmpty(support.getPendingOnDeviceLanguages()));
+            }
+
+            @Override
+            public void onError(int error) {
+                recognizer.destroy();
+                callback.onFailed(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package com.limetuna.speech;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.webkit.WebResourceResponse;
+
+import androidx.webkit.WebViewAssetLoader;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Serves www/ paths out of {@link MediaPack} to the WebView: Cordova's asset
+ * loader asks plugin path handlers first, and a null answer falls through
+ * to the regular per-file asset open. Also hands the pack's file descriptor
+ * to the sound decoder, since the loose audio files are gone from a packed
+ * build.
+ *
+ * The pack is mapped on first use. Without one (a build that skipped the
+ * prepare hook, or an unreadable pack) every path falls through. Safe from
+ * any thread.
+ */
+final class PackedAssets implements WebViewAssetLoader.PathHandler {
+
+    private static final String TAG = "LimeTunaSpeech";
+    private static final String ASSET_ROOT = "www/";
+
+    private final AssetManager assets;
+    private final Object lock = new Object();
+    private volatile boolean opened = false;
+    private MediaPack pack;
+    // Kept open for the decoder; the mapping itself outlives any close.
+    private AssetFileDescriptor packFd;
+
+    PackedAssets(AssetManager assets) {
+        this.assets = assets;
+    }
+
+    /** The mapped pack, or null if this build has none. */
+    MediaPack pack() {
+        if (!opened) {
+            synchronized (lock) {
+                if (!opened) {
+                    open();
+                    opened = true;
+                }
+            }
+        }
+        return pack;
+    }
+
+    private void open() {
+        long startedNs = System.nanoTime();
+        AssetFileDescriptor afd;
+        try {
+            // Only an uncompressed asset has a descriptor (media-pack.gradle keeps it so).
+            afd = assets.openFd(ASSET_ROOT + MediaPack.ASSET_NAME);
+        } catch (IOException e) {
+            SpeechLog.i(TAG, "No media pack; serving loose assets");
+            return;
+        }
+        try (FileInputStream in = new FileInputStream(afd.getFileDescriptor())) {
+            pack = MediaPack.map(in.getChannel(), afd.getStartOffset(), afd.getLength());
+            packFd = afd;
+            SpeechLog.i(TAG, "Media pack mapped entries={} bytes={} in {}ms", pack.getEntryCount(),
+                    afd.getLength(), (System.nanoTime() - startedNs) / 1_000_000L);
+        } catch (IOException | RuntimeException e) {
+            SpeechLog.w(TAG, "Media pack unreadable; serving loose assets", e);
+            pack = null;
+            closeQuietly(afd);
+        }
+    }
+
+    @Override
+    public WebResourceResponse handle(String path) {
+        MediaPack mediaPack = pack();
+        if (mediaPack == null || path == null) {
+            return null;
+        }
+        InputStream in = mediaPack.open(path);
+        if (in == null) {
+            return null;
+        }
+        return new WebResourceResponse(MediaPack.mimeType(path), null, in);
+    }
+
+    /** Descriptor of the APK region holding the pack; entry offsets are relative to {@link #packStart()}. */
+    FileDescriptor packFileDescriptor() {
+        return pack() != null ? packFd.getFileDescriptor() : null;
+    }
+
+    long packStart() {
+        return pack() != null ? packFd.getStartOffset() : 0L;
+    }
+
+    void close() {
+        synchronized (lock) {
+            closeQuietly(packFd);
+            packFd = null;
+            pack = null;
+            opened = true;
+        }
+    }
+
+    private static void closeQuietly(AssetFileDescriptor afd) {
+        if (afd == null) {
+            return;
+        }
+        try {
+            afd.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+    }
+}
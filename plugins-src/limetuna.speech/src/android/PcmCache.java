@@ -0,0 +1,160 @@
+package com.limetuna.speech;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded game sounds (16-bit PCM in direct buffers) under a byte budget,
+ * evicting the least recently used clip first. A clip larger than the whole
+ * budget is never cached; the caller plays it once and decodes it again
+ * next time.
+ *
+ * Only the PCM buffers count toward the budget. Android-free; recognizer
+ * thread only.
+ */
+final class PcmCache {
+
+    static final long DEFAULT_BUDGET_BYTES = 8L * 1024 * 1024;
+    static final long MIN_BUDGET_BYTES = 256L * 1024;
+
+    /** One decoded clip. Never written after decoding; readers use {@code pcm.duplicate()}. */
+    static final class Clip {
+        final String id;
+        final ByteBuffer pcm;
+        final int sampleRate;
+        final int channels;
+
+        Clip(String id, ByteBuffer pcm, int sampleRate, int channels) {
+            this.id = id;
+            this.pcm = pcm;
+            this.sampleRate = sampleRate;
+            this.channels = channels;
+        }
+
+        /** What the clip costs against the budget: the buffer's capacity. */
+        int memoryBytes() {
+            return pcm.capacity();
+        }
+
+        int frameCount() {
+            return pcm.limit() / (2 * channels);
+        }
+
+        long durationMs() {
+            return sampleRate > 0 ? frameCount() * 1000L / sampleRate : 0L;
+        }
+    }
+
+    // Access order: iteration starts at the least recently used clip.
+    private final LinkedHashMap<String, Clip> clips = new LinkedHashMap<>(32, 0.75f, true);
+    private long budgetBytes;
+    private long bytes = 0L;
+    private long hits = 0L;
+    private long misses = 0L;
+    private long evictions = 0L;
+    private long uncacheable = 0L;
+
+    PcmCache(long budgetBytes) {
+        this.budgetBytes = Math.max(MIN_BUDGET_BYTES, budgetBytes);
+    }
+
+    /** The clip, now most recently used, or null (counted as a miss). */
+    Clip get(String id) {
+        Clip clip = clips.get(id);
+        if (clip != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return clip;
+    }
+
+    /** Without touching recency or the hit/miss counts. */
+    boolean contains(String id) {
+        return clips.containsKey(id);
+    }
+
+    /** Like {@link #get} but without touching recency or the hit/miss counts (preloading). */
+    Clip peek(String id) {
+        // Any lookup on an access-ordered map moves the entry; a scan does not.
+        for (Map.Entry<String, Clip> e : clips.entrySet()) {
+            if (e.getKey().equals(id)) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds (or replaces) a clip and evicts least recently used clips until the
+     * budget holds. Returns false if the clip alone exceeds the budget.
+     */
+    boolean put(Clip clip) {
+        remove(clip.id);
+        if (clip.memoryBytes() > budgetBytes) {
+            uncacheable++;
+            return false;
+        }
+        clips.put(clip.id, clip);
+        bytes += clip.memoryBytes();
+        trim();
+        return true;
+    }
+
+    void remove(String id) {
+        Clip old = clips.remove(id);
+        if (old != null) {
+            bytes -= old.memoryBytes();
+        }
+    }
+
+    void setBudgetBytes(long newBudgetBytes) {
+        budgetBytes = Math.max(MIN_BUDGET_BYTES, newBudgetBytes);
+        trim();
+    }
+
+    void clear() {
+        clips.clear();
+        bytes = 0L;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Clip>> it = clips.entrySet().iterator();
+        while (bytes > budgetBytes && it.hasNext()) {
+            Clip eldest = it.next().getValue();
+            it.remove();
+            bytes -= eldest.memoryBytes();
+            evictions++;
+        }
+    }
+
+    long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    long getBytes() {
+        return bytes;
+    }
+
+    int getClipCount() {
+        return clips.size();
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    long getUncacheable() {
+        return uncacheable;
+    }
+}
@@ -0,0 +1,151 @@
+package com.limetuna.speech;
+
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Decodes one compressed asset (mp3, wav, ...) to 16-bit PCM with
+ * MediaExtractor + MediaCodec, into a direct buffer sized from the track
+ * duration. The source is a region of a file: a loose asset's descriptor or
+ * an entry inside www/media.pack. Blocking; run it on a worker thread.
+ */
+final class PcmDecoder {
+    private static final long DEQUEUE_TIMEOUT_US = 10_000L;
+    // A codec that stops producing output this many times in a row is stuck.
+    private static final int MAX_IDLE_DEQUEUES = 200;
+    // A regrown buffer is copied down to size when it wastes more than this.
+    private static final int SHRINK_SLACK_BYTES = 16 * 1024;
+
+    private PcmDecoder() {
+    }
+
+    static PcmCache.Clip decode(String id, FileDescriptor fd, long offset, long length) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(fd, offset, length);
+            int track = -1;
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    track = i;
+                    format = candidate;
+                    break;
+                }
+            }
+            if (track < 0) {
+                throw new IOException("no audio track");
+            }
+            extractor.selectTrack(track);
+
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            long durationUs = format.containsKey(MediaFormat.KEY_DURATION) ? format.getLong(MediaFormat.KEY_DURATION) : 0L;
+            ByteBuffer out = allocate(estimateBytes(durationUs, sampleRate, channels));
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            boolean inputDone = false;
+            int idle = 0;
+            while (true) {
+                if (!inputDone) {
+                    int in = codec.dequeueInputBuffer(DEQUEUE_TIMEOUT_US);
+                    if (in >= 0) {
+                        ByteBuffer input = codec.getInputBuffer(in);
+                        int size = extractor.readSampleData(input, 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(in, 0, 0, 0L, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outIndex = codec.dequeueOutputBuffer(info, DEQUEUE_TIMEOUT_US);
+                if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    MediaFormat outFormat = codec.getOutputFormat();
+                    sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                    channels = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                    if (outFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                            && outFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+                        throw new IOException("decoder output is not 16-bit PCM");
+                    }
+                    continue;
+                }
+                if (outIndex < 0) {
+                    if (++idle > MAX_IDLE_DEQUEUES) {
+                        throw new IOException("decoder stalled");
+                    }
+                    continue;
+                }
+                idle = 0;
+                if (info.size > 0) {
+                    ByteBuffer chunk = codec.getOutputBuffer(outIndex);
+                    chunk.position(info.offset);
+                    chunk.limit(info.offset + info.size);
+                    out = ensureRemaining(out, info.size);
+                    out.put(chunk);
+                }
+                codec.releaseOutputBuffer(outIndex, false);
+                if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    break;
+                }
+            }
+
+            out.flip();
+            if (out.capacity() - out.limit() > SHRINK_SLACK_BYTES) {
+                ByteBuffer exact = allocate(out.limit());
+                exact.put(out);
+                exact.flip();
+                out = exact;
+            }
+            return new PcmCache.Clip(id, out, sampleRate, channels);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("decode failed: " + e.getMessage(), e);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException ignored) {
+                    // already stopped or never started
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private static int estimateBytes(long durationUs, int sampleRate, int channels) {
+        long frames = durationUs * sampleRate / 1_000_000L;
+        // A little slack for encoder padding, so the common case never regrows.
+        return (int) Math.min(Integer.MAX_VALUE / 2, Math.max(16 * 1024, frames * 2 * channels + 8 * 1024));
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int needed) {
+        if (buffer.remaining() >= needed) {
+            return buffer;
+        }
+        ByteBuffer grown = allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        grown.put(buffer);
+        return grown;
+    }
+}
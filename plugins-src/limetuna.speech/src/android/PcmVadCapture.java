@@ -0,0 +1,163 @@
+package com.limetuna.speech;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.os.SystemClock;
+
+/**
+ * Optional own-microphone capture (init option {@code captureVad: true}):
+ * reads 16 kHz PCM with AudioRecord on a dedicated thread and runs
+ * {@link FrameVad} on it, so endpointing no longer depends on the
+ * recognizer's coarse, engine-specific onRmsChanged values.
+ *
+ * Capture is started just before SpeechRecognizer.startListening so the
+ * recognizer is the most recent capture client. On devices that don't share
+ * the mic, our side reads digital silence; that is reported through
+ * {@link Callback#onCaptureSilenced} and the caller falls back to RMS
+ * endpointing for the attempt.
+ *
+ * Callbacks run on the capture thread.
+ */
+final class PcmVadCapture {
+    private static final String TAG = "LimeTunaSpeech";
+
+    static final int SAMPLE_RATE = FrameVad.DEFAULT_SAMPLE_RATE;
+    // All-zero input for this long means another client has the mic.
+    static final long SILENCED_AFTER_MS = 400L;
+
+    interface Callback {
+        /** {@code eventMs} is the elapsedRealtime of the speech start/end itself. */
+        void onVadEvent(long attemptId, int event, long eventMs, long decidedMs);
+
+        void onCaptureSilenced(long attemptId);
+
+        void onCaptureFailed(long attemptId, String reason);
+    }
+
+    private final Callback callback;
+    private volatile Thread thread;
+    private volatile boolean running = false;
+    private volatile FrameVad lastVad;
+
+    PcmVadCapture(Callback callback) {
+        this.callback = callback;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /** VAD of the last started capture, for end-of-attempt stats. Read after {@link #stop()}. */
+    FrameVad getLastVad() {
+        return lastVad;
+    }
+
+    void start(final long attemptId, int frameMs) {
+        stop();
+        final FrameVad vad = new FrameVad(SAMPLE_RATE, frameMs);
+        lastVad = vad;
+        running = true;
+        Thread t = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                captureLoop(attemptId, vad);
+            }
+        }, "LimeTunaSpeech-vad");
+        t.setPriority(Thread.MAX_PRIORITY);
+        thread = t;
+        t.start();
+    }
+
+    void stop() {
+        running = false;
+        Thread t = thread;
+        thread = null;
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                // read() returns within one frame once recording stops
+                t.join(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void captureLoop(long attemptId, FrameVad vad) {
+        int frameSamples = vad.getFrameSamples();
+        int minBytes = AudioRecord.getMinBufferSize(SAMPLE_RATE,
+                AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        if (minBytes <= 0) {
+            running = false;
+            callback.onCaptureFailed(attemptId, "min_buffer_size_" + minBytes);
+            return;
+        }
+
+        AudioRecord record = null;
+        try {
+            record = new AudioRecord(MediaRecorder.AudioSource.VOICE_RECOGNITION, SAMPLE_RATE,
+                    AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT,
+                    Math.max(minBytes, frameSamples * 2 * 4));
+            if (record.getState() != AudioRecord.STATE_INITIALIZED) {
+                running = false;
+                callback.onCaptureFailed(attemptId, "not_initialized");
+                return;
+            }
+
+            short[] frame = new short[frameSamples];
+            record.startRecording();
+            long streamStartMs = SystemClock.elapsedRealtime();
+            long silencedFrames = Math.max(1L, SILENCED_AFTER_MS / vad.getFrameMs());
+            boolean heardSignal = false;
+            SpeechLog.d(TAG, "VAD capture started frameMs={}", vad.getFrameMs());
+
+            while (running) {
+                int filled = 0;
+                while (filled < frameSamples && running) {
+                    int n = record.read(frame, filled, frameSamples - filled);
+                    if (n < 0) {
+                        running = false;
+                        callback.onCaptureFailed(attemptId, "read_error_" + n);
+                        return;
+                    }
+                    filled += n;
+                }
+                if (!running) {
+                    break;
+                }
+
+                int event = vad.process(frame, 0);
+                if (!heardSignal) {
+                    if (vad.getDigitalSilenceFrames() < vad.getFrameCount()) {
+                        heardSignal = true;
+                    } else if (vad.getFrameCount() >= silencedFrames) {
+                        running = false;
+                        callback.onCaptureSilenced(attemptId);
+                        return;
+                    }
+                }
+                if (event == FrameVad.EVENT_SPEECH_START) {
+                    callback.onVadEvent(attemptId, event,
+                            streamStartMs + vad.getSpeechStartMs(), streamStartMs + vad.getPositionMs());
+                } else if (event == FrameVad.EVENT_SPEECH_END) {
+                    callback.onVadEvent(attemptId, event,
+                            streamStartMs + vad.getSpeechEndMs(), streamStartMs + vad.getPositionMs());
+                }
+            }
+        } catch (Exception e) {
+            SpeechLog.w(TAG, "VAD capture failed", e);
+            running = false;
+            callback.onCaptureFailed(attemptId, e.getClass().getSimpleName());
+        } finally {
+            if (record != null) {
+                try {
+                    record.stop();
+                } catch (Exception ignored) {
+                    // not recording
+                }
+                record.release();
+            }
+            SpeechLog.d(TAG, "VAD capture stopped frames={}", vad.getFrameCount());
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.limetuna.speech;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Post-silence history of one expected target on one recognizer service:
+ * the last {@link #MAX_SAMPLES} attempts that reached a silence window, each
+ * with the post-silence delay it ran with, the longest pause speech resumed
+ * out of (a child pausing inside "el-e-phant"), and the gap from speech end
+ * to the final result.
+ *
+ * A pause is only seen when it is shorter than the delay the attempt ran
+ * with; a longer one would have been committed on. So the premature-commit
+ * rate of a candidate delay is estimated only from attempts that ran with a
+ * longer delay, which keeps a model that has lowered its delay from
+ * forgetting the long pauses it no longer sees ({@link PostSilencePolicy}
+ * spends an occasional attempt on a longer delay to keep those coming).
+ *
+ * Android-free; LimeTunaSpeech persists {@link #encode()} in
+ * SharedPreferences and tools/PostSilenceModelReplay runs it on the JVM.
+ * Recognizer thread only.
+ */
+final class PostSilenceModel {
+
+    static final int VERSION = 1;
+    static final int MAX_SAMPLES = 48;
+    /** Attempts that must have run longer than a delay before its rate is trusted. */
+    static final int MIN_SAMPLES = 8;
+
+    // Ring of samples, oldest first from next when full.
+    private final long[] appliedMs = new long[MAX_SAMPLES];
+    private final long[] pauseMs = new long[MAX_SAMPLES];
+    private final long[] gapMs = new long[MAX_SAMPLES];
+    private final boolean[] committed = new boolean[MAX_SAMPLES];
+    private int count = 0;
+    private int next = 0;
+    private int attempts = 0;
+
+    /**
+     * Folds one finished attempt in.
+     *
+     * @param delayMs      shortest post-silence delay the attempt's silence windows ran with
+     * @param longestPause longest silence window that speech resumed out of, 0 for none
+     * @param speechToResult speech end to final result, -1 when there was none
+     * @param postSilenceCommit the post-silence timer ended the listen (not the engine)
+     */
+    void record(long delayMs, long longestPause, long speechToResult, boolean postSilenceCommit) {
+        if (delayMs <= 0) {
+            return;
+        }
+        appliedMs[next] = delayMs;
+        pauseMs[next] = Math.max(0L, Math.min(longestPause, delayMs));
+        gapMs[next] = speechToResult;
+        committed[next] = postSilenceCommit;
+        next = (next + 1) % MAX_SAMPLES;
+        if (count < MAX_SAMPLES) {
+            count++;
+        }
+        attempts++;
+    }
+
+    int getSamples() {
+        return count;
+    }
+
+    /** Attempts recorded since the model was created, including ones that left the ring. */
+    int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * Share of attempts a commit after {@code delayMs} of silence would have
+     * cut off mid-answer, with half an attempt of prior so that a short clean
+     * history does not read as zero: (k + 0.5) / (n + 1). -1 while fewer than
+     * {@link #MIN_SAMPLES} attempts ran longer than that.
+     */
+    double prematureRate(long delayMs) {
+        int n = 0;
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            if (appliedMs[i] > delayMs) {
+                n++;
+                if (pauseMs[i] >= delayMs) {
+                    k++;
+                }
+            }
+        }
+        if (n < MIN_SAMPLES) {
+            return -1.0;
+        }
+        return (k + 0.5) / (n + 1);
+    }
+
+    /**
+     * Median speech-end-to-result gap had the attempts run with {@code delayMs}:
+     * a post-silence commit moves by the difference in delay, an engine commit
+     * is taken as it was. -1 without any results.
+     */
+    long predictedGapMs(long delayMs) {
+        long[] predicted = new long[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (gapMs[i] < 0) {
+                continue;
+            }
+            predicted[n++] = committed[i]
+                    ? Math.max(0L, gapMs[i] - appliedMs[i] + delayMs)
+                    : gapMs[i];
+        }
+        if (n == 0) {
+            return -1L;
+        }
+        Arrays.sort(predicted, 0, n);
+        return predicted[n / 2];
+    }
+
+    /** Longest pause any remembered attempt resumed from, 0 if none. */
+    long longestPauseMs() {
+        long longest = 0L;
+        for (int i = 0; i < count; i++) {
+            longest = Math.max(longest, pauseMs[i]);
+        }
+        return longest;
+    }
+
+    /** Compact form for SharedPreferences: samples oldest first as delay:pause:gap:committed. */
+    String encode() {
+        StringBuilder out = new StringBuilder(24 + count * 16);
+        out.append(String.format(Locale.US, "v=%d;attempts=%d;s=", VERSION, attempts));
+        int start = count < MAX_SAMPLES ? 0 : next;
+        for (int i = 0; i < count; i++) {
+            int at = (start + i) % MAX_SAMPLES;
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(appliedMs[at]).append(':').append(pauseMs[at]).append(':')
+                    .append(gapMs[at]).append(':').append(committed[at] ? 1 : 0);
+        }
+        return out.toString();
+    }
+
+    /** Inverse of {@link #encode()}; unknown versions and garbage give an empty model. */
+    static PostSilenceModel decode(String encoded) {
+        PostSilenceModel model = new PostSilenceModel();
+        if (encoded == null || encoded.isEmpty()) {
+            return model;
+        }
+        try {
+            int version = -1;
+            int attempts = 0;
+            for (String part : encoded.split(";")) {
+                int eq = part.indexOf('=');
+                if (eq <= 0) continue;
+                String key = part.substring(0, eq);
+                String value = part.substring(eq + 1);
+                switch (key) {
+                    case "v":
+                        version = Integer.parseInt(value);
+                        break;
+                    case "attempts":
+                        attempts = Integer.parseInt(value);
+                        break;
+                    case "s":
+                        for (String sample : value.split(",")) {
+                            if (sample.isEmpty()) continue;
+                            String[] f = sample.split(":");
+                            if (f.length != 4) {
+                                return new PostSilenceModel();
+                            }
+                            model.record(Long.parseLong(f[0]), Long.parseLong(f[1]), Long.parseLong(f[2]),
+                                    "1".equals(f[3]));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (version != VERSION) {
+                return new PostSilenceModel();
+            }
+            model.attempts = Math.max(model.attempts, attempts);
+            return model;
+        } catch (NumberFormatException e) {
+            return new PostSilenceModel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "samples=" + count + " attempts=" + attempts + " longestPauseMs=" + longestPauseMs();
+    }
+}
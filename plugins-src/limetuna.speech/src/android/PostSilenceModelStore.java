@@ -0,0 +1,144 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The {@link PostSilenceModel}s of one app run, keyed by profile and target,
+ * over a persistent string store (SharedPreferences in the plugin). Models
+ * are loaded on first use and written back only by {@link #flush(Writer)},
+ * so the caller decides how often the store is rewritten.
+ *
+ * At most {@link #MAX_MODELS} keys are kept: the index of keys is held in
+ * least-recently-used order and persisted with the models, and the oldest
+ * key past the cap is removed from the store on the next flush.
+ *
+ * Android-free; recognizer thread only.
+ */
+final class PostSilenceModelStore {
+
+    static final int MAX_MODELS = 64;
+
+    /** Read side of the persistent store. */
+    interface Source {
+        /** Encoded model for the key, null if none. */
+        String load(String key);
+    }
+
+    /** Write side of the persistent store; one flush is one batch. */
+    interface Writer {
+        void save(String key, String encoded);
+
+        void remove(String key);
+
+        void saveIndex(String encodedIndex);
+    }
+
+    // Access order: iteration starts at the least recently used key. Null values are
+    // keys known from the index whose model hasn't been loaded this run.
+    private final LinkedHashMap<String, PostSilenceModel> models = new LinkedHashMap<>(32, 0.75f, true);
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private final Set<String> evicted = new LinkedHashSet<>();
+    private final Source source;
+    private boolean indexDirty = false;
+
+    /** @param index keys already in the store, least recently used first */
+    PostSilenceModelStore(Source source, List<String> index) {
+        this.source = source;
+        for (String key : index) {
+            models.put(key, null);
+        }
+        evictOverCap();
+    }
+
+    /** The key's model, loaded from the store on first use; marks the key recently used. */
+    PostSilenceModel get(String key) {
+        PostSilenceModel model = models.get(key);
+        if (model == null) {
+            if (!models.containsKey(key)) {
+                indexDirty = true;
+            }
+            model = PostSilenceModel.decode(source.load(key));
+            models.put(key, model);
+            evicted.remove(key);
+            evictOverCap();
+        } else {
+            // get() above already moved the key; the persisted order is stale now.
+            indexDirty = true;
+        }
+        return model;
+    }
+
+    /** The key's model has changed since it was loaded or last flushed. */
+    void markDirty(String key) {
+        if (models.get(key) != null) {
+            dirty.add(key);
+        }
+    }
+
+    boolean hasChanges() {
+        return !dirty.isEmpty() || !evicted.isEmpty() || indexDirty;
+    }
+
+    int size() {
+        return models.size();
+    }
+
+    /** Writes changed models, removes evicted keys and saves the index, all in one batch. */
+    void flush(Writer writer) {
+        if (!hasChanges()) {
+            return;
+        }
+        for (String key : dirty) {
+            writer.save(key, models.get(key).encode());
+        }
+        for (String key : evicted) {
+            writer.remove(key);
+        }
+        writer.saveIndex(encodeIndex(new ArrayList<>(models.keySet())));
+        dirty.clear();
+        evicted.clear();
+        indexDirty = false;
+    }
+
+    private void evictOverCap() {
+        Iterator<Map.Entry<String, PostSilenceModel>> it = models.entrySet().iterator();
+        while (models.size() > MAX_MODELS && it.hasNext()) {
+            String key = it.next().getKey();
+            it.remove();
+            dirty.remove(key);
+            evicted.add(key);
+            indexDirty = true;
+        }
+    }
+
+    /** Keys one per line, least recently used first. */
+    static String encodeIndex(List<String> keys) {
+        StringBuilder out = new StringBuilder(keys.size() * 32);
+        for (String key : keys) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(key);
+        }
+        return out.toString();
+    }
+
+    static List<String> decodeIndex(String encoded) {
+        List<String> keys = new ArrayList<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return keys;
+        }
+        for (String key : encoded.split("\n")) {
+            if (!key.isEmpty() && !keys.contains(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+}
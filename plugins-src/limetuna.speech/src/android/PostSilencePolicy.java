@@ -0,0 +1,112 @@
+package com.limetuna.speech;
+
+/**
+ * Settings for the learned post-silence delay (init option
+ * adaptivePostSilence) and the per-attempt choice made from a
+ * {@link PostSilenceModel}.
+ *
+ * The delay is the smallest one, in {@link #STEP_MS} steps between
+ * minPostSilenceMs and postSilenceMs, whose estimated premature-commit rate
+ * stays at or under {@link #maxPrematureRate}; postSilenceMs itself when none
+ * does. A target with fewer than {@link PostSilenceModel#MIN_SAMPLES}
+ * attempts is learning and runs with postSilenceMs, so every pause up to it
+ * shows. Every {@link #exploreEvery}th attempt on a target runs longer than
+ * the learned delay so pauses just past it can still be seen.
+ *
+ * Immutable; Android-free so tools/PostSilenceModelReplay can run it on the JVM.
+ */
+final class PostSilencePolicy {
+
+    static final double DEFAULT_MAX_PREMATURE_RATE = 0.05;
+    static final int DEFAULT_EXPLORE_EVERY = 10;
+    static final long STEP_MS = 25L;
+    /** An exploring attempt runs at least this much longer than the learned delay. */
+    static final long EXPLORE_MIN_EXTRA_MS = 400L;
+
+    static final String SOURCE_LEARNING = "learning";
+    static final String SOURCE_MODEL = "model";
+    static final String SOURCE_EXPLORE = "explore";
+
+    /** The delay chosen for one attempt and what the model expects of it. */
+    static final class Plan {
+        /** Post-silence delay to run with. */
+        final long delayMs;
+        final String source;
+        final int samples;
+        /** Estimated share of commits that cut an answer off, -1 if unknown. */
+        final double predictedPrematureRate;
+        /** Median speech end to final result expected with the delay, -1 if unknown. */
+        final long predictedGapMs;
+
+        Plan(long delayMs, String source, int samples, double predictedPrematureRate, long predictedGapMs) {
+            this.delayMs = delayMs;
+            this.source = source;
+            this.samples = samples;
+            this.predictedPrematureRate = predictedPrematureRate;
+            this.predictedGapMs = predictedGapMs;
+        }
+
+        @Override
+        public String toString() {
+            return "source=" + source +
+                    " delayMs=" + delayMs +
+                    " samples=" + samples +
+                    " prematureRate=" + predictedPrematureRate +
+                    " gapMs=" + predictedGapMs;
+        }
+    }
+
+    final boolean enabled;
+    final double maxPrematureRate;
+    /** Every how many attempts on a target to explore a longer delay; 0 never. */
+    final int exploreEvery;
+
+    PostSilencePolicy(boolean enabled, double maxPrematureRate, int exploreEvery) {
+        this.enabled = enabled;
+        this.maxPrematureRate = Math.max(0.0, Math.min(1.0, maxPrematureRate));
+        this.exploreEvery = Math.max(0, exploreEvery);
+    }
+
+    static PostSilencePolicy disabled() {
+        return new PostSilencePolicy(false, DEFAULT_MAX_PREMATURE_RATE, DEFAULT_EXPLORE_EVERY);
+    }
+
+    /** The delay for the next attempt on the model's target; null when disabled. */
+    Plan plan(PostSilenceModel model, ThresholdConfig thresholds) {
+        if (!enabled || model == null) {
+            return null;
+        }
+        ThresholdConfig config = thresholds != null ? thresholds : ThresholdConfig.defaults();
+        long lo = Math.max(0L, config.minPostSilenceMs);
+        long hi = Math.max(lo, config.postSilenceMs);
+        if (model.getSamples() < PostSilenceModel.MIN_SAMPLES) {
+            return new Plan(hi, SOURCE_LEARNING, model.getSamples(), -1.0, model.predictedGapMs(hi));
+        }
+
+        long chosen = hi;
+        double chosenRate = -1.0;
+        for (long d = lo; d < hi; d += STEP_MS) {
+            double rate = model.prematureRate(d);
+            if (rate >= 0 && rate <= maxPrematureRate) {
+                chosen = d;
+                chosenRate = rate;
+                break;
+            }
+        }
+
+        String source = SOURCE_MODEL;
+        if (chosen < hi && exploreEvery > 0 && (model.getAttempts() + 1) % exploreEvery == 0) {
+            chosen = Math.min(hi, Math.max(chosen * 2, chosen + EXPLORE_MIN_EXTRA_MS));
+            chosenRate = model.prematureRate(chosen);
+            source = SOURCE_EXPLORE;
+        }
+        return new Plan(chosen, source, model.getSamples(), chosenRate, model.predictedGapMs(chosen));
+    }
+
+    @Override
+    public String toString() {
+        return "enabled=" + enabled +
+                " maxPrematureRate=" + maxPrematureRate +
+                " exploreEvery=" + exploreEvery;
+    }
+}
@@ -0,0 +1,172 @@
+package com.limetuna.speech;
+
+import java.util.Random;
+
+/**
+ * Paces recognizer rebuilds so a misbehaving speech service cannot drive a
+ * destroy/create loop (error, reset, preflight rebuild, busy, reset...).
+ *
+ * Backoff: the first rebuild after a good attempt runs at once; each further
+ * one without a good attempt in between waits twice as long as the last,
+ * from {@link #BASE_BACKOFF_MS} up to {@link #MAX_BACKOFF_MS}, with equal
+ * jitter (half fixed, half random) so retries do not line up with the
+ * service's own restart.
+ *
+ * Circuit: more than {@link #MAX_REBUILDS_PER_WINDOW} rebuilds inside
+ * {@link #WINDOW_MS} opens it. While open, starts fail fast
+ * (ENGINE_CIRCUIT_OPEN) and rebuilds wait. After the cool-down it is half
+ * open: the next attempt is the probe. A good probe closes it; an engine
+ * error reopens it with the cool-down doubled (up to {@link #MAX_OPEN_MS}).
+ *
+ * Android-free and clocked through {@link Endpointer.Clock}, so
+ * tools/RebuildGovernorCheck drives it on a virtual clock. Recognizer
+ * thread only.
+ */
+final class RebuildGovernor {
+
+    private static final String TAG = "LimeTunaSpeech";
+
+    static final String STATE_CLOSED = "closed";
+    static final String STATE_OPEN = "open";
+    static final String STATE_HALF_OPEN = "half_open";
+
+    static final long BASE_BACKOFF_MS = 500L;
+    static final long MAX_BACKOFF_MS = 8000L;
+    static final long WINDOW_MS = 60_000L;
+    static final int MAX_REBUILDS_PER_WINDOW = 6;
+    static final long OPEN_MS = 15_000L;
+    static final long MAX_OPEN_MS = 60_000L;
+
+    private final Endpointer.Clock clock;
+    private final Random random;
+
+    private String state = STATE_CLOSED;
+    // Rebuild times, a ring of the last MAX_REBUILDS_PER_WINDOW + 1.
+    private final long[] recent = new long[MAX_REBUILDS_PER_WINDOW + 1];
+    private int recentCount = 0;
+    private int recentNext = 0;
+    /** Rebuilds since the last good attempt. */
+    private int streak = 0;
+    private long nextRebuildMs = 0L;
+    private long openUntilMs = 0L;
+    private long openMs = OPEN_MS;
+
+    private long rebuilds = 0L;
+    private long opens = 0L;
+    private long rejectedStarts = 0L;
+    private long deferrals = 0L;
+
+    RebuildGovernor(Endpointer.Clock clock, Random random) {
+        this.clock = clock;
+        this.random = random;
+    }
+
+    /** Open and still cooling down; moves to half open once the cool-down is over. */
+    boolean isOpen() {
+        if (STATE_OPEN.equals(state) && clock.nowMs() >= openUntilMs) {
+            state = STATE_HALF_OPEN;
+            SpeechLog.i(TAG, "Rebuild circuit half open; next attempt probes");
+        }
+        return STATE_OPEN.equals(state);
+    }
+
+    /** Whether a start may go ahead; a refused one is counted. */
+    boolean allowStart() {
+        if (isOpen()) {
+            rejectedStarts++;
+            return false;
+        }
+        return true;
+    }
+
+    /** ms until a rebuild may run: the backoff, or what is left of the cool-down; 0 for now. */
+    long backoffMs() {
+        long now = clock.nowMs();
+        if (isOpen()) {
+            return Math.max(1L, openUntilMs - now);
+        }
+        return Math.max(0L, nextRebuildMs - now);
+    }
+
+    /** A start or rebuild was postponed for {@link #backoffMs()}. */
+    void onDeferred() {
+        deferrals++;
+    }
+
+    /** Records a rebuild that is running now; may open the circuit. */
+    void onRebuild() {
+        long now = clock.nowMs();
+        rebuilds++;
+        streak++;
+        long delay = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(streak - 1, 30));
+        nextRebuildMs = now + delay / 2 + (long) (random.nextDouble() * (delay - delay / 2));
+
+        recent[recentNext] = now;
+        recentNext = (recentNext + 1) % recent.length;
+        if (recentCount < recent.length) {
+            recentCount++;
+        }
+        // The ring is full and its oldest entry is inside the window: one too many.
+        if (STATE_CLOSED.equals(state) && recentCount == recent.length && now - recent[recentNext] < WINDOW_MS) {
+            open(now);
+        }
+    }
+
+    /** An attempt got the engine going (ready or an answer) without an engine error. */
+    void onAttemptSucceeded() {
+        streak = 0;
+        nextRebuildMs = 0L;
+        if (STATE_HALF_OPEN.equals(state)) {
+            state = STATE_CLOSED;
+            openMs = OPEN_MS;
+            recentCount = 0;
+            SpeechLog.i(TAG, "Rebuild circuit closed after a good probe");
+        }
+    }
+
+    /** An attempt ended in an engine error. */
+    void onAttemptFailed() {
+        if (STATE_HALF_OPEN.equals(state)) {
+            openMs = Math.min(MAX_OPEN_MS, openMs * 2);
+            open(clock.nowMs());
+        }
+    }
+
+    private void open(long now) {
+        state = STATE_OPEN;
+        openUntilMs = now + openMs;
+        recentCount = 0;
+        opens++;
+        SpeechLog.w(TAG, "Rebuild circuit open for {} ms after {} rebuilds", openMs, rebuilds);
+    }
+
+    String getState() {
+        isOpen();
+        return state;
+    }
+
+    /** ms until the circuit half opens, 0 when it is not open. */
+    long retryAfterMs() {
+        return isOpen() ? Math.max(1L, openUntilMs - clock.nowMs()) : 0L;
+    }
+
+    int getStreak() {
+        return streak;
+    }
+
+    long getRebuilds() {
+        return rebuilds;
+    }
+
+    long getOpens() {
+        return opens;
+    }
+
+    long getRejectedStarts() {
+        return rejectedStarts;
+    }
+
+    long getDeferrals() {
+        return deferrals;
+    }
+}
@@ -0,0 +1,90 @@
+package com.limetuna.speech;
+
+import java.util.List;
+
+/**
+ * A speech engine as LimeTunaSpeech drives it: start/stop/cancel/destroy one
+ * listen at a time, with results delivered through a {@link Listener}.
+ *
+ * Android-free so engines can be swapped without touching the plugin:
+ * {@link SpeechRecognizerBackend} wraps android.speech.SpeechRecognizer and
+ * {@link ScriptedRecognizerBackend} replays scripted sessions (init option
+ * {@code recognizerBackend: "scripted"}) for benchmarks and soak tests on
+ * machines without a speech service.
+ *
+ * Implementations call the listener on the thread that calls them (the
+ * plugin's recognizer thread). After {@link #cancel()} or {@link #destroy()}
+ * no further callbacks are delivered for the cancelled listen.
+ */
+interface RecognizerBackend {
+
+    // Same values as SpeechRecognizer.ERROR_*, so codes pass through unchanged.
+    int ERROR_NETWORK_TIMEOUT = 1;
+    int ERROR_NETWORK = 2;
+    int ERROR_AUDIO = 3;
+    int ERROR_SERVER = 4;
+    int ERROR_CLIENT = 5;
+    int ERROR_SPEECH_TIMEOUT = 6;
+    int ERROR_NO_MATCH = 7;
+    int ERROR_RECOGNIZER_BUSY = 8;
+    int ERROR_INSUFFICIENT_PERMISSIONS = 9;
+
+    interface Listener {
+        void onReadyForSpeech();
+
+        void onBeginningOfSpeech();
+
+        void onRmsChanged(float rmsdB);
+
+        void onEndOfSpeech();
+
+        void onPartialResults(List<String> partial);
+
+        /** {@code confidences} may be null or shorter than {@code matches}. */
+        void onResults(List<String> matches, float[] confidences);
+
+        void onError(int error);
+    }
+
+    /** Creates backends; one factory per engine configuration. */
+    interface Factory {
+        /** Short engine name for logs and timing ("speech_recognizer", "scripted"). */
+        String getName();
+
+        boolean isAvailable();
+
+        RecognizerBackend create(Listener listener);
+    }
+
+    /** What to listen for; the Android backend turns it into a RecognizerIntent. */
+    final class Request {
+        final String language;
+        final int maxResults;
+        final boolean partialResults;
+        final boolean preferOffline;
+        final long completeSilenceMs;
+        final long possiblyCompleteSilenceMs;
+        final long minimumLengthMs;
+
+        Request(String language, int maxResults, boolean partialResults, boolean preferOffline,
+                long completeSilenceMs, long possiblyCompleteSilenceMs, long minimumLengthMs) {
+            this.language = language;
+            this.maxResults = maxResults;
+            this.partialResults = partialResults;
+            this.preferOffline = preferOffline;
+            this.completeSilenceMs = completeSilenceMs;
+            this.possiblyCompleteSilenceMs = possiblyCompleteSilenceMs;
+            this.minimumLengthMs = minimumLengthMs;
+        }
+    }
+
+    void startListening(Request request);
+
+    /** Stop capturing and finalize; a result or error still follows. */
+    void stopListening();
+
+    /** Abandon the current listen without a callback. */
+    void cancel();
+
+    void destroy();
+}
@@ -0,0 +1,125 @@
+package com.limetuna.speech;
+
+/**
+ * Health score of one recognizer instance, 0 (rebuild it) to 100. Each
+ * finished listen feeds four signals: an engine error, a run of at least
+ * {@link #ZERO_RMS_RUN_WINDOWS} zero-RMS windows (the microphone went dead),
+ * onReadyForSpeech later than {@link #SLOW_READY_MS}, and speech without a
+ * single partial. Each signal is an exponentially weighted rate over the
+ * recent listens, so one bad listen costs half its weight: a zero-RMS run
+ * alone drops the score under {@link #REBUILD_BELOW}, an error takes a
+ * repeat, and slow starts only count together with missing partials. Age
+ * (time or listens since creation) adds a penalty that grows to
+ * {@link #W_AGE} at {@link #MAX_AGE_MS} / {@link #MAX_LISTENS}.
+ *
+ * The plugin keeps one per recognizer, starting over on every create or
+ * standby swap, and rebuilds a degraded one between rounds instead of in
+ * the middle of an attempt. Android-free; recognizer thread only.
+ */
+final class RecognizerHealth {
+
+    static final int SIGNAL_ERRORS = 0;
+    static final int SIGNAL_ZERO_RMS = 1;
+    static final int SIGNAL_SLOW_READY = 2;
+    static final int SIGNAL_NO_PARTIALS = 3;
+    static final int SIGNAL_AGE = 4;
+    static final String[] SIGNAL_KEYS = {"errors", "zero_rms", "slow_ready", "no_partials", "age"};
+
+    static final int ZERO_RMS_RUN_WINDOWS = 12;
+    static final long SLOW_READY_MS = 1500L;
+    static final long MAX_AGE_MS = 30L * 60L * 1000L;
+    static final int MAX_LISTENS = 300;
+    static final int REBUILD_BELOW = 60;
+
+    /** Weight of the newest listen in each rate. */
+    static final double ALPHA = 0.5;
+    // Points taken off at a rate of 1.0 (every recent listen showed the signal).
+    static final double W_ERRORS = 60.0;
+    static final double W_ZERO_RMS = 90.0;
+    static final double W_SLOW_READY = 30.0;
+    static final double W_NO_PARTIALS = 30.0;
+    static final double W_AGE = 45.0;
+
+    private static final double[] WEIGHTS = {W_ERRORS, W_ZERO_RMS, W_SLOW_READY, W_NO_PARTIALS};
+
+    private final long createdMs;
+    private final double[] rates = new double[WEIGHTS.length];
+    private final int[] counts = new int[WEIGHTS.length];
+    private int listens = 0;
+
+    RecognizerHealth(long createdMs) {
+        this.createdMs = createdMs;
+    }
+
+    /**
+     * Folds in one finished listen.
+     *
+     * @param longestZeroRmsRun longest run of consecutive zero-RMS windows
+     * @param readyMs startListening to onReadyForSpeech, -1 if it never came
+     * @param speechHeard the engine or the endpointer saw speech start
+     */
+    void record(boolean engineError, int longestZeroRmsRun, long readyMs, boolean speechHeard,
+                boolean partialsSeen) {
+        listens++;
+        update(SIGNAL_ERRORS, engineError);
+        update(SIGNAL_ZERO_RMS, longestZeroRmsRun >= ZERO_RMS_RUN_WINDOWS);
+        if (readyMs >= 0) {
+            update(SIGNAL_SLOW_READY, readyMs > SLOW_READY_MS);
+        }
+        if (speechHeard) {
+            update(SIGNAL_NO_PARTIALS, !partialsSeen);
+        }
+    }
+
+    private void update(int signal, boolean seen) {
+        rates[signal] += ALPHA * ((seen ? 1.0 : 0.0) - rates[signal]);
+        if (seen) {
+            counts[signal]++;
+        }
+    }
+
+    /** Points the signal currently takes off the score. */
+    double penalty(int signal, long nowMs) {
+        if (signal == SIGNAL_AGE) {
+            double age = Math.max((double) ageMs(nowMs) / MAX_AGE_MS, (double) listens / MAX_LISTENS);
+            return W_AGE * Math.min(1.0, age);
+        }
+        return WEIGHTS[signal] * rates[signal];
+    }
+
+    int score(long nowMs) {
+        double total = 0.0;
+        for (int i = 0; i < SIGNAL_KEYS.length; i++) {
+            total += penalty(i, nowMs);
+        }
+        return (int) Math.max(0L, Math.round(100.0 - total));
+    }
+
+    boolean shouldRebuild(long nowMs) {
+        return score(nowMs) < REBUILD_BELOW;
+    }
+
+    /** The signal costing the most points right now (the rebuild reason). */
+    int worstSignal(long nowMs) {
+        int worst = 0;
+        for (int i = 1; i < SIGNAL_KEYS.length; i++) {
+            if (penalty(i, nowMs) > penalty(worst, nowMs)) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    /** Listens that showed the signal since creation; 0 for {@link #SIGNAL_AGE}. */
+    int count(int signal) {
+        return signal < counts.length ? counts[signal] : 0;
+    }
+
+    int getListens() {
+        return listens;
+    }
+
+    long ageMs(long nowMs) {
+        return Math.max(0L, nowMs - createdMs);
+    }
+}
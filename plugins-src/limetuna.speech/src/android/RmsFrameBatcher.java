@@ -0,0 +1,90 @@
+package com.limetuna.speech;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Packs RMS frames into a compact little-endian binary batch for the opt-in
+ * binary RMS stream (init option {@code rmsStream: "binary"}).
+ *
+ * Layout (decoded by decodeRmsBatch in www/LimeTunaSpeech.js):
+ *
+ *   header, 16 bytes:  int32 magic | int32 attempt_id | float64 base_ms
+ *   frames, 16 bytes:  float32 t_offset_ms | raw_db | smoothed_db | baseline_db
+ *
+ * Frames are 4-byte aligned after the header so JS can view them directly as
+ * a Float32Array. Offsets are relative to base_ms (the attempt's
+ * native_received_ms), which keeps float32 precise to the millisecond.
+ */
+final class RmsFrameBatcher {
+    static final int MAGIC = 0x4C545231; // "LTR1"
+    static final int HEADER_BYTES = 16;
+    static final int FLOATS_PER_FRAME = 4;
+    static final int FRAME_BYTES = FLOATS_PER_FRAME * 4;
+    static final int MAX_FRAMES = 32;
+    static final long DEFAULT_BATCH_INTERVAL_MS = 250L;
+
+    private final ByteBuffer buffer =
+            ByteBuffer.allocate(HEADER_BYTES + MAX_FRAMES * FRAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long batchIntervalMs = DEFAULT_BATCH_INTERVAL_MS;
+    private long attemptId = 0L;
+    private long baseMs = 0L;
+    private long batchStartMs = 0L;
+    private int frameCount = 0;
+
+    void setBatchIntervalMs(long intervalMs) {
+        batchIntervalMs = Math.max(0L, intervalMs);
+    }
+
+    long getBatchIntervalMs() {
+        return batchIntervalMs;
+    }
+
+    void reset(long attemptId, long baseMs) {
+        this.attemptId = attemptId;
+        this.baseMs = baseMs;
+        frameCount = 0;
+        buffer.clear();
+        buffer.position(HEADER_BYTES);
+    }
+
+    /**
+     * Appends a frame.
+     *
+     * @return true when the batch is due (interval elapsed or buffer full)
+     */
+    boolean add(long tMs, float rawDb, float smoothedDb, float baselineDb) {
+        if (frameCount == MAX_FRAMES) {
+            return true;
+        }
+        if (frameCount == 0) {
+            batchStartMs = tMs;
+        }
+        buffer.putFloat((float) (tMs - baseMs));
+        buffer.putFloat(rawDb);
+        buffer.putFloat(smoothedDb);
+        buffer.putFloat(baselineDb);
+        frameCount++;
+        return frameCount == MAX_FRAMES || (tMs - batchStartMs) >= batchIntervalMs;
+    }
+
+    boolean isEmpty() {
+        return frameCount == 0;
+    }
+
+    /** Returns the pending batch as a standalone byte[] and starts a new one. Null when empty. */
+    byte[] drain() {
+        if (frameCount == 0) {
+            return null;
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, (int) attemptId);
+        buffer.putDouble(8, (double) baseMs);
+        byte[] out = Arrays.copyOf(buffer.array(), HEADER_BYTES + frameCount * FRAME_BYTES);
+        frameCount = 0;
+        buffer.clear();
+        buffer.position(HEADER_BYTES);
+        return out;
+    }
+}
@@ -0,0 +1,175 @@
+package com.limetuna.speech;
+
+import java.util.Arrays;
+
+/**
+ * Running RMS statistics for the current attempt: EMA, min/max, a
+ * silence-only baseline and a short window used for smoothing, percentiles
+ * and the noise floor. The baseline can be seeded with a prior (the device's
+ * {@link AcousticProfile}) that this attempt's silence samples then refine.
+ *
+ * Runs on every onRmsChanged callback, so {@link #update} is allocation-free:
+ * the window is a fixed float[] ring with a running tail sum, plus a sorted
+ * shadow copy kept in step by insertion/removal (window is tiny, so the
+ * arraycopy is cheaper than any heap structure).
+ */
+final class RmsStats {
+    static final float RMS_AVG_ALPHA = 0.2f;
+    static final int MAX_RECENT_SAMPLES = 40;
+    static final float NOISE_FLOOR_PERCENTILE = 0.1f;
+
+    float lastRmsDb = Float.NaN;
+    float smoothedRmsDb = Float.NaN;
+    float avgRmsDb = Float.NaN;
+    float minRmsDb = Float.NaN;
+    float maxRmsDb = Float.NaN;
+    long lastUpdateMs = 0L;
+    double baselineSum = 0;
+    int baselineCount = 0;
+    float baselineRmsDb = Float.NaN;
+    private double baselinePriorSum = 0;
+    private int baselinePriorWeight = 0;
+
+    private final float[] ring = new float[MAX_RECENT_SAMPLES];
+    private final float[] sorted = new float[MAX_RECENT_SAMPLES];
+    private final int tailSamples = Math.min(ThresholdConfig.RMS_SMOOTH_TAIL_SAMPLES, MAX_RECENT_SAMPLES);
+    private int ringHead = 0;
+    private int ringSize = 0;
+    private double tailSum = 0;
+    private int tailCount = 0;
+
+    void reset() {
+        lastRmsDb = Float.NaN;
+        smoothedRmsDb = Float.NaN;
+        avgRmsDb = Float.NaN;
+        minRmsDb = Float.NaN;
+        maxRmsDb = Float.NaN;
+        lastUpdateMs = 0L;
+        baselineSum = 0;
+        baselineCount = 0;
+        baselineRmsDb = Float.NaN;
+        baselinePriorSum = 0;
+        baselinePriorWeight = 0;
+        ringHead = 0;
+        ringSize = 0;
+        tailSum = 0;
+        tailCount = 0;
+    }
+
+    float update(float rmsDb, long nowMs, Endpointer.State state) {
+        lastRmsDb = rmsDb;
+        lastUpdateMs = nowMs;
+
+        if (Float.isNaN(avgRmsDb)) {
+            avgRmsDb = rmsDb;
+        } else {
+            avgRmsDb = (RMS_AVG_ALPHA * rmsDb) + ((1 - RMS_AVG_ALPHA) * avgRmsDb);
+        }
+
+        if (Float.isNaN(minRmsDb) || rmsDb < minRmsDb) {
+            minRmsDb = rmsDb;
+        }
+        if (Float.isNaN(maxRmsDb) || rmsDb > maxRmsDb) {
+            maxRmsDb = rmsDb;
+        }
+
+        if (state == Endpointer.State.IDLE || state == Endpointer.State.SILENCE_WINDOW) {
+            baselineSum += rmsDb;
+            baselineCount += 1;
+            baselineRmsDb = (float) ((baselinePriorSum + baselineSum) / (baselinePriorWeight + baselineCount));
+        }
+
+        // Slide the smoothing tail before the ring slot is overwritten.
+        if (tailCount == tailSamples) {
+            tailSum -= ring[(ringHead - tailSamples + MAX_RECENT_SAMPLES) % MAX_RECENT_SAMPLES];
+        } else {
+            tailCount++;
+        }
+        tailSum += rmsDb;
+
+        if (ringSize == MAX_RECENT_SAMPLES) {
+            removeSorted(ring[ringHead]);
+        } else {
+            ringSize++;
+        }
+        ring[ringHead] = rmsDb;
+        ringHead = (ringHead + 1) % MAX_RECENT_SAMPLES;
+        insertSorted(rmsDb);
+
+        smoothedRmsDb = tailCount > 0 ? (float) (tailSum / tailCount) : lastRmsDb;
+        return smoothedRmsDb;
+    }
+
+    float getSmoothedRmsDb() {
+        return smoothedRmsDb;
+    }
+
+    float getBaselineRmsDb() {
+        return baselineRmsDb;
+    }
+
+    /** Counts as {@code weight} silence samples of {@code priorDb}; call right after {@link #reset()}. */
+    void seedBaseline(float priorDb, int weight) {
+        if (Float.isNaN(priorDb) || weight <= 0) {
+            return;
+        }
+        baselinePriorSum = (double) priorDb * weight;
+        baselinePriorWeight = weight;
+        baselineRmsDb = priorDb;
+    }
+
+    /** Baseline from this attempt's own silence samples only, NaN if none. */
+    float getAttemptBaselineRmsDb() {
+        return baselineCount > 0 ? (float) (baselineSum / baselineCount) : Float.NaN;
+    }
+
+    int getBaselineSampleCount() {
+        return baselineCount;
+    }
+
+    int getSampleCount() {
+        return ringSize;
+    }
+
+    /** Nearest-rank percentile over the recent window, {@code p} in [0, 1]. NaN when empty. */
+    float getPercentileRmsDb(float p) {
+        if (ringSize == 0) {
+            return Float.NaN;
+        }
+        int rank = (int) Math.ceil(p * ringSize) - 1;
+        return sorted[Math.max(0, Math.min(ringSize - 1, rank))];
+    }
+
+    /** Low percentile of the recent window; tracks room noise even while the child is talking. */
+    float getNoiseFloorDb() {
+        return getPercentileRmsDb(NOISE_FLOOR_PERCENTILE);
+    }
+
+    /** Recent window in arrival order. Allocates; only for commit/debug payloads. */
+    float[] recentSamples() {
+        float[] out = new float[ringSize];
+        int start = (ringHead - ringSize + MAX_RECENT_SAMPLES) % MAX_RECENT_SAMPLES;
+        for (int i = 0; i < ringSize; i++) {
+            out[i] = ring[(start + i) % MAX_RECENT_SAMPLES];
+        }
+        return out;
+    }
+
+    private void insertSorted(float value) {
+        int used = ringSize - 1;
+        int idx = Arrays.binarySearch(sorted, 0, used, value);
+        if (idx < 0) {
+            idx = -idx - 1;
+        }
+        System.arraycopy(sorted, idx, sorted, idx + 1, used - idx);
+        sorted[idx] = value;
+    }
+
+    private void removeSorted(float value) {
+        int idx = Arrays.binarySearch(sorted, 0, ringSize, value);
+        if (idx < 0) {
+            return;
+        }
+        System.arraycopy(sorted, idx + 1, sorted, idx, ringSize - idx - 1);
+    }
+}
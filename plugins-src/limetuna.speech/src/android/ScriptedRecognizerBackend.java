@@ -0,0 +1,379 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deterministic fake engine: each startListening replays the next scripted
+ * session (round-robin across every backend of the factory, so rebuilds keep
+ * advancing through the script). Lets the plugin and the tools/ harnesses run
+ * attempts without a speech service.
+ *
+ * Script format (one event per line, '#' starts a comment; times are ms after
+ * startListening):
+ *
+ *   attempt [id]
+ *   <t_ms> ready
+ *   <t_ms> bos
+ *   <t_ms> rms <db>
+ *   <t_ms> partial <text>[|<text>...]
+ *   <t_ms> eos
+ *   <t_ms> results <text>[@<confidence>][|<text>[@<confidence>]...]
+ *   <t_ms> error <code>          SpeechRecognizer.ERROR_* value
+ *   end
+ *
+ * Text runs to the end of the line, so alternatives may contain spaces.
+ * results/error end the listen. stopListening() drops the remaining
+ * rms/partial events and delivers the attempt's terminal event (or
+ * ERROR_NO_MATCH if it has none) after {@link #STOP_FINALIZE_MS}, like an
+ * engine finalizing early. Without stop or a terminal event the listen stays
+ * open, leaving the caller's failsafe to end it. startListening while a
+ * listen is open reports ERROR_RECOGNIZER_BUSY, like the real engine.
+ */
+final class ScriptedRecognizerBackend implements RecognizerBackend {
+
+    static final long STOP_FINALIZE_MS = 120L;
+
+    static final String READY = "ready";
+    static final String BOS = "bos";
+    static final String RMS = "rms";
+    static final String PARTIAL = "partial";
+    static final String EOS = "eos";
+    static final String RESULTS = "results";
+    static final String ERROR = "error";
+
+    static final class Step {
+        final long atMs;
+        final String kind;
+        final float rmsDb;
+        final List<String> texts;
+        final float[] confidences;
+        final int error;
+
+        Step(long atMs, String kind, float rmsDb, List<String> texts, float[] confidences, int error) {
+            this.atMs = atMs;
+            this.kind = kind;
+            this.rmsDb = rmsDb;
+            this.texts = texts;
+            this.confidences = confidences;
+            this.error = error;
+        }
+
+        boolean isTerminal() {
+            return RESULTS.equals(kind) || ERROR.equals(kind);
+        }
+    }
+
+    static final class Script {
+        final String id;
+        final List<Step> steps;
+
+        Script(String id, List<Step> steps) {
+            this.id = id;
+            this.steps = Collections.unmodifiableList(steps);
+        }
+
+        /** First results/error step, or null. */
+        Step terminal() {
+            for (Step step : steps) {
+                if (step.isTerminal()) {
+                    return step;
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class Factory implements RecognizerBackend.Factory {
+        private final Endpointer.Timer timer;
+        private final List<Script> scripts;
+        private int nextScript = 0;
+        private long startCount = 0L;
+
+        Factory(Endpointer.Timer timer, List<Script> scripts) {
+            this.timer = timer;
+            this.scripts = new ArrayList<>(scripts);
+        }
+
+        @Override
+        public String getName() {
+            return "scripted";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return !scripts.isEmpty();
+        }
+
+        @Override
+        public RecognizerBackend create(Listener listener) {
+            return new ScriptedRecognizerBackend(this, listener);
+        }
+
+        int getScriptCount() {
+            return scripts.size();
+        }
+
+        long getStartCount() {
+            return startCount;
+        }
+
+        Script nextScript() {
+            startCount++;
+            Script script = scripts.get(nextScript);
+            nextScript = (nextScript + 1) % scripts.size();
+            return script;
+        }
+    }
+
+    private final class StepTask implements Runnable {
+        final Step step;
+        final int generation;
+
+        StepTask(Step step, int generation) {
+            this.step = step;
+            this.generation = generation;
+        }
+
+        @Override
+        public void run() {
+            pending.remove(this);
+            if (generation == listenGeneration) {
+                deliver(step);
+            }
+        }
+    }
+
+    private final Factory factory;
+    private final Listener listener;
+    private final List<StepTask> pending = new ArrayList<>();
+    private Script current;
+    private boolean listening = false;
+    private boolean stopping = false;
+    private boolean speechBegun = false;
+    private boolean speechEnded = false;
+    private boolean destroyed = false;
+    private int listenGeneration = 0;
+
+    private ScriptedRecognizerBackend(Factory factory, Listener listener) {
+        this.factory = factory;
+        this.listener = listener;
+    }
+
+    @Override
+    public void startListening(Request request) {
+        if (destroyed) {
+            throw new IllegalStateException("recognizer destroyed");
+        }
+        if (listening) {
+            final int generation = listenGeneration;
+            factory.timer.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation == listenGeneration && !destroyed) {
+                        listener.onError(ERROR_RECOGNIZER_BUSY);
+                    }
+                }
+            }, 0L);
+            return;
+        }
+        current = factory.nextScript();
+        listening = true;
+        stopping = false;
+        speechBegun = false;
+        speechEnded = false;
+        int generation = ++listenGeneration;
+        for (Step step : current.steps) {
+            schedule(step, step.atMs, generation);
+        }
+    }
+
+    @Override
+    public void stopListening() {
+        if (!listening || stopping) {
+            return;
+        }
+        stopping = true;
+        clearPending();
+        int generation = ++listenGeneration;
+        if (speechBegun && !speechEnded) {
+            schedule(new Step(0L, EOS, 0f, null, null, 0), 0L, generation);
+        }
+        Step terminal = current.terminal();
+        if (terminal == null) {
+            terminal = new Step(0L, ERROR, 0f, null, null, ERROR_NO_MATCH);
+        }
+        schedule(terminal, STOP_FINALIZE_MS, generation);
+    }
+
+    @Override
+    public void cancel() {
+        clearPending();
+        listenGeneration++;
+        listening = false;
+        stopping = false;
+    }
+
+    @Override
+    public void destroy() {
+        cancel();
+        destroyed = true;
+    }
+
+    private void schedule(Step step, long delayMs, int generation) {
+        StepTask task = new StepTask(step, generation);
+        pending.add(task);
+        factory.timer.postDelayed(task, delayMs);
+    }
+
+    private void clearPending() {
+        for (StepTask task : pending) {
+            factory.timer.cancel(task);
+        }
+        pending.clear();
+    }
+
+    private void deliver(Step step) {
+        switch (step.kind) {
+            case READY:
+                listener.onReadyForSpeech();
+                break;
+            case BOS:
+                speechBegun = true;
+                listener.onBeginningOfSpeech();
+                break;
+            case RMS:
+                listener.onRmsChanged(step.rmsDb);
+                break;
+            case PARTIAL:
+                listener.onPartialResults(step.texts);
+                break;
+            case EOS:
+                speechEnded = true;
+                listener.onEndOfSpeech();
+                break;
+            case RESULTS:
+                finishListen();
+                listener.onResults(step.texts, step.confidences);
+                break;
+            case ERROR:
+                finishListen();
+                listener.onError(step.error);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void finishListen() {
+        clearPending();
+        listenGeneration++;
+        listening = false;
+        stopping = false;
+    }
+
+    // ---- Script parsing ------------------------------------------------------
+
+    static List<Script> parse(String text) {
+        List<Script> scripts = new ArrayList<>();
+        String id = null;
+        List<Step> steps = null;
+        String[] lines = text.split("\r?\n");
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            int hash = line.indexOf('#');
+            if (hash >= 0) {
+                line = line.substring(0, hash);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] parts = line.split("\\s+", 3);
+            if (parts[0].equals("attempt")) {
+                if (steps != null) {
+                    scripts.add(new Script(id, steps));
+                }
+                id = parts.length > 1 ? parts[1] : String.valueOf(scripts.size() + 1);
+                steps = new ArrayList<>();
+                continue;
+            }
+            if (parts[0].equals("end")) {
+                if (steps != null) {
+                    scripts.add(new Script(id, steps));
+                }
+                steps = null;
+                continue;
+            }
+            if (steps == null || parts.length < 2) {
+                throw new IllegalArgumentException("line " + (i + 1) + ": event outside attempt or malformed: " + line);
+            }
+            steps.add(parseStep(parts, i + 1));
+        }
+        if (steps != null) {
+            scripts.add(new Script(id, steps));
+        }
+        return scripts;
+    }
+
+    private static Step parseStep(String[] parts, int lineNo) {
+        long atMs;
+        try {
+            atMs = Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("line " + lineNo + ": bad time " + parts[0]);
+        }
+        String kind = parts[1];
+        String arg = parts.length > 2 ? parts[2] : null;
+        try {
+            switch (kind) {
+                case READY:
+                case BOS:
+                case EOS:
+                    return new Step(atMs, kind, 0f, null, null, 0);
+                case RMS:
+                    return new Step(atMs, kind, Float.parseFloat(require(arg, lineNo)), null, null, 0);
+                case PARTIAL:
+                    return new Step(atMs, kind, 0f,
+                            Arrays.asList(require(arg, lineNo).split("\\|")), null, 0);
+                case RESULTS:
+                    return parseResults(atMs, require(arg, lineNo));
+                case ERROR:
+                    return new Step(atMs, kind, 0f, null, null, Integer.parseInt(require(arg, lineNo)));
+                default:
+                    throw new IllegalArgumentException("line " + lineNo + ": unknown event " + kind);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("line " + lineNo + ": bad number in " + kind + " " + arg);
+        }
+    }
+
+    private static Step parseResults(long atMs, String arg) {
+        String[] alternatives = arg.split("\\|");
+        List<String> texts = new ArrayList<>(alternatives.length);
+        float[] confidences = new float[alternatives.length];
+        boolean anyConfidence = false;
+        for (int i = 0; i < alternatives.length; i++) {
+            String alt = alternatives[i];
+            int at = alt.lastIndexOf('@');
+            if (at >= 0) {
+                confidences[i] = Float.parseFloat(alt.substring(at + 1));
+                alt = alt.substring(0, at);
+                anyConfidence = true;
+            } else {
+                confidences[i] = -1f;
+            }
+            texts.add(alt.trim());
+        }
+        return new Step(atMs, RESULTS, 0f, texts, anyConfidence ? confidences : null, 0);
+    }
+
+    private static String require(String arg, int lineNo) {
+        if (arg == null || arg.isEmpty()) {
+            throw new IllegalArgumentException("line " + lineNo + ": missing argument");
+        }
+        return arg;
+    }
+}
@@ -0,0 +1,400 @@
+package com.limetuna.speech;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Game sounds and prompts from the app's www/ assets, played natively.
+ * Clips are decoded once to PCM ({@link PcmDecoder}) and kept in a
+ * byte-budgeted LRU ({@link PcmCache}); each play writes the PCM into a
+ * static AudioTrack, so a cached clip starts without a decode.
+ *
+ * A clip's end is its frame count: the playback head is polled from the
+ * duration onwards, which lets playThenListen open the microphone as the
+ * prompt actually ends. One prompt sequence plays at a time; one-off sounds
+ * ({@link #play}) overlap freely. Clips that fail to load are skipped, so
+ * listeners always fire.
+ *
+ * In a packed build the clips are entries of www/media.pack
+ * ({@link PackedAssets}) and are decoded straight from the pack.
+ *
+ * Decoding runs on the loader executor; everything else, including the
+ * listeners, on the timer's thread (the plugin's recognizer thread).
+ */
+final class SoundPlayer {
+    private static final String TAG = "LimeTunaSpeech";
+    private static final String ASSET_ROOT = "www/";
+    private static final long MIN_POLL_MS = 5L;
+
+    interface Listener {
+        /** {@code played} is false when nothing could be loaded or played. */
+        void onFinished(boolean played);
+    }
+
+    interface PreloadListener {
+        void onPreloaded(List<PcmCache.Clip> loaded, List<String> failed);
+    }
+
+    private interface ClipCallback {
+        /** {@code clip} is null if the asset could not be decoded. */
+        void onClip(PcmCache.Clip clip);
+    }
+
+    private final AssetManager assets;
+    private final PackedAssets packed;
+    private final Executor loader;
+    private final Endpointer.Timer timer;
+    private final PcmCache cache;
+    private final Map<String, List<ClipCallback>> decoding = new HashMap<>();
+    private final Set<String> failed = new HashSet<>();
+    // Bumped by stopAll() so decodes and polls from before it are dropped.
+    private int generation = 0;
+    private long decodeCount = 0L;
+    private long decodeMsTotal = 0L;
+
+    private final List<Playback> playing = new ArrayList<>();
+
+    // The current prompt sequence.
+    private List<String> sequence;
+    private int sequenceIndex = 0;
+    private boolean sequencePlayed = false;
+    private Listener sequenceListener;
+
+    SoundPlayer(AssetManager assets, PackedAssets packed, Executor loader, Endpointer.Timer timer,
+                long budgetBytes) {
+        this.assets = assets;
+        this.packed = packed;
+        this.loader = loader;
+        this.timer = timer;
+        this.cache = new PcmCache(budgetBytes);
+    }
+
+    PcmCache getCache() {
+        return cache;
+    }
+
+    long getDecodeCount() {
+        return decodeCount;
+    }
+
+    long getDecodeMsTotal() {
+        return decodeMsTotal;
+    }
+
+    /** Paths are relative to www/, as the page uses them ("audio/one_more_time1.mp3"). */
+    void preload(List<String> paths, final PreloadListener listener) {
+        final List<PcmCache.Clip> loaded = new ArrayList<>();
+        final List<String> missing = new ArrayList<>();
+        final int[] remaining = {paths.size() + 1};
+        final Runnable report = new Runnable() {
+            @Override
+            public void run() {
+                if (--remaining[0] == 0) {
+                    listener.onPreloaded(loaded, missing);
+                }
+            }
+        };
+        for (final String path : paths) {
+            load(path, false, new ClipCallback() {
+                @Override
+                public void onClip(PcmCache.Clip clip) {
+                    if (clip != null) {
+                        loaded.add(clip);
+                    } else {
+                        missing.add(path);
+                    }
+                    report.run();
+                }
+            });
+        }
+        report.run();
+    }
+
+    /** One-off sound; overlaps anything else playing. */
+    void play(String path, final Listener listener) {
+        final int gen = generation;
+        load(path, true, new ClipCallback() {
+            @Override
+            public void onClip(PcmCache.Clip clip) {
+                if (gen != generation) {
+                    return;
+                }
+                if (clip == null || !start(clip, listener)) {
+                    listener.onFinished(false);
+                }
+            }
+        });
+    }
+
+    boolean isSequencePlaying() {
+        return sequence != null;
+    }
+
+    /** Plays the clips in order, then calls the listener. Replaces a sequence in progress without calling its listener. */
+    void playSequence(List<String> paths, Listener listener) {
+        stopSequence();
+        sequence = new ArrayList<>(paths);
+        sequenceIndex = 0;
+        sequencePlayed = false;
+        sequenceListener = listener;
+        playSequenceClip();
+    }
+
+    /** Silences the current sequence; its listener is not called. */
+    void stopSequence() {
+        for (int i = playing.size() - 1; i >= 0; i--) {
+            if (playing.get(i).inSequence) {
+                playing.get(i).finish(false, false);
+            }
+        }
+        sequence = null;
+        sequenceListener = null;
+    }
+
+    /** Silences everything; no listener is called. */
+    void stopAll() {
+        generation++;
+        stopSequence();
+        for (int i = playing.size() - 1; i >= 0; i--) {
+            playing.get(i).finish(false, false);
+        }
+        decoding.clear();
+    }
+
+    void release() {
+        stopAll();
+        cache.clear();
+    }
+
+    private void playSequenceClip() {
+        final List<String> list = sequence;
+        if (list == null) {
+            return;
+        }
+        if (sequenceIndex >= list.size()) {
+            Listener listener = sequenceListener;
+            boolean played = sequencePlayed;
+            sequence = null;
+            sequenceListener = null;
+            if (listener != null) {
+                listener.onFinished(played);
+            }
+            return;
+        }
+        final int index = sequenceIndex;
+        final String path = list.get(index);
+        load(path, true, new ClipCallback() {
+            @Override
+            public void onClip(PcmCache.Clip clip) {
+                if (sequence != list || sequenceIndex != index) {
+                    return;
+                }
+                Listener next = new Listener() {
+                    @Override
+                    public void onFinished(boolean played) {
+                        if (sequence != list || sequenceIndex != index) {
+                            return;
+                        }
+                        sequencePlayed |= played;
+                        sequenceIndex++;
+                        playSequenceClip();
+                    }
+                };
+                if (clip == null) {
+                    SpeechLog.w(TAG, "Prompt {} skipped (not loaded)", path);
+                    next.onFinished(false);
+                } else if (!start(clip, next)) {
+                    next.onFinished(false);
+                } else {
+                    playing.get(playing.size() - 1).inSequence = true;
+                }
+            }
+        });
+    }
+
+    /** A clip on its own static AudioTrack, polled until the head reaches the last frame. */
+    private final class Playback implements Runnable {
+        final PcmCache.Clip clip;
+        final AudioTrack track;
+        final Listener listener;
+        final int gen;
+        boolean inSequence = false;
+        int lastHead = -1;
+
+        Playback(PcmCache.Clip clip, AudioTrack track, Listener listener, int gen) {
+            this.clip = clip;
+            this.track = track;
+            this.listener = listener;
+            this.gen = gen;
+        }
+
+        @Override
+        public void run() {
+            if (gen != generation || !playing.contains(this)) {
+                return;
+            }
+            int frames = clip.frameCount();
+            int head;
+            try {
+                head = track.getPlaybackHeadPosition();
+            } catch (IllegalStateException e) {
+                head = frames;
+            }
+            // A head that stopped short of the end (some HALs) counts as done too.
+            if (head >= frames || head == lastHead) {
+                finish(true, true);
+                return;
+            }
+            lastHead = head;
+            long remainingMs = (frames - head) * 1000L / clip.sampleRate;
+            timer.postDelayed(this, Math.max(MIN_POLL_MS, remainingMs + 1));
+        }
+
+        void finish(boolean played, boolean notify) {
+            timer.cancel(this);
+            playing.remove(this);
+            try {
+                track.stop();
+            } catch (IllegalStateException ignored) {
+                // never started or already stopped
+            }
+            track.release();
+            if (notify) {
+                listener.onFinished(played);
+            }
+        }
+    }
+
+    private boolean start(PcmCache.Clip clip, Listener listener) {
+        AudioTrack track;
+        try {
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_GAME)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SPEECH)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(clip.sampleRate)
+                            .setChannelMask(clip.channels == 1
+                                    ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STATIC)
+                    .setBufferSizeInBytes(clip.pcm.limit())
+                    .build();
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            SpeechLog.w(TAG, "Sound {} has no track: {}", clip.id, e.getMessage());
+            return false;
+        }
+        int written = track.write(clip.pcm.duplicate(), clip.pcm.limit(), AudioTrack.WRITE_BLOCKING);
+        if (written <= 0) {
+            SpeechLog.w(TAG, "Sound {} write failed: {}", clip.id, written);
+            track.release();
+            return false;
+        }
+        Playback playback = new Playback(clip, track, listener, generation);
+        playing.add(playback);
+        try {
+            track.play();
+        } catch (IllegalStateException e) {
+            SpeechLog.w(TAG, "Sound {} failed to play", clip.id);
+            playback.finish(false, false);
+            return false;
+        }
+        SpeechLog.d(TAG, "Sound {} playing durationMs={}", clip.id, clip.durationMs());
+        timer.postDelayed(playback, Math.max(MIN_POLL_MS, clip.durationMs()));
+        return true;
+    }
+
+    /** Cached clip, or decodes it on the loader; {@code callback} runs on the timer thread. */
+    private void load(final String path, boolean countLookup, ClipCallback callback) {
+        PcmCache.Clip cached = countLookup ? cache.get(path) : cache.peek(path);
+        if (cached != null) {
+            callback.onClip(cached);
+            return;
+        }
+        if (failed.contains(path)) {
+            callback.onClip(null);
+            return;
+        }
+        List<ClipCallback> waiters = decoding.get(path);
+        if (waiters != null) {
+            waiters.add(callback);
+            return;
+        }
+        waiters = new ArrayList<>();
+        waiters.add(callback);
+        decoding.put(path, waiters);
+        final int gen = generation;
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                long startedNs = System.nanoTime();
+                PcmCache.Clip decoded = null;
+                AssetFileDescriptor afd = null;
+                try {
+                    MediaPack pack = packed.pack();
+                    if (pack != null && pack.contains(path)) {
+                        decoded = PcmDecoder.decode(path, packed.packFileDescriptor(),
+                                packed.packStart() + pack.offsetOf(path), pack.lengthOf(path));
+                    } else {
+                        afd = assets.openFd(ASSET_ROOT + path);
+                        decoded = PcmDecoder.decode(path, afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    SpeechLog.w(TAG, "Sound {} not decodable: {}", path, e.getMessage());
+                } finally {
+                    closeQuietly(afd);
+                }
+                final PcmCache.Clip clip = decoded;
+                final long decodeMs = (System.nanoTime() - startedNs) / 1_000_000L;
+                timer.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (gen != generation) {
+                            return;
+                        }
+                        List<ClipCallback> pending = decoding.remove(path);
+                        if (clip == null) {
+                            failed.add(path);
+                        } else {
+                            decodeCount++;
+                            decodeMsTotal += decodeMs;
+                            if (!cache.put(clip)) {
+                                SpeechLog.w(TAG, "Sound {} ({} bytes) exceeds the cache budget", path, clip.memoryBytes());
+                            }
+                        }
+                        if (pending != null) {
+                            for (ClipCallback waiter : pending) {
+                                waiter.onClip(clip);
+                            }
+                        }
+                    }
+                }, 0L);
+            }
+        });
+    }
+
+    private static void closeQuietly(AssetFileDescriptor afd) {
+        if (afd == null) {
+            return;
+        }
+        try {
+            afd.close();
+        } catch (IOException ignored) {
+            // nothing to do
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.limetuna.speech;
+
+/**
+ * Level-gated logging for the plugin. Messages are parameterized with "{}"
+ * placeholders and only formatted when the level is enabled, so a disabled
+ * call on the recognizer callback path costs a compare and allocates
+ * nothing. VERBOSE/DEBUG have primitive overloads so hot-path callers never
+ * box a number just to have it dropped.
+ *
+ * Two switches: {@link #DEBUG_BUILD} is a compile-time constant that removes
+ * VERBOSE/DEBUG entirely when false; the runtime level comes from the init
+ * option logLevel. Levels share android.util.Log's values.
+ *
+ * Android-free: LimeTunaSpeech installs a {@link Sink} over android.util.Log;
+ * on the JVM the default sink prints to stderr.
+ */
+final class SpeechLog {
+
+    static final boolean DEBUG_BUILD = true;
+
+    static final int VERBOSE = 2;
+    static final int DEBUG = 3;
+    static final int INFO = 4;
+    static final int WARN = 5;
+    static final int ERROR = 6;
+    /** Nothing is logged. */
+    static final int NONE = 8;
+
+    static final int DEFAULT_LEVEL = DEBUG;
+
+    interface Sink {
+        void println(int level, String tag, String message, Throwable error);
+    }
+
+    private static volatile int level = DEFAULT_LEVEL;
+    private static volatile Sink sink = new Sink() {
+        @Override
+        public void println(int level, String tag, String message, Throwable error) {
+            System.err.println(levelName(level).charAt(0) + "/" + tag + ": " + message);
+            if (error != null) {
+                error.printStackTrace();
+            }
+        }
+    };
+
+    private SpeechLog() {
+    }
+
+    static void setSink(Sink newSink) {
+        if (newSink != null) {
+            sink = newSink;
+        }
+    }
+
+    static void setLevel(int newLevel) {
+        level = newLevel;
+    }
+
+    static int getLevel() {
+        return level;
+    }
+
+    static boolean isLoggable(int atLevel) {
+        return atLevel >= level && (DEBUG_BUILD || atLevel >= INFO);
+    }
+
+    /** "verbose", "debug", "info", "warn", "error" or "none"; -1 if unknown. */
+    static int parseLevel(String name) {
+        if (name == null) {
+            return -1;
+        }
+        switch (name.trim().toLowerCase(java.util.Locale.ROOT)) {
+            case "verbose": return VERBOSE;
+            case "debug": return DEBUG;
+            case "info": return INFO;
+            case "warn": return WARN;
+            case "error": return ERROR;
+            case "none": return NONE;
+            default: return -1;
+        }
+    }
+
+    static String levelName(int atLevel) {
+        switch (atLevel) {
+            case VERBOSE: return "verbose";
+            case DEBUG: return "debug";
+            case INFO: return "info";
+            case WARN: return "warn";
+            case ERROR: return "error";
+            default: return "none";
+        }
+    }
+
+    // ---- VERBOSE / DEBUG: hot path, with primitive overloads -----------------
+
+    static void v(String tag, String message) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) emit(VERBOSE, tag, message, null);
+    }
+
+    static void v(String tag, String format, float a) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) emit(VERBOSE, tag, format(format, a, null, null), null);
+    }
+
+    static void v(String tag, String format, long a) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) emit(VERBOSE, tag, format(format, a, null, null), null);
+    }
+
+    static void v(String tag, String format, Object a, Object b) {
+        if (DEBUG_BUILD && isLoggable(VERBOSE)) emit(VERBOSE, tag, format(format, a, b, null), null);
+    }
+
+    static void d(String tag, String message) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, message, null);
+    }
+
+    static void d(String tag, String format, Object a) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, null, null), null);
+    }
+
+    static void d(String tag, String format, Object a, Object b) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, null), null);
+    }
+
+    static void d(String tag, String format, Object a, Object b, Object c) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, c), null);
+    }
+
+    static void d(String tag, String format, long a) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, null, null), null);
+    }
+
+    static void d(String tag, String format, long a, long b) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, null), null);
+    }
+
+    static void d(String tag, String format, long a, float b) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, null), null);
+    }
+
+    static void d(String tag, String format, long a, Object b) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, null), null);
+    }
+
+    static void d(String tag, String format, Object a, long b) {
+        if (DEBUG_BUILD && isLoggable(DEBUG)) emit(DEBUG, tag, format(format, a, b, null), null);
+    }
+
+    // ---- INFO / WARN / ERROR ---------------------------------------------------
+
+    static void i(String tag, String message) {
+        if (isLoggable(INFO)) emit(INFO, tag, message, null);
+    }
+
+    static void i(String tag, String format, Object a) {
+        if (isLoggable(INFO)) emit(INFO, tag, format(format, a, null, null), null);
+    }
+
+    static void i(String tag, String format, Object a, Object b) {
+        if (isLoggable(INFO)) emit(INFO, tag, format(format, a, b, null), null);
+    }
+
+    static void i(String tag, String format, Object a, Object b, Object c) {
+        if (isLoggable(INFO)) emit(INFO, tag, format(format, a, b, c), null);
+    }
+
+    static void w(String tag, String message) {
+        if (isLoggable(WARN)) emit(WARN, tag, message, null);
+    }
+
+    static void w(String tag, String message, Throwable error) {
+        if (isLoggable(WARN)) emit(WARN, tag, message, error);
+    }
+
+    static void w(String tag, String format, Object a) {
+        if (isLoggable(WARN)) emit(WARN, tag, format(format, a, null, null), null);
+    }
+
+    static void w(String tag, String format, Object a, Object b) {
+        if (isLoggable(WARN)) emit(WARN, tag, format(format, a, b, null), null);
+    }
+
+    static void w(String tag, String format, Object a, Throwable error) {
+        if (isLoggable(WARN)) emit(WARN, tag, format(format, a, null, null), error);
+    }
+
+    static void e(String tag, String message) {
+        if (isLoggable(ERROR)) emit(ERROR, tag, message, null);
+    }
+
+    static void e(String tag, String message, Throwable error) {
+        if (isLoggable(ERROR)) emit(ERROR, tag, message, error);
+    }
+
+    private static void emit(int atLevel, String tag, String message, Throwable error) {
+        sink.println(atLevel, tag, message, error);
+    }
+
+    /** Replaces successive "{}" with a, b, c; extra placeholders stay as "{}". */
+    static String format(String format, Object a, Object b, Object c) {
+        StringBuilder out = new StringBuilder(format.length() + 32);
+        int argIndex = 0;
+        int from = 0;
+        while (true) {
+            int at = format.indexOf("{}", from);
+            if (at < 0 || argIndex > 2) {
+                break;
+            }
+            out.append(format, from, at);
+            out.append(argIndex == 0 ? a : (argIndex == 1 ? b : c));
+            argIndex++;
+            from = at + 2;
+        }
+        out.append(format, from, format.length());
+        return out.toString();
+    }
+}
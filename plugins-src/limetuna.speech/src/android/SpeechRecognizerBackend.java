@@ -0,0 +1,172 @@
+package com.limetuna.speech;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Bundle;
+import android.speech.RecognitionListener;
+import android.speech.RecognizerIntent;
+import android.speech.SpeechRecognizer;
+
+import java.util.ArrayList;
+
+/**
+ * {@link RecognizerBackend} over android.speech.SpeechRecognizer, optionally
+ * bound to a specific recognition service (init option recognizerService)
+ * or to the on-device engine (API 31+; the secondary of init option hedged).
+ * Must be created and driven on the main thread (SpeechRecognizer checks);
+ * {@link LooperRecognizerBackend} hops to it from a background looper.
+ */
+final class SpeechRecognizerBackend implements RecognizerBackend {
+
+    static final class Factory implements RecognizerBackend.Factory {
+        private final Context context;
+        private final ComponentName serviceOverride;
+        private final boolean onDevice;
+
+        Factory(Context context, ComponentName serviceOverride) {
+            this(context, serviceOverride, false);
+        }
+
+        private Factory(Context context, ComponentName serviceOverride, boolean onDevice) {
+            this.context = context.getApplicationContext();
+            this.serviceOverride = serviceOverride;
+            this.onDevice = onDevice;
+        }
+
+        /** SpeechRecognizer.createOnDeviceSpeechRecognizer; unavailable before API 31. */
+        static Factory onDevice(Context context) {
+            return new Factory(context, null, true);
+        }
+
+        ComponentName getServiceOverride() {
+            return serviceOverride;
+        }
+
+        @Override
+        public String getName() {
+            return onDevice ? "on_device" : "speech_recognizer";
+        }
+
+        @Override
+        public boolean isAvailable() {
+            if (onDevice) {
+                return Build.VERSION.SDK_INT >= 31 && SpeechRecognizer.isOnDeviceRecognitionAvailable(context);
+            }
+            return SpeechRecognizer.isRecognitionAvailable(context);
+        }
+
+        @Override
+        public RecognizerBackend create(Listener listener) {
+            SpeechRecognizer recognizer;
+            if (onDevice) {
+                recognizer = SpeechRecognizer.createOnDeviceSpeechRecognizer(context);
+            } else if (serviceOverride != null) {
+                recognizer = SpeechRecognizer.createSpeechRecognizer(context, serviceOverride);
+            } else {
+                recognizer = SpeechRecognizer.createSpeechRecognizer(context);
+            }
+            return new SpeechRecognizerBackend(recognizer, context.getPackageName(), listener);
+        }
+    }
+
+    private final SpeechRecognizer recognizer;
+    private final String callingPackage;
+
+    private SpeechRecognizerBackend(SpeechRecognizer recognizer, String callingPackage, final Listener listener) {
+        this.recognizer = recognizer;
+        this.callingPackage = callingPackage;
+        recognizer.setRecognitionListener(new RecognitionListener() {
+            @Override
+            public void onReadyForSpeech(Bundle params) {
+                listener.onReadyForSpeech();
+            }
+
+            @Override
+            public void onBeginningOfSpeech() {
+                listener.onBeginningOfSpeech();
+            }
+
+            @Override
+            public void onRmsChanged(float rmsdB) {
+                listener.onRmsChanged(rmsdB);
+            }
+
+            @Override
+            public void onBufferReceived(byte[] buffer) {
+                // not used
+            }
+
+            @Override
+            public void onEndOfSpeech() {
+                listener.onEndOfSpeech();
+            }
+
+            @Override
+            public void onError(int error) {
+                listener.onError(error);
+            }
+
+            @Override
+            public void onResults(Bundle results) {
+                ArrayList<String> matches = results != null
+                        ? results.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION) : null;
+                float[] confidences = results != null
+                        ? results.getFloatArray(SpeechRecognizer.CONFIDENCE_SCORES) : null;
+                listener.onResults(matches, confidences);
+            }
+
+            @Override
+            public void onPartialResults(Bundle partialResults) {
+                ArrayList<String> partial = partialResults != null
+                        ? partialResults.getStringArrayList(SpeechRecognizer.RESULTS_RECOGNITION) : null;
+                if (partial != null) {
+                    listener.onPartialResults(partial);
+                }
+            }
+
+            @Override
+            public void onEvent(int eventType, Bundle params) {
+                // not used
+            }
+        });
+    }
+
+    static Intent toIntent(Request request, String callingPackage) {
+        Intent intent = new Intent(RecognizerIntent.ACTION_RECOGNIZE_SPEECH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_MODEL,
+                RecognizerIntent.LANGUAGE_MODEL_WEB_SEARCH);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE, request.language);
+        intent.putExtra(RecognizerIntent.EXTRA_LANGUAGE_PREFERENCE, request.language);
+        intent.putExtra(RecognizerIntent.EXTRA_ONLY_RETURN_LANGUAGE_PREFERENCE, request.language);
+        intent.putExtra(RecognizerIntent.EXTRA_CALLING_PACKAGE, callingPackage);
+        intent.putExtra(RecognizerIntent.EXTRA_MAX_RESULTS, request.maxResults);
+        intent.putExtra(RecognizerIntent.EXTRA_PARTIAL_RESULTS, request.partialResults);
+        intent.putExtra(RecognizerIntent.EXTRA_PREFER_OFFLINE, request.preferOffline);
+        intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_COMPLETE_SILENCE_LENGTH_MILLIS, request.completeSilenceMs);
+        intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_POSSIBLY_COMPLETE_SILENCE_LENGTH_MILLIS, request.possiblyCompleteSilenceMs);
+        intent.putExtra(RecognizerIntent.EXTRA_SPEECH_INPUT_MINIMUM_LENGTH_MILLIS, request.minimumLengthMs);
+        return intent;
+    }
+
+    @Override
+    public void startListening(Request request) {
+        recognizer.startListening(toIntent(request, callingPackage));
+    }
+
+    @Override
+    public void stopListening() {
+        recognizer.stopListening();
+    }
+
+    @Override
+    public void cancel() {
+        recognizer.cancel();
+    }
+
+    @Override
+    public void destroy() {
+        recognizer.destroy();
+    }
+}
@@ -0,0 +1,80 @@
+package com.limetuna.speech;
+
+/**
+ * Immutable endpointing thresholds for one attempt. Pure Java so the trace
+ * replay harness can build and tune these without Android.
+ */
+final class ThresholdConfig {
+
+    // Debug-only speech indicator thresholds. Keep these in sync with
+    // www/js/letters.js so we can retune or remove the indicator together.
+    // RMS_VOICE_TRIGGER_DB: first RMS level we count as "speech started" for
+    // timing indicator purposes (not an ASR gate).
+    static final float RMS_VOICE_TRIGGER_DB = -2.0f;
+
+    // Start gating is disabled: begin tracking speech immediately and rely only on the end threshold.
+    static final float RMS_START_THRESHOLD_DB = -1000f;
+    static final float RMS_END_THRESHOLD_DB = 2.5f;
+    static final float RMS_RESUME_DELTA_DB = 0.6f;
+    static final long POST_SILENCE_MS = 800L;
+    static final long MIN_POST_SILENCE_MS = 450L;
+    static final long MAX_UTTERANCE_MS = 3800L;
+    static final int RMS_SMOOTH_TAIL_SAMPLES = 8;
+    static final long SILENCE_HOLD_MS = 340L;
+
+    final float rmsStartThresholdDb;
+    final float rmsEndThresholdDb;
+    final float rmsResumeDeltaDb;
+    final long postSilenceMs;
+    final long minPostSilenceMs;
+    final long maxUtteranceMs;
+    final float rmsVoiceTriggerDb;
+    final int rmsSmoothTailSamples;
+    final long silenceHoldMs;
+
+    ThresholdConfig(float rmsStartThresholdDb,
+                    float rmsEndThresholdDb,
+                    float rmsResumeDeltaDb,
+                    long postSilenceMs,
+                    long minPostSilenceMs,
+                    long maxUtteranceMs,
+                    float rmsVoiceTriggerDb,
+                    int rmsSmoothTailSamples,
+                    long silenceHoldMs) {
+        this.rmsStartThresholdDb = rmsStartThresholdDb;
+        this.rmsEndThresholdDb = rmsEndThresholdDb;
+        this.rmsResumeDeltaDb = rmsResumeDeltaDb;
+        this.postSilenceMs = postSilenceMs;
+        this.minPostSilenceMs = minPostSilenceMs;
+        this.maxUtteranceMs = maxUtteranceMs;
+        this.rmsVoiceTriggerDb = rmsVoiceTriggerDb;
+        this.rmsSmoothTailSamples = rmsSmoothTailSamples;
+        this.silenceHoldMs = silenceHoldMs;
+    }
+
+    static ThresholdConfig defaults() {
+        return new ThresholdConfig(
+                RMS_START_THRESHOLD_DB,
+                RMS_END_THRESHOLD_DB,
+                RMS_RESUME_DELTA_DB,
+                POST_SILENCE_MS,
+                MIN_POST_SILENCE_MS,
+                MAX_UTTERANCE_MS,
+                RMS_VOICE_TRIGGER_DB,
+                RMS_SMOOTH_TAIL_SAMPLES,
+                SILENCE_HOLD_MS
+        );
+    }
+
+    @Override
+    public String toString() {
+        return "start=" + rmsStartThresholdDb +
+                " end=" + rmsEndThresholdDb +
+                " resumeDelta=" + rmsResumeDeltaDb +
+                " postSilenceMs=" + postSilenceMs +
+                " minPostSilenceMs=" + minPostSilenceMs +
+                " maxUtteranceMs=" + maxUtteranceMs +
+                " silenceHoldMs=" + silenceHoldMs +
+                " smoothTail=" + rmsSmoothTailSamples;
+    }
+}
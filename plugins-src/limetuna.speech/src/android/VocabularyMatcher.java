@@ -0,0 +1,432 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable keyword matcher for vocabularies registered from JS
+ * (registerVocabulary). Same acceptance rules as isAnimalMatch in
+ * www/js/animals.js: a candidate matches a keyword when it contains it, or
+ * when the whole candidate or any of its words is within edit distance 1
+ * (keywords up to 4 letters) or 2 (longer keywords).
+ *
+ * Keywords are normalized once at registration and pre-compiled into Myers
+ * bit-vector pattern masks, so each distance check is one pass over the
+ * text with a few word ops per character and bails out as soon as the
+ * tolerance can no longer be met. Matching does not allocate apart from
+ * normalizing the recognizer phrases.
+ *
+ * When no target matches by text, each candidate word (and each pair of
+ * adjacent words) is looked up by its {@link Metaphone} key in an index
+ * built at registration, so "bare" still finds Bear. A key shared by
+ * several targets only resolves to the preferred one, and keys under
+ * {@link #MIN_PHONETIC_KEY_LENGTH} are not indexed: short keywords are
+ * already covered by the edit distance. {@link Match#strategy} says which
+ * rule matched. This pass runs only after every text rule failed and
+ * allocates one key per word.
+ */
+final class VocabularyMatcher {
+
+    /** Myers' bit vectors fit one machine word; longer keywords use a banded DP row. */
+    static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    // Normalized text alphabet: a-z and space.
+    private static final int ALPHABET = 27;
+
+    /** Phonetic keys shorter than this ("B" for bee, "K" for cow) are not indexed. */
+    static final int MIN_PHONETIC_KEY_LENGTH = 2;
+
+    /** The candidate, or one of its words, is the keyword. */
+    static final String STRATEGY_EXACT = "exact";
+    /** The candidate contains the keyword. */
+    static final String STRATEGY_SUBSTRING = "substring";
+    /** The candidate or one of its words is within the keyword's edit distance. */
+    static final String STRATEGY_EDIT_DISTANCE = "edit_distance";
+    /** Same {@link Metaphone} key as the keyword. */
+    static final String STRATEGY_PHONETIC = "phonetic";
+
+    /** Result of a successful match; null is returned when nothing matched. */
+    static final class Match {
+        final String targetId;
+        final String keyword;
+        /** Edit distance to the keyword; -1 for a phonetic match. */
+        final int distance;
+        final String strategy;
+
+        Match(String targetId, String keyword, int distance, String strategy) {
+            this.targetId = targetId;
+            this.keyword = keyword;
+            this.distance = distance;
+            this.strategy = strategy;
+        }
+    }
+
+    private static final class Keyword {
+        final String text;
+        final int tolerance;
+        final long[] peq;
+        final long highBit;
+
+        Keyword(String text) {
+            this.text = text;
+            this.tolerance = text.length() <= 4 ? 1 : 2;
+            if (text.length() <= MAX_BIT_PARALLEL_LENGTH) {
+                peq = new long[ALPHABET];
+                for (int i = 0; i < text.length(); i++) {
+                    peq[charIndex(text.charAt(i))] |= 1L << i;
+                }
+                highBit = 1L << (text.length() - 1);
+            } else {
+                peq = null;
+                highBit = 0L;
+            }
+        }
+    }
+
+    private static final class Target {
+        final String id;
+        final Keyword[] keywords;
+
+        Target(String id, Keyword[] keywords) {
+            this.id = id;
+            this.keywords = keywords;
+        }
+    }
+
+    /** One target under a phonetic key, with the first of its keywords that has the key. */
+    private static final class PhoneticEntry {
+        final Target target;
+        final Keyword keyword;
+
+        PhoneticEntry(Target target, Keyword keyword) {
+            this.target = target;
+            this.keyword = keyword;
+        }
+    }
+
+    private final Target[] targets;
+    private final Map<String, Target> targetsById;
+    private final int keywordCount;
+    private final Map<String, PhoneticEntry[]> phoneticIndex;
+
+    /**
+     * @param keywordsById target id -> raw keywords, in registration order.
+     *                     Keywords that normalize to "" are dropped.
+     */
+    VocabularyMatcher(Map<String, List<String>> keywordsById) {
+        List<Target> list = new ArrayList<>(keywordsById.size());
+        Map<String, Target> byId = new HashMap<>();
+        int count = 0;
+        for (Map.Entry<String, List<String>> entry : keywordsById.entrySet()) {
+            List<Keyword> compiled = new ArrayList<>();
+            for (String raw : entry.getValue()) {
+                String norm = normalize(raw);
+                if (!norm.isEmpty()) {
+                    compiled.add(new Keyword(norm));
+                }
+            }
+            Target target = new Target(entry.getKey(), compiled.toArray(new Keyword[0]));
+            list.add(target);
+            byId.put(target.id, target);
+            count += target.keywords.length;
+        }
+        this.targets = list.toArray(new Target[0]);
+        this.targetsById = byId;
+        this.keywordCount = count;
+        this.phoneticIndex = buildPhoneticIndex(this.targets);
+    }
+
+    private static Map<String, PhoneticEntry[]> buildPhoneticIndex(Target[] targets) {
+        Map<String, List<PhoneticEntry>> buckets = new HashMap<>();
+        for (Target target : targets) {
+            for (Keyword keyword : target.keywords) {
+                String key = Metaphone.encode(keyword.text);
+                if (key.length() < MIN_PHONETIC_KEY_LENGTH) {
+                    continue;
+                }
+                List<PhoneticEntry> bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new ArrayList<>(1);
+                    buckets.put(key, bucket);
+                }
+                boolean present = false;
+                for (PhoneticEntry entry : bucket) {
+                    present |= entry.target == target;
+                }
+                if (!present) {
+                    bucket.add(new PhoneticEntry(target, keyword));
+                }
+            }
+        }
+        Map<String, PhoneticEntry[]> index = new HashMap<>(buckets.size() * 2);
+        for (Map.Entry<String, List<PhoneticEntry>> e : buckets.entrySet()) {
+            index.put(e.getKey(), e.getValue().toArray(new PhoneticEntry[0]));
+        }
+        return index;
+    }
+
+    int getTargetCount() {
+        return targets.length;
+    }
+
+    int getKeywordCount() {
+        return keywordCount;
+    }
+
+    int getPhoneticKeyCount() {
+        return phoneticIndex.size();
+    }
+
+    /** Ids of the targets with a keyword under this phonetic key, in registration order. */
+    List<String> phoneticCandidates(String key) {
+        PhoneticEntry[] entries = phoneticIndex.get(key);
+        List<String> ids = new ArrayList<>(entries != null ? entries.length : 0);
+        if (entries != null) {
+            for (PhoneticEntry entry : entries) {
+                ids.add(entry.target.id);
+            }
+        }
+        return ids;
+    }
+
+    boolean hasTarget(String id) {
+        return id != null && targetsById.containsKey(id);
+    }
+
+    /**
+     * Finds the registered target the phrases refer to. {@code preferredId}
+     * (usually the prompted target) is tried first so a hit on it is never
+     * shadowed by an earlier-registered target; the rest are tried in
+     * registration order. A text match on any target beats a phonetic one.
+     */
+    Match match(List<String> phrases, String preferredId) {
+        if (phrases == null || phrases.isEmpty() || targets.length == 0) {
+            return null;
+        }
+        String[] normalized = new String[phrases.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = normalize(phrases.get(i));
+        }
+
+        Target preferred = preferredId != null ? targetsById.get(preferredId) : null;
+        if (preferred != null) {
+            Match m = matchTarget(preferred, normalized);
+            if (m != null) return m;
+        }
+        for (Target target : targets) {
+            if (target == preferred) continue;
+            Match m = matchTarget(target, normalized);
+            if (m != null) return m;
+        }
+        return matchPhonetic(normalized, preferred, false);
+    }
+
+    /** The phrases against target {@code id} alone; null if they don't match or the id is unknown. */
+    Match matchId(List<String> phrases, String id) {
+        Target target = id != null ? targetsById.get(id) : null;
+        if (target == null || phrases == null) {
+            return null;
+        }
+        String[] normalized = new String[phrases.size()];
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] = normalize(phrases.get(i));
+        }
+        Match m = matchTarget(target, normalized);
+        return m != null ? m : matchPhonetic(normalized, target, true);
+    }
+
+    /** True when the phrases match target {@code id}; false for unknown ids. */
+    boolean matches(List<String> phrases, String id) {
+        return matchId(phrases, id) != null;
+    }
+
+    /**
+     * Looks up each word and adjacent word pair of each candidate by
+     * phonetic key. A key naming {@code preferred} wins at once; otherwise
+     * the first key naming a single target, unless {@code preferredOnly}.
+     */
+    private Match matchPhonetic(String[] candidates, Target preferred, boolean preferredOnly) {
+        if (phoneticIndex.isEmpty()) {
+            return null;
+        }
+        PhoneticEntry fallback = null;
+        for (String candidate : candidates) {
+            int start = 0;
+            int prevStart = -1;
+            while (start < candidate.length()) {
+                int end = candidate.indexOf(' ', start);
+                if (end < 0) end = candidate.length();
+                PhoneticEntry[] word = phoneticIndex.get(Metaphone.encode(candidate, start, end));
+                // Joined with the word before it: "lady bag", or a keyword the recognizer split.
+                PhoneticEntry[] pair = prevStart >= 0
+                        ? phoneticIndex.get(Metaphone.encode(candidate, prevStart, end)) : null;
+                PhoneticEntry hit = entryFor(word, preferred);
+                if (hit == null) {
+                    hit = entryFor(pair, preferred);
+                }
+                if (hit != null) {
+                    return new Match(hit.target.id, hit.keyword.text, -1, STRATEGY_PHONETIC);
+                }
+                if (fallback == null && !preferredOnly) {
+                    fallback = word != null && word.length == 1 ? word[0]
+                            : (pair != null && pair.length == 1 ? pair[0] : null);
+                }
+                prevStart = start;
+                start = end + 1;
+            }
+        }
+        return fallback != null
+                ? new Match(fallback.target.id, fallback.keyword.text, -1, STRATEGY_PHONETIC) : null;
+    }
+
+    private static PhoneticEntry entryFor(PhoneticEntry[] entries, Target target) {
+        if (entries != null && target != null) {
+            for (PhoneticEntry entry : entries) {
+                if (entry.target == target) {
+                    return entry;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Match matchTarget(Target target, String[] candidates) {
+        for (String candidate : candidates) {
+            if (candidate.isEmpty()) continue;
+            for (Keyword keyword : target.keywords) {
+                // Covers the exact, startsWith and whole-word checks in JS.
+                int at = candidate.indexOf(keyword.text);
+                if (at >= 0) {
+                    int end = at + keyword.text.length();
+                    boolean word = (at == 0 || candidate.charAt(at - 1) == ' ')
+                            && (end == candidate.length() || candidate.charAt(end) == ' ');
+                    return new Match(target.id, keyword.text, 0, word ? STRATEGY_EXACT : STRATEGY_SUBSTRING);
+                }
+                int d = boundedDistance(keyword, candidate, 0, candidate.length());
+                if (d >= 0) {
+                    return new Match(target.id, keyword.text, d, STRATEGY_EDIT_DISTANCE);
+                }
+                int start = 0;
+                while (start < candidate.length()) {
+                    int end = candidate.indexOf(' ', start);
+                    if (end < 0) end = candidate.length();
+                    d = boundedDistance(keyword, candidate, start, end);
+                    if (d >= 0) {
+                        return new Match(target.id, keyword.text, d, STRATEGY_EDIT_DISTANCE);
+                    }
+                    start = end + 1;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Levenshtein distance between the keyword and {@code text[start, end)}
+     * if it is within the keyword's tolerance, otherwise -1.
+     */
+    private static int boundedDistance(Keyword keyword, String text, int start, int end) {
+        int m = keyword.text.length();
+        int n = end - start;
+        int k = keyword.tolerance;
+        if (Math.abs(m - n) > k) {
+            return -1;
+        }
+        if (keyword.peq == null) {
+            return boundedDistanceDp(keyword.text, text, start, end, k);
+        }
+
+        // Myers (1999) / Hyyro global variant: column j of the DP matrix is
+        // encoded as vertical +1/-1 deltas in Pv/Mv; score tracks D[m][j].
+        long pv = -1L;
+        long mv = 0L;
+        int score = m;
+        for (int j = start; j < end; j++) {
+            int idx = charIndex(text.charAt(j));
+            long eq = idx >= 0 ? keyword.peq[idx] : 0L;
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & keyword.highBit) != 0) {
+                score++;
+            } else if ((mh & keyword.highBit) != 0) {
+                score--;
+            }
+            // Row 0 is D[0][j] = j, so a +1 horizontal delta is shifted in.
+            ph = (ph << 1) | 1L;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+            // The remaining characters can lower the score by at most one each.
+            if (score - (end - j - 1) > k) {
+                return -1;
+            }
+        }
+        return score <= k ? score : -1;
+    }
+
+    /** Two-row DP restricted to the diagonal band of width k; for keywords over 64 chars. */
+    private static int boundedDistanceDp(String a, String text, int start, int end, int k) {
+        int n = end - start;
+        int[] prev = new int[n + 1];
+        int[] cur = new int[n + 1];
+        int big = k + 1;
+        for (int j = 0; j <= n; j++) {
+            prev[j] = j <= k ? j : big;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int lo = Math.max(1, i - k);
+            int hi = Math.min(n, i + k);
+            cur[0] = i <= k ? i : big;
+            if (lo > 1) cur[lo - 1] = big;
+            int rowMin = cur[0];
+            char ac = a.charAt(i - 1);
+            for (int j = lo; j <= hi; j++) {
+                int cost = ac == text.charAt(start + j - 1) ? 0 : 1;
+                int v = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                cur[j] = Math.min(v, big);
+                if (cur[j] < rowMin) rowMin = cur[j];
+            }
+            if (hi < n) cur[hi + 1] = big;
+            if (rowMin > k) {
+                return -1;
+            }
+            int[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[n] <= k ? prev[n] : -1;
+    }
+
+    private static int charIndex(char c) {
+        if (c >= 'a' && c <= 'z') return c - 'a';
+        if (c == ' ') return 26;
+        return -1;
+    }
+
+    /** Same output as normalizeText() in www/js/animals.js. */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c >= 'a' && c <= 'z') {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(c);
+            } else {
+                // Unlike the letter scorer, animals.js replaces symbols with spaces.
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.limetuna.speech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Exercises {@link AttemptJournal} in a temp directory: field round trip,
+ * rotation keeping the newest records within the size bound, recovery from a
+ * frame torn by a crash, export() matching the files, then times append().
+ * Exits non-zero on any failure.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.AttemptJournalCheck [--records=N] [--maxKb=N]
+ */
+final class AttemptJournalCheck {
+
+    private static int failures = 0;
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            failures++;
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static AttemptJournal.Record record(Random random, long id) {
+        AttemptTiming t = new AttemptTiming();
+        t.attemptId = id;
+        t.expectedLetter = id % 5 == 0 ? "\u00dc" : "B";
+        t.engineStart = AttemptTiming.START_WARM;
+        t.engineBackend = "scripted";
+        long base = 10_000L + id * 5_000L;
+        t.nativeReceivedMs = base;
+        t.nativeStartListeningMs = base + 3;
+        t.nativeReadyForSpeechMs = base + 90 + random.nextInt(80);
+        t.nativeRmsSpeechStartMs = t.nativeReadyForSpeechMs + 300;
+        t.nativeRmsSpeechEndMs = t.nativeRmsSpeechStartMs + 400;
+        t.nativePostSilenceCommitMs = id % 2 == 0 ? t.nativeRmsSpeechEndMs + 600 : 0L;
+        t.nativeResultsMs = t.nativeRmsSpeechEndMs + 700 + random.nextInt(400);
+        t.nativeCallbackSentMs = t.nativeResultsMs + 2;
+        float[] tail = new float[RmsStats.MAX_RECENT_SAMPLES];
+        for (int i = 0; i < tail.length; i++) {
+            tail[i] = -2f + random.nextFloat() * 9f;
+        }
+        return AttemptJournal.Record.of(t, id % 7 == 0 ? "NO_MATCH" : null, ThresholdConfig.defaults(),
+                -1.5f, 2.5f, 800L, tail, 1_700_000_000_000L + id);
+    }
+
+    private static void checkSame(AttemptJournal.Record a, AttemptJournal.Record b) {
+        String what = "record " + a.attemptId;
+        check(a.attemptId == b.attemptId, what + " attemptId");
+        check(a.wallClockMs == b.wallClockMs, what + " wallClockMs");
+        check(a.commitReason == b.commitReason && a.outcome == b.outcome, what + " commit/outcome");
+        check(eq(a.errorCode, b.errorCode) && eq(a.expectedLetter, b.expectedLetter)
+                && eq(a.engineStart, b.engineStart) && eq(a.engineBackend, b.engineBackend)
+                && eq(a.vadCapture, b.vadCapture), what + " strings");
+        check(java.util.Arrays.equals(a.raw, b.raw), what + " raw timestamps");
+        check(java.util.Arrays.equals(a.rmsTail, b.rmsTail), what + " rms tail");
+        check(a.thresholds.toString().equals(b.thresholds.toString()), what + " thresholds");
+        check(a.baselineDb == b.baselineDb && a.endThresholdDb == b.endThresholdDb
+                && a.postSilenceDelayMs == b.postSilenceDelayMs, what + " computed thresholds");
+    }
+
+    private static boolean eq(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static long dirBytes(File dir) {
+        long total = 0L;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) total += f.length();
+        }
+        return total;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        dir.delete();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = 5000;
+        long maxKb = 64;
+        for (String arg : args) {
+            if (arg.startsWith("--records=")) {
+                count = Integer.parseInt(arg.substring("--records=".length()));
+            } else if (arg.startsWith("--maxKb=")) {
+                maxKb = Long.parseLong(arg.substring("--maxKb=".length()));
+            } else {
+                System.err.println("usage: AttemptJournalCheck [--records=N] [--maxKb=N]");
+                System.exit(2);
+            }
+        }
+
+        File dir = Files.createTempDirectory("ltj").toFile();
+        try {
+            Random random = new Random(3);
+            AttemptJournal.Record[] written = new AttemptJournal.Record[count];
+            AttemptJournal journal = new AttemptJournal(dir, maxKb * 1024L);
+            long t0 = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                written[i] = record(random, i + 1);
+                journal.append(written[i]);
+            }
+            long appendNs = System.nanoTime() - t0;
+            journal.close();
+
+            // Rotation: bounded on disk, newest records kept, in order.
+            long bytes = dirBytes(dir);
+            check(bytes <= 2 * journal.getMaxFileBytes(),
+                    "journal uses " + bytes + " bytes, bound " + 2 * journal.getMaxFileBytes());
+            List<AttemptJournal.Record> read = AttemptJournal.readDirectory(dir);
+            check(!read.isEmpty(), "nothing read back");
+            int offset = count - read.size();
+            for (int i = 0; i < read.size(); i++) {
+                checkSame(written[offset + i], read.get(i));
+            }
+            System.out.println(String.format(Locale.US,
+                    "rotation: %d appended, %d rotations, %d kept (%d bytes on disk, %.0f bytes/record)",
+                    count, journal.getRotationCount(), read.size(), bytes, (double) bytes / read.size()));
+
+            // export() is the same records as the files.
+            journal = new AttemptJournal(dir, maxKb * 1024L);
+            List<AttemptJournal.Record> exported = AttemptJournal.read(journal.export());
+            check(exported.size() == read.size(), "export has " + exported.size() + " records, files " + read.size());
+
+            // Crash mid-write: chop the last frame in half, reopen, append.
+            File current = new File(dir, AttemptJournal.CURRENT_NAME);
+            try (RandomAccessFile raf = new RandomAccessFile(current, "rw")) {
+                raf.setLength(raf.length() - 37);
+            }
+            int survivors = AttemptJournal.readDirectory(dir).size();
+            check(survivors == read.size() - 1, "torn tail: " + survivors + " readable, expected " + (read.size() - 1));
+            AttemptJournal.Record extra = record(random, count + 1);
+            journal.append(extra);
+            journal.close();
+            List<AttemptJournal.Record> after = AttemptJournal.readDirectory(dir);
+            check(after.size() == survivors + 1, "after recovery " + after.size() + " records, expected " + (survivors + 1));
+            if (!after.isEmpty()) {
+                checkSame(extra, after.get(after.size() - 1));
+            }
+            System.out.println("torn tail: recovered, " + after.size() + " records readable");
+
+            // A lowered bound (init journalMaxKb) applies to the live instance on its next append.
+            journal = new AttemptJournal(dir, maxKb * 1024L);
+            journal.setMaxFileBytes(AttemptJournal.MIN_MAX_FILE_BYTES);
+            journal.append(record(random, count + 2));
+            journal.close();
+            check(current.length() <= AttemptJournal.MIN_MAX_FILE_BYTES,
+                    "after lowering the bound current file is " + current.length() + " bytes");
+
+            // onDestroy closes while appends may still be queued on the pool: they must not reopen it.
+            int beforeLate = AttemptJournal.readDirectory(dir).size();
+            journal.append(record(random, count + 3));
+            check(AttemptJournal.readDirectory(dir).size() == beforeLate, "append after close() was written");
+
+            journal.clear();
+            check(AttemptJournal.readDirectory(dir).isEmpty(), "clear left records behind");
+
+            System.out.println(String.format(Locale.US, "host: %.1f us/append (buffered channel, no fsync)",
+                    appendNs / 1e3 / count));
+        } finally {
+            deleteDir(dir);
+        }
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
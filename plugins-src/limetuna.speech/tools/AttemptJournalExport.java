@@ -0,0 +1,200 @@
+package com.limetuna.speech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns an attempt journal into CSV (one row per attempt) or JSON lines.
+ * Accepts a journal file, the ArrayBuffer from exportJournal() saved to disk,
+ * or the journal directory pulled from the device (rotated file first):
+ *
+ *   adb exec-out run-as <app id> tar c files/limetuna_journal | tar x
+ *
+ * Durations are recomputed from the raw timestamps with the same
+ * AttemptTiming helpers the plugin uses for native_durations.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.AttemptJournalExport [--format=csv|json] path...
+ */
+final class AttemptJournalExport {
+
+    private static List<AttemptJournal.Record> load(String path) throws IOException {
+        File f = new File(path);
+        if (f.isDirectory()) {
+            return AttemptJournal.readDirectory(f);
+        }
+        return AttemptJournal.read(Files.readAllBytes(f.toPath()));
+    }
+
+    private static String commitName(int commit) {
+        return commit >= 0 && commit < AttemptMetrics.COMMIT_KEYS.length
+                ? AttemptMetrics.COMMIT_KEYS[commit] : String.valueOf(commit);
+    }
+
+    private static String outcomeName(int outcome) {
+        return outcome >= 0 && outcome < AttemptMetrics.OUTCOME_KEYS.length
+                ? AttemptMetrics.OUTCOME_KEYS[outcome] : String.valueOf(outcome);
+    }
+
+    private static String num(float value) {
+        return Float.isNaN(value) ? "" : String.format(Locale.US, "%.2f", value);
+    }
+
+    private static String csvText(String s) {
+        if (s == null) return "";
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s;
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonText(String s) {
+        if (s == null) return "null";
+        StringBuilder out = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"').toString();
+    }
+
+    private static String jsonNum(float value) {
+        return Float.isNaN(value) || Float.isInfinite(value) ? "null" : num(value);
+    }
+
+    private static void writeCsv(List<AttemptJournal.Record> records, PrintStream out) {
+        StringBuilder header = new StringBuilder(
+                "attempt_id,wall_clock_ms,outcome,commit,error_code,expected,engine_start,engine_backend,vad_capture");
+        for (String key : AttemptTiming.RAW_KEYS) {
+            header.append(',').append(key);
+        }
+        for (String key : AttemptMetrics.STAGE_KEYS) {
+            header.append(',').append(key);
+        }
+        header.append(",cfg_end_threshold_db,cfg_post_silence_ms,cfg_min_post_silence_ms,cfg_max_utterance_ms"
+                + ",baseline_db,end_threshold_db,post_silence_delay_ms,rms_tail");
+        out.println(header);
+
+        for (AttemptJournal.Record r : records) {
+            AttemptTiming timing = r.toTiming();
+            StringBuilder row = new StringBuilder();
+            row.append(r.attemptId).append(',').append(r.wallClockMs)
+                    .append(',').append(outcomeName(r.outcome))
+                    .append(',').append(commitName(r.commitReason))
+                    .append(',').append(csvText(r.errorCode))
+                    .append(',').append(csvText(r.expectedLetter))
+                    .append(',').append(csvText(r.engineStart))
+                    .append(',').append(csvText(r.engineBackend))
+                    .append(',').append(csvText(r.vadCapture));
+            for (int i = 0; i < AttemptTiming.RAW_KEYS.length; i++) {
+                long v = timing.rawValue(i);
+                row.append(',').append(v > 0 ? String.valueOf(v) : "");
+            }
+            for (int i = 0; i < AttemptMetrics.STAGE_KEYS.length; i++) {
+                long v = AttemptMetrics.stageValue(timing, i);
+                row.append(',').append(v >= 0 ? String.valueOf(v) : "");
+            }
+            row.append(',').append(num(r.thresholds.rmsEndThresholdDb))
+                    .append(',').append(r.thresholds.postSilenceMs)
+                    .append(',').append(r.thresholds.minPostSilenceMs)
+                    .append(',').append(r.thresholds.maxUtteranceMs)
+                    .append(',').append(num(r.baselineDb))
+                    .append(',').append(num(r.endThresholdDb))
+                    .append(',').append(r.postSilenceDelayMs)
+                    .append(',');
+            for (int i = 0; i < r.rmsTail.length; i++) {
+                if (i > 0) row.append(' ');
+                row.append(num(r.rmsTail[i]));
+            }
+            out.println(row);
+        }
+    }
+
+    private static void writeJson(List<AttemptJournal.Record> records, PrintStream out) {
+        for (AttemptJournal.Record r : records) {
+            AttemptTiming timing = r.toTiming();
+            StringBuilder line = new StringBuilder("{");
+            line.append("\"attempt_id\":").append(r.attemptId)
+                    .append(",\"wall_clock_ms\":").append(r.wallClockMs)
+                    .append(",\"outcome\":").append(jsonText(outcomeName(r.outcome)))
+                    .append(",\"commit\":").append(jsonText(commitName(r.commitReason)))
+                    .append(",\"error_code\":").append(jsonText(r.errorCode))
+                    .append(",\"expected\":").append(jsonText(r.expectedLetter))
+                    .append(",\"engine_start\":").append(jsonText(r.engineStart))
+                    .append(",\"engine_backend\":").append(jsonText(r.engineBackend))
+                    .append(",\"vad_capture\":").append(jsonText(r.vadCapture));
+            line.append(",\"native_raw\":{");
+            boolean first = true;
+            for (int i = 0; i < AttemptTiming.RAW_KEYS.length; i++) {
+                long v = timing.rawValue(i);
+                if (v <= 0) continue;
+                line.append(first ? "" : ",").append('"').append(AttemptTiming.RAW_KEYS[i]).append("\":").append(v);
+                first = false;
+            }
+            line.append("},\"native_durations\":{");
+            first = true;
+            for (int i = 0; i < AttemptMetrics.STAGE_KEYS.length; i++) {
+                long v = AttemptMetrics.stageValue(timing, i);
+                if (v < 0) continue;
+                line.append(first ? "" : ",").append('"').append(AttemptMetrics.STAGE_KEYS[i]).append("\":").append(v);
+                first = false;
+            }
+            ThresholdConfig t = r.thresholds;
+            line.append("},\"config\":{")
+                    .append("\"rms_start_threshold_db\":").append(jsonNum(t.rmsStartThresholdDb))
+                    .append(",\"rms_end_threshold_db\":").append(jsonNum(t.rmsEndThresholdDb))
+                    .append(",\"rms_resume_delta_db\":").append(jsonNum(t.rmsResumeDeltaDb))
+                    .append(",\"post_silence_ms\":").append(t.postSilenceMs)
+                    .append(",\"min_post_silence_ms\":").append(t.minPostSilenceMs)
+                    .append(",\"max_utterance_ms\":").append(t.maxUtteranceMs)
+                    .append(",\"rms_voice_trigger_db\":").append(jsonNum(t.rmsVoiceTriggerDb))
+                    .append(",\"rms_smooth_tail_samples\":").append(t.rmsSmoothTailSamples)
+                    .append(",\"silence_hold_ms\":").append(t.silenceHoldMs)
+                    .append("},\"baseline_db\":").append(jsonNum(r.baselineDb))
+                    .append(",\"end_threshold_db\":").append(jsonNum(r.endThresholdDb))
+                    .append(",\"post_silence_delay_ms\":").append(r.postSilenceDelayMs)
+                    .append(",\"rms_tail\":[");
+            for (int i = 0; i < r.rmsTail.length; i++) {
+                line.append(i > 0 ? "," : "").append(jsonNum(r.rmsTail[i]));
+            }
+            out.println(line.append("]}"));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String format = "csv";
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--format=")) {
+                format = arg.substring("--format=".length());
+            } else {
+                paths.add(arg);
+            }
+        }
+        if (paths.isEmpty() || !(format.equals("csv") || format.equals("json"))) {
+            System.err.println("usage: AttemptJournalExport [--format=csv|json] journal-file-or-dir...");
+            System.exit(2);
+        }
+
+        List<AttemptJournal.Record> records = new ArrayList<>();
+        for (String path : paths) {
+            records.addAll(load(path));
+        }
+        if (format.equals("json")) {
+            writeJson(records, System.out);
+        } else {
+            writeCsv(records, System.out);
+        }
+        System.err.println("records=" + records.size());
+    }
+}
@@ -0,0 +1,294 @@
+package com.limetuna.speech;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Replays each scripted session ({@link ScriptedRecognizerBackend}) through
+ * {@link Endpointer} on a virtual clock twice: the normal path (post-silence
+ * commit, then the engine's final result) and with {@link EarlyCommitPolicy}
+ * enabled, as LimeTunaSpeech runs them. The expected target of a session is
+ * what its normal-path answer scored as (the child said the right thing)
+ * unless --expect names it, so this measures the correct-answer case the
+ * option exists for.
+ *
+ * Per session it prints when each path answered, the time saved, and whether
+ * the early answer agrees with the final one. Each session is then replayed
+ * once more with a wrong expected target; an early commit there breaks the
+ * policy's contract and fails the run.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.EarlyCommitReplay [--minScore=4] [--maxDistance=0]
+ *       [--stablePartials=1] [--vocab=id=keyword|keyword,...]
+ *       [--expect=session=target,...] script...
+ *
+ * With --vocab the targets are registered vocabulary ids (as in the animals
+ * game) instead of letters.
+ */
+final class EarlyCommitReplay {
+
+    /** How one replay ended. */
+    private static final class Answer {
+        long atMs = -1L;
+        List<String> phrases;
+        boolean early;
+        long confidentPartialMs = -1L;
+    }
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        System.out.println("FAIL " + message);
+    }
+
+    private static Answer replay(ScriptedRecognizerBackend.Script script, final EarlyCommitPolicy policy,
+                                 final String expected, final VocabularyMatcher vocabulary) {
+        final VirtualTimer timer = new VirtualTimer(0L);
+        final ThresholdConfig config = ThresholdConfig.defaults();
+        final Answer answer = new Answer();
+        final RecognizerBackend[] backend = new RecognizerBackend[1];
+        final boolean[] stopSent = {false};
+        final List<List<String>> lastPartial = new ArrayList<>();
+        final int[] streak = {0};
+        final Endpointer[] endpointer = new Endpointer[1];
+
+        endpointer[0] = new Endpointer(timer, timer, new Endpointer.Listener() {
+            @Override
+            public void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs) {
+            }
+
+            @Override
+            public void onPostSilenceCommit(long nowMs) {
+                stop();
+            }
+
+            @Override
+            public void onFailSafeCommit(long nowMs) {
+                stop();
+            }
+
+            private void stop() {
+                if (!stopSent[0]) {
+                    stopSent[0] = true;
+                    endpointer[0].stop();
+                    backend[0].stopListening();
+                }
+            }
+        });
+
+        ScriptedRecognizerBackend.Factory factory =
+                new ScriptedRecognizerBackend.Factory(timer, Collections.singletonList(script));
+        backend[0] = factory.create(new RecognizerBackend.Listener() {
+            private void finish(List<String> phrases) {
+                if (answer.atMs < 0) {
+                    answer.atMs = timer.nowMs();
+                    answer.phrases = phrases;
+                    endpointer[0].stop();
+                }
+            }
+
+            @Override
+            public void onReadyForSpeech() {
+            }
+
+            @Override
+            public void onBeginningOfSpeech() {
+                endpointer[0].onBeginningOfSpeech(timer.nowMs());
+            }
+
+            @Override
+            public void onRmsChanged(float rmsdB) {
+                endpointer[0].onRms(rmsdB, timer.nowMs());
+            }
+
+            @Override
+            public void onEndOfSpeech() {
+                endpointer[0].onEndOfSpeech(timer.nowMs());
+            }
+
+            @Override
+            public void onPartialResults(List<String> partial) {
+                if (answer.atMs >= 0 || partial == null || partial.isEmpty()) {
+                    return;
+                }
+                lastPartial.clear();
+                lastPartial.add(partial);
+                endpointer[0].onPartialResults(partial.size());
+                EarlyCommitPolicy.Hit hit = policy.evaluate(partial, expected, vocabulary);
+                if (hit == null) {
+                    streak[0] = 0;
+                    return;
+                }
+                if (answer.confidentPartialMs < 0) {
+                    answer.confidentPartialMs = timer.nowMs();
+                }
+                if (policy.enabled && ++streak[0] >= policy.stablePartials) {
+                    answer.early = true;
+                    backend[0].cancel();
+                    finish(partial);
+                }
+            }
+
+            @Override
+            public void onResults(List<String> matches, float[] confidences) {
+                finish(matches != null && !matches.isEmpty() ? matches
+                        : (lastPartial.isEmpty() ? null : lastPartial.get(0)));
+            }
+
+            @Override
+            public void onError(int error) {
+                boolean fallback = error == RecognizerBackend.ERROR_NO_MATCH && !lastPartial.isEmpty();
+                finish(fallback ? lastPartial.get(0) : null);
+            }
+        });
+
+        AttemptTiming timing = new AttemptTiming();
+        timing.nativeReceivedMs = timer.nowMs();
+        timing.nativeStartListeningMs = timing.nativeReceivedMs;
+        timing.expectedLetter = expected;
+        endpointer[0].begin(timing, config);
+        backend[0].startListening(new RecognizerBackend.Request("en-US", 10, true, false,
+                config.postSilenceMs, Math.max(500L, config.postSilenceMs / 2), 500L));
+        while (answer.atMs < 0) {
+            long due = timer.nextDueMs();
+            if (due < 0) {
+                break;
+            }
+            timer.advanceTo(due);
+        }
+        endpointer[0].reset();
+        backend[0].destroy();
+        return answer;
+    }
+
+    /** The target an answer names: a vocabulary id, else a letter; null if none. */
+    private static String targetOf(List<String> phrases, String expected, VocabularyMatcher vocabulary) {
+        if (phrases == null) {
+            return null;
+        }
+        if (vocabulary != null) {
+            VocabularyMatcher.Match match = vocabulary.match(phrases, expected);
+            return match != null ? match.targetId : null;
+        }
+        return LetterScorer.get().choose(phrases, expected).letter;
+    }
+
+    private static String wrongTarget(String target, List<String> ids) {
+        if (ids != null) {
+            return ids.get((ids.indexOf(target) + 1) % ids.size());
+        }
+        return String.valueOf((char) ('A' + (target.charAt(0) - 'A' + 1) % 26));
+    }
+
+    private static void usage() {
+        System.err.println("usage: EarlyCommitReplay [--minScore=S] [--maxDistance=N] [--stablePartials=N]"
+                + " [--vocab=id=kw|kw,...] [--expect=session=target,...] script...");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        double minScore = EarlyCommitPolicy.DEFAULT_MIN_LETTER_SCORE;
+        int maxDistance = EarlyCommitPolicy.DEFAULT_MAX_KEYWORD_DISTANCE;
+        int stablePartials = EarlyCommitPolicy.DEFAULT_STABLE_PARTIALS;
+        Map<String, List<String>> vocab = null;
+        Map<String, String> expectations = new LinkedHashMap<>();
+        StringBuilder text = new StringBuilder();
+        int files = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--minScore=")) {
+                minScore = Double.parseDouble(arg.substring("--minScore=".length()));
+            } else if (arg.startsWith("--maxDistance=")) {
+                maxDistance = Integer.parseInt(arg.substring("--maxDistance=".length()));
+            } else if (arg.startsWith("--stablePartials=")) {
+                stablePartials = Integer.parseInt(arg.substring("--stablePartials=".length()));
+            } else if (arg.startsWith("--vocab=")) {
+                vocab = new LinkedHashMap<>();
+                for (String entry : arg.substring("--vocab=".length()).split(",")) {
+                    int eq = entry.indexOf('=');
+                    if (eq <= 0) {
+                        usage();
+                    }
+                    vocab.put(entry.substring(0, eq), Arrays.asList(entry.substring(eq + 1).split("\\|")));
+                }
+            } else if (arg.startsWith("--expect=")) {
+                for (String entry : arg.substring("--expect=".length()).split(",")) {
+                    int eq = entry.indexOf('=');
+                    if (eq <= 0) {
+                        usage();
+                    }
+                    expectations.put(entry.substring(0, eq), entry.substring(eq + 1));
+                }
+            } else if (arg.startsWith("--")) {
+                usage();
+            } else {
+                text.append(new String(Files.readAllBytes(Paths.get(arg)), StandardCharsets.UTF_8)).append('\n');
+                files++;
+            }
+        }
+        if (files == 0) {
+            usage();
+        }
+
+        VocabularyMatcher vocabulary = vocab != null ? new VocabularyMatcher(vocab) : null;
+        List<String> ids = vocab != null ? new ArrayList<>(vocab.keySet()) : null;
+        EarlyCommitPolicy off = new EarlyCommitPolicy(false, minScore, maxDistance, stablePartials);
+        EarlyCommitPolicy on = new EarlyCommitPolicy(true, minScore, maxDistance, stablePartials);
+        System.out.println("policy " + on);
+
+        int sessions = 0;
+        int taken = 0;
+        int agreed = 0;
+        long savedTotal = 0L;
+        for (ScriptedRecognizerBackend.Script script : ScriptedRecognizerBackend.parse(text.toString())) {
+            sessions++;
+            String expected = expectations.get(script.id);
+            if (expected == null) {
+                Answer probe = replay(script, off, null, vocabulary);
+                expected = targetOf(probe.phrases, null, vocabulary);
+            }
+            if (expected == null) {
+                System.out.println(String.format(Locale.US, "%-16s no target", script.id));
+                continue;
+            }
+            Answer normal = replay(script, off, expected, vocabulary);
+            Answer early = replay(script, on, expected, vocabulary);
+            String normalTarget = targetOf(normal.phrases, expected, vocabulary);
+            String earlyTarget = targetOf(early.phrases, expected, vocabulary);
+            boolean agrees = expected.equals(normalTarget) && expected.equals(earlyTarget);
+            if (early.early) {
+                taken++;
+                savedTotal += normal.atMs - early.atMs;
+                if (agrees) {
+                    agreed++;
+                }
+            }
+            System.out.println(String.format(Locale.US,
+                    "%-16s expect=%-6s normal=%dms early=%dms%s saved=%dms confident_partial=%dms agree=%s",
+                    script.id, expected, normal.atMs, early.atMs, early.early ? " (taken)" : "",
+                    normal.atMs - early.atMs, normal.confidentPartialMs, agrees));
+
+            String wrong = wrongTarget(expected, ids);
+            if (!wrong.equals(expected) && replay(script, on, wrong, vocabulary).early) {
+                fail(script.id + ": committed early with wrong expected target " + wrong);
+            }
+        }
+
+        System.out.println(String.format(Locale.US, "sessions=%d early=%d agreed=%d saved_total_ms=%d saved_mean_ms=%d",
+                sessions, taken, agreed, savedTotal, taken > 0 ? savedTotal / taken : 0L));
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package com.limetuna.speech;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded recognizer traces through {@link Endpointer} on a virtual
+ * clock and reports speech-end-to-commit latency.
+ *
+ * Trace format (one event per line, '#' starts a comment):
+ *
+ *   attempt <id> [expected]
+ *   <t_ms> ready
+ *   <t_ms> bos
+ *   <t_ms> rms <db>
+ *   <t_ms> partial <count>
+ *   <t_ms> eos
+ *   <t_ms> vad_start <speech_start_ms>   frame VAD decision (captureVad mode)
+ *   <t_ms> vad_end <speech_end_ms>
+ *   <t_ms> speech_end        optional hand label of the true end of speech
+ *   <t_ms> results
+ *   <t_ms> error <code>
+ *   end
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.EndpointerTraceReplay [--postSilenceMs=N]
+ *       [--minPostSilenceMs=N] [--maxUtteranceMs=N] [--rmsEndThresholdDb=X]
+ *       [--rmsResumeDeltaDb=X] [--silenceHoldMs=N] [--carryBaseline]
+ *       [--calibrateDb=X] [--verbose] trace...
+ *
+ * --carryBaseline replays the attempts in order with one {@link AcousticProfile}
+ * carried across them, like the plugin does across rounds and launches;
+ * --calibrateDb seeds that profile as if calibrate() had measured X dB.
+ *
+ * Attempts containing vad_* events replay with the endpointer in VAD-driven
+ * mode, like an attempt recorded with captureVad on.
+ *
+ * Overrides are applied as-is (no clamping) so candidate configs outside the
+ * plugin's accepted range can still be explored.
+ */
+final class EndpointerTraceReplay {
+
+    static final class Event {
+        final long tMs;
+        final String kind;
+        final String arg;
+
+        Event(long tMs, String kind, String arg) {
+            this.tMs = tMs;
+            this.kind = kind;
+            this.arg = arg;
+        }
+    }
+
+    static final class Attempt {
+        final String id;
+        final String expected;
+        final List<Event> events = new ArrayList<>();
+
+        Attempt(String id, String expected) {
+            this.id = id;
+            this.expected = expected;
+        }
+    }
+
+    static final class Outcome {
+        final Attempt attempt;
+        String commitReason = "none";
+        long commitMs = 0L;
+        long speechEndMs = 0L;
+        boolean speechEndLabelled = false;
+        long recordedResultsMs = 0L;
+        long postSilenceDelayMs = 0L;
+
+        Outcome(Attempt attempt) {
+            this.attempt = attempt;
+        }
+
+        boolean committed() {
+            return commitMs > 0;
+        }
+
+        long latencyMs() {
+            return commitMs - speechEndMs;
+        }
+    }
+
+    private EndpointerTraceReplay() {
+    }
+
+    static List<Attempt> parse(String path) throws IOException {
+        List<Attempt> attempts = new ArrayList<>();
+        Attempt current = null;
+        int lineNo = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                int hash = line.indexOf('#');
+                if (hash >= 0) {
+                    line = line.substring(0, hash);
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts[0].equals("attempt")) {
+                    current = new Attempt(parts.length > 1 ? parts[1] : String.valueOf(attempts.size() + 1),
+                            parts.length > 2 ? parts[2] : null);
+                    attempts.add(current);
+                    continue;
+                }
+                if (parts[0].equals("end")) {
+                    current = null;
+                    continue;
+                }
+                if (current == null || parts.length < 2) {
+                    throw new IOException(path + ":" + lineNo + ": event outside attempt or malformed: " + line);
+                }
+                try {
+                    long t = Long.parseLong(parts[0]);
+                    current.events.add(new Event(t, parts[1], parts.length > 2 ? parts[2] : null));
+                } catch (NumberFormatException e) {
+                    throw new IOException(path + ":" + lineNo + ": bad timestamp: " + line);
+                }
+            }
+        }
+        return attempts;
+    }
+
+    static Outcome replay(Attempt attempt, ThresholdConfig config) {
+        return replay(attempt, config, null);
+    }
+
+    /** @param profile carried-over profile, updated with this attempt; null for none */
+    static Outcome replay(Attempt attempt, ThresholdConfig config, AcousticProfile profile) {
+        final Outcome outcome = new Outcome(attempt);
+        if (attempt.events.isEmpty()) {
+            return outcome;
+        }
+
+        long startMs = attempt.events.get(0).tMs;
+        final VirtualTimer timer = new VirtualTimer(startMs);
+        final Endpointer[] holder = new Endpointer[1];
+        final Endpointer endpointer = new Endpointer(timer, timer, new Endpointer.Listener() {
+            @Override
+            public void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs) {
+                outcome.postSilenceDelayMs = postSilenceDelayMs;
+            }
+
+            @Override
+            public void onPostSilenceCommit(long nowMs) {
+                outcome.commitReason = "post_silence";
+                outcome.commitMs = nowMs;
+                holder[0].stop();
+            }
+
+            @Override
+            public void onFailSafeCommit(long nowMs) {
+                outcome.commitReason = "failsafe";
+                outcome.commitMs = nowMs;
+                holder[0].stop();
+            }
+        });
+        holder[0] = endpointer;
+
+        AttemptTiming timing = new AttemptTiming();
+        timing.nativeReceivedMs = startMs;
+        timing.nativeStartListeningMs = startMs;
+        timing.expectedLetter = attempt.expected;
+        if (profile != null) {
+            endpointer.setBaselinePrior(profile.getBaselineDb());
+        }
+        endpointer.begin(timing, config);
+        for (Event event : attempt.events) {
+            if (event.kind.startsWith("vad_")) {
+                endpointer.setVadDriven(true);
+                break;
+            }
+        }
+
+        for (Event event : attempt.events) {
+            timer.advanceTo(event.tMs);
+            if (event.kind.equals("speech_end")) {
+                outcome.speechEndMs = event.tMs;
+                outcome.speechEndLabelled = true;
+                continue;
+            }
+            if (event.kind.equals("results") || event.kind.equals("error")) {
+                if (outcome.recordedResultsMs == 0) {
+                    outcome.recordedResultsMs = event.tMs;
+                }
+                if (!outcome.committed()) {
+                    // The engine finalized on its own before our endpointer committed.
+                    outcome.commitReason = event.kind.equals("results") ? "engine_final" : "engine_error";
+                    outcome.commitMs = event.tMs;
+                    endpointer.stop();
+                }
+                continue;
+            }
+            if (outcome.committed()) {
+                continue;
+            }
+            switch (event.kind) {
+                case "ready":
+                    timing.nativeReadyForSpeechMs = event.tMs;
+                    break;
+                case "bos":
+                    timing.nativeBeginningOfSpeechMs = event.tMs;
+                    endpointer.onBeginningOfSpeech(event.tMs);
+                    break;
+                case "rms":
+                    endpointer.onRms(Float.parseFloat(event.arg), event.tMs);
+                    break;
+                case "partial":
+                    endpointer.onPartialResults(event.arg != null ? Integer.parseInt(event.arg) : 1);
+                    break;
+                case "eos":
+                    timing.nativeEndOfSpeechMs = event.tMs;
+                    endpointer.onEndOfSpeech(event.tMs);
+                    break;
+                case "vad_start":
+                    timing.nativeVadSpeechStartMs = Long.parseLong(event.arg);
+                    endpointer.onVadSpeechStart(timing.nativeVadSpeechStartMs);
+                    break;
+                case "vad_end":
+                    timing.nativeVadSpeechEndMs = Long.parseLong(event.arg);
+                    endpointer.onVadSpeechEnd(event.tMs, timing.nativeVadSpeechEndMs);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown trace event '" + event.kind + "' in attempt " + attempt.id);
+            }
+        }
+
+        if (!outcome.committed()) {
+            // Recording ended without a final result: let pending timers decide.
+            long lastMs = attempt.events.get(attempt.events.size() - 1).tMs;
+            timer.advanceTo(lastMs + config.maxUtteranceMs + config.postSilenceMs);
+        }
+
+        if (!outcome.speechEndLabelled) {
+            outcome.speechEndMs = timing.nativeRmsSpeechEndMs > 0 ? timing.nativeRmsSpeechEndMs : timing.nativeEndOfSpeechMs;
+        }
+        if (profile != null) {
+            RmsStats stats = endpointer.getRmsStats();
+            long gap = outcome.recordedResultsMs > 0 && outcome.speechEndMs > 0
+                    ? outcome.recordedResultsMs - outcome.speechEndMs : -1L;
+            profile.onAttemptFinished(stats.getAttemptBaselineRmsDb(), stats.getBaselineSampleCount(),
+                    stats.getNoiseFloorDb(), timing.nativeRmsSpeechStartMs > 0 ? stats.maxRmsDb : Float.NaN, Math.max(-1L, gap));
+        }
+        endpointer.reset();
+        return outcome;
+    }
+
+    private static ThresholdConfig parseConfig(List<String> flags) {
+        ThresholdConfig d = ThresholdConfig.defaults();
+        float end = d.rmsEndThresholdDb;
+        float resume = d.rmsResumeDeltaDb;
+        long postSilence = d.postSilenceMs;
+        long minPostSilence = d.minPostSilenceMs;
+        long maxUtterance = d.maxUtteranceMs;
+        long silenceHold = d.silenceHoldMs;
+        for (String flag : flags) {
+            int eq = flag.indexOf('=');
+            String key = eq > 0 ? flag.substring(2, eq) : flag.substring(2);
+            String value = eq > 0 ? flag.substring(eq + 1) : "";
+            switch (key) {
+                case "postSilenceMs":
+                    postSilence = Long.parseLong(value);
+                    break;
+                case "minPostSilenceMs":
+                    minPostSilence = Long.parseLong(value);
+                    break;
+                case "maxUtteranceMs":
+                    maxUtterance = Long.parseLong(value);
+                    break;
+                case "rmsEndThresholdDb":
+                    end = Float.parseFloat(value);
+                    break;
+                case "rmsResumeDeltaDb":
+                    resume = Float.parseFloat(value);
+                    break;
+                case "silenceHoldMs":
+                    silenceHold = Long.parseLong(value);
+                    break;
+                case "verbose":
+                case "carryBaseline":
+                case "calibrateDb":
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + flag);
+            }
+        }
+        return new ThresholdConfig(d.rmsStartThresholdDb, end, resume, postSilence, minPostSilence,
+                maxUtterance, d.rmsVoiceTriggerDb, d.rmsSmoothTailSamples, silenceHold);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<String> flags = new ArrayList<>();
+        List<String> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                flags.add(arg);
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("usage: EndpointerTraceReplay [--postSilenceMs=N ...] [--verbose] trace...");
+            System.exit(2);
+        }
+        boolean verbose = flags.contains("--verbose");
+        ThresholdConfig config = parseConfig(flags);
+        AcousticProfile profile = null;
+        for (String flag : flags) {
+            if (flag.equals("--carryBaseline")) {
+                if (profile == null) profile = new AcousticProfile();
+            } else if (flag.startsWith("--calibrateDb=")) {
+                if (profile == null) profile = new AcousticProfile();
+                profile.applyCalibration(Float.parseFloat(flag.substring("--calibrateDb=".length())));
+            }
+        }
+
+        List<Outcome> outcomes = new ArrayList<>();
+        for (String file : files) {
+            for (Attempt attempt : parse(file)) {
+                outcomes.add(replay(attempt, config, profile));
+            }
+        }
+
+        int postSilence = 0;
+        int failSafe = 0;
+        int engineFinal = 0;
+        int none = 0;
+        int premature = 0;
+        long[] latencies = new long[outcomes.size()];
+        int n = 0;
+        for (Outcome o : outcomes) {
+            switch (o.commitReason) {
+                case "post_silence":
+                    postSilence++;
+                    break;
+                case "failsafe":
+                    failSafe++;
+                    break;
+                case "none":
+                    none++;
+                    break;
+                default:
+                    engineFinal++;
+                    break;
+            }
+            if (o.committed() && o.speechEndMs > 0) {
+                if (o.speechEndLabelled && o.latencyMs() < 0) {
+                    premature++;
+                }
+                latencies[n++] = o.latencyMs();
+            }
+            if (verbose) {
+                System.out.println(String.format(Locale.US,
+                        "attempt=%s expected=%s commit=%s speech_end=%d%s commit_ms=%d latency_ms=%s post_silence_ms=%d",
+                        o.attempt.id,
+                        o.attempt.expected,
+                        o.commitReason,
+                        o.speechEndMs,
+                        o.speechEndLabelled ? "(label)" : "",
+                        o.commitMs,
+                        o.committed() && o.speechEndMs > 0 ? String.valueOf(o.latencyMs()) : "n/a",
+                        o.postSilenceDelayMs));
+            }
+        }
+        long[] sorted = Arrays.copyOf(latencies, n);
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long l : sorted) {
+            sum += l;
+        }
+
+        int total = outcomes.size();
+        System.out.println("config " + config);
+        if (profile != null) {
+            System.out.println("profile " + profile);
+        }
+        System.out.println(String.format(Locale.US,
+                "attempts=%d post_silence=%d failsafe=%d (%.1f%%) engine_final=%d uncommitted=%d premature=%d",
+                total, postSilence, failSafe, total > 0 ? 100.0 * failSafe / total : 0.0, engineFinal, none, premature));
+        System.out.println(String.format(Locale.US,
+                "speech_end_to_commit_ms n=%d mean=%.0f p50=%d p90=%d p99=%d max=%d",
+                n, n > 0 ? (double) sum / n : 0.0,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                n > 0 ? sorted[n - 1] : 0L));
+    }
+}
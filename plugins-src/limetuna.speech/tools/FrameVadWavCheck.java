@@ -0,0 +1,94 @@
+package com.limetuna.speech;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Runs {@link FrameVad} over labelled WAV fixtures and checks the detected
+ * speech start/end against the labels. Exits non-zero on any miss.
+ *
+ * labels.txt: {@code file <TAB> start_ms <TAB> end_ms}, '-' for files with no speech.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.FrameVadWavCheck [--frameMs=N] [--verbose] [fixtureDir]
+ */
+final class FrameVadWavCheck {
+
+    static final long START_TOLERANCE_MS = 40L;
+    static final long END_TOLERANCE_MS = 60L;
+
+    public static void main(String[] args) throws IOException {
+        String dir = "tools/fixtures/vad";
+        int frameMs = FrameVad.DEFAULT_FRAME_MS;
+        boolean verbose = false;
+        for (String arg : args) {
+            if (arg.startsWith("--frameMs=")) {
+                frameMs = Integer.parseInt(arg.substring("--frameMs=".length()));
+            } else if ("--verbose".equals(arg)) {
+                verbose = true;
+            } else {
+                dir = arg;
+            }
+        }
+
+        int checked = 0;
+        int failures = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(new File(dir, "labels.txt")))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t");
+                WavIo.Pcm pcm = WavIo.read(new File(dir, parts[0]).getPath());
+                FrameVad vad = new FrameVad(pcm.sampleRate, frameMs);
+
+                long firstStart = -1L;
+                long lastEnd = -1L;
+                long endDecisionMs = -1L;
+                int frame = vad.getFrameSamples();
+                for (int off = 0; off + frame <= pcm.samples.length; off += frame) {
+                    int event = vad.process(pcm.samples, off);
+                    if (verbose) {
+                        System.out.println(String.format(Locale.US, "  %s t=%d db=%.1f zcr=%.2f floor=%.1f%s",
+                                parts[0], vad.getPositionMs(), vad.getLastFrameDb(), vad.getLastZcr(),
+                                vad.getNoiseFloorDb(),
+                                event == FrameVad.EVENT_SPEECH_START ? " START"
+                                        : event == FrameVad.EVENT_SPEECH_END ? " END" : ""));
+                    }
+                    if (event == FrameVad.EVENT_SPEECH_START && firstStart < 0) {
+                        firstStart = vad.getSpeechStartMs();
+                    } else if (event == FrameVad.EVENT_SPEECH_END) {
+                        lastEnd = vad.getSpeechEndMs();
+                        endDecisionMs = vad.getPositionMs();
+                    }
+                }
+
+                boolean ok;
+                String detail;
+                if ("-".equals(parts[1])) {
+                    ok = firstStart < 0;
+                    detail = "expected no speech, start=" + firstStart;
+                } else {
+                    long expStart = Long.parseLong(parts[1]);
+                    long expEnd = Long.parseLong(parts[2]);
+                    ok = firstStart >= 0 && lastEnd >= 0
+                            && Math.abs(firstStart - expStart) <= START_TOLERANCE_MS
+                            && Math.abs(lastEnd - expEnd) <= END_TOLERANCE_MS;
+                    detail = "start=" + firstStart + " (label " + expStart + ") end=" + lastEnd
+                            + " (label " + expEnd + ") end_decided_at=" + endDecisionMs
+                            + " lag=" + (endDecisionMs >= 0 ? (endDecisionMs - expEnd) + "ms" : "n/a");
+                }
+                checked++;
+                if (!ok) failures++;
+                System.out.println((ok ? "ok   " : "FAIL ") + parts[0] + ": " + detail);
+            }
+        }
+        System.out.println("checked=" + checked + " failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
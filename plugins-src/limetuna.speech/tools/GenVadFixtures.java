@@ -0,0 +1,113 @@
+package com.limetuna.speech;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+
+/**
+ * Writes the synthetic WAV fixtures in tools/fixtures/vad/ plus labels.txt.
+ * Speech is modelled as harmonic voiced segments with a syllable envelope
+ * and noise-burst fricatives over stationary background noise, which is
+ * enough to pin down FrameVad's start/end timing. Real recordings can be
+ * dropped next to them with a hand-made label line.
+ *
+ * Usage: java com.limetuna.speech.GenVadFixtures [outDir]
+ */
+final class GenVadFixtures {
+
+    private static final int RATE = 16000;
+
+    public static void main(String[] args) throws IOException {
+        String dir = args.length > 0 ? args[0] : "tools/fixtures/vad";
+        Random random = new Random(7);
+
+        try (PrintWriter labels = new PrintWriter(new FileWriter(dir + "/labels.txt"))) {
+            labels.println("# file <TAB> speech_start_ms <TAB> speech_end_ms   ('-' for no speech)");
+            labels.println("# Generated by tools/GenVadFixtures.java.");
+
+            double[] a = noise(2500, -62, random);
+            voiced(a, 600, 1100, 180, -18);
+            write(dir, "quiet_single_word.wav", a, labels, "600", "1100");
+
+            double[] b = noise(2500, -45, random);
+            voiced(b, 500, 800, 220, -16);
+            voiced(b, 950, 1300, 200, -20);
+            write(dir, "noisy_two_syllables.wav", b, labels, "500", "1300");
+
+            double[] c = noise(2500, -58, random);
+            fricative(c, 400, 560, -24, random);
+            voiced(c, 560, 900, 240, -17);
+            write(dir, "fricative_onset.wav", c, labels, "400", "900");
+
+            double[] d = noise(2500, -50, random);
+            hum(d, 50, -40);
+            voiced(d, 700, 1500, 160, -22);
+            write(dir, "hum_long_word.wav", d, labels, "700", "1500");
+
+            double[] e = noise(2000, -48, random);
+            write(dir, "noise_only.wav", e, labels, "-", "-");
+        }
+    }
+
+    private static double[] noise(int ms, double dbfs, Random random) {
+        double[] out = new double[RATE * ms / 1000];
+        double amp = Math.pow(10, dbfs / 20) * 32768;
+        for (int i = 0; i < out.length; i++) {
+            out[i] = random.nextGaussian() * amp;
+        }
+        return out;
+    }
+
+    /** Harmonic stack with slow pitch drift and raised-cosine syllable envelope. */
+    private static void voiced(double[] buf, int startMs, int endMs, double f0, double dbfs) {
+        int s = RATE * startMs / 1000;
+        int e = RATE * endMs / 1000;
+        double amp = Math.pow(10, dbfs / 20) * 32768 * Math.sqrt(2);
+        double phase = 0;
+        int ramp = RATE * 15 / 1000;
+        for (int i = s; i < e && i < buf.length; i++) {
+            double t = (double) (i - s) / RATE;
+            double f = f0 * (1 + 0.05 * Math.sin(2 * Math.PI * 3 * t));
+            phase += 2 * Math.PI * f / RATE;
+            double v = 0;
+            for (int h = 1; h <= 8; h++) {
+                v += Math.sin(h * phase) / h;
+            }
+            double env = 1.0;
+            if (i - s < ramp) env = 0.5 - 0.5 * Math.cos(Math.PI * (i - s) / ramp);
+            if (e - i < ramp) env = 0.5 - 0.5 * Math.cos(Math.PI * (e - i) / ramp);
+            buf[i] += amp * env * v / 1.5;
+        }
+    }
+
+    /** High-passed noise burst ("s"-like: high zero-crossing rate). */
+    private static void fricative(double[] buf, int startMs, int endMs, double dbfs, Random random) {
+        int s = RATE * startMs / 1000;
+        int e = RATE * endMs / 1000;
+        double amp = Math.pow(10, dbfs / 20) * 32768;
+        double prev = 0;
+        for (int i = s; i < e && i < buf.length; i++) {
+            double n = random.nextGaussian();
+            buf[i] += amp * (n - prev) / Math.sqrt(2);
+            prev = n;
+        }
+    }
+
+    private static void hum(double[] buf, double freq, double dbfs) {
+        double amp = Math.pow(10, dbfs / 20) * 32768 * Math.sqrt(2);
+        for (int i = 0; i < buf.length; i++) {
+            buf[i] += amp * Math.sin(2 * Math.PI * freq * i / RATE);
+        }
+    }
+
+    private static void write(String dir, String name, double[] buf, PrintWriter labels,
+                              String start, String end) throws IOException {
+        short[] pcm = new short[buf.length];
+        for (int i = 0; i < buf.length; i++) {
+            pcm[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(buf[i])));
+        }
+        WavIo.write(dir + "/" + name, RATE, pcm);
+        labels.println(name + "\t" + start + "\t" + end);
+    }
+}
@@ -0,0 +1,328 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Replays generated letter sessions through {@link HedgedRecognizerBackend}
+ * on a virtual clock, with two {@link ScriptedRecognizerBackend} engines
+ * hearing the same utterance: a network-like primary (accurate and usually
+ * quick, with a heavy tail of stalls and network errors) and an on-device-like
+ * secondary (steady latency, less accurate, sometimes unable to open the
+ * microphone). Each session runs three times: primary alone, secondary alone
+ * and hedged, with acceptance decided by {@link HedgePolicy} as in the
+ * plugin.
+ *
+ * Prints answer-time percentiles (ms from startListening) and accuracy for
+ * each, which path won how often and by how much (the loser's answer time
+ * in its own single run minus the winner's). Fails on a broken backend
+ * contract (not exactly one result/error per hedged listen) or when the
+ * hedged answer is later than the first single path whose answer would
+ * have been accepted.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.HedgedRecognitionReplay [--sessions=N] [--seed=N]
+ *       [--minConfidence=0.7] [--graceMs=400] [--verbose]
+ */
+final class HedgedRecognitionReplay {
+
+    /** How one listen ended, as the plugin's listener saw it. */
+    private static final class Answer {
+        long atMs = -1L;
+        List<String> matches;
+        float[] confidences;
+        int error;
+        int terminals;
+        HedgedRecognizerBackend.Outcome outcome;
+
+        String top() {
+            return matches != null && !matches.isEmpty() ? matches.get(0) : null;
+        }
+    }
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    // ---- Session generation --------------------------------------------------
+
+    private static String letterText(int letter) {
+        return String.valueOf((char) ('a' + letter));
+    }
+
+    private static float uniform(Random random, double lo, double hi) {
+        return (float) (lo + random.nextDouble() * (hi - lo));
+    }
+
+    /** Appends one engine's view of an utterance: speech in [bosMs, eosMs], then its answer. */
+    private static void appendAttempt(StringBuilder out, String id, long readyMs, long bosMs, long eosMs,
+                                      long answerMs, String text, float confidence, int error) {
+        out.append("attempt ").append(id).append('\n');
+        out.append(readyMs).append(" ready\n");
+        for (long t = readyMs + 60L; t < bosMs; t += 60L) {
+            out.append(t).append(" rms -2.0\n");
+        }
+        out.append(bosMs).append(" bos\n");
+        for (long t = bosMs; t < eosMs; t += 60L) {
+            out.append(t).append(" rms 7.0\n");
+        }
+        if (error == 0 && answerMs > eosMs) {
+            out.append(eosMs).append(" partial ").append(text).append('\n');
+        }
+        out.append(eosMs).append(" eos\n");
+        if (error != 0) {
+            out.append(answerMs).append(" error ").append(error).append('\n');
+        } else {
+            out.append(answerMs).append(" results ").append(text).append('@')
+                    .append(String.format(Locale.US, "%.2f", confidence)).append('\n');
+        }
+        out.append("end\n");
+    }
+
+    // ---- Replay ---------------------------------------------------------------
+
+    private static Answer listen(RecognizerBackend.Factory factory, final VirtualTimer timer) {
+        final Answer answer = new Answer();
+        RecognizerBackend backend = factory.create(new RecognizerBackend.Listener() {
+            @Override
+            public void onReadyForSpeech() {
+            }
+
+            @Override
+            public void onBeginningOfSpeech() {
+            }
+
+            @Override
+            public void onRmsChanged(float rmsdB) {
+            }
+
+            @Override
+            public void onEndOfSpeech() {
+            }
+
+            @Override
+            public void onPartialResults(List<String> partial) {
+            }
+
+            @Override
+            public void onResults(List<String> matches, float[] confidences) {
+                if (++answer.terminals == 1) {
+                    answer.atMs = timer.nowMs();
+                    answer.matches = matches;
+                    answer.confidences = confidences;
+                }
+            }
+
+            @Override
+            public void onError(int error) {
+                if (++answer.terminals == 1) {
+                    answer.atMs = timer.nowMs();
+                    answer.error = error;
+                }
+            }
+        });
+        backend.startListening(new RecognizerBackend.Request("en-US", 5, true, false, 1000L, 500L, 500L));
+        // Run everything still queued, so a callback after the answer shows up as a second terminal.
+        while (timer.hasPending()) {
+            timer.advanceTo(timer.nextDueMs());
+        }
+        if (backend instanceof HedgedRecognizerBackend) {
+            answer.outcome = ((HedgedRecognizerBackend) backend).getOutcome();
+        }
+        backend.destroy();
+        return answer;
+    }
+
+    private static ScriptedRecognizerBackend.Factory scripted(VirtualTimer timer, ScriptedRecognizerBackend.Script s) {
+        return new ScriptedRecognizerBackend.Factory(timer, Collections.singletonList(s));
+    }
+
+    private static boolean accepted(HedgePolicy policy, Answer a, String expected) {
+        return a.error == 0 && policy.accepts(a.matches, a.confidences, expected, null);
+    }
+
+    private static String percentiles(List<Long> values) {
+        if (values.isEmpty()) {
+            return "n=0";
+        }
+        long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "n=%d p50=%d p90=%d p95=%d p99=%d max=%d", sorted.length,
+                at(sorted, 0.50), at(sorted, 0.90), at(sorted, 0.95), at(sorted, 0.99), sorted[sorted.length - 1]);
+    }
+
+    private static long at(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static void usage() {
+        System.err.println("usage: HedgedRecognitionReplay [--sessions=N] [--seed=N] [--minConfidence=C]"
+                + " [--graceMs=N] [--verbose]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) {
+        int sessions = 2000;
+        long seed = 1L;
+        double minConfidence = HedgePolicy.DEFAULT_MIN_CONFIDENCE;
+        long graceMs = HedgePolicy.DEFAULT_GRACE_MS;
+        boolean verbose = false;
+        for (String arg : args) {
+            if (arg.startsWith("--sessions=")) {
+                sessions = Integer.parseInt(arg.substring("--sessions=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.startsWith("--minConfidence=")) {
+                minConfidence = Double.parseDouble(arg.substring("--minConfidence=".length()));
+            } else if (arg.startsWith("--graceMs=")) {
+                graceMs = Long.parseLong(arg.substring("--graceMs=".length()));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else {
+                usage();
+            }
+        }
+        if (sessions <= 0) {
+            usage();
+        }
+
+        final HedgePolicy policy = new HedgePolicy(true, minConfidence, graceMs);
+        System.out.println("policy " + policy);
+        Random random = new Random(seed);
+
+        List<Long> primaryMs = new ArrayList<>();
+        List<Long> secondaryMs = new ArrayList<>();
+        List<Long> hedgedMs = new ArrayList<>();
+        List<Long> margins = new ArrayList<>();
+        TreeMap<String, Integer> winners = new TreeMap<>();
+        TreeMap<String, Integer> losers = new TreeMap<>();
+        int primaryCorrect = 0;
+        int secondaryCorrect = 0;
+        int hedgedCorrect = 0;
+
+        for (int i = 0; i < sessions; i++) {
+            int letter = random.nextInt(26);
+            final String expected = String.valueOf((char) ('A' + letter));
+            String right = letterText(letter);
+            String wrong = letterText((letter + 1 + random.nextInt(25)) % 26);
+            long bosMs = 250L + random.nextInt(400);
+            long eosMs = bosMs + 300L + random.nextInt(400);
+
+            // Network: lognormal processing around 450 ms, 8% stalls, 2% network errors.
+            StringBuilder text = new StringBuilder();
+            long primaryAt = eosMs + Math.round(450.0 * Math.exp(0.35 * random.nextGaussian()));
+            int primaryError = 0;
+            double roll = random.nextDouble();
+            if (roll < 0.02) {
+                primaryError = RecognizerBackend.ERROR_NETWORK;
+                primaryAt = eosMs + 2500L + random.nextInt(2500);
+            } else if (roll < 0.10) {
+                primaryAt += 1500L + random.nextInt(2500);
+            }
+            boolean primaryRight = random.nextDouble() < 0.92;
+            appendAttempt(text, "p" + i, 80L + random.nextInt(120), bosMs, eosMs, primaryAt,
+                    primaryRight ? right : wrong,
+                    primaryRight ? uniform(random, 0.80, 0.95) : uniform(random, 0.30, 0.60), primaryError);
+
+            // On-device: steady 300-550 ms, 84% right, 3% confidently wrong, 5% cannot open the mic.
+            long secondaryAt = eosMs + 300L + random.nextInt(250);
+            int secondaryError = 0;
+            roll = random.nextDouble();
+            String secondaryText = right;
+            float secondaryConfidence = uniform(random, 0.55, 0.85);
+            if (roll < 0.05) {
+                secondaryError = RecognizerBackend.ERROR_AUDIO;
+                secondaryAt = 40L;
+            } else if (roll < 0.08) {
+                secondaryText = wrong;
+                secondaryConfidence = uniform(random, 0.70, 0.80);
+            } else if (roll < 0.16) {
+                secondaryText = wrong;
+                secondaryConfidence = uniform(random, 0.30, 0.65);
+            }
+            appendAttempt(text, "s" + i, 150L + random.nextInt(150), bosMs, eosMs, secondaryAt,
+                    secondaryText, secondaryConfidence, secondaryError);
+
+            List<ScriptedRecognizerBackend.Script> pair = ScriptedRecognizerBackend.parse(text.toString());
+            VirtualTimer t1 = new VirtualTimer(0L);
+            Answer primary = listen(scripted(t1, pair.get(0)), t1);
+            VirtualTimer t2 = new VirtualTimer(0L);
+            Answer secondary = listen(scripted(t2, pair.get(1)), t2);
+            VirtualTimer t3 = new VirtualTimer(0L);
+            HedgedRecognizerBackend.Acceptor acceptor = new HedgedRecognizerBackend.Acceptor() {
+                @Override
+                public boolean accept(List<String> matches, float[] confidences) {
+                    return policy.accepts(matches, confidences, expected, null);
+                }
+            };
+            Answer hedged = listen(new HedgedRecognizerBackend.Factory(scripted(t3, pair.get(0)),
+                    scripted(t3, pair.get(1)), t3, t3, policy, acceptor), t3);
+
+            primaryMs.add(primary.atMs);
+            secondaryMs.add(secondary.atMs);
+            hedgedMs.add(hedged.atMs);
+            if (right.equals(primary.top())) primaryCorrect++;
+            if (right.equals(secondary.top())) secondaryCorrect++;
+            if (right.equals(hedged.top())) hedgedCorrect++;
+
+            if (hedged.terminals != 1) {
+                fail("session " + i + ": hedged listen delivered " + hedged.terminals + " results/errors");
+                continue;
+            }
+            HedgedRecognizerBackend.Outcome outcome = hedged.outcome;
+            Answer[] single = {primary, secondary};
+            long bound = Long.MAX_VALUE;
+            for (Answer a : single) {
+                if (accepted(policy, a, expected)) {
+                    bound = Math.min(bound, a.atMs);
+                }
+            }
+            if (hedged.atMs > bound) {
+                fail("session " + i + ": hedged answered at " + hedged.atMs + "ms, an accepted path had by " + bound);
+            }
+            if (outcome.accepted && !single[outcome.winner].top().equals(hedged.top())) {
+                fail("session " + i + ": hedged answer " + hedged.top() + " is not the winner's");
+            }
+            String key = AttemptMetrics.HEDGE_KEYS[outcome.accepted ? outcome.winner : AttemptMetrics.HEDGE_UNACCEPTED];
+            winners.merge(key, 1, Integer::sum);
+            losers.merge(outcome.states[1 - outcome.winner], 1, Integer::sum);
+            if (outcome.accepted) {
+                margins.add(single[1 - outcome.winner].atMs - hedged.atMs);
+            }
+            if (verbose) {
+                System.out.println(String.format(Locale.US,
+                        "%5d expect=%s primary=%dms %s secondary=%dms %s hedged=%dms %s winner=%s loser=%s",
+                        i, expected, primary.atMs, primary.top(), secondary.atMs, secondary.top(), hedged.atMs,
+                        hedged.top(), key, outcome.states[1 - outcome.winner]));
+            }
+        }
+
+        System.out.println("primary   " + percentiles(primaryMs) + String.format(Locale.US,
+                " correct=%.1f%%", 100.0 * primaryCorrect / sessions));
+        System.out.println("secondary " + percentiles(secondaryMs) + String.format(Locale.US,
+                " correct=%.1f%%", 100.0 * secondaryCorrect / sessions));
+        System.out.println("hedged    " + percentiles(hedgedMs) + String.format(Locale.US,
+                " correct=%.1f%%", 100.0 * hedgedCorrect / sessions));
+        System.out.println("winners=" + winners + " losers=" + losers);
+        System.out.println("margin (loser alone - hedged, accepted wins) " + percentiles(margins));
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.limetuna.speech;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Checks {@link LatencyHistogram} (behind the getMetrics action): bucket
+ * edges, percentiles against an exact sort on latency-shaped random data
+ * (reported value must be >= the exact one and within one sub-bucket above
+ * it), and that recording into a histogram or {@link AttemptMetrics}
+ * allocates nothing. Then times record(). Exits non-zero on any failure.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.LatencyHistogramCheck [--samples=N] [--seed=N]
+ */
+final class LatencyHistogramCheck {
+
+    private static final double[] PERCENTILES = {0.50, 0.90, 0.99, 1.0};
+    private static final int ALLOC_ROUNDS = 1_000_000;
+    // getThreadAllocatedBytes itself may account a few bytes.
+    private static final long ALLOC_SLACK_BYTES = 256L;
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static void checkBuckets() {
+        for (long v = 0; v < 4 * LatencyHistogram.MAX_TRACKABLE_MS; v++) {
+            int idx = LatencyHistogram.bucketIndex(v);
+            if (idx < 0 || idx >= LatencyHistogram.BUCKET_COUNT) {
+                fail("value " + v + " -> bucket " + idx + " out of range");
+                return;
+            }
+            if (v >= LatencyHistogram.MAX_TRACKABLE_MS) {
+                if (idx != LatencyHistogram.BUCKET_COUNT - 1) {
+                    fail("value " + v + " above range not in last bucket");
+                    return;
+                }
+                continue;
+            }
+            long lower = LatencyHistogram.bucketLowerMs(idx);
+            long upper = LatencyHistogram.bucketUpperMs(idx);
+            if (v < lower || v > upper) {
+                fail("value " + v + " outside its bucket [" + lower + ", " + upper + "]");
+                return;
+            }
+            if ((upper - lower) * LatencyHistogram.SUB_BUCKETS > lower) {
+                fail("bucket " + idx + " [" + lower + ", " + upper + "] wider than 1/"
+                        + LatencyHistogram.SUB_BUCKETS);
+                return;
+            }
+        }
+        System.out.println("buckets: " + LatencyHistogram.BUCKET_COUNT + " ok up to "
+                + LatencyHistogram.MAX_TRACKABLE_MS + " ms");
+    }
+
+    /** Log-normal around medianMs with a long right tail, like recognizer latencies. */
+    private static long latency(Random random, double medianMs, double sigma) {
+        return Math.round(medianMs * Math.exp(sigma * random.nextGaussian()));
+    }
+
+    private static void checkPercentiles(String name, long[] values) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v : values) {
+            histogram.record(v);
+        }
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        StringBuilder line = new StringBuilder(name).append(" n=").append(sorted.length);
+        for (double p : PERCENTILES) {
+            int rank = Math.max(1, (int) Math.ceil(p * sorted.length));
+            long exact = sorted[rank - 1];
+            long reported = histogram.percentile(p);
+            long bound = Math.min(sorted[sorted.length - 1],
+                    LatencyHistogram.bucketUpperMs(LatencyHistogram.bucketIndex(exact)));
+            if (reported < exact || reported > bound) {
+                fail(String.format(Locale.US, "%s p%.0f exact=%d reported=%d bound=%d",
+                        name, p * 100, exact, reported, bound));
+            }
+            line.append(String.format(Locale.US, " p%.0f=%d/%d", p * 100, reported, exact));
+        }
+        if (histogram.getMax() != sorted[sorted.length - 1]) {
+            fail(name + " max " + histogram.getMax() + " != " + sorted[sorted.length - 1]);
+        }
+        System.out.println(line.append(" (reported/exact)"));
+    }
+
+    private static AttemptTiming syntheticTiming(Random random, int i) {
+        AttemptTiming t = new AttemptTiming();
+        long base = 1_000_000L + i * 10_000L;
+        t.nativeReceivedMs = base;
+        t.nativeStartListeningMs = base + latency(random, 4, 0.5);
+        t.nativeReadyForSpeechMs = t.nativeStartListeningMs + latency(random, 120, 0.6);
+        t.nativeRmsSpeechStartMs = t.nativeReadyForSpeechMs + latency(random, 400, 0.5);
+        t.nativeRmsSpeechEndMs = t.nativeRmsSpeechStartMs + latency(random, 500, 0.3);
+        if (i % 3 == 0) {
+            t.nativePostSilenceCommitMs = t.nativeRmsSpeechEndMs + 600;
+        }
+        t.nativeResultsMs = t.nativeRmsSpeechEndMs + latency(random, 700, 0.5);
+        t.nativeNormalizeDoneMs = t.nativeResultsMs + 1;
+        t.nativeCallbackSentMs = t.nativeNormalizeDoneMs + 1;
+        t.partialFallback = i % 17 == 0;
+        return t;
+    }
+
+    private static long allocatedBytes(com.sun.management.ThreadMXBean threads) {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void checkAllocationFree() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            System.out.println("allocation: not measurable on this JVM, skipped");
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        Random random = new Random(7);
+        AttemptTiming[] timings = new AttemptTiming[64];
+        for (int i = 0; i < timings.length; i++) {
+            timings[i] = syntheticTiming(random, i);
+        }
+        long[] values = new long[1024];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = latency(random, 800, 0.8);
+        }
+        String[] codes = {null, null, null, "NO_MATCH", "SPEECH_TIMEOUT", "ERROR_5", "STOPPED"};
+        LatencyHistogram histogram = new LatencyHistogram();
+        AttemptMetrics metrics = new AttemptMetrics(0L);
+
+        for (int round = 0; round < 3; round++) {
+            long before = allocatedBytes(threads);
+            for (int i = 0; i < ALLOC_ROUNDS; i++) {
+                histogram.record(values[i & (values.length - 1)]);
+                metrics.record(timings[i & (timings.length - 1)], codes[i % codes.length]);
+            }
+            long allocated = allocatedBytes(threads) - before;
+            // Round 0 warms up the JIT; judge the later rounds.
+            if (round > 0) {
+                System.out.println(String.format(Locale.US,
+                        "allocation: %d bytes over %d histogram + %d attempt records",
+                        allocated, ALLOC_ROUNDS, ALLOC_ROUNDS));
+                if (allocated > ALLOC_SLACK_BYTES) {
+                    fail("recording allocated " + allocated + " bytes");
+                }
+            }
+        }
+    }
+
+    private static void timeRecord(long[] values) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long sink = 0L;
+        for (int round = 0; round < 5; round++) {
+            histogram.reset();
+            long t0 = System.nanoTime();
+            for (int rep = 0; rep < 20; rep++) {
+                for (long v : values) {
+                    histogram.record(v);
+                }
+            }
+            long ns = System.nanoTime() - t0;
+            sink += histogram.percentile(0.99);
+            if (round == 4) {
+                System.out.println(String.format(Locale.US, "host: %.1f ns/record, %.1f us/percentile",
+                        (double) ns / (20L * values.length), timePercentile(histogram) / 1e3));
+            }
+        }
+        if (sink == Long.MIN_VALUE) {
+            System.out.println(sink);
+        }
+    }
+
+    private static double timePercentile(LatencyHistogram histogram) {
+        long sink = 0L;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < 10_000; i++) {
+            sink += histogram.percentile(0.99);
+        }
+        double ns = (double) (System.nanoTime() - t0) / 10_000;
+        return sink == Long.MIN_VALUE ? -1 : ns;
+    }
+
+    public static void main(String[] args) {
+        int samples = 200_000;
+        long seed = 1L;
+        for (String arg : args) {
+            if (arg.startsWith("--samples=")) {
+                samples = Integer.parseInt(arg.substring("--samples=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else {
+                System.err.println("usage: LatencyHistogramCheck [--samples=N] [--seed=N]");
+                System.exit(2);
+            }
+        }
+
+        checkBuckets();
+
+        Random random = new Random(seed);
+        long[] engineReady = new long[samples];
+        long[] speechEndToResult = new long[samples];
+        long[] small = new long[samples];
+        long[] uniform = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            engineReady[i] = latency(random, 120, 0.6);
+            speechEndToResult[i] = latency(random, 900, 0.9);
+            small[i] = random.nextInt(12);
+            uniform[i] = random.nextInt(60_000);
+        }
+        checkPercentiles("engine_ready", engineReady);
+        checkPercentiles("speech_end_to_result", speechEndToResult);
+        checkPercentiles("small", small);
+        checkPercentiles("uniform_60s", uniform);
+        checkPercentiles("single", new long[]{1234});
+
+        checkAllocationFree();
+        timeRecord(speechEndToResult);
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.limetuna.speech;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks {@link LetterScorer} against fixtures generated from the JS scorer
+ * (tools/gen-letter-fixtures.js). Exits non-zero on any mismatch.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.LetterScorerConformance [tools/fixtures/letter_scoring.txt]
+ */
+final class LetterScorerConformance {
+
+    private static final String DEFAULT_FIXTURE = "tools/fixtures/letter_scoring.txt";
+
+    public static void main(String[] args) throws IOException {
+        String path = args.length > 0 ? args[0] : DEFAULT_FIXTURE;
+        LetterScorer scorer = LetterScorer.get();
+        int[] scores = new int[LetterScorer.LETTER_COUNT];
+        int checked = 0;
+        int failures = 0;
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\t", -1);
+                if ("score".equals(parts[0]) && parts.length == 3) {
+                    scorer.scorePhrase(parts[1], scores);
+                    String actual = join(scores);
+                    checked++;
+                    if (!actual.equals(parts[2])) {
+                        failures++;
+                        System.out.println("line " + lineNo + ": score \"" + parts[1] + "\"\n  js:   "
+                                + parts[2] + "\n  java: " + actual);
+                    }
+                } else if ("choose".equals(parts[0]) && parts.length == 4) {
+                    List<String> results = parts[2].isEmpty()
+                            ? new ArrayList<String>()
+                            : Arrays.asList(parts[2].split("\\|", -1));
+                    LetterScorer.Choice choice = scorer.choose(results, parts[1]);
+                    String actual = choice.letter != null ? choice.letter : "-";
+                    checked++;
+                    if (!actual.equals(parts[3])) {
+                        failures++;
+                        System.out.println("line " + lineNo + ": choose " + results + " expected=\""
+                                + parts[1] + "\" js=" + parts[3] + " java=" + actual);
+                    }
+                } else {
+                    throw new IOException(path + ":" + lineNo + ": unrecognized fixture line");
+                }
+            }
+        }
+
+        System.out.println("checked=" + checked + " failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static String join(int[] values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+}
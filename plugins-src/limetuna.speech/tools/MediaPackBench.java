@@ -0,0 +1,219 @@
+package com.limetuna.speech;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Compares the two ways the WebView can get a www/ image or clip: one file
+ * open + read per request (what the asset loader does per APK asset) against
+ * a read from a slice of the mapped www/media.pack ({@link MediaPack}, as
+ * PackedAssets serves it). Every packed entry is first checked byte for byte
+ * against its loose file. Then both are timed over the same requests: a cold
+ * pass over every entry (page load) and random image swaps (the game's
+ * setAnimalImageForOrientation), reading each response through a 16 KB
+ * buffer like the WebView does. Exits non-zero on a mismatch.
+ *
+ * Usage (the pack comes from the prepare hook's script):
+ *
+ *   node scripts/pack-media.js ../../www /tmp/media.pack
+ *   java com.limetuna.speech.MediaPackBench --pack=/tmp/media.pack --www=../../www [--swaps=N] [--rounds=N]
+ */
+final class MediaPackBench {
+
+    private static final int READ_BUFFER_BYTES = 16 * 1024;
+    private static final String[] DIRS = {"img", "audio"};
+
+    private static final byte[] buffer = new byte[READ_BUFFER_BYTES];
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static void list(File root, String rel, List<String> out) {
+        File[] files = new File(root, rel).listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String child = rel + "/" + file.getName();
+            if (file.isDirectory()) {
+                list(root, child, out);
+            } else if (MediaPack.mimeType(file.getName()) != null) {
+                out.add(child);
+            }
+        }
+    }
+
+    /** Reads the stream to the end; returns the byte count. */
+    private static long drain(InputStream in, CRC32 crc) throws IOException {
+        long total = 0L;
+        int n;
+        while ((n = in.read(buffer, 0, buffer.length)) > 0) {
+            if (crc != null) {
+                crc.update(buffer, 0, n);
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    private static long readLoose(File www, String path) throws IOException {
+        try (InputStream in = new FileInputStream(new File(www, path))) {
+            return drain(in, null);
+        }
+    }
+
+    private static long readPacked(MediaPack pack, String path) throws IOException {
+        try (InputStream in = pack.open(path)) {
+            return drain(in, null);
+        }
+    }
+
+    private static void verify(MediaPack pack, File www, List<String> paths) throws IOException {
+        for (String path : paths) {
+            if (!pack.contains(path)) {
+                fail(path + " missing from the pack");
+                continue;
+            }
+            CRC32 loose = new CRC32();
+            CRC32 packed = new CRC32();
+            long looseBytes;
+            try (InputStream in = new FileInputStream(new File(www, path))) {
+                looseBytes = drain(in, loose);
+            }
+            long packedBytes = drain(pack.open(path), packed);
+            if (looseBytes != packedBytes || loose.getValue() != packed.getValue()) {
+                fail(path + " differs: " + looseBytes + "/" + packedBytes + " bytes");
+            }
+        }
+        if (pack.getEntryCount() != paths.size()) {
+            fail("pack has " + pack.getEntryCount() + " entries, www has " + paths.size() + " media files");
+        }
+        System.out.println("verify: " + paths.size() + " entries " + (failures == 0 ? "identical" : "FAILED"));
+    }
+
+    private static String percentiles(long[] ns) {
+        long[] sorted = ns.clone();
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "p50=%.1fus p99=%.1fus max=%.1fus",
+                sorted[sorted.length / 2] / 1e3, sorted[(int) (sorted.length * 0.99)] / 1e3,
+                sorted[sorted.length - 1] / 1e3);
+    }
+
+    private static void time(String name, File www, MediaPack pack, List<String> requests, int rounds)
+            throws IOException {
+        long[] looseNs = new long[requests.size()];
+        long[] packedNs = new long[requests.size()];
+        long bytes = 0L;
+        for (int round = 0; round < rounds; round++) {
+            bytes = 0L;
+            long looseTotal = 0L;
+            long packedTotal = 0L;
+            for (int i = 0; i < requests.size(); i++) {
+                String path = requests.get(i);
+                long t0 = System.nanoTime();
+                bytes += readLoose(www, path);
+                long t1 = System.nanoTime();
+                readPacked(pack, path);
+                long t2 = System.nanoTime();
+                looseNs[i] = t1 - t0;
+                packedNs[i] = t2 - t1;
+                looseTotal += looseNs[i];
+                packedTotal += packedNs[i];
+            }
+            // Earlier rounds warm the JIT and the page cache; report the last.
+            if (round == rounds - 1) {
+                System.out.println(String.format(Locale.US, "%s: %d requests, %.1f MB", name,
+                        requests.size(), bytes / (1024.0 * 1024.0)));
+                System.out.println(String.format(Locale.US, "  file open: total=%.1fms %s",
+                        looseTotal / 1e6, percentiles(looseNs)));
+                System.out.println(String.format(Locale.US, "  mmap slice: total=%.1fms %s (%.2fx)",
+                        packedTotal / 1e6, percentiles(packedNs), (double) looseTotal / Math.max(1L, packedTotal)));
+            }
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: MediaPackBench --pack=media.pack --www=dir [--swaps=N] [--rounds=N]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        String packPath = null;
+        String wwwPath = null;
+        int swaps = 2000;
+        int rounds = 3;
+        for (String arg : args) {
+            if (arg.startsWith("--pack=")) {
+                packPath = arg.substring("--pack=".length());
+            } else if (arg.startsWith("--www=")) {
+                wwwPath = arg.substring("--www=".length());
+            } else if (arg.startsWith("--swaps=")) {
+                swaps = Integer.parseInt(arg.substring("--swaps=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Math.max(1, Integer.parseInt(arg.substring("--rounds=".length())));
+            } else {
+                usage();
+            }
+        }
+        if (packPath == null || wwwPath == null) {
+            usage();
+        }
+
+        File www = new File(wwwPath);
+        List<String> paths = new ArrayList<>();
+        for (String dir : DIRS) {
+            list(www, dir, paths);
+        }
+
+        long t0 = System.nanoTime();
+        MediaPack pack;
+        try (RandomAccessFile file = new RandomAccessFile(packPath, "r")) {
+            FileChannel channel = file.getChannel();
+            pack = MediaPack.map(channel, 0L, channel.size());
+        }
+        System.out.println(String.format(Locale.US, "map+index: %.2fms for %d entries",
+                (System.nanoTime() - t0) / 1e6, pack.getEntryCount()));
+
+        verify(pack, www, paths);
+
+        List<String> images = new ArrayList<>();
+        for (String path : paths) {
+            if (path.startsWith("img/")) {
+                images.add(path);
+            }
+        }
+        List<String> all = new ArrayList<>(paths);
+        Collections.shuffle(all, new Random(1));
+        time("every entry", www, pack, all, rounds);
+        if (!images.isEmpty()) {
+            Random random = new Random(2);
+            List<String> swapRequests = new ArrayList<>(swaps);
+            for (int i = 0; i < swaps; i++) {
+                swapRequests.add(images.get(random.nextInt(images.size())));
+            }
+            time("image swaps", www, pack, swapRequests, rounds);
+        }
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.limetuna.speech;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link PcmCache} (behind playSound / preloadSounds): LRU order, the
+ * byte budget as a hard bound, eviction and hit/miss counts, clips larger
+ * than the budget, and budget changes. Then replays simulated Animals games
+ * at several budgets and prints how many plays had to decode first (a miss
+ * is a decode stall) and how many bytes the cache held.
+ *
+ * Clip sizes are the decoded sizes of the mp3/wav files under --assets
+ * (estimated from the first frame header / the wav data chunk), or a
+ * built-in set shaped like the game's when the directory is not given.
+ * Exits non-zero on any failure.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.PcmCacheCheck [--assets=www/audio] [--games=N] [--seed=N]
+ */
+final class PcmCacheCheck {
+
+    private static final long KB = 1024L;
+    private static final long MB = 1024L * KB;
+    private static final long[] BUDGETS = {2 * MB, 4 * MB, 8 * MB, 16 * MB};
+    private static final int ROUNDS_PER_GAME = 10;
+    private static final int[] MP3_KBPS = {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320};
+    private static final int[] MP3_RATES = {44100, 48000, 32000};
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static PcmCache.Clip clip(String id, int bytes) {
+        return new PcmCache.Clip(id, ByteBuffer.allocate(bytes), 44100, 1);
+    }
+
+    private static void expect(boolean condition, String message) {
+        if (!condition) {
+            fail(message);
+        }
+    }
+
+    private static void checkLru() {
+        PcmCache cache = new PcmCache(PcmCache.MIN_BUDGET_BYTES);
+        int quarter = (int) (PcmCache.MIN_BUDGET_BYTES / 4);
+        expect(cache.put(clip("a", quarter)), "a cached");
+        expect(cache.put(clip("b", quarter)), "b cached");
+        expect(cache.put(clip("c", quarter)), "c cached");
+        expect(cache.put(clip("d", quarter)), "d cached");
+        expect(cache.getBytes() == PcmCache.MIN_BUDGET_BYTES, "four quarters fill the budget");
+
+        // a becomes most recently used; b is now the eldest.
+        expect(cache.get("a") != null, "a hit");
+        // peek and contains must not change recency.
+        expect(cache.peek("b") != null && cache.contains("b"), "b present");
+        cache.put(clip("e", quarter));
+        expect(!cache.contains("b"), "b evicted first");
+        expect(cache.contains("a") && cache.contains("c") && cache.contains("d") && cache.contains("e"),
+                "a, c, d, e kept");
+        expect(cache.getEvictions() == 1, "one eviction, got " + cache.getEvictions());
+
+        // A half-budget clip pushes out the two eldest (c, d).
+        cache.put(clip("f", 2 * quarter));
+        expect(!cache.contains("c") && !cache.contains("d"), "c and d evicted for f");
+        expect(cache.getBytes() <= cache.getBudgetBytes(), "budget holds after f");
+        expect(cache.getEvictions() == 3, "three evictions, got " + cache.getEvictions());
+
+        expect(cache.get("zzz") == null, "unknown id misses");
+        expect(cache.getHits() == 1 && cache.getMisses() == 1,
+                "hits/misses 1/1, got " + cache.getHits() + "/" + cache.getMisses());
+
+        // Replacing a clip recounts its bytes instead of adding them.
+        long before = cache.getBytes();
+        cache.put(clip("f", 2 * quarter));
+        expect(cache.getBytes() == before, "replacing f keeps bytes at " + before + ", got " + cache.getBytes());
+
+        // Too large for the whole budget: not cached, nothing evicted for it.
+        int clips = cache.getClipCount();
+        expect(!cache.put(clip("huge", (int) PcmCache.MIN_BUDGET_BYTES + 1)), "oversized clip refused");
+        expect(cache.getUncacheable() == 1 && cache.getClipCount() == clips, "oversized clip left the cache alone");
+
+        cache.setBudgetBytes(1L);
+        expect(cache.getBudgetBytes() == PcmCache.MIN_BUDGET_BYTES, "budget clamps to the minimum");
+        cache.setBudgetBytes(PcmCache.MIN_BUDGET_BYTES);
+        cache.put(clip("g", quarter));
+        expect(cache.getBytes() <= cache.getBudgetBytes(), "budget holds after g");
+
+        cache.clear();
+        expect(cache.getBytes() == 0 && cache.getClipCount() == 0, "clear empties the cache");
+        System.out.println("lru: " + (failures == 0 ? "ok" : "FAILED"));
+    }
+
+    private static void checkRandomBound(Random random) {
+        PcmCache cache = new PcmCache(3 * MB);
+        long maxBytes = 0L;
+        for (int i = 0; i < 200_000; i++) {
+            String id = "clip" + random.nextInt(300);
+            if (cache.get(id) == null) {
+                cache.put(clip(id, 4 * (int) KB + random.nextInt(600 * (int) KB)));
+            }
+            if (i % 5000 == 0) {
+                cache.setBudgetBytes((1 + random.nextInt(6)) * MB);
+            }
+            long recount = 0L;
+            if (i % 997 == 0) {
+                for (int c = 0; c < 300; c++) {
+                    PcmCache.Clip held = cache.peek("clip" + c);
+                    if (held != null) {
+                        recount += held.memoryBytes();
+                    }
+                }
+                if (recount != cache.getBytes()) {
+                    fail("byte count " + cache.getBytes() + " != held " + recount);
+                    return;
+                }
+            }
+            if (cache.getBytes() > cache.getBudgetBytes()) {
+                fail("bytes " + cache.getBytes() + " over budget " + cache.getBudgetBytes());
+                return;
+            }
+            maxBytes = Math.max(maxBytes, cache.getBytes());
+        }
+        System.out.println(String.format(Locale.US,
+                "random: 200000 plays, hits=%d misses=%d evictions=%d maxBytes=%d ok",
+                cache.getHits(), cache.getMisses(), cache.getEvictions(), maxBytes));
+    }
+
+    // ---- Game simulation -------------------------------------------------------
+
+    /** Decoded 16-bit size of a www/audio file; -1 if it can't be estimated. */
+    private static int decodedBytes(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[(int) Math.min(in.length(), 1 << 20)];
+            in.readFully(data);
+            String name = file.getName();
+            if (name.endsWith(".wav")) {
+                int channels = (data[22] & 0xff) | (data[23] & 0xff) << 8;
+                int bits = (data[34] & 0xff) | (data[35] & 0xff) << 8;
+                for (int i = 12; i + 8 <= data.length; ) {
+                    int size = (data[i + 4] & 0xff) | (data[i + 5] & 0xff) << 8
+                            | (data[i + 6] & 0xff) << 16 | (data[i + 7] & 0xff) << 24;
+                    if (data[i] == 'd' && data[i + 1] == 'a' && data[i + 2] == 't' && data[i + 3] == 'a') {
+                        return (int) ((long) size / (bits / 8) / channels * channels * 2);
+                    }
+                    i += 8 + size + (size & 1);
+                }
+                return -1;
+            }
+            int i = 0;
+            if (data.length > 10 && data[0] == 'I' && data[1] == 'D' && data[2] == '3') {
+                i = 10 + ((data[6] & 0x7f) << 21 | (data[7] & 0x7f) << 14 | (data[8] & 0x7f) << 7 | (data[9] & 0x7f));
+            }
+            for (; i + 4 <= data.length; i++) {
+                if ((data[i] & 0xff) == 0xff && (data[i + 1] & 0xe0) == 0xe0) {
+                    int kbpsIndex = (data[i + 2] & 0xff) >> 4;
+                    int rateIndex = (data[i + 2] >> 2) & 3;
+                    if (kbpsIndex == 0 || kbpsIndex >= MP3_KBPS.length || rateIndex >= MP3_RATES.length) {
+                        continue;
+                    }
+                    int version = (data[i + 1] >> 3) & 3;
+                    int rate = MP3_RATES[rateIndex] >> (version == 3 ? 0 : version == 2 ? 1 : 2);
+                    int channels = ((data[i + 3] & 0xff) >> 6) == 3 ? 1 : 2;
+                    double seconds = (in.length() - i) * 8.0 / (MP3_KBPS[kbpsIndex] * 1000.0);
+                    return (int) (seconds * rate * channels * 2);
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static void listAssets(File dir, String prefix, Map<String, Integer> out) throws IOException {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                listAssets(file, prefix + file.getName() + "/", out);
+            } else if (file.getName().endsWith(".mp3") || file.getName().endsWith(".wav")) {
+                int bytes = decodedBytes(file);
+                if (bytes > 0) {
+                    out.put(prefix + file.getName(), bytes);
+                }
+            }
+        }
+    }
+
+    /** Roughly the shipped set: 44.1 kHz mono prompts, 30 animals, six with celebration clips. */
+    private static Map<String, Integer> builtInAssets() {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (int i = 1; i <= 3; i++) {
+            sizes.put("audio/pre_question" + i + ".mp3", 135 * (int) KB);
+            sizes.put("audio/animals/pre_question" + i + ".mp3", 135 * (int) KB);
+            sizes.put("audio/one_more_time" + i + ".mp3", 194 * (int) KB);
+            sizes.put("audio/wrong_v" + i + ".mp3", 182 * (int) KB);
+        }
+        for (int i = 1; i <= 5; i++) {
+            sizes.put("audio/correct_v" + i + ".mp3", 212 * (int) KB);
+        }
+        sizes.put("audio/correct.wav", 437 * (int) KB);
+        sizes.put("audio/wrong.wav", 80 * (int) KB);
+        for (int n = 0; n < 30; n++) {
+            String animal = "animal" + n;
+            if (n < 6) {
+                for (int i = 1; i <= 3; i++) {
+                    sizes.put("audio/animals/" + animal + "_cv" + i + ".mp3", 260 * (int) KB);
+                }
+            }
+            sizes.put("audio/animals/" + animal + "_e.mp3", 350 * (int) KB);
+        }
+        return sizes;
+    }
+
+    private static List<String> matching(Map<String, Integer> sizes, String fragment) {
+        List<String> out = new ArrayList<>();
+        for (String id : sizes.keySet()) {
+            if (id.contains(fragment)) {
+                out.add(id);
+            }
+        }
+        return out;
+    }
+
+    private static String pick(Random random, List<String> ids) {
+        return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+    }
+
+    private static final class Sim {
+        final PcmCache cache;
+        final Map<String, Integer> sizes;
+        long stalls = 0L;
+        long plays = 0L;
+        long maxBytes = 0L;
+
+        Sim(long budget, Map<String, Integer> sizes) {
+            this.cache = new PcmCache(budget);
+            this.sizes = sizes;
+        }
+
+        /** preloadSounds: decodes what is missing, off the play path. */
+        void preload(List<String> ids) {
+            for (String id : ids) {
+                if (id != null && cache.peek(id) == null) {
+                    cache.put(clip(id, sizes.get(id)));
+                }
+            }
+            maxBytes = Math.max(maxBytes, cache.getBytes());
+        }
+
+        void play(String id) {
+            if (id == null) {
+                return;
+            }
+            plays++;
+            if (cache.get(id) == null) {
+                stalls++;
+                cache.put(clip(id, sizes.get(id)));
+            }
+            maxBytes = Math.max(maxBytes, cache.getBytes());
+        }
+    }
+
+    private static void simulate(Map<String, Integer> sizes, int games, long seed) {
+        List<String> preQuestions = matching(sizes, "pre_question");
+        List<String> oneMoreTime = matching(sizes, "one_more_time");
+        List<String> wrongs = matching(sizes, "wrong_v");
+        List<String> corrects = matching(sizes, "correct_v");
+        List<String> common = new ArrayList<>();
+        common.addAll(preQuestions);
+        common.addAll(oneMoreTime);
+        common.addAll(wrongs);
+        common.addAll(corrects);
+        common.addAll(matching(sizes, "audio/wrong.wav"));
+        common.addAll(matching(sizes, "audio/correct.wav"));
+        List<String> animals = new ArrayList<>();
+        for (String id : matching(sizes, "_e.mp3")) {
+            animals.add(id.substring(0, id.length() - "_e.mp3".length()));
+        }
+        if (animals.isEmpty()) {
+            fail("no animal effect clips in the asset set");
+            return;
+        }
+        long total = 0L;
+        for (int bytes : sizes.values()) {
+            total += bytes;
+        }
+        System.out.println(String.format(Locale.US,
+                "assets: %d clips, %.1f MB decoded (%d common, %d animals)",
+                sizes.size(), total / (double) MB, common.size(), animals.size()));
+
+        for (long budget : BUDGETS) {
+            Sim sim = new Sim(budget, sizes);
+            Random random = new Random(seed);
+            sim.preload(common);
+            for (int game = 0; game < games; game++) {
+                for (int round = 0; round < ROUNDS_PER_GAME; round++) {
+                    String animal = pick(random, animals);
+                    List<String> celebration = matching(sizes, animal + "_cv");
+                    List<String> warm = new ArrayList<>(celebration);
+                    warm.add(animal + "_e.mp3");
+                    // The game warms the round's animal clips as the first attempt starts.
+                    sim.preload(warm);
+                    sim.play(pick(random, preQuestions));
+                    while (random.nextInt(3) == 0) {
+                        sim.play(pick(random, wrongs));
+                        sim.play(pick(random, oneMoreTime));
+                    }
+                    sim.play(pick(random, corrects));
+                    sim.play(pick(random, celebration));
+                    sim.play(animal + "_e.mp3");
+                }
+            }
+            if (sim.maxBytes > sim.cache.getBudgetBytes()) {
+                fail("budget " + budget + " exceeded: " + sim.maxBytes);
+            }
+            System.out.println(String.format(Locale.US,
+                    "budget %2d MB: plays=%d stalls=%d (%.2f%%) evictions=%d uncacheable=%d maxBytes=%.1f MB",
+                    budget / MB, sim.plays, sim.stalls, 100.0 * sim.stalls / Math.max(1L, sim.plays),
+                    sim.cache.getEvictions(), sim.cache.getUncacheable(), sim.maxBytes / (double) MB));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String assets = null;
+        int games = 50;
+        long seed = 1L;
+        for (String arg : args) {
+            if (arg.startsWith("--assets=")) {
+                assets = arg.substring("--assets=".length());
+            } else if (arg.startsWith("--games=")) {
+                games = Integer.parseInt(arg.substring("--games=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else {
+                System.err.println("usage: PcmCacheCheck [--assets=www/audio] [--games=N] [--seed=N]");
+                System.exit(2);
+            }
+        }
+
+        checkLru();
+        checkRandomBound(new Random(seed));
+
+        Map<String, Integer> sizes = builtInAssets();
+        if (assets != null) {
+            sizes = new LinkedHashMap<>();
+            listAssets(new File(assets), "audio/", sizes);
+        }
+        simulate(sizes, games, seed);
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
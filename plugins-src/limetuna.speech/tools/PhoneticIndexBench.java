@@ -0,0 +1,224 @@
+package com.limetuna.speech;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks the phonetic fallback of {@link VocabularyMatcher} on the misheard
+ * corpus (tools/fixtures/animal_misheard.txt) over the game's vocabulary
+ * (the target lines of animal_matching.txt): every "heard" phrase must
+ * resolve to its animal, no "reject" phrase may, and a "miss" that starts
+ * matching is reported. Prints which strategy matched each heard phrase and
+ * how many the JS isAnimalMatch rules alone would have missed (each one a
+ * "Try again!" round). Then times match() on the corpus and a
+ * {@link Metaphone} key lookup in the index against a linear scan of every
+ * keyword's key. Exits non-zero on a failed case.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.PhoneticIndexBench [--iterations=N]
+ *       [--targets=tools/fixtures/animal_matching.txt] [tools/fixtures/animal_misheard.txt]
+ */
+final class PhoneticIndexBench {
+
+    private static final String DEFAULT_TARGETS = "tools/fixtures/animal_matching.txt";
+    private static final String DEFAULT_CORPUS = "tools/fixtures/animal_misheard.txt";
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        System.out.println("FAIL " + message);
+    }
+
+    private static List<String[]> readLines(String path) throws IOException {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    lines.add(line.split("\t", -1));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static void usage() {
+        System.err.println("usage: PhoneticIndexBench [--iterations=N] [--targets=file] [corpus]");
+        System.exit(2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = 2000;
+        String targetsPath = DEFAULT_TARGETS;
+        String corpusPath = DEFAULT_CORPUS;
+        for (String arg : args) {
+            if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else if (arg.startsWith("--targets=")) {
+                targetsPath = arg.substring("--targets=".length());
+            } else if (arg.startsWith("--")) {
+                usage();
+            } else {
+                corpusPath = arg;
+            }
+        }
+
+        Map<String, List<String>> vocabulary = new LinkedHashMap<>();
+        for (String[] parts : readLines(targetsPath)) {
+            if ("target".equals(parts[0])) {
+                List<String> keywords = new ArrayList<>();
+                Collections.addAll(keywords, parts[2].split("\\|"));
+                vocabulary.put(parts[1], keywords);
+            }
+        }
+        VocabularyMatcher matcher = new VocabularyMatcher(vocabulary);
+        System.out.println("targets=" + matcher.getTargetCount() + " keywords=" + matcher.getKeywordCount()
+                + " phonetic_keys=" + matcher.getPhoneticKeyCount());
+
+        List<String[]> cases = readLines(corpusPath);
+        Map<String, Integer> strategies = new TreeMap<>();
+        int heard = 0;
+        int rescued = 0;
+        for (String[] c : cases) {
+            String kind = c[0];
+            String id = c[1];
+            List<String> phrase = Collections.singletonList(c[2]);
+            if (!vocabulary.containsKey(id)) {
+                fail("unknown target " + id + " for \"" + c[2] + "\"");
+                continue;
+            }
+            VocabularyMatcher.Match m = matcher.match(phrase, id);
+            boolean named = m != null && id.equals(m.targetId);
+            String got = m == null ? "none" : m.targetId + "/" + m.strategy;
+            if ("heard".equals(kind)) {
+                heard++;
+                if (!named) {
+                    fail("\"" + c[2] + "\" should name " + id + ", got " + got);
+                    continue;
+                }
+                strategies.merge(m.strategy, 1, Integer::sum);
+                if (!VocabularyMatcherBench.LegacyAnimalMatcher.isAnimalMatch(phrase, vocabulary.get(id))) {
+                    rescued++;
+                    System.out.println(String.format(Locale.US, "  %-14s -> %-9s %s (key %s)",
+                            c[2], id, m.strategy, Metaphone.encode(VocabularyMatcher.normalize(c[2]))));
+                }
+            } else if ("reject".equals(kind)) {
+                if (named) {
+                    fail("\"" + c[2] + "\" must not name " + id + " (" + got + ")");
+                }
+            } else if ("miss".equals(kind)) {
+                if (named) {
+                    System.out.println("  known miss \"" + c[2] + "\" now names " + id + "/" + m.strategy
+                            + "; move it to heard");
+                }
+            } else {
+                fail("unknown line kind " + kind);
+            }
+        }
+        System.out.println("heard=" + heard + " strategies=" + strategies
+                + " missed_by_js_rules=" + rescued + " cases=" + cases.size());
+
+        // Timing: the plugin's lookup (match with the prompted id) over the corpus.
+        List<List<String>> phrases = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (String[] c : cases) {
+            phrases.add(Collections.singletonList(c[2]));
+            ids.add(c[1]);
+        }
+        long sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            sink += runMatch(matcher, phrases, ids, iterations / 10 + 1);
+        }
+        long t0 = System.nanoTime();
+        sink += runMatch(matcher, phrases, ids, iterations);
+        double matchNs = (System.nanoTime() - t0) / ((double) iterations * phrases.size());
+
+        // Key lookup: hash index against comparing with every keyword's key.
+        List<String> keys = new ArrayList<>();
+        for (String[] c : cases) {
+            keys.add(Metaphone.encode(VocabularyMatcher.normalize(c[2])));
+        }
+        List<String> keywordKeys = new ArrayList<>();
+        for (List<String> kws : vocabulary.values()) {
+            for (String kw : kws) {
+                keywordKeys.add(Metaphone.encode(VocabularyMatcher.normalize(kw)));
+            }
+        }
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            sink += runIndex(matcher, keys, iterations / 10 + 1) + runScan(keywordKeys, keys, iterations / 10 + 1)
+                    + runEncode(phrases, iterations / 10 + 1);
+        }
+        long t1 = System.nanoTime();
+        sink += runIndex(matcher, keys, iterations);
+        long t2 = System.nanoTime();
+        sink += runScan(keywordKeys, keys, iterations);
+        long t3 = System.nanoTime();
+        sink += runEncode(phrases, iterations);
+        long t4 = System.nanoTime();
+        double ops = (double) iterations * keys.size();
+        System.out.println(String.format(Locale.US,
+                "match: %.1f ns/phrase  encode: %.1f ns/phrase  key lookup: index %.1f ns, scan of %d keys %.1f ns"
+                        + "  (sink=%d)",
+                matchNs, (t4 - t3) / ops, (t2 - t1) / ops, keywordKeys.size(), (t3 - t2) / ops, sink));
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static long runMatch(VocabularyMatcher matcher, List<List<String>> phrases, List<String> ids,
+                                 int iterations) {
+        long hits = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (int i = 0; i < phrases.size(); i++) {
+                if (matcher.match(phrases.get(i), ids.get(i)) != null) hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static long runIndex(VocabularyMatcher matcher, List<String> keys, int iterations) {
+        long hits = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (String key : keys) {
+                hits += matcher.phoneticCandidates(key).size();
+            }
+        }
+        return hits;
+    }
+
+    private static long runScan(List<String> keywordKeys, List<String> keys, int iterations) {
+        long hits = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (String key : keys) {
+                for (String candidate : keywordKeys) {
+                    if (candidate.equals(key)) hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static long runEncode(List<List<String>> phrases, int iterations) {
+        long length = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (List<String> phrase : phrases) {
+                String text = phrase.get(0);
+                length += Metaphone.encode(text, 0, text.length()).length();
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,510 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Replays simulated answers through {@link Endpointer} on a virtual clock,
+ * once with its speech-length rule and once with the delay
+ * {@link PostSilencePolicy} picks from a per-target {@link PostSilenceModel},
+ * and compares how often each cut an answer off at a pause inside it and how
+ * long each took from the true end of speech to the result.
+ *
+ * Each target has its own answers: one or more stretches of speech, and a
+ * chance of a silent gap between them (a child breaking "hip-po-pot-a-mus"
+ * up). The engine returns its result a short while after our commit, or now
+ * and then ends the listen itself. A commit before the last stretch of
+ * speech has started counts as premature. The model learns from each attempt
+ * exactly as the plugin does, and is encoded and decoded every
+ * --sessionRounds rounds to stand in for an app restart.
+ *
+ * Fails when a decoded model does not plan like the one it was encoded from,
+ * when a target's premature rate once learned exceeds --maxRate by more than
+ * sampling slack, when the model cuts off more answers overall than the
+ * rule, or when on a target that hardly ever pauses it is slower than the
+ * rule by more than its exploring attempts cost. The model can go no lower
+ * than minPostSilenceMs, where the rule already sits for most answers; try
+ * --minPostSilenceMs=250 to give it room.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.PostSilenceModelReplay [--rounds=N] [--sessionRounds=N]
+ *       [--maxRate=0.05] [--exploreEvery=N] [--postSilenceMs=N] [--minPostSilenceMs=N]
+ *       [--seed=N] [--verbose]
+ */
+final class PostSilenceModelReplay {
+
+    private static final long RMS_INTERVAL_MS = 50L;
+    private static final float SPEECH_DB = 8.0f;
+    private static final float SILENCE_DB = -2.0f;
+    /** Our commit to the engine's final result. */
+    private static final long FINISH_MIN_MS = 250L;
+    private static final long FINISH_MAX_MS = 550L;
+    /** Share of listens the engine ends itself, this long after speech ends. */
+    private static final double ENGINE_END_SHARE = 0.25;
+    private static final long ENGINE_END_MIN_MS = 500L;
+    private static final long ENGINE_END_MAX_MS = 1400L;
+    /** Share of listens with partial results (the rule boosts the delay without them). */
+    private static final double PARTIALS_SHARE = 0.8;
+    /** Added to --maxRate before a learned target fails, for the simulated sample size. */
+    private static final double RATE_SLACK = 0.05;
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    /** How a target tends to be said. */
+    private static final class Target {
+        final String name;
+        final long[] stretchesMs;
+        final double gapChance;
+        final long gapMinMs;
+        final long gapMaxMs;
+
+        Target(String name, long[] stretchesMs, double gapChance, long gapMinMs, long gapMaxMs) {
+            this.name = name;
+            this.stretchesMs = stretchesMs;
+            this.gapChance = gapChance;
+            this.gapMinMs = gapMinMs;
+            this.gapMaxMs = gapMaxMs;
+        }
+    }
+
+    private static final Target[] TARGETS = {
+            new Target("b", new long[]{350L}, 0.0, 0L, 0L),
+            new Target("cat", new long[]{300L, 250L}, 0.03, 400L, 700L),
+            new Target("elephant", new long[]{350L, 450L}, 0.4, 400L, 1000L),
+            new Target("hippopotamus", new long[]{300L, 350L, 500L}, 0.6, 500L, 1100L),
+    };
+
+    /** One answer, drawn once so the rule and the model hear the same thing. */
+    private static final class Answer {
+        final Target target;
+        final long[] segments;
+        final boolean partials;
+        final boolean engineEnds;
+        final long engineEndMs;
+        final long finishMs;
+
+        Answer(Target target, Random random) {
+            this.target = target;
+            long[] out = new long[target.stretchesMs.length * 2 - 1];
+            for (int i = 0; i < target.stretchesMs.length; i++) {
+                out[i * 2] = target.stretchesMs[i];
+                if (i > 0) {
+                    boolean gap = random.nextDouble() < target.gapChance;
+                    out[i * 2 - 1] = gap ? between(random, target.gapMinMs, target.gapMaxMs) : 0L;
+                }
+            }
+            this.segments = out;
+            this.partials = random.nextDouble() < PARTIALS_SHARE;
+            this.engineEnds = random.nextDouble() < ENGINE_END_SHARE;
+            this.engineEndMs = between(random, ENGINE_END_MIN_MS, ENGINE_END_MAX_MS);
+            this.finishMs = between(random, FINISH_MIN_MS, FINISH_MAX_MS);
+        }
+
+        long speechEndMs() {
+            long total = 0L;
+            for (long segment : segments) {
+                total += segment;
+            }
+            return total;
+        }
+
+        /** Start of the last stretch of speech. */
+        long lastStretchMs() {
+            return speechEndMs() - segments[segments.length - 1];
+        }
+    }
+
+    private static long between(Random random, long min, long max) {
+        return max <= min ? min : min + (long) (random.nextDouble() * (max - min));
+    }
+
+    /** What one listen did. */
+    private static final class Outcome {
+        AttemptTiming timing;
+        boolean premature;
+        /** True end of speech to the result. */
+        long latencyMs;
+    }
+
+    private static Outcome listen(Answer answer, ThresholdConfig config, PostSilencePolicy.Plan plan) {
+        final VirtualTimer timer = new VirtualTimer(1000L);
+        final long[] commitMs = {-1L};
+        final Endpointer endpointer = new Endpointer(timer, timer, new Endpointer.Listener() {
+            @Override
+            public void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs) {
+            }
+
+            @Override
+            public void onPostSilenceCommit(long nowMs) {
+                commitMs[0] = nowMs;
+            }
+
+            @Override
+            public void onFailSafeCommit(long nowMs) {
+                commitMs[0] = nowMs;
+            }
+        });
+        AttemptTiming timing = new AttemptTiming();
+        timing.postSilencePlan = plan;
+        endpointer.setPostSilencePlan(plan != null ? plan.delayMs : -1L);
+        endpointer.begin(timing, config);
+
+        long start = timer.nowMs();
+        long speechEnd = start + answer.speechEndMs();
+        long engineEnd = answer.engineEnds ? speechEnd + answer.engineEndMs : Long.MAX_VALUE;
+        endpointer.onBeginningOfSpeech(start);
+        long t = start;
+        long resultsMs = -1L;
+        while (resultsMs < 0) {
+            timer.advanceTo(t);
+            if (commitMs[0] > 0) {
+                resultsMs = commitMs[0] + answer.finishMs;
+                break;
+            }
+            if (t >= engineEnd) {
+                endpointer.stop();
+                resultsMs = t;
+                break;
+            }
+            if (answer.partials && t == start + 300L) {
+                endpointer.onPartialResults(1);
+            }
+            endpointer.onRms(speaking(answer, t - start) ? SPEECH_DB : SILENCE_DB, t);
+            t += RMS_INTERVAL_MS;
+        }
+        timing.nativeResultsMs = resultsMs;
+        Outcome outcome = new Outcome();
+        outcome.timing = timing;
+        outcome.premature = timing.nativePostSilenceCommitMs > 0
+                && timing.nativePostSilenceCommitMs < start + answer.lastStretchMs();
+        outcome.latencyMs = resultsMs - speechEnd;
+        endpointer.reset();
+        return outcome;
+    }
+
+    private static boolean speaking(Answer answer, long atMs) {
+        long at = 0L;
+        for (int i = 0; i < answer.segments.length; i++) {
+            if (atMs < at + answer.segments[i]) {
+                return i % 2 == 0;
+            }
+            at += answer.segments[i];
+        }
+        return false;
+    }
+
+    /** What LimeTunaSpeech.foldAttemptIntoPostSilenceModel does with a finished attempt. */
+    private static void learn(PostSilenceModel model, AttemptTiming timing) {
+        if (timing.postSilenceDelayMs <= 0) {
+            return;
+        }
+        int commit = AttemptMetrics.commitReason(timing);
+        if (commit != AttemptMetrics.COMMIT_POST_SILENCE && commit != AttemptMetrics.COMMIT_ENGINE) {
+            return;
+        }
+        long gapMs = -1L;
+        if (timing.nativeResultsMs > 0 && timing.nativeRmsSpeechEndMs > 0
+                && timing.nativeResultsMs >= timing.nativeRmsSpeechEndMs) {
+            gapMs = timing.nativeResultsMs - timing.nativeRmsSpeechEndMs;
+        }
+        model.record(timing.postSilenceDelayMs, timing.longestPauseMs, gapMs,
+                commit == AttemptMetrics.COMMIT_POST_SILENCE);
+    }
+
+    /** Per-target totals for one run. */
+    private static final class Tally {
+        int listens;
+        int premature;
+        long delaySumMs;
+        long[] latencies = new long[64];
+        // Once learned (source model / explore).
+        int learnedListens;
+        int learnedPremature;
+        double predictedRateSum;
+        int predictedRates;
+        long predictedGapSumMs;
+        long gapSumMs;
+        int gaps;
+        PostSilencePolicy.Plan lastPlan;
+
+        void add(Outcome outcome) {
+            if (listens == latencies.length) {
+                latencies = Arrays.copyOf(latencies, listens * 2);
+            }
+            latencies[listens++] = outcome.latencyMs;
+            if (outcome.premature) {
+                premature++;
+            }
+            delaySumMs += Math.max(0L, outcome.timing.postSilenceDelayMs);
+            PostSilencePolicy.Plan plan = outcome.timing.postSilencePlan;
+            if (plan == null || PostSilencePolicy.SOURCE_LEARNING.equals(plan.source)) {
+                return;
+            }
+            lastPlan = plan;
+            learnedListens++;
+            if (outcome.premature) {
+                learnedPremature++;
+            }
+            if (plan.predictedPrematureRate >= 0) {
+                predictedRateSum += plan.predictedPrematureRate;
+                predictedRates++;
+            }
+            AttemptTiming timing = outcome.timing;
+            if (plan.predictedGapMs >= 0 && timing.nativeRmsSpeechEndMs > 0) {
+                predictedGapSumMs += plan.predictedGapMs;
+                gapSumMs += timing.nativeResultsMs - timing.nativeRmsSpeechEndMs;
+                gaps++;
+            }
+        }
+
+        long latencyPercentile(double p) {
+            if (listens == 0) {
+                return -1L;
+            }
+            long[] sorted = Arrays.copyOf(latencies, listens);
+            Arrays.sort(sorted);
+            return sorted[Math.min(listens - 1, (int) Math.floor(p * listens))];
+        }
+
+        double latencyMean() {
+            long sum = 0L;
+            for (int i = 0; i < listens; i++) {
+                sum += latencies[i];
+            }
+            return listens == 0 ? 0.0 : (double) sum / listens;
+        }
+
+        double prematureRate() {
+            return listens == 0 ? 0.0 : (double) premature / listens;
+        }
+    }
+
+    private static void print(String run, Target target, Tally tally) {
+        StringBuilder line = new StringBuilder(String.format(Locale.US,
+                "%-5s %-13s listens=%-4d premature=%5.1f%% mean_delay_ms=%4d latency_ms p50=%4d p90=%4d mean=%6.1f",
+                run, target.name, tally.listens, 100.0 * tally.prematureRate(),
+                tally.listens == 0 ? 0 : tally.delaySumMs / tally.listens,
+                tally.latencyPercentile(0.5), tally.latencyPercentile(0.9), tally.latencyMean()));
+        if (tally.learnedListens > 0) {
+            line.append(String.format(Locale.US,
+                    " | learned=%d premature=%.1f%% predicted=%.1f%% gap_ms=%d predicted_gap_ms=%d last_delay_ms=%d",
+                    tally.learnedListens, 100.0 * tally.learnedPremature / tally.learnedListens,
+                    tally.predictedRates == 0 ? -1.0 : 100.0 * tally.predictedRateSum / tally.predictedRates,
+                    tally.gaps == 0 ? -1L : tally.gapSumMs / tally.gaps,
+                    tally.gaps == 0 ? -1L : tally.predictedGapSumMs / tally.gaps,
+                    tally.lastPlan.delayMs));
+        }
+        System.out.println(line);
+    }
+
+    /** A decoded model must remember the same attempts and plan the same delay. */
+    private static PostSilenceModel restart(String name, PostSilenceModel model, PostSilencePolicy policy,
+                                            ThresholdConfig config) {
+        String encoded = model.encode();
+        PostSilenceModel decoded = PostSilenceModel.decode(encoded);
+        if (!encoded.equals(decoded.encode())) {
+            fail(name + ": decode(encode()) changed the model: " + encoded + " -> " + decoded.encode());
+        }
+        PostSilencePolicy.Plan before = policy.plan(model, config);
+        PostSilencePolicy.Plan after = policy.plan(decoded, config);
+        if (before.delayMs != after.delayMs || !before.source.equals(after.source)) {
+            fail(name + ": plan before restart " + before + ", after " + after);
+        }
+        return decoded;
+    }
+
+    public static void main(String[] args) {
+        int rounds = 1200;
+        int sessionRounds = 30;
+        double maxRate = PostSilencePolicy.DEFAULT_MAX_PREMATURE_RATE;
+        int exploreEvery = PostSilencePolicy.DEFAULT_EXPLORE_EVERY;
+        long postSilenceMs = ThresholdConfig.POST_SILENCE_MS;
+        long minPostSilenceMs = ThresholdConfig.MIN_POST_SILENCE_MS;
+        long seed = 1L;
+        boolean verbose = false;
+        for (String arg : args) {
+            if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else if (arg.startsWith("--sessionRounds=")) {
+                sessionRounds = Math.max(1, Integer.parseInt(arg.substring("--sessionRounds=".length())));
+            } else if (arg.startsWith("--maxRate=")) {
+                maxRate = Double.parseDouble(arg.substring("--maxRate=".length()));
+            } else if (arg.startsWith("--exploreEvery=")) {
+                exploreEvery = Integer.parseInt(arg.substring("--exploreEvery=".length()));
+            } else if (arg.startsWith("--postSilenceMs=")) {
+                postSilenceMs = Long.parseLong(arg.substring("--postSilenceMs=".length()));
+            } else if (arg.startsWith("--minPostSilenceMs=")) {
+                minPostSilenceMs = Long.parseLong(arg.substring("--minPostSilenceMs=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else {
+                System.err.println("usage: PostSilenceModelReplay [--rounds=N] [--sessionRounds=N]"
+                        + " [--maxRate=0.05] [--exploreEvery=N] [--postSilenceMs=N] [--minPostSilenceMs=N]"
+                        + " [--seed=N] [--verbose]");
+                System.exit(2);
+            }
+        }
+
+        SpeechLog.setLevel(verbose ? SpeechLog.DEBUG : SpeechLog.ERROR);
+        ThresholdConfig defaults = ThresholdConfig.defaults();
+        ThresholdConfig config = new ThresholdConfig(defaults.rmsStartThresholdDb, defaults.rmsEndThresholdDb,
+                defaults.rmsResumeDeltaDb, postSilenceMs, minPostSilenceMs, defaults.maxUtteranceMs,
+                defaults.rmsVoiceTriggerDb, defaults.rmsSmoothTailSamples, defaults.silenceHoldMs);
+        PostSilencePolicy policy = new PostSilencePolicy(true, maxRate, exploreEvery);
+        Random random = new Random(seed);
+
+        Map<String, PostSilenceModel> models = new LinkedHashMap<>();
+        Map<String, Tally> ruleTallies = new LinkedHashMap<>();
+        Map<String, Tally> modelTallies = new LinkedHashMap<>();
+        for (Target target : TARGETS) {
+            models.put(target.name, new PostSilenceModel());
+            ruleTallies.put(target.name, new Tally());
+            modelTallies.put(target.name, new Tally());
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            if (round > 0 && round % sessionRounds == 0) {
+                for (Target target : TARGETS) {
+                    models.put(target.name, restart(target.name, models.get(target.name), policy, config));
+                }
+            }
+            Target target = TARGETS[random.nextInt(TARGETS.length)];
+            Answer answer = new Answer(target, random);
+
+            ruleTallies.get(target.name).add(listen(answer, config, null));
+
+            PostSilenceModel model = models.get(target.name);
+            PostSilencePolicy.Plan plan = policy.plan(model, config);
+            Outcome outcome = listen(answer, config, plan);
+            modelTallies.get(target.name).add(outcome);
+            learn(model, outcome.timing);
+            if (verbose) {
+                System.out.println(String.format(Locale.US, "round=%d target=%s %s applied=%d pause=%d premature=%b",
+                        round, target.name, plan, outcome.timing.postSilenceDelayMs,
+                        outcome.timing.longestPauseMs, outcome.premature));
+            }
+        }
+
+        // What the longer exploring attempts may add to a target's mean.
+        double exploreCostMs = exploreEvery > 0 ? (double) PostSilencePolicy.EXPLORE_MIN_EXTRA_MS / exploreEvery : 0.0;
+        Tally ruleAll = new Tally();
+        Tally modelAll = new Tally();
+        for (Target target : TARGETS) {
+            Tally rule = ruleTallies.get(target.name);
+            Tally learned = modelTallies.get(target.name);
+            print("rule", target, rule);
+            print("model", target, learned);
+            ruleAll.premature += rule.premature;
+            ruleAll.listens += rule.listens;
+            modelAll.premature += learned.premature;
+            modelAll.listens += learned.listens;
+
+            if (learned.learnedListens >= PostSilenceModel.MAX_SAMPLES) {
+                double rate = (double) learned.learnedPremature / learned.learnedListens;
+                if (rate > maxRate + RATE_SLACK) {
+                    fail(String.format(Locale.US, "%s: %.1f%% premature once learned, limit %.1f%%",
+                            target.name, 100.0 * rate, 100.0 * maxRate));
+                }
+            }
+            if (target.gapChance < maxRate && learned.listens > PostSilenceModel.MAX_SAMPLES
+                    && learned.latencyMean() > rule.latencyMean() + exploreCostMs) {
+                fail(String.format(Locale.US, "%s: model mean latency %.1f ms, rule %.1f ms",
+                        target.name, learned.latencyMean(), rule.latencyMean()));
+            }
+        }
+        System.out.println(String.format(Locale.US, "premature overall: rule=%.1f%% model=%.1f%%",
+                100.0 * ruleAll.prematureRate(), 100.0 * modelAll.prematureRate()));
+        if (modelAll.premature > ruleAll.premature) {
+            fail("the model cut off more answers than the rule");
+        }
+
+        checkStore(config);
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * PostSilenceModelStore over a map standing in for SharedPreferences: one
+     * batch per flush, nothing written between flushes, and the key count
+     * capped with the least recently used key evicted.
+     */
+    private static void checkStore(ThresholdConfig config) {
+        final Map<String, String> prefs = new LinkedHashMap<>();
+        final int[] batches = {0};
+        PostSilenceModelStore.Source source = new PostSilenceModelStore.Source() {
+            @Override
+            public String load(String key) {
+                return prefs.get(key);
+            }
+        };
+        PostSilenceModelStore.Writer writer = new PostSilenceModelStore.Writer() {
+            @Override
+            public void save(String key, String encoded) {
+                prefs.put(key, encoded);
+            }
+
+            @Override
+            public void remove(String key) {
+                prefs.remove(key);
+            }
+
+            @Override
+            public void saveIndex(String encodedIndex) {
+                prefs.put("index", encodedIndex);
+                batches[0]++;
+            }
+        };
+
+        PostSilenceModelStore store = new PostSilenceModelStore(source, new ArrayList<String>());
+        int keys = PostSilenceModelStore.MAX_MODELS + 16;
+        for (int i = 0; i < keys; i++) {
+            String key = "profile/target" + i;
+            store.get(key).record(config.postSilenceMs, 0L, 300L, true);
+            store.markDirty(key);
+        }
+        check(prefs.isEmpty(), "store wrote before flush: " + prefs.size() + " entries");
+        store.flush(writer);
+        store.flush(writer);
+        check(batches[0] == 1, "two flushes with one change wrote " + batches[0] + " batches");
+        check(prefs.size() == PostSilenceModelStore.MAX_MODELS + 1,
+                "store keeps " + (prefs.size() - 1) + " models, cap " + PostSilenceModelStore.MAX_MODELS);
+        check(!prefs.containsKey("profile/target0") && prefs.containsKey("profile/target" + (keys - 1)),
+                "eviction did not drop the least recently used key");
+
+        // A new run: the index restores the order, a touched key survives the next eviction.
+        List<String> index = PostSilenceModelStore.decodeIndex(prefs.get("index"));
+        store = new PostSilenceModelStore(source, index);
+        String oldest = index.get(0);
+        check(store.get(oldest).getSamples() == 1, "model did not round-trip through the store");
+        store.get("profile/new");
+        store.flush(writer);
+        check(prefs.containsKey(oldest) && !prefs.containsKey(index.get(1)),
+                "a reused key was evicted before an idle one");
+        System.out.println(String.format(Locale.US, "store: %d keys through a cap of %d, %d batches",
+                keys + 1, PostSilenceModelStore.MAX_MODELS, batches[0]));
+    }
+
+    private static void check(boolean ok, String message) {
+        if (!ok) {
+            fail(message);
+        }
+    }
+}
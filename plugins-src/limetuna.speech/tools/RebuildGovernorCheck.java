@@ -0,0 +1,242 @@
+package com.limetuna.speech;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks {@link RebuildGovernor} on a virtual clock. First the backoff: each
+ * rebuild without a good attempt in between must wait within [d/2, d] of
+ * the doubled delay d, and a good attempt must clear it. Then a simulated
+ * rebuild storm: a speech service that fails every listen with
+ * ERROR_RECOGNIZER_BUSY from --brokenFromMs until --brokenUntilMs, driven
+ * by a game that retries at once after an engine error and waits
+ * retry_after_ms after ENGINE_CIRCUIT_OPEN (as www/js/animals.js does).
+ * The storm runs with and without the governor and the tool prints rebuilds,
+ * main-thread time spent in destroy/create (--rebuildCostMs each), the
+ * most rebuilds in any {@link RebuildGovernor#WINDOW_MS}, rejected starts,
+ * and how long after the service recovers the first listen succeeds.
+ *
+ * Fails when a window holds more rebuilds than the cap allows (plus the
+ * half-open probes), when the circuit never opens during the storm, or when
+ * it is not closed again soon after the service recovers.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.RebuildGovernorCheck [--durationMs=N] [--brokenFromMs=N]
+ *       [--brokenUntilMs=N] [--rebuildCostMs=N] [--seed=N] [--verbose]
+ */
+final class RebuildGovernorCheck {
+
+    /** A failed listen: BUSY arrives this long after startListening. */
+    private static final long BUSY_AFTER_MS = 30L;
+    /** A good listen, start to result. */
+    private static final long LISTEN_MS = 3000L;
+    /** The game's gap between rounds after a result. */
+    private static final long ROUND_GAP_MS = 1500L;
+    /** JS round trip before the game retries after an engine error. */
+    private static final long JS_RETRY_MS = 15L;
+
+    private static int failures = 0;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static final class ManualClock implements Endpointer.Clock {
+        long now = 0L;
+
+        @Override
+        public long nowMs() {
+            return now;
+        }
+    }
+
+    private static void checkBackoff(long seed) {
+        ManualClock clock = new ManualClock();
+        RebuildGovernor governor = new RebuildGovernor(clock, new Random(seed));
+        if (governor.backoffMs() != 0) {
+            fail("backoff: a fresh governor makes the first rebuild wait");
+        }
+        StringBuilder line = new StringBuilder("backoff ms:");
+        long expected = RebuildGovernor.BASE_BACKOFF_MS;
+        for (int i = 0; i < 6; i++) {
+            governor.onRebuild();
+            long wait = governor.backoffMs();
+            line.append(' ').append(wait);
+            if (wait < expected / 2 || wait > expected) {
+                fail("backoff: rebuild " + (i + 1) + " waits " + wait + " ms, outside [" + expected / 2 + ", "
+                        + expected + "]");
+            }
+            clock.now += wait;
+            expected = Math.min(RebuildGovernor.MAX_BACKOFF_MS, expected * 2);
+        }
+        System.out.println(line);
+        governor.onAttemptSucceeded();
+        if (governor.backoffMs() != 0 || governor.getStreak() != 0) {
+            fail("backoff: a good attempt does not clear the backoff");
+        }
+        if (!RebuildGovernor.STATE_CLOSED.equals(governor.getState())) {
+            fail("backoff: six spaced-out rebuilds opened the circuit");
+        }
+    }
+
+    private static final class StormResult {
+        final List<Long> rebuildTimes = new ArrayList<>();
+        long rejected;
+        long deferrals;
+        long failedListens;
+        long goodListens;
+        long opens;
+        long firstGoodAfterRecoveryMs = -1L;
+        String finalState = "-";
+
+        int maxInWindow(long windowMs) {
+            int max = 0;
+            int from = 0;
+            for (int to = 0; to < rebuildTimes.size(); to++) {
+                while (rebuildTimes.get(to) - rebuildTimes.get(from) >= windowMs) {
+                    from++;
+                }
+                max = Math.max(max, to - from + 1);
+            }
+            return max;
+        }
+    }
+
+    /**
+     * One game against the service. The start path mirrors the plugin: refused while the
+     * circuit is open, a dirty recognizer is rebuilt first (after the backoff), then the listen.
+     */
+    private static StormResult storm(boolean governed, long durationMs, long brokenFromMs, long brokenUntilMs,
+                                     long rebuildCostMs, long seed) {
+        ManualClock clock = new ManualClock();
+        RebuildGovernor governor = new RebuildGovernor(clock, new Random(seed));
+        StormResult result = new StormResult();
+        boolean dirty = true;
+        while (clock.now < durationMs) {
+            if (governed && !governor.allowStart()) {
+                clock.now += governor.retryAfterMs();
+                continue;
+            }
+            if (dirty) {
+                if (governed) {
+                    long wait = governor.backoffMs();
+                    if (wait > 0) {
+                        governor.onDeferred();
+                        clock.now += wait;
+                    }
+                    governor.onRebuild();
+                }
+                result.rebuildTimes.add(clock.now);
+                clock.now += rebuildCostMs;
+                dirty = false;
+            }
+            boolean broken = clock.now >= brokenFromMs && clock.now < brokenUntilMs;
+            if (broken) {
+                clock.now += BUSY_AFTER_MS;
+                result.failedListens++;
+                if (governed) {
+                    governor.onAttemptFailed();
+                }
+                dirty = true;
+                clock.now += JS_RETRY_MS;
+            } else {
+                clock.now += LISTEN_MS;
+                result.goodListens++;
+                if (governed) {
+                    governor.onAttemptSucceeded();
+                }
+                if (result.firstGoodAfterRecoveryMs < 0 && clock.now > brokenUntilMs) {
+                    result.firstGoodAfterRecoveryMs = clock.now - LISTEN_MS - brokenUntilMs;
+                }
+                clock.now += ROUND_GAP_MS;
+            }
+        }
+        result.rejected = governor.getRejectedStarts();
+        result.deferrals = governor.getDeferrals();
+        result.opens = governor.getOpens();
+        result.finalState = governed ? governor.getState() : "-";
+        return result;
+    }
+
+    private static void print(String name, StormResult r, long durationMs, long rebuildCostMs) {
+        long busyMs = r.rebuildTimes.size() * rebuildCostMs;
+        System.out.println(String.format(
+                "%-10s rebuilds=%d main_thread_ms=%d (%.1f%%) max_per_window=%d good=%d failed=%d rejected=%d"
+                        + " deferrals=%d opens=%d first_good_after_recovery_ms=%d state=%s",
+                name, r.rebuildTimes.size(), busyMs, 100.0 * busyMs / durationMs,
+                r.maxInWindow(RebuildGovernor.WINDOW_MS), r.goodListens, r.failedListens, r.rejected,
+                r.deferrals, r.opens, r.firstGoodAfterRecoveryMs, r.finalState));
+    }
+
+    public static void main(String[] args) {
+        long durationMs = 15L * 60L * 1000L;
+        long brokenFromMs = 60_000L;
+        long brokenUntilMs = 8L * 60L * 1000L;
+        long rebuildCostMs = 120L;
+        long seed = 1L;
+        boolean verbose = false;
+        for (String arg : args) {
+            if (arg.startsWith("--durationMs=")) {
+                durationMs = Long.parseLong(arg.substring("--durationMs=".length()));
+            } else if (arg.startsWith("--brokenFromMs=")) {
+                brokenFromMs = Long.parseLong(arg.substring("--brokenFromMs=".length()));
+            } else if (arg.startsWith("--brokenUntilMs=")) {
+                brokenUntilMs = Long.parseLong(arg.substring("--brokenUntilMs=".length()));
+            } else if (arg.startsWith("--rebuildCostMs=")) {
+                rebuildCostMs = Long.parseLong(arg.substring("--rebuildCostMs=".length()));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else {
+                System.err.println("usage: RebuildGovernorCheck [--durationMs=N] [--brokenFromMs=N]"
+                        + " [--brokenUntilMs=N] [--rebuildCostMs=N] [--seed=N] [--verbose]");
+                System.exit(2);
+            }
+        }
+
+        // The governor logs every open/close; --verbose shows them.
+        SpeechLog.setLevel(verbose ? SpeechLog.DEBUG : SpeechLog.ERROR);
+        checkBackoff(seed);
+
+        StormResult ungoverned = storm(false, durationMs, brokenFromMs, brokenUntilMs, rebuildCostMs, seed);
+        StormResult governed = storm(true, durationMs, brokenFromMs, brokenUntilMs, rebuildCostMs, seed);
+        print("ungoverned", ungoverned, durationMs, rebuildCostMs);
+        print("governed", governed, durationMs, rebuildCostMs);
+
+        // Closed: the cap plus the one that trips it. Open: one probe per cool-down,
+        // and cool-downs are at least OPEN_MS long.
+        int allowed = RebuildGovernor.MAX_REBUILDS_PER_WINDOW + 1
+                + (int) (RebuildGovernor.WINDOW_MS / RebuildGovernor.OPEN_MS);
+        int maxInWindow = governed.maxInWindow(RebuildGovernor.WINDOW_MS);
+        if (maxInWindow > allowed) {
+            fail("storm: " + maxInWindow + " rebuilds inside one window, at most " + allowed + " allowed");
+        }
+        boolean stormed = brokenUntilMs - brokenFromMs > RebuildGovernor.WINDOW_MS && brokenFromMs < durationMs;
+        if (stormed && governed.opens == 0) {
+            fail("storm: the circuit never opened");
+        }
+        if (brokenUntilMs < durationMs) {
+            long bound = RebuildGovernor.MAX_OPEN_MS + RebuildGovernor.MAX_BACKOFF_MS + rebuildCostMs
+                    + BUSY_AFTER_MS + JS_RETRY_MS;
+            if (governed.firstGoodAfterRecoveryMs < 0 || governed.firstGoodAfterRecoveryMs > bound) {
+                fail("storm: first good listen " + governed.firstGoodAfterRecoveryMs
+                        + " ms after recovery, expected within " + bound);
+            }
+            if (durationMs - brokenUntilMs > bound + LISTEN_MS
+                    && !RebuildGovernor.STATE_CLOSED.equals(governed.finalState)) {
+                fail("storm: circuit " + governed.finalState + " at the end, expected closed");
+            }
+        }
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
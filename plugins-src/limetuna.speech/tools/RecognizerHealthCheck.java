@@ -0,0 +1,174 @@
+package com.limetuna.speech;
+
+/**
+ * Checks {@link RecognizerHealth}, the per-recognizer score the plugin uses
+ * to rebuild a degraded recognizer between rounds: which listen sequences
+ * must trigger a rebuild, after how many listens, and which must not. Each
+ * scenario prints the score after every listen and the listen that first
+ * went under {@link RecognizerHealth#REBUILD_BELOW}. Listens are
+ * {@code --listenMs} apart on a virtual clock. Exits non-zero on any failure.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.RecognizerHealthCheck [--listenMs=N] [--verbose]
+ */
+final class RecognizerHealthCheck {
+
+    // One listen of a scenario.
+    private static final int CLEAN = 0;
+    private static final int ERROR = 1;
+    private static final int ZERO_RMS = 2;
+    private static final int SLOW_READY = 3;
+    private static final int SLOW_NO_PARTIALS = 4;
+    private static final int NO_SPEECH = 5;
+
+    private static int failures = 0;
+    private static long listenMs = 4000L;
+    private static boolean verbose = false;
+
+    private static void fail(String message) {
+        failures++;
+        if (failures <= 20) {
+            System.out.println("FAIL " + message);
+        }
+    }
+
+    private static void record(RecognizerHealth health, int listen) {
+        switch (listen) {
+            case ERROR:
+                health.record(true, 0, 300L, false, false);
+                break;
+            case ZERO_RMS:
+                health.record(false, RecognizerHealth.ZERO_RMS_RUN_WINDOWS, 300L, false, false);
+                break;
+            case SLOW_READY:
+                health.record(false, 0, RecognizerHealth.SLOW_READY_MS + 500L, true, true);
+                break;
+            case SLOW_NO_PARTIALS:
+                health.record(false, 0, RecognizerHealth.SLOW_READY_MS + 500L, true, false);
+                break;
+            case NO_SPEECH:
+                health.record(false, 3, 300L, false, false);
+                break;
+            default:
+                health.record(false, 2, 300L, true, true);
+                break;
+        }
+    }
+
+    /**
+     * Replays the listens on a fresh recognizer and checks the first one
+     * after which a rebuild is due (1-based, -1 for none).
+     */
+    private static void scenario(String name, int[] listens, int expectedRebuildAt) {
+        long now = 0L;
+        RecognizerHealth health = new RecognizerHealth(now);
+        int rebuildAt = -1;
+        StringBuilder scores = new StringBuilder();
+        for (int i = 0; i < listens.length; i++) {
+            now += listenMs;
+            record(health, listens[i]);
+            int score = health.score(now);
+            if (scores.length() > 0) {
+                scores.append(' ');
+            }
+            scores.append(score);
+            if (score < 0 || score > 100) {
+                fail(name + ": score " + score + " out of range");
+            }
+            if (rebuildAt < 0 && health.shouldRebuild(now)) {
+                rebuildAt = i + 1;
+                if (expectedRebuildAt > 0) {
+                    break;
+                }
+            }
+        }
+        String reason = rebuildAt > 0 ? RecognizerHealth.SIGNAL_KEYS[health.worstSignal(now)] : "-";
+        System.out.println(String.format("%-28s rebuild_at=%-4s reason=%s", name,
+                rebuildAt > 0 ? Integer.toString(rebuildAt) : "none", reason));
+        if (verbose) {
+            System.out.println("  scores " + scores);
+        }
+        if (rebuildAt != expectedRebuildAt) {
+            fail(name + ": rebuild after listen " + rebuildAt + ", expected " + expectedRebuildAt);
+        }
+    }
+
+    private static int[] repeat(int listen, int count) {
+        int[] out = new int[count];
+        for (int i = 0; i < count; i++) {
+            out[i] = listen;
+        }
+        return out;
+    }
+
+    private static int[] concat(int[]... parts) {
+        int length = 0;
+        for (int[] part : parts) {
+            length += part.length;
+        }
+        int[] out = new int[length];
+        int at = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, out, at, part.length);
+            at += part.length;
+        }
+        return out;
+    }
+
+    /** Score never drops below the threshold on clean listens until age alone brings it there. */
+    private static void checkAge() {
+        RecognizerHealth health = new RecognizerHealth(0L);
+        long now = RecognizerHealth.MAX_AGE_MS * 2;
+        if (!health.shouldRebuild(now)) {
+            fail("age: a recognizer idle past twice MAX_AGE_MS is not rebuilt");
+        }
+        if (health.worstSignal(now) != RecognizerHealth.SIGNAL_AGE) {
+            fail("age: worst signal " + RecognizerHealth.SIGNAL_KEYS[health.worstSignal(now)]);
+        }
+        if (health.score(0L) != 100) {
+            fail("age: a new recognizer scores " + health.score(0L));
+        }
+    }
+
+    public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--listenMs=")) {
+                listenMs = Long.parseLong(arg.substring("--listenMs=".length()));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else {
+                System.err.println("usage: RecognizerHealthCheck [--listenMs=N] [--verbose]");
+                System.exit(2);
+            }
+        }
+
+        int maxClean = RecognizerHealth.MAX_LISTENS * 2;
+        // Clean listens only lose points to age: the first listen whose age
+        // penalty (by listen count or by clock) rounds the score under the threshold.
+        int expectedAge = -1;
+        for (int i = 1; i <= maxClean && expectedAge < 0; i++) {
+            double age = Math.max((double) i / RecognizerHealth.MAX_LISTENS,
+                    (double) i * listenMs / RecognizerHealth.MAX_AGE_MS);
+            if (Math.round(100.0 - RecognizerHealth.W_AGE * Math.min(1.0, age)) < RecognizerHealth.REBUILD_BELOW) {
+                expectedAge = i;
+            }
+        }
+
+        scenario("clean", repeat(CLEAN, maxClean), expectedAge);
+        scenario("no_speech", repeat(NO_SPEECH, maxClean), expectedAge);
+        scenario("one_error", concat(new int[]{ERROR}, repeat(CLEAN, 20)), -1);
+        scenario("two_errors", new int[]{CLEAN, ERROR, ERROR}, 3);
+        scenario("error_clean_error", concat(new int[]{ERROR, CLEAN, ERROR}, repeat(CLEAN, 20)), -1);
+        scenario("zero_rms_run", new int[]{CLEAN, CLEAN, ZERO_RMS}, 3);
+        scenario("slow_ready", repeat(SLOW_READY, 10), -1);
+        scenario("slow_no_partials", repeat(SLOW_NO_PARTIALS, 10), 2);
+        scenario("error_then_slow", new int[]{ERROR, SLOW_NO_PARTIALS}, 2);
+        checkAge();
+
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
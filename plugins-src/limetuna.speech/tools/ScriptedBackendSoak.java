@@ -0,0 +1,304 @@
+package com.limetuna.speech;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+
+/**
+ * Drives {@link ScriptedRecognizerBackend} and {@link Endpointer} through the
+ * same start / commit-stop / terminal loop as LimeTunaSpeech, on a virtual
+ * clock, for many attempts. Checks the backend contract (exactly one
+ * result/error per started listen, nothing after cancel or destroy, no stalled
+ * listens) and reports attempt latencies plus host throughput. Exits non-zero
+ * on any violation.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.ScriptedBackendSoak [--attempts=N]
+ *       [--cancelEvery=N] [--rebuildEvery=N] [--verbose] script...
+ *
+ * --cancelEvery cancels every Nth attempt shortly after it starts (like
+ * stop() from JS); --rebuildEvery destroys the backend and creates a new one
+ * before every Nth attempt (like a preflight rebuild).
+ */
+final class ScriptedBackendSoak {
+
+    private static final long CANCEL_AFTER_MS = 150L;
+    // Idle gap between attempts, like the game's feedback/prompt audio.
+    private static final long INTER_ATTEMPT_GAP_MS = 200L;
+
+    private final VirtualTimer timer = new VirtualTimer(0L);
+    private final ScriptedRecognizerBackend.Factory factory;
+    private final ThresholdConfig config = ThresholdConfig.defaults();
+    private final RecognizerBackend.Request request;
+    private final Endpointer endpointer;
+    private final boolean verbose;
+
+    private RecognizerBackend backend;
+    private int backendSerial = 0;
+
+    // Current attempt
+    private boolean open = false;
+    private boolean stopSent = false;
+    private long startMs;
+    private long commitMs;
+    private String commitReason;
+    private List<String> lastPartial;
+
+    // Totals
+    private final List<String> violations = new ArrayList<>();
+    private final TreeMap<String, Integer> outcomes = new TreeMap<>();
+    private final TreeMap<String, Integer> commits = new TreeMap<>();
+    private final List<Long> durations = new ArrayList<>();
+    private final List<Long> stopToFinal = new ArrayList<>();
+    private int cancelled = 0;
+    private int rebuilds = 0;
+
+    private ScriptedBackendSoak(List<ScriptedRecognizerBackend.Script> scripts, boolean verbose) {
+        this.factory = new ScriptedRecognizerBackend.Factory(timer, scripts);
+        this.verbose = verbose;
+        this.request = new RecognizerBackend.Request("en-US", 10, true, false,
+                config.postSilenceMs, Math.max(500L, config.postSilenceMs / 2), 500L);
+        this.endpointer = new Endpointer(timer, timer, new Endpointer.Listener() {
+            @Override
+            public void onEnterSilenceWindow(long nowMs, long postSilenceDelayMs) {
+            }
+
+            @Override
+            public void onPostSilenceCommit(long nowMs) {
+                commit("post_silence", nowMs);
+            }
+
+            @Override
+            public void onFailSafeCommit(long nowMs) {
+                commit("failsafe", nowMs);
+            }
+        });
+    }
+
+    /** Per-backend listener so callbacks from a destroyed backend can be told apart. */
+    private final class TaggedListener implements RecognizerBackend.Listener {
+        final int serial;
+
+        TaggedListener(int serial) {
+            this.serial = serial;
+        }
+
+        private boolean live(String what) {
+            if (serial != backendSerial) {
+                violations.add("callback " + what + " from destroyed backend #" + serial);
+                return false;
+            }
+            if (!open) {
+                violations.add("callback " + what + " with no open listen at t=" + timer.nowMs());
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void onReadyForSpeech() {
+            live("ready");
+        }
+
+        @Override
+        public void onBeginningOfSpeech() {
+            if (live("bos")) {
+                endpointer.onBeginningOfSpeech(timer.nowMs());
+            }
+        }
+
+        @Override
+        public void onRmsChanged(float rmsdB) {
+            if (live("rms")) {
+                endpointer.onRms(rmsdB, timer.nowMs());
+            }
+        }
+
+        @Override
+        public void onEndOfSpeech() {
+            if (live("eos")) {
+                endpointer.onEndOfSpeech(timer.nowMs());
+            }
+        }
+
+        @Override
+        public void onPartialResults(List<String> partial) {
+            if (live("partial") && partial != null && !partial.isEmpty()) {
+                lastPartial = partial;
+                endpointer.onPartialResults(partial.size());
+            }
+        }
+
+        @Override
+        public void onResults(List<String> matches, float[] confidences) {
+            if (live("results")) {
+                finish(matches != null && !matches.isEmpty() ? "results" : "empty_results");
+            }
+        }
+
+        @Override
+        public void onError(int error) {
+            if (live("error")) {
+                boolean fallback = error == RecognizerBackend.ERROR_NO_MATCH
+                        && lastPartial != null && !lastPartial.isEmpty();
+                finish(fallback ? "partial_fallback" : "error_" + error);
+            }
+        }
+    }
+
+    private void commit(String reason, long nowMs) {
+        if (stopSent) {
+            return;
+        }
+        commitReason = reason;
+        commitMs = nowMs;
+        stopSent = true;
+        endpointer.stop();
+        backend.stopListening();
+    }
+
+    private void finish(String outcome) {
+        long now = timer.nowMs();
+        if (!stopSent) {
+            commitReason = "engine_final";
+            commitMs = now;
+        } else {
+            stopToFinal.add(now - commitMs);
+        }
+        endpointer.stop();
+        open = false;
+        durations.add(now - startMs);
+        outcomes.merge(outcome, 1, Integer::sum);
+        commits.merge(commitReason, 1, Integer::sum);
+        if (verbose) {
+            System.out.println(String.format(Locale.US, "t=%d outcome=%s commit=%s duration_ms=%d",
+                    now, outcome, commitReason, now - startMs));
+        }
+    }
+
+    private void runAttempt(int n, int cancelEvery, int rebuildEvery) {
+        if (backend == null || (rebuildEvery > 0 && n % rebuildEvery == 0)) {
+            if (backend != null) {
+                backend.destroy();
+                rebuilds++;
+            }
+            backendSerial++;
+            backend = factory.create(new TaggedListener(backendSerial));
+        }
+
+        AttemptTiming timing = new AttemptTiming();
+        timing.attemptId = n;
+        timing.nativeReceivedMs = timer.nowMs();
+        timing.nativeStartListeningMs = timing.nativeReceivedMs;
+        startMs = timing.nativeReceivedMs;
+        open = true;
+        stopSent = false;
+        commitReason = null;
+        lastPartial = null;
+        endpointer.begin(timing, config);
+        backend.startListening(request);
+
+        boolean cancelThis = cancelEvery > 0 && n % cancelEvery == 0;
+        long cancelAt = startMs + CANCEL_AFTER_MS;
+        while (open) {
+            long due = timer.nextDueMs();
+            if (cancelThis && (due < 0 || due > cancelAt)) {
+                timer.advanceTo(cancelAt);
+                endpointer.stop();
+                backend.cancel();
+                open = false;
+                cancelled++;
+                break;
+            }
+            if (due < 0) {
+                violations.add("attempt " + n + " stalled: no result, error or pending timer");
+                endpointer.reset();
+                backend.cancel();
+                open = false;
+                break;
+            }
+            timer.advanceTo(due);
+        }
+
+        // Anything the backend still delivers now is a contract violation.
+        timer.advanceTo(timer.nowMs() + INTER_ATTEMPT_GAP_MS);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+
+    private static String summarize(String name, List<Long> values) {
+        long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        return String.format(Locale.US, "%s n=%d p50=%d p90=%d p99=%d max=%d",
+                name, sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                percentile(sorted, 0.99), sorted.length > 0 ? sorted[sorted.length - 1] : 0L);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int attempts = 10000;
+        int cancelEvery = 0;
+        int rebuildEvery = 0;
+        boolean verbose = false;
+        StringBuilder text = new StringBuilder();
+        int files = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--attempts=")) {
+                attempts = Integer.parseInt(arg.substring("--attempts=".length()));
+            } else if (arg.startsWith("--cancelEvery=")) {
+                cancelEvery = Integer.parseInt(arg.substring("--cancelEvery=".length()));
+            } else if (arg.startsWith("--rebuildEvery=")) {
+                rebuildEvery = Integer.parseInt(arg.substring("--rebuildEvery=".length()));
+            } else if (arg.equals("--verbose")) {
+                verbose = true;
+            } else {
+                text.append(new String(Files.readAllBytes(Paths.get(arg)), StandardCharsets.UTF_8)).append('\n');
+                files++;
+            }
+        }
+        if (files == 0) {
+            System.err.println("usage: ScriptedBackendSoak [--attempts=N] [--cancelEvery=N] [--rebuildEvery=N] script...");
+            System.exit(2);
+        }
+
+        List<ScriptedRecognizerBackend.Script> scripts = ScriptedRecognizerBackend.parse(text.toString());
+        ScriptedBackendSoak soak = new ScriptedBackendSoak(scripts, verbose);
+        long t0 = System.nanoTime();
+        for (int n = 1; n <= attempts; n++) {
+            soak.runAttempt(n, cancelEvery, rebuildEvery);
+        }
+        long wallNs = System.nanoTime() - t0;
+
+        System.out.println(String.format(Locale.US,
+                "scripts=%d attempts=%d cancelled=%d rebuilds=%d backend_starts=%d virtual_s=%.1f",
+                scripts.size(), attempts, soak.cancelled, soak.rebuilds, soak.factory.getStartCount(),
+                soak.timer.nowMs() / 1000.0));
+        System.out.println("outcomes " + soak.outcomes + " commits " + soak.commits);
+        System.out.println(summarize("attempt_ms", soak.durations));
+        System.out.println(summarize("stop_to_final_ms", soak.stopToFinal));
+        System.out.println(String.format(Locale.US, "host: %.0f attempts/s (%.1f us/attempt)",
+                attempts / (wallNs / 1e9), wallNs / 1e3 / attempts));
+        System.out.println("violations=" + soak.violations.size());
+        for (int i = 0; i < Math.min(20, soak.violations.size()); i++) {
+            System.out.println("  " + soak.violations.get(i));
+        }
+        if (!soak.violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.limetuna.speech;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Allocation check for {@link SpeechLog} on the recognizer hot path. Replays
+ * a simulated 5-second listen (an onRmsChanged every --intervalMs, plus the
+ * ready / speech / results callbacks) through Endpointer with the same log
+ * calls LimeTunaSpeech makes, and measures bytes allocated by the thread:
+ *
+ *   - logging alone at the default level must allocate nothing beyond the
+ *     same loop without the calls;
+ *   - the full path must allocate as much as the same path with the log
+ *     calls removed (logging adds nothing);
+ *   - for contrast, the old string-concatenation call and an enabled
+ *     VERBOSE level are reported.
+ *
+ * Every measurement is warmed up and then taken as the minimum over
+ * {@link #ROUNDS} rounds, and the comparisons allow {@link #TOLERANCE_BYTES},
+ * so JIT and TLAB bookkeeping charged to the thread don't read as a
+ * regression. Exits non-zero if logging allocates while disabled.
+ * DEBUG_BUILD = false is a compile-time switch and isn't exercised here.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.SpeechLogAllocCheck [--intervalMs=N] [--windows=N]
+ */
+final class SpeechLogAllocCheck {
+
+    private static final String TAG = "LimeTunaSpeech";
+    private static final long WINDOW_MS = 5000L;
+    private static final int WARMUP_WINDOWS = 200;
+    private static final int ROUNDS = 5;
+    /**
+     * Slack for what the JVM itself charges to the thread between two reads.
+     * A disabled call that did allocate costs at least 16 B per RMS callback,
+     * hundreds of KB over a run.
+     */
+    private static final long TOLERANCE_BYTES = 1024L;
+
+    /** Keeps formatted messages reachable so the JIT can't elide them. */
+    private static volatile String lastMessage;
+    private static long messages = 0L;
+    private static volatile long sinkTime;
+
+    private static final class NoopTimer implements Endpointer.Timer {
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+        }
+    }
+
+    private final float[] rms;
+    private final long intervalMs;
+    private final Endpointer endpointer;
+    private final AttemptTiming timing = new AttemptTiming();
+    private final ThresholdConfig config = ThresholdConfig.defaults();
+    private final ArrayList<String> matches = new ArrayList<>(Arrays.asList("bee", "be", "b"));
+    private long nowMs = 1_000_000L;
+
+    private SpeechLogAllocCheck(long intervalMs) {
+        this.intervalMs = intervalMs;
+        this.rms = buildWindow((int) (WINDOW_MS / intervalMs));
+        this.endpointer = new Endpointer(
+                new Endpointer.Clock() {
+                    @Override
+                    public long nowMs() {
+                        return nowMs;
+                    }
+                },
+                new NoopTimer(),
+                new Endpointer.Listener() {
+                    @Override
+                    public void onEnterSilenceWindow(long now, long postSilenceDelayMs) {
+                    }
+
+                    @Override
+                    public void onPostSilenceCommit(long now) {
+                    }
+
+                    @Override
+                    public void onFailSafeCommit(long now) {
+                    }
+                });
+    }
+
+    /** 0.5 s room noise, 2 s of speech with dips, 2.5 s trailing silence. */
+    private static float[] buildWindow(int samples) {
+        float[] out = new float[samples];
+        for (int i = 0; i < samples; i++) {
+            double t = (double) i / samples;
+            if (t < 0.1 || t >= 0.5) {
+                out[i] = -2f + (float) (0.3 * Math.sin(i * 0.7));
+            } else {
+                out[i] = 6.5f + (float) (1.5 * Math.sin(i * 0.3));
+            }
+        }
+        return out;
+    }
+
+    /** One listening window; logging selects which log calls are made. */
+    private void runWindow(boolean logging, boolean legacyConcat) {
+        timing.nativeReceivedMs = nowMs;
+        timing.nativeStartListeningMs = nowMs;
+        timing.nativeFirstRmsAboveThresholdMs = 0L;
+        timing.nativeRmsSpeechStartMs = 0L;
+        timing.nativeRmsSpeechEndMs = 0L;
+        endpointer.begin(timing, config);
+
+        timing.nativeReadyForSpeechMs = nowMs;
+        if (logging) {
+            SpeechLog.d(TAG, "onReadyForSpeech");
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=ready t={}", timing.nativeReadyForSpeechMs);
+        }
+        int bosAt = rms.length / 10;
+        int eosAt = rms.length / 2;
+        for (int i = 0; i < rms.length; i++) {
+            nowMs += intervalMs;
+            float rmsdB = rms[i];
+            if (i == bosAt) {
+                if (logging) {
+                    SpeechLog.d(TAG, "onBeginningOfSpeech");
+                }
+                endpointer.onBeginningOfSpeech(nowMs);
+                if (logging) {
+                    SpeechLog.d(TAG, "LimeTunaSpeech stage=begin_speech t={}", nowMs);
+                }
+            }
+            if (i == eosAt) {
+                if (logging) {
+                    SpeechLog.d(TAG, "onEndOfSpeech");
+                }
+                endpointer.onEndOfSpeech(nowMs);
+                if (logging) {
+                    SpeechLog.d(TAG, "LimeTunaSpeech stage=end_speech t={}", nowMs);
+                }
+            }
+
+            // onRmsChanged
+            if (legacyConcat) {
+                legacyVerbose(TAG, "onRmsChanged: " + rmsdB);
+            } else if (logging) {
+                SpeechLog.v(TAG, "onRmsChanged: {}", rmsdB);
+            }
+            boolean thresholdSeen = timing.nativeFirstRmsAboveThresholdMs != 0;
+            float detectionRmsDb = endpointer.onRms(rmsdB, nowMs);
+            if (logging && !thresholdSeen && timing.nativeFirstRmsAboveThresholdMs != 0) {
+                SpeechLog.d(TAG, "LimeTunaSpeech stage=rms_threshold t={} rmsdB={}",
+                        timing.nativeFirstRmsAboveThresholdMs, detectionRmsDb);
+            }
+        }
+
+        timing.nativeResultsMs = nowMs;
+        if (logging) {
+            SpeechLog.d(TAG, "onResults");
+            SpeechLog.d(TAG, "LimeTunaSpeech stage=results t={}", timing.nativeResultsMs);
+            SpeechLog.d(TAG, "matches={} confidences={}", matches, 3);
+        }
+        endpointer.stop();
+        nowMs += 1000L;
+    }
+
+    /** What android.util.Log.v did with the old concatenated message: keep it. */
+    private static void legacyVerbose(String tag, String message) {
+        lastMessage = message;
+        messages++;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+
+    private long measure(com.sun.management.ThreadMXBean threads, int windows, boolean logging, boolean legacy) {
+        for (int i = 0; i < WARMUP_WINDOWS; i++) {
+            runWindow(logging, legacy);
+        }
+        long tid = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(tid);
+            for (int i = 0; i < windows; i++) {
+                runWindow(logging, legacy);
+            }
+            least = Math.min(least, threads.getThreadAllocatedBytes(tid) - before);
+        }
+        return least;
+    }
+
+    /**
+     * Just the facade calls of a window, at the window's argument types; with
+     * calls false, the same loop without them (the baseline). Warmed up, then
+     * the least of {@link #ROUNDS} rounds.
+     */
+    private static long measureLoggingOnly(com.sun.management.ThreadMXBean threads, int windows, int callbacks,
+                                           boolean calls) {
+        for (int i = 0; i < WARMUP_WINDOWS; i += windows) {
+            loggingOnlyRound(windows, callbacks, calls);
+        }
+        long tid = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(tid);
+            loggingOnlyRound(windows, callbacks, calls);
+            least = Math.min(least, threads.getThreadAllocatedBytes(tid) - before);
+        }
+        return least;
+    }
+
+    private static void loggingOnlyRound(int windows, int callbacks, boolean calls) {
+        long t = 1_000L;
+        for (int w = 0; w < windows; w++) {
+            if (calls) {
+                SpeechLog.d(TAG, "LimeTunaSpeech stage=ready t={}", t);
+            }
+            for (int i = 0; i < callbacks; i++) {
+                t += 10;
+                if (calls) {
+                    SpeechLog.v(TAG, "onRmsChanged: {}", (float) i);
+                }
+            }
+            if (calls) {
+                SpeechLog.d(TAG, "LimeTunaSpeech stage=rms_threshold t={} rmsdB={}", t, 6.5f);
+                SpeechLog.d(TAG, "LimeTunaSpeech stage=error t={} code={}", t, 7);
+                SpeechLog.d(TAG, "matches={} confidences={}", TAG, 3);
+                SpeechLog.d(TAG, "Session armed idle (rearm {})", 2);
+            }
+        }
+        sinkTime = t;
+    }
+
+    public static void main(String[] args) {
+        long intervalMs = 10L;
+        int windows = 200;
+        for (String arg : args) {
+            if (arg.startsWith("--intervalMs=")) {
+                intervalMs = Long.parseLong(arg.substring("--intervalMs=".length()));
+            } else if (arg.startsWith("--windows=")) {
+                windows = Integer.parseInt(arg.substring("--windows=".length()));
+            } else {
+                System.err.println("usage: SpeechLogAllocCheck [--intervalMs=N] [--windows=N]");
+                System.exit(2);
+            }
+        }
+        com.sun.management.ThreadMXBean threads = threadBean();
+        if (threads == null) {
+            System.out.println("allocation counting not supported on this JVM; skipped");
+            return;
+        }
+
+        List<String> report = new ArrayList<>();
+        SpeechLog.setSink(new SpeechLog.Sink() {
+            @Override
+            public void println(int level, String tag, String message, Throwable error) {
+                lastMessage = message;
+                messages++;
+            }
+        });
+
+        SpeechLogAllocCheck check = new SpeechLogAllocCheck(intervalMs);
+        int callbacks = check.rms.length;
+        int failures = 0;
+
+        for (int level : new int[]{SpeechLog.INFO, SpeechLog.DEBUG}) {
+            SpeechLog.setLevel(level);
+            long loggingOnly = measureLoggingOnly(threads, windows, callbacks, true)
+                    - measureLoggingOnly(threads, windows, callbacks, false);
+            long withLogs = check.measure(threads, windows, true, false);
+            long withoutLogs = check.measure(threads, windows, false, false);
+            boolean rmsLogDisabled = !SpeechLog.isLoggable(SpeechLog.VERBOSE);
+            report.add(String.format(Locale.US,
+                    "level=%-5s logging-only=%d B  path+logs=%d B  path-without-logs=%d B  (%d windows x %d rms callbacks)",
+                    SpeechLog.levelName(level), loggingOnly, withLogs, withoutLogs, windows, callbacks));
+            // At DEBUG the few stage lines per window do format; only the disabled RMS log must be free.
+            if (level == SpeechLog.INFO
+                    && (loggingOnly > TOLERANCE_BYTES || Math.abs(withLogs - withoutLogs) > TOLERANCE_BYTES)) {
+                failures++;
+            }
+            if (rmsLogDisabled && level == SpeechLog.DEBUG) {
+                long perWindowStage = (withLogs - withoutLogs) / windows;
+                report.add(String.format(Locale.US,
+                        "  debug: %d B/window from the stage lines; rms callbacks add 0", perWindowStage));
+            }
+        }
+
+        SpeechLog.setLevel(SpeechLog.INFO);
+        long legacy = check.measure(threads, windows, false, true);
+        long baseline = check.measure(threads, windows, false, false);
+        report.add(String.format(Locale.US, "legacy \"onRmsChanged: \" + rmsdB: %.1f B per rms callback",
+                (double) (legacy - baseline) / ((long) windows * callbacks)));
+
+        SpeechLog.setLevel(SpeechLog.VERBOSE);
+        long verbose = check.measure(threads, windows, true, false);
+        report.add(String.format(Locale.US, "level=verbose (enabled): %.1f B per rms callback",
+                (double) (verbose - baseline) / ((long) windows * callbacks)));
+
+        for (String line : report) {
+            System.out.println(line);
+        }
+        System.out.println("messages=" + messages + " last=" + lastMessage);
+        System.out.println("failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
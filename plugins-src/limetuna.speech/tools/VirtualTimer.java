@@ -0,0 +1,78 @@
+package com.limetuna.speech;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Deterministic clock + timer for replaying traces on the JVM. Time only moves
+ * when {@link #advanceTo(long)} is called; due tasks run in (due, post order).
+ */
+final class VirtualTimer implements Endpointer.Clock, Endpointer.Timer {
+
+    private static final class Task implements Comparable<Task> {
+        final long dueMs;
+        final long seq;
+        final Runnable runnable;
+
+        Task(long dueMs, long seq, Runnable runnable) {
+            this.dueMs = dueMs;
+            this.seq = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (dueMs != other.dueMs) {
+                return dueMs < other.dueMs ? -1 : 1;
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+
+    private final PriorityQueue<Task> queue = new PriorityQueue<>();
+    private long nowMs;
+    private long seq = 0L;
+
+    VirtualTimer(long startMs) {
+        this.nowMs = startMs;
+    }
+
+    @Override
+    public long nowMs() {
+        return nowMs;
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        queue.add(new Task(nowMs + Math.max(0L, delayMs), seq++, task));
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        Iterator<Task> it = queue.iterator();
+        while (it.hasNext()) {
+            if (it.next().runnable == task) {
+                it.remove();
+            }
+        }
+    }
+
+    /** Runs every task due at or before {@code targetMs}, then parks the clock there. */
+    void advanceTo(long targetMs) {
+        while (!queue.isEmpty() && queue.peek().dueMs <= targetMs) {
+            Task task = queue.poll();
+            nowMs = Math.max(nowMs, task.dueMs);
+            task.runnable.run();
+        }
+        nowMs = Math.max(nowMs, targetMs);
+    }
+
+    /** Due time of the earliest pending task, or -1 if none. */
+    long nextDueMs() {
+        return queue.isEmpty() ? -1L : queue.peek().dueMs;
+    }
+
+    boolean hasPending() {
+        return !queue.isEmpty();
+    }
+}
@@ -0,0 +1,232 @@
+package com.limetuna.speech;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks {@link VocabularyMatcher} against isAnimalMatch fixtures generated
+ * from www/js/animals.js (tools/gen-animal-fixtures.js), cross-checks it
+ * against a straight port of the JS algorithm on random phrases, then times
+ * both. Phonetic matches are native-only, so only text matches are compared.
+ * Exits non-zero on any disagreement.
+ *
+ * Usage:
+ *
+ *   java com.limetuna.speech.VocabularyMatcherBench [--iterations=N]
+ *       [tools/fixtures/animal_matching.txt]
+ */
+final class VocabularyMatcherBench {
+
+    private static final String DEFAULT_FIXTURE = "tools/fixtures/animal_matching.txt";
+    private static final int RANDOM_PHRASES = 2000;
+    private static final int WARMUP_ROUNDS = 5;
+
+    /** Line-for-line port of normalizeText/levenshteinDistance/isAnimalMatch in animals.js. */
+    static final class LegacyAnimalMatcher {
+
+        static String normalizeText(String text) {
+            if (text == null || text.isEmpty()) return "";
+            return text.toLowerCase(Locale.ROOT)
+                    .replaceAll("[^a-z\\s]", " ")
+                    .replaceAll("\\s+", " ")
+                    .trim();
+        }
+
+        static int levenshteinDistance(String a, String b) {
+            if (a.equals(b)) return 0;
+            if (a.isEmpty()) return b.length();
+            if (b.isEmpty()) return a.length();
+
+            int rows = b.length() + 1;
+            int cols = a.length() + 1;
+            int[][] dist = new int[rows][];
+            for (int i = 0; i < rows; i++) {
+                dist[i] = new int[cols];
+                dist[i][0] = i;
+            }
+            for (int j = 0; j < cols; j++) {
+                dist[0][j] = j;
+            }
+            for (int i = 1; i < rows; i++) {
+                for (int j = 1; j < cols; j++) {
+                    int cost = b.charAt(i - 1) == a.charAt(j - 1) ? 0 : 1;
+                    dist[i][j] = Math.min(Math.min(dist[i - 1][j] + 1, dist[i][j - 1] + 1),
+                            dist[i - 1][j - 1] + cost);
+                }
+            }
+            return dist[rows - 1][cols - 1];
+        }
+
+        static boolean isFuzzySimilar(String candidate, String keyword) {
+            if (candidate.isEmpty() || keyword.isEmpty()) return false;
+            int distance = levenshteinDistance(candidate, keyword);
+            int tolerance = keyword.length() <= 4 ? 1 : 2;
+            return distance > 0 && distance <= tolerance;
+        }
+
+        static boolean isAnimalMatch(List<String> results, List<String> rawKeywords) {
+            List<String> keywords = new ArrayList<>();
+            for (String w : rawKeywords) keywords.add(normalizeText(w));
+            List<String> candidates = new ArrayList<>();
+            for (String r : results) {
+                String n = normalizeText(r);
+                if (!n.isEmpty()) candidates.add(n);
+            }
+            for (String candidate : candidates) {
+                for (String keyword : keywords) {
+                    if (keyword.isEmpty()) continue;
+                    if (candidate.equals(keyword)) return true;
+                    if (candidate.startsWith(keyword)) return true;
+                    if (candidate.contains(keyword)) return true;
+                    String[] words = candidate.split(" ");
+                    for (String w : words) if (w.equals(keyword)) return true;
+                    if (isFuzzySimilar(candidate, keyword)) return true;
+                    for (String w : words) if (isFuzzySimilar(w, keyword)) return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int iterations = 200;
+        String path = DEFAULT_FIXTURE;
+        for (String arg : args) {
+            if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring("--iterations=".length()));
+            } else {
+                path = arg;
+            }
+        }
+
+        Map<String, List<String>> vocabulary = new LinkedHashMap<>();
+        List<String[]> cases = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\t", -1);
+                if ("target".equals(parts[0])) {
+                    List<String> keywords = new ArrayList<>();
+                    Collections.addAll(keywords, parts[2].split("\\|"));
+                    vocabulary.put(parts[1], keywords);
+                } else if ("match".equals(parts[0])) {
+                    cases.add(parts);
+                }
+            }
+        }
+
+        VocabularyMatcher matcher = new VocabularyMatcher(vocabulary);
+        int failures = 0;
+
+        for (String[] c : cases) {
+            List<String> phrase = Collections.singletonList(c[2]);
+            boolean expected = Boolean.parseBoolean(c[3]);
+            boolean actual = textMatch(matcher, phrase, c[1]);
+            if (actual != expected) {
+                failures++;
+                System.out.println("fixture: \"" + c[2] + "\" vs " + c[1] + " js=" + expected + " java=" + actual);
+            }
+        }
+
+        // Random near-misses of the keywords exercise the distance bounds.
+        Random random = new Random(42);
+        List<String> allKeywords = new ArrayList<>();
+        for (List<String> kws : vocabulary.values()) allKeywords.addAll(kws);
+        List<List<String>> randomPhrases = new ArrayList<>();
+        for (int i = 0; i < RANDOM_PHRASES; i++) {
+            randomPhrases.add(Collections.singletonList(mutate(allKeywords, random)));
+        }
+        for (List<String> phrase : randomPhrases) {
+            for (Map.Entry<String, List<String>> e : vocabulary.entrySet()) {
+                boolean expected = LegacyAnimalMatcher.isAnimalMatch(phrase, e.getValue());
+                boolean actual = textMatch(matcher, phrase, e.getKey());
+                if (actual != expected) {
+                    failures++;
+                    System.out.println("random: \"" + phrase.get(0) + "\" vs " + e.getKey()
+                            + " legacy=" + expected + " java=" + actual);
+                }
+            }
+        }
+        System.out.println("checked fixtures=" + cases.size() + " random=" + randomPhrases.size()
+                + " failures=" + failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+
+        // Workload: every phrase against every target, like a full-vocabulary lookup.
+        long sink = 0;
+        for (int r = 0; r < WARMUP_ROUNDS; r++) {
+            sink += runLegacy(randomPhrases, vocabulary, 1);
+            sink += runNative(randomPhrases, vocabulary, matcher, 1);
+        }
+        long t0 = System.nanoTime();
+        sink += runLegacy(randomPhrases, vocabulary, iterations);
+        long t1 = System.nanoTime();
+        sink += runNative(randomPhrases, vocabulary, matcher, iterations);
+        long t2 = System.nanoTime();
+
+        double ops = (double) iterations * randomPhrases.size() * vocabulary.size();
+        System.out.println(String.format(Locale.US,
+                "legacy: %.1f ns/check  native: %.1f ns/check  speedup: %.1fx  (sink=%d)",
+                (t1 - t0) / ops, (t2 - t1) / ops, (double) (t1 - t0) / Math.max(1, t2 - t1), sink));
+    }
+
+    private static boolean textMatch(VocabularyMatcher matcher, List<String> phrase, String id) {
+        VocabularyMatcher.Match m = matcher.matchId(phrase, id);
+        return m != null && !VocabularyMatcher.STRATEGY_PHONETIC.equals(m.strategy);
+    }
+
+    private static long runLegacy(List<List<String>> phrases, Map<String, List<String>> vocabulary,
+                                  int iterations) {
+        long hits = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (List<String> phrase : phrases) {
+                for (List<String> keywords : vocabulary.values()) {
+                    if (LegacyAnimalMatcher.isAnimalMatch(phrase, keywords)) hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static long runNative(List<List<String>> phrases, Map<String, List<String>> vocabulary,
+                                  VocabularyMatcher matcher, int iterations) {
+        long hits = 0;
+        for (int it = 0; it < iterations; it++) {
+            for (List<String> phrase : phrases) {
+                for (String id : vocabulary.keySet()) {
+                    if (matcher.matches(phrase, id)) hits++;
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static String mutate(List<String> keywords, Random random) {
+        String base = keywords.get(random.nextInt(keywords.size()));
+        StringBuilder sb = new StringBuilder(base);
+        int edits = random.nextInt(4);
+        for (int e = 0; e < edits && sb.length() > 0; e++) {
+            int pos = random.nextInt(sb.length());
+            char c = (char) ('a' + random.nextInt(26));
+            switch (random.nextInt(3)) {
+                case 0: sb.setCharAt(pos, c); break;
+                case 1: sb.insert(pos, c); break;
+                default: sb.deleteCharAt(pos); break;
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            sb.insert(0, random.nextBoolean() ? "the " : "a ");
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package com.limetuna.speech;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/** Minimal 16-bit PCM mono WAV reader/writer for the VAD tools. */
+final class WavIo {
+
+    static final class Pcm {
+        final int sampleRate;
+        final short[] samples;
+
+        Pcm(int sampleRate, short[] samples) {
+            this.sampleRate = sampleRate;
+            this.samples = samples;
+        }
+    }
+
+    private WavIo() {
+    }
+
+    static Pcm read(String path) throws IOException {
+        byte[] data;
+        try (InputStream in = new FileInputStream(path)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            data = out.toByteArray();
+        }
+        ByteBuffer bb = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (data.length < 12 || bb.getInt(0) != 0x46464952 || bb.getInt(8) != 0x45564157) {
+            throw new IOException(path + ": not a RIFF/WAVE file");
+        }
+        int pos = 12;
+        int sampleRate = -1;
+        while (pos + 8 <= data.length) {
+            int id = bb.getInt(pos);
+            int size = bb.getInt(pos + 4);
+            int body = pos + 8;
+            if (id == 0x20746d66) { // "fmt "
+                int format = bb.getShort(body) & 0xffff;
+                int channels = bb.getShort(body + 2) & 0xffff;
+                sampleRate = bb.getInt(body + 4);
+                int bits = bb.getShort(body + 14) & 0xffff;
+                if (format != 1 || channels != 1 || bits != 16) {
+                    throw new IOException(path + ": need 16-bit PCM mono, got format=" + format
+                            + " channels=" + channels + " bits=" + bits);
+                }
+            } else if (id == 0x61746164) { // "data"
+                if (sampleRate < 0) {
+                    throw new IOException(path + ": data chunk before fmt chunk");
+                }
+                int count = Math.min(size, data.length - body) / 2;
+                short[] samples = new short[count];
+                for (int i = 0; i < count; i++) {
+                    samples[i] = bb.getShort(body + 2 * i);
+                }
+                return new Pcm(sampleRate, samples);
+            }
+            pos = body + size + (size & 1);
+        }
+        throw new IOException(path + ": no data chunk");
+    }
+
+    static void write(String path, int sampleRate, short[] samples) throws IOException {
+        int dataBytes = samples.length * 2;
+        ByteBuffer bb = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+        bb.putInt(0x46464952).putInt(36 + dataBytes).putInt(0x45564157);
+        bb.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) 1)
+                .putInt(sampleRate).putInt(sampleRate * 2).putShort((short) 2).putShort((short) 16);
+        bb.putInt(0x61746164).putInt(dataBytes);
+        for (short s : samples) {
+            bb.putShort(s);
+        }
+        try (OutputStream out = new FileOutputStream(path)) {
+            out.write(bb.array());
+        }
+    }
+}
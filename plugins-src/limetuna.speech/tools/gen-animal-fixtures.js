@@ -0,0 +1,52 @@
+#!/usr/bin/env node
+// Regenerates fixtures/animal_matching.txt from isAnimalMatch/ANIMAL_GROUPS in
+// www/js/animals.js so VocabularyMatcherBench can check the native matcher
+// against it. Run: node tools/gen-animal-fixtures.js > tools/fixtures/animal_matching.txt
+
+const fs = require("fs");
+const path = require("path");
+const vm = require("vm");
+
+const src = fs.readFileSync(path.join(__dirname, "..", "..", "..", "www", "js", "animals.js"), "utf8");
+const noop = () => {};
+const sandbox = {
+  window: {},
+  document: { addEventListener: noop, getElementById: () => null },
+  Audio: function () {},
+  console: { log: noop, warn: noop, error: noop, info: noop },
+  setTimeout: noop,
+  clearTimeout: noop
+};
+vm.runInNewContext(src + "\n;this.__animals = { ANIMAL_GROUPS, isAnimalMatch };", sandbox);
+const { ANIMAL_GROUPS, isAnimalMatch } = sandbox.__animals;
+const animals = ANIMAL_GROUPS.flat();
+
+// Recognizer-style phrases: exact, embedded, misheard and unrelated.
+const PHRASES = [
+  "cat", "Cat!", "a cat", "the kitten", "kitty", "cap", "hat", "caught",
+  "dog", "doggy", "dug", "the dog is here", "puppy", "poppy", "guppy",
+  "bird", "burt", "bert", "parrot", "carrot", "fish", "fist", "dish",
+  "horse", "house", "hoarse", "pony", "phony", "spider", "spied her", "spiders",
+  "bear", "beer", "bare", "lizard", "wizard", "bee", "be", "b", "dolphin", "dolphins",
+  "frog", "fog", "from", "duck", "truck", "dock", "ladybug", "lady bug", "lady bird",
+  "lion", "lying", "line", "monkey", "donkey", "mouse", "moose", "mice", "panda", "pander",
+  "chicken", "kitchen", "cow", "how", "elephant", "elegant", "orca", "orcas", "killer whale",
+  "killer wail", "penguin", "pengwin", "shark", "sharp", "rabbit", "rabid", "bunny", "funny",
+  "zebra", "zeebra", "goat", "coat", "pig", "big", "snake", "snack", "tiger", "tigger",
+  "turtle", "turtles", "hurdle", "", "um", "i don't know", "123", "it's a big cat",
+  "elephant elephant", "t-rex", "o'rca"
+];
+
+const out = [];
+out.push("# Generated by tools/gen-animal-fixtures.js from www/js/animals.js. Do not edit by hand.");
+out.push("# target<TAB>id<TAB>keyword|keyword...");
+out.push("# match<TAB>id<TAB>phrase<TAB>isAnimalMatch([phrase], animal)");
+for (const animal of animals) {
+  out.push(["target", animal.name, (animal.keywords || [animal.name]).join("|")].join("\t"));
+}
+for (const phrase of PHRASES) {
+  for (const animal of animals) {
+    out.push(["match", animal.name, phrase, isAnimalMatch([phrase], animal) ? "true" : "false"].join("\t"));
+  }
+}
+process.stdout.write(out.join("\n") + "\n");
@@ -0,0 +1,57 @@
+#!/usr/bin/env node
+// Regenerates fixtures/letter_scoring.txt from the JS scorer in
+// www/LimeTunaSpeech.js so LetterScorerConformance can diff the Java port
+// against it. Run: node tools/gen-letter-fixtures.js > tools/fixtures/letter_scoring.txt
+
+const fs = require("fs");
+const path = require("path");
+const vm = require("vm");
+
+const src = fs.readFileSync(path.join(__dirname, "..", "www", "LimeTunaSpeech.js"), "utf8");
+const sandbox = {
+  require: () => function () {},
+  module: { exports: {} },
+  window: {},
+  console: { assert() {}, error() {}, log() {}, warn() {}, info() {} }
+};
+vm.runInNewContext(
+  src + "\n;this.__scorer = { scorePhraseForLetter, chooseLetterFromResults };",
+  sandbox
+);
+const { scorePhraseForLetter, chooseLetterFromResults } = sandbox.__scorer;
+
+const LETTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".split("");
+const PHRASES = [
+  "", "a", "b", "B.", "bee", "be", "beach", "bead", "see", "sea", "c", "sí",
+  "in", "inn", "en", "end", "and", "n", "em", "m&m", "ehn", "eh", "hey",
+  "double you", "double-u", "double", "w", "you", "yoo hoo", "why", "y",
+  "aitch", "h", "age", "jay", "j", "kay", "okay", "cue", "queue", "q",
+  "are", "ar", "r", "ess", "yes", "s", "tee", "tea", "t", "vee", "v",
+  "ex", "x", "zed", "zee", "z", "oh", "o", "pee", "p", "eye", "i", "aye",
+  "gee", "g", "dee", "d", "el", "l", "ef", "f", "ee", "e", "ay", "ei",
+  "the letter b", "letter n", "it's c", "um bee", "B B", "  spaced   out  ",
+  "Cat", "dog", "spider", "horse", "fish", "bird", "123", "b1", "ABC", "xyz"
+];
+const CHOICES = [
+  [["in"], "n"], [["in"], "N"], [["in"], "i"], [["bee", "be", "b"], "B"],
+  [["see", "sea"], "C"], [["see", "sea"], "Z"], [["and"], "N"], [["and"], "A"],
+  [["hey"], "A"], [["hey"], "H"], [["double"], "W"], [["double"], ""],
+  [["you", "yu"], "U"], [["why"], "Y"], [["why"], "W"], [[], "B"], [[""], "B"],
+  [["cat"], "Cat"], [["cat"], "C"], [["beach", "peach"], "P"], [["okay"], "K"],
+  [["the letter b", "letter be"], "B"], [["123"], "A"], [["em", "m"], "N"],
+  [["en", "n", "in"], "M"], [["tea", "t"], "T"], [["ex"], "X"], [["zed"], "Z"],
+  [["age"], "H"], [["age"], "A"], [["ab"], "A"], [["ab"], "B"], [["yes"], "S"]
+];
+
+const out = [];
+out.push("# Generated by tools/gen-letter-fixtures.js from www/LimeTunaSpeech.js. Do not edit by hand.");
+out.push("# score<TAB>phrase<TAB>26 comma-separated scorePhraseForLetter values (A..Z)");
+out.push("# choose<TAB>expected<TAB>phrase|phrase...<TAB>chooseLetterFromResults result or -");
+for (const phrase of PHRASES) {
+  out.push(["score", phrase, LETTERS.map((L) => scorePhraseForLetter(phrase, L)).join(",")].join("\t"));
+}
+for (const [results, expected] of CHOICES) {
+  const chosen = chooseLetterFromResults(results, expected);
+  out.push(["choose", expected, results.join("|"), chosen === null ? "-" : chosen].join("\t"));
+}
+process.stdout.write(out.join("\n") + "\n");
@@ -1,6 +1,9 @@
 var exec = require('cordova/exec');
 
-// Phonetic map based on how kids tend to say letters
+// Phonetic map based on how kids tend to say letters.
+// Mirrored in src/android/LetterScorer.java; after editing this map or the
+// scoring below, regenerate tools/fixtures/letter_scoring.txt and run
+// LetterScorerConformance (see tools/README.md).
 const PHONETIC_MAP = {
   A: ["a", "ay", "eh", "ei"],
   B: ["b", "bee", "be"],
@@ -162,7 +165,16 @@ var LimeTunaSpeech = (function () {
   var _initialized = false;
   var _attemptRmsHistory = new Map();
   var _attemptThresholdLogged = new Set();
+  // Milestone events only carry timing_delta; we fold them into a per-attempt
+  // snapshot. Commit events are held until the final payload brings full timing.
+  var _attemptTimingSnapshot = new Map();
+  var _attemptCommitEvents = new Map();
   var RMS_HISTORY_LIMIT = 40;
+  // Binary RMS batches (init option rmsStream: "binary"); layout documented in RmsFrameBatcher.java.
+  var RMS_BATCH_MAGIC = 0x4C545231;
+  var RMS_BATCH_HEADER_BYTES = 16;
+  var RMS_BATCH_FLOATS_PER_FRAME = 4;
+  var LITTLE_ENDIAN = new Uint8Array(new Uint32Array([1]).buffer)[0] === 1;
 
   function formatRms(value) {
     return typeof value === "number" ? value.toFixed(2) : String(value);
@@ -178,6 +190,37 @@ var LimeTunaSpeech = (function () {
     _attemptRmsHistory.set(attemptId, samples);
   }
 
+  /**
+   * Decode a binary RMS batch into
+   * { type: "rms_batch", attempt_id, base_ms, frame_count, stride, frames }
+   * where frames is a Float32Array of [t_offset_ms, rms_db, smoothed_rms_db, baseline_rms_db] * frame_count.
+   */
+  function decodeRmsBatch(buffer) {
+    if (!buffer || buffer.byteLength < RMS_BATCH_HEADER_BYTES) return null;
+    var view = new DataView(buffer);
+    if (view.getInt32(0, true) !== RMS_BATCH_MAGIC) return null;
+    var frameBytes = RMS_BATCH_FLOATS_PER_FRAME * 4;
+    var frameCount = Math.floor((buffer.byteLength - RMS_BATCH_HEADER_BYTES) / frameBytes);
+    var floatCount = frameCount * RMS_BATCH_FLOATS_PER_FRAME;
+    var frames;
+    if (LITTLE_ENDIAN) {
+      frames = new Float32Array(buffer, RMS_BATCH_HEADER_BYTES, floatCount);
+    } else {
+      frames = new Float32Array(floatCount);
+      for (var i = 0; i < floatCount; i++) {
+        frames[i] = view.getFloat32(RMS_BATCH_HEADER_BYTES + i * 4, true);
+      }
+    }
+    return {
+      type: "rms_batch",
+      attempt_id: view.getInt32(4, true),
+      base_ms: view.getFloat64(8, true),
+      frame_count: frameCount,
+      stride: RMS_BATCH_FLOATS_PER_FRAME,
+      frames: frames
+    };
+  }
+
   function logThresholdsForAttempt(evt) {
     var attemptId = evt && typeof evt.attempt_id === "number" ? evt.attempt_id : null;
     var thresholds = evt && evt.timing && evt.timing.native_thresholds;
@@ -210,14 +253,36 @@ var LimeTunaSpeech = (function () {
     );
   }
 
-  function logCommitDebug(evt) {
+  function applyTimingDelta(evt) {
+    var attemptId = evt && typeof evt.attempt_id === "number" ? evt.attempt_id : null;
+    if (!attemptId) return;
+    var snapshot = _attemptTimingSnapshot.get(attemptId) || { native_raw: {}, native_thresholds: {} };
+    var delta = evt.timing_delta || {};
+    Object.keys(delta).forEach(function (section) {
+      var target = snapshot[section] || (snapshot[section] = {});
+      Object.keys(delta[section]).forEach(function (key) {
+        var value = delta[section][key];
+        if (section === "native_raw" && value === 0) {
+          delete target[key];
+        } else {
+          target[key] = value;
+        }
+      });
+    });
+    _attemptTimingSnapshot.set(attemptId, snapshot);
+    evt.timing = snapshot;
+  }
+
+  function isCommitEvent(evt) {
+    var extras = evt && evt.extras ? evt.extras : {};
+    return !!extras.commit_reason || !!(evt && typeof evt.event === "string" && evt.event.indexOf("commit") !== -1);
+  }
+
+  function logCommitDebug(evt, timing) {
     var extras = evt && evt.extras ? evt.extras : {};
     var attemptId = evt && typeof evt.attempt_id === "number" ? evt.attempt_id : null;
     if (!attemptId) return;
-    if (!extras.commit_reason && !(evt && typeof evt.event === "string" && evt.event.indexOf("commit") !== -1)) {
-      return;
-    }
-    var thresholds = evt && evt.timing && evt.timing.native_thresholds ? evt.timing.native_thresholds : {};
+    var thresholds = timing && timing.native_thresholds ? timing.native_thresholds : {};
     var adaptiveEnd = thresholds.adaptive_end_threshold_db !== undefined
       ? thresholds.adaptive_end_threshold_db
       : thresholds.rms_end_threshold_db;
@@ -252,8 +317,107 @@ var LimeTunaSpeech = (function () {
     if (attemptId === null || attemptId === undefined) return;
     _attemptRmsHistory.delete(attemptId);
     _attemptThresholdLogged.delete(attemptId);
+    _attemptTimingSnapshot.delete(attemptId);
+    _attemptCommitEvents.delete(attemptId);
+  }
+
+  /**
+   * Logs an attempt's final timing. Besides native_durations and the
+   * thresholds it may carry:
+   *
+   *   native_engine: start, backend, warm/cold/reused starts, health, and
+   *     mode "online" | "offline" | "online_fallback" (offlineFirst; an
+   *     offline listen that finds the language unavailable restarts online).
+   *   native_early_commit (earlyCommit): saved_ms_est when taken, else the
+   *     lead_ms a confident partial had over the final. Taken results also
+   *     have earlyCommit: true.
+   *   native_hedge (hedged): winner ("primary" | "secondary"), accepted,
+   *     winner_ms, loser and, when the loser had answered, margin_ms.
+   *   native_post_silence (adaptivePostSilence): source ("learning" for a
+   *     target's first 8 attempts, "model" or "explore"), delay_ms, samples,
+   *     predicted_premature_rate, predicted_gap_ms, and what happened:
+   *     applied_ms, longest_pause_ms, gap_ms.
+   */
+  function logFinalTiming(attemptId, timing) {
+    if (!attemptId || !timing) return;
+    logThresholdsForAttempt({ attempt_id: attemptId, timing: timing });
+    var commitEvt = _attemptCommitEvents.get(attemptId);
+    if (commitEvt) {
+      logCommitDebug(commitEvt, timing);
+    }
+    var engine = timing.native_engine;
+    if (engine) {
+      console.info(
+        "[LimeTunaSpeech] attempt " + attemptId +
+        " engine start=" + engine.start +
+        (engine.backend && engine.backend !== "speech_recognizer" ? " backend=" + engine.backend : "") +
+        (engine.mode && engine.mode !== "online" ? " mode=" + engine.mode : "") +
+        (engine.health !== undefined ? " health=" + engine.health : "") +
+        " warm=" + engine.warm_starts +
+        " cold=" + engine.cold_starts +
+        " reused=" + engine.reused_starts +
+        " d_engine_ready_ms=" +
+        (timing.native_durations && timing.native_durations.d_engine_ready_ms !== undefined
+          ? timing.native_durations.d_engine_ready_ms
+          : "n/a")
+      );
+    }
+    var postSilence = timing.native_post_silence;
+    if (postSilence) {
+      console.info(
+        "[LimeTunaSpeech] attempt " + attemptId +
+        " postSilence source=" + postSilence.source +
+        " delay_ms=" + postSilence.delay_ms +
+        " samples=" + postSilence.samples +
+        " predicted_premature=" +
+        (postSilence.predicted_premature_rate !== undefined ? postSilence.predicted_premature_rate.toFixed(3) : "n/a") +
+        " predicted_gap_ms=" + (postSilence.predicted_gap_ms !== undefined ? postSilence.predicted_gap_ms : "n/a") +
+        " gap_ms=" + (postSilence.gap_ms !== undefined ? postSilence.gap_ms : "n/a") +
+        " longest_pause_ms=" + postSilence.longest_pause_ms
+      );
+    }
   }
 
+  /**
+   * Merges options into the previous ones and prepares the recognizer.
+   * onSuccess receives { backend, recognizer_thread, offline_model, profile };
+   * profile is the persisted acoustic profile for this device + recognizer
+   * (see calibrate()). Options, default in parentheses:
+   *
+   *   language ("en-US")                  recognition language
+   *   postSilenceMs (800)                 silence before our timer commits
+   *   minPostSilenceMs (450)              floor for the adaptive delay
+   *   maxUtteranceMs (3800)               failsafe commit
+   *   rmsStartThresholdDb (off)           RMS start gate
+   *   rmsEndThresholdDb (2.5)             RMS below this counts as silence
+   *   logLevel ("debug")                  verbose | debug | info | warn | error | none
+   *   recognizerService (system default)  flattened ComponentName of the engine
+   *   recognizerBackend ("speech_recognizer")  or "scripted", replaying backendScript
+   *   backendScript (none)                see ScriptedRecognizerBackend.java
+   *   recognizerThread ("main")           "background": callbacks and timers off the UI thread
+   *   rmsStream ("json")                  "binary": RMS frames batched into ArrayBuffers
+   *   rmsBatchIntervalMs (250)            binary batch cadence
+   *   milestoneEvents (true)              milestone events to onDebugEvent
+   *   captureVad (false)                  own mic capture; a frame VAD decides speech end
+   *   vadFrameMs (20)                     VAD frame, 10-30
+   *   journal (true)                      binary attempt journal; see exportJournal()
+   *   journalMaxKb (256)                  journal size per file
+   *   audioCacheKb (8192)                 decoded game sounds, least recently played dropped first
+   *   earlyCommit (false)                 answer on a confident partial hit; wrong answers wait
+   *   earlyCommitMinScore (4)             letter score needed (4: the letter as a whole word)
+   *   earlyCommitMaxDistance (0)          edit distance allowed to a registered keyword
+   *   earlyCommitStablePartials (1)       consecutive confident partials needed
+   *   hedged (false)                      race a second recognizer; backend reads "hedged"
+   *   hedgeService (on-device)            flattened ComponentName of the second recognizer
+   *   hedgeMinConfidence (0.7)            confidence that takes a final at once
+   *   hedgeGraceMs (400)                  how long an unconfident final waits for the other
+   *   offlineFirst (false)                on-device recognition once its model is installed
+   *   adaptivePostSilence (false)         learn each target's post-silence delay
+   *   maxPrematureCommitRate (0.05)       share of answers the learned delay may cut off
+   *   postSilenceExploreEvery (10)        every Nth attempt on a target runs longer
+   *
+   * What the modes add to an attempt's timing is listed at logFinalTiming().
+   */
   function init(options, onSuccess, onError) {
     _opts = Object.assign({}, _opts, options || {});
     var sanitizedOpts = Object.assign({}, _opts);
@@ -264,10 +428,10 @@ var LimeTunaSpeech = (function () {
     });
 
     exec(
-      function () {
+      function (info) {
         _initialized = true;
-        console.log("[LimeTunaSpeech] init success");
-        if (typeof onSuccess === "function") onSuccess();
+        console.log("[LimeTunaSpeech] init success", info);
+        if (typeof onSuccess === "function") onSuccess(info);
       },
       function (err) {
         console.error("[LimeTunaSpeech] init error:", err);
@@ -280,22 +444,34 @@ var LimeTunaSpeech = (function () {
   }
 
   /**
-   * expectedLetter: single letter A–Z (upper or lower)
+   * Success/error handlers for a native attempt stream. Shared by startLetter
+   * (one attempt) and startSession (one attempt per nextTarget on a
+   * keep-callback channel); expectedLetter is only the fallback when the
+   * payload doesn't carry expected_letter.
    */
-  function startLetter(
+  function createAttemptHandlers(
     expectedLetter,
     onResult,
     onError,
     onRmsUpdate,
-    onDebugEvent
+    onDebugEvent,
+    onSessionEvent
   ) {
-    if (!_initialized) {
-      console.warn("[LimeTunaSpeech] startLetter called before init()");
-    }
-
-    exec(
-      function (nativePayload) {
+    return {
+      success: function (nativePayload) {
         try {
+          if (nativePayload instanceof ArrayBuffer) {
+            var batch = decodeRmsBatch(nativePayload);
+            if (!batch) return;
+            if (typeof onRmsUpdate === "function") {
+              onRmsUpdate(batch);
+            }
+            for (var f = 0; f < batch.frame_count; f++) {
+              recordRmsSample(batch.attempt_id, batch.frames[f * batch.stride + 1]);
+            }
+            return;
+          }
+
           var obj = {};
           if (typeof nativePayload === "string") {
             obj = JSON.parse(nativePayload);
@@ -313,10 +489,19 @@ var LimeTunaSpeech = (function () {
             return;
           }
 
+          if (obj && obj.type === "session") {
+            if (typeof onSessionEvent === "function") {
+              onSessionEvent(obj);
+            }
+            return;
+          }
+
           if (obj && obj.type === "event") {
+            applyTimingDelta(obj);
             console.log("[LimeTunaSpeech] milestone:", obj);
-            logThresholdsForAttempt(obj);
-            logCommitDebug(obj);
+            if (isCommitEvent(obj) && typeof obj.attempt_id === "number") {
+              _attemptCommitEvents.set(obj.attempt_id, obj);
+            }
             if (typeof onDebugEvent === "function") {
               onDebugEvent(obj);
             }
@@ -330,13 +515,35 @@ var LimeTunaSpeech = (function () {
           }
           var timing = obj.timing || null;
 
-          var normalizedLetter = chooseLetterFromResults(allResults, expectedLetter);
+          // Native scores with the same PHONETIC_MAP (LetterScorer.java);
+          // older native builds don't send it, so fall back to scoring here.
+          var normalizedLetter;
+          var letterScore = null;
+          if (Object.prototype.hasOwnProperty.call(obj, "normalized_letter")) {
+            normalizedLetter = obj.normalized_letter || null;
+            letterScore = typeof obj.letter_score === "number" ? obj.letter_score : null;
+          } else {
+            normalizedLetter = chooseLetterFromResults(
+              allResults,
+              obj.expected_letter || expectedLetter
+            );
+          }
 
           var result = {
             text: rawText,
             normalizedLetter: normalizedLetter,
+            letterScore: letterScore,
+            // Only present once registerVocabulary() has been called:
+            // id of the registered target the results matched, or null.
+            matchedTarget: Object.prototype.hasOwnProperty.call(obj, "matched_target")
+              ? obj.matched_target || null
+              : undefined,
+            // How it matched: "exact", "substring", "edit_distance" or "phonetic".
+            matchStrategy: obj.match_strategy || null,
             confidence:
               typeof obj.confidence === "number" ? obj.confidence : null,
+            // Answered from a confident partial (options.earlyCommit).
+            earlyCommit: obj.early_commit === true,
             allResults: allResults,
             allConfidences: Array.isArray(obj.allConfidences)
               ? obj.allConfidences
@@ -352,6 +559,7 @@ var LimeTunaSpeech = (function () {
             onResult(result);
           }
           if (result.attemptId !== null) {
+            logFinalTiming(result.attemptId, timing);
             cleanupAttempt(result.attemptId);
           }
         } catch (e) {
@@ -361,8 +569,8 @@ var LimeTunaSpeech = (function () {
           }
         }
       },
-      function (err) {
-        console.error("[LimeTunaSpeech] startLetter error:", err);
+      error: function (err) {
+        console.error("[LimeTunaSpeech] attempt error:", err);
         var parsedErr = err;
         if (typeof onError === "function") {
           try {
@@ -375,15 +583,215 @@ var LimeTunaSpeech = (function () {
           }
         }
         if (parsedErr && typeof parsedErr.attempt_id === "number") {
+          logFinalTiming(parsedErr.attempt_id, parsedErr.timing);
           cleanupAttempt(parsedErr.attempt_id);
         }
-      },
+      }
+    };
+  }
+
+  /**
+   * expectedLetter: single letter A–Z (upper or lower)
+   * onRmsUpdate receives one { type: "rms", ... } object per update, or a
+   * { type: "rms_batch", frames: Float32Array, ... } batch when init() was
+   * called with rmsStream: "binary" (cadence set by rmsBatchIntervalMs).
+   * onDebugEvent receives milestone events; native sends only timing_delta and
+   * evt.timing is the merged snapshot so far. Full timing arrives with the
+   * result/error. Pass milestoneEvents: false to init() to disable them.
+   * With init({ captureVad: true }) native also records the mic itself and a
+   * frame VAD (vadFrameMs, 10–30, default 20) decides speech end; milestones
+   * vad_speech_start / vad_speech_end / vad_fallback report it. If the device
+   * won't share the mic the attempt falls back to RMS endpointing.
+   */
+  function startLetter(
+    expectedLetter,
+    onResult,
+    onError,
+    onRmsUpdate,
+    onDebugEvent
+  ) {
+    if (!_initialized) {
+      console.warn("[LimeTunaSpeech] startLetter called before init()");
+    }
+
+    var handlers = createAttemptHandlers(
+      expectedLetter,
+      onResult,
+      onError,
+      onRmsUpdate,
+      onDebugEvent
+    );
+    exec(
+      handlers.success,
+      handlers.error,
       "LimeTunaSpeech",
       "startLetter",
       [expectedLetter || ""]
     );
   }
 
+  /**
+   * Plays prompt clip(s) natively, then starts listening for expectedLetter
+   * the moment the last clip ends, without a round trip through JS.
+   * clips: one path or an array of paths relative to www/ (e.g.
+   * "audio/one_more_time1.mp3"), played back to back; clips that can't be
+   * loaded are skipped. Callbacks are the same as startLetter's; stop()
+   * during the prompt ends it with a STOPPED error. Clips not preloaded with
+   * preloadSounds() are decoded on first use.
+   */
+  function playThenListen(
+    clips,
+    expectedLetter,
+    onResult,
+    onError,
+    onRmsUpdate,
+    onDebugEvent
+  ) {
+    if (!_initialized) {
+      console.warn("[LimeTunaSpeech] playThenListen called before init()");
+    }
+
+    var handlers = createAttemptHandlers(
+      expectedLetter,
+      onResult,
+      onError,
+      onRmsUpdate,
+      onDebugEvent
+    );
+    exec(
+      handlers.success,
+      handlers.error,
+      "LimeTunaSpeech",
+      "playThenListen",
+      [Array.isArray(clips) ? clips : [clips], expectedLetter || ""]
+    );
+  }
+
+  /**
+   * Decodes sound clips (paths relative to www/) into the native sound cache
+   * ahead of playSound() / playThenListen(). onSuccess receives
+   * { duration_ms: { path: ms }, failed: [path], cache: stats } with stats
+   * as from getSoundCacheStats().
+   */
+  function preloadSounds(clips, onSuccess, onError) {
+    exec(
+      function (info) {
+        if (typeof onSuccess === "function") onSuccess(info);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "preloadSounds",
+      [Array.isArray(clips) ? clips : [clips]]
+    );
+  }
+
+  /**
+   * Plays one clip (path relative to www/) natively; sounds overlap freely.
+   * onEnded({ played: true }) fires when it finishes. onError fires if the
+   * clip can't be decoded or played, so the page can fall back to <audio>.
+   */
+  function playSound(clip, onEnded, onError) {
+    exec(
+      function (info) {
+        if (typeof onEnded === "function") onEnded(info);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "playSound",
+      [clip]
+    );
+  }
+
+  /**
+   * Native sound cache counters: { budget_bytes, bytes, clips, hits, misses,
+   * evictions, uncacheable, decodes, decode_ms_total }.
+   */
+  function getSoundCacheStats(onSuccess, onError) {
+    exec(
+      function (stats) {
+        if (typeof onSuccess === "function") onSuccess(stats);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "getSoundCacheStats",
+      []
+    );
+  }
+
+  /**
+   * Continuous listening for multi-round games: one native recognizer and
+   * intent stay alive across rounds. Push each round's target with
+   * nextTarget(); results/errors for every round arrive on the callbacks
+   * given here (same shapes as startLetter, with attemptId/expectedLetter
+   * identifying the round). onSessionEvent gets { type: "session",
+   * event: "started" | "ended" }. Between rounds native keeps the recognizer
+   * armed, so a target pushed right after the prompt usually attaches to a
+   * listen that is already ready (timing.native_engine.start === "hot").
+   */
+  function startSession(
+    onResult,
+    onError,
+    onRmsUpdate,
+    onDebugEvent,
+    onSessionEvent
+  ) {
+    if (!_initialized) {
+      console.warn("[LimeTunaSpeech] startSession called before init()");
+    }
+
+    var handlers = createAttemptHandlers(
+      null,
+      onResult,
+      onError,
+      onRmsUpdate,
+      onDebugEvent,
+      onSessionEvent
+    );
+    exec(
+      handlers.success,
+      handlers.error,
+      "LimeTunaSpeech",
+      "startSession",
+      []
+    );
+  }
+
+  /** Start the next round of the active session. onSuccess gets { attempt_id, hot }. */
+  function nextTarget(target, onSuccess, onError) {
+    exec(
+      function (info) {
+        if (typeof onSuccess === "function") onSuccess(info);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "nextTarget",
+      [target || ""]
+    );
+  }
+
+  /** End the session; a round still listening gets a SESSION_ENDED error. */
+  function endSession(onSuccess, onError) {
+    exec(
+      function () {
+        if (typeof onSuccess === "function") onSuccess();
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "endSession",
+      []
+    );
+  }
+
   function stop(onSuccess, onError) {
     exec(
       function () {
@@ -403,6 +811,11 @@ var LimeTunaSpeech = (function () {
    * Recommended retry flow when you see ENGINE_RESTART_REQUIRED or busy errors:
    *   1) call resetRecognizer
    *   2) then retry startLetter once reset completes
+   * Rebuilds are paced natively: repeated ones back off (a start meanwhile
+   * waits for it), and too many in a minute open a circuit. While it is
+   * open, startLetter, playThenListen, startSession, nextTarget, calibrate
+   * and resetRecognizer fail with ENGINE_CIRCUIT_OPEN and retry_after_ms;
+   * after that the next attempt probes the service and a good one closes it.
    */
   function resetRecognizer(onSuccess, onError) {
     exec(
@@ -418,6 +831,141 @@ var LimeTunaSpeech = (function () {
     );
   }
 
+  /**
+   * Samples ambient RMS for durationMs (300–5000, default 1500) with no
+   * attempt running and stores it as the baseline of the persisted acoustic
+   * profile, so the first attempt endpoints like later ones. A startLetter()
+   * or startSession() during calibration ends it early with what it has.
+   * onSuccess receives { ambient_db, peak_db, samples, duration_ms, profile }.
+   */
+  function calibrate(durationMs, onSuccess, onError) {
+    exec(
+      function (info) {
+        console.log("[LimeTunaSpeech] calibrated", info);
+        if (typeof onSuccess === "function") onSuccess(info);
+      },
+      function (err) {
+        console.warn("[LimeTunaSpeech] calibrate error:", err);
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "calibrate",
+      [typeof durationMs === "number" ? durationMs : 1500]
+    );
+  }
+
+  /**
+   * Whether the on-device model for options.language (default: the init
+   * language) is usable: onSuccess receives { language, state, download_requested,
+   * offline_first, installed_languages, pending_languages }. state is
+   * "installed", "pending" (downloading), "downloadable", "unsupported" or
+   * "unknown" (before Android 13). With options.download (default true) a
+   * downloadable model is requested and reported as "pending". Offline-first
+   * attempts (init option offlineFirst) start using it once it is installed.
+   */
+  function ensureOfflineModel(options, onSuccess, onError) {
+    exec(
+      function (info) {
+        console.log("[LimeTunaSpeech] offline model", info);
+        if (typeof onSuccess === "function") onSuccess(info);
+      },
+      function (err) {
+        console.warn("[LimeTunaSpeech] ensureOfflineModel error:", err);
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "ensureOfflineModel",
+      [options || {}]
+    );
+  }
+
+  /**
+   * Plugin-lifetime latency snapshot: per-stage {count, p50, p90, p99, max,
+   * mean} in ms (same stage names as timing.native_durations), commit reasons,
+   * outcome counts and, with options.hedged, which path answered (hedges).
+   * engine_processing_by_mode splits d_engine_processing_ms by
+   * timing.native_engine.mode. Percentiles are histogram bucket edges, within ~6%.
+   * recognizer has the current recognizer's health score (0-100, rebuilt
+   * between rounds below 60), its listens, age_ms and the points each signal
+   * takes off (penalties), plus rebuild counts: proactive (health) and
+   * reactive (errors, preflights, resetRecognizer). recognizer.circuit is the
+   * rebuild governor: state ("closed", "open", "half_open"), retry_after_ms,
+   * backoff_ms, rebuild_streak, opens, rejected_starts and deferrals.
+   */
+  function getMetrics(onSuccess, onError) {
+    exec(
+      function (metrics) {
+        if (typeof onSuccess === "function") onSuccess(metrics);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "getMetrics",
+      []
+    );
+  }
+
+  /** Like getMetrics(), then clears the counters; the snapshot covers the window just closed. */
+  function resetMetrics(onSuccess, onError) {
+    exec(
+      function (metrics) {
+        if (typeof onSuccess === "function") onSuccess(metrics);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "resetMetrics",
+      []
+    );
+  }
+
+  /**
+   * Attempt journal (raw timestamps, thresholds, RMS tail, commit reason and
+   * outcome of each finished attempt; no recognized text) as an ArrayBuffer,
+   * oldest first. Decode with tools/AttemptJournalExport. clear: delete the
+   * journal once read.
+   */
+  function exportJournal(clear, onSuccess, onError) {
+    exec(
+      function (data) {
+        if (typeof onSuccess === "function") onSuccess(data);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "exportJournal",
+      [!!clear]
+    );
+  }
+
+  /**
+   * Load a keyword vocabulary into the native matcher once, e.g.
+   *   [{ id: "Cat", keywords: ["cat", "kitten"] }, ...]
+   * Afterwards results carry matchedTarget: the id whose keywords the
+   * recognizer output matched (the expectedLetter/target id passed to
+   * startLetter is tried first), or null, and matchStrategy: how it matched.
+   * Spelling matches (the isAnimalMatch rules) come first; a word that only
+   * sounds like a keyword ("bare" for bear) matches as "phonetic".
+   * onSuccess receives { targets, keywords, phonetic_keys }. Calling again
+   * replaces it.
+   */
+  function registerVocabulary(targets, onSuccess, onError) {
+    exec(
+      function (info) {
+        if (typeof onSuccess === "function") onSuccess(info);
+      },
+      function (err) {
+        if (typeof onError === "function") onError(err);
+      },
+      "LimeTunaSpeech",
+      "registerVocabulary",
+      [Array.isArray(targets) ? targets : []]
+    );
+  }
+
   function setBeepsMuted(muted, onSuccess, onError) {
     exec(
       function () {
@@ -449,10 +997,23 @@ var LimeTunaSpeech = (function () {
   return {
     init: init,
     startLetter: startLetter,
+    playThenListen: playThenListen,
+    preloadSounds: preloadSounds,
+    playSound: playSound,
+    getSoundCacheStats: getSoundCacheStats,
+    startSession: startSession,
+    nextTarget: nextTarget,
+    endSession: endSession,
     stop: stop,
     resetRecognizer: resetRecognizer,
     setBeepsMuted: setBeepsMuted,
-    setKeepScreenOn: setKeepScreenOn
+    setKeepScreenOn: setKeepScreenOn,
+    registerVocabulary: registerVocabulary,
+    calibrate: calibrate,
+    ensureOfflineModel: ensureOfflineModel,
+    getMetrics: getMetrics,
+    resetMetrics: resetMetrics,
+    exportJournal: exportJournal
   };
 })();
 
@@ -206,6 +206,8 @@ const ANIMALS_SPEECH_OPTIONS = {
   postSilenceMs: 10000,
   minPostSilenceMs: 10000
 };
+// One-time ambient calibration before the first round on a new device/recognizer.
+const ANIMALS_CALIBRATION_MS = 1200;
 
 const ANIMALS_PROGRESS_STORAGE_KEY = "gulfhit.animals.progress";
 const ANIMALS_UNLOCKS_STORAGE_KEY = "gulfhit.animals.unlocks";
@@ -228,6 +230,8 @@ let preQuestionFolderStreak = 0;
 
 let sttEnabled = false;
 let sttFatalError = false;
+// init runs on every new game; ask for the on-device model only once per app run.
+let offlineModelRequested = false;
 
 let progressEl;
 let progressSummaryEl;
@@ -525,7 +529,8 @@ function getAudioElement(source) {
   if (audioCache.has(source)) return audioCache.get(source);
 
   const audio = new Audio(source);
-  audio.preload = "auto";
+  // With the native player the element is only a fallback; don't buffer it up front.
+  audio.preload = canPlayNative() ? "none" : "auto";
   audio.muted = false;
   audio.volume = 1.0;
   audioCache.set(source, audio);
@@ -533,6 +538,7 @@ function getAudioElement(source) {
 }
 
 function primeAudioElements(elements) {
+  if (canPlayNative()) return;
   (elements || []).filter(Boolean).forEach((el) => {
     try {
       el.preload = "auto";
@@ -546,6 +552,24 @@ function primeAudioElements(elements) {
 }
 
 function playSound(elOrSrc, onEnded) {
+  const path = canPlayNative() ? nativeClipPath(elOrSrc) : null;
+  if (!path) {
+    playHtmlSound(elOrSrc, onEnded);
+    return;
+  }
+  LimeTunaSpeech.playSound(
+    path,
+    () => {
+      if (typeof onEnded === "function") onEnded();
+    },
+    (err) => {
+      console.warn("[animals] native playSound failed, using <audio>:", err);
+      playHtmlSound(elOrSrc, onEnded);
+    }
+  );
+}
+
+function playHtmlSound(elOrSrc, onEnded) {
   const el = getAudioElement(elOrSrc);
   if (!el) {
     if (typeof onEnded === "function") onEnded();
@@ -598,6 +622,50 @@ function playAudioSequence(sequence, onComplete) {
   playNext(0);
 }
 
+// Path relative to www/ for the native sound player, or null if there is none.
+function nativeClipPath(elOrSrc) {
+  if (!elOrSrc) return null;
+  if (typeof elOrSrc === "string") return elOrSrc;
+  if (typeof elOrSrc.getAttribute === "function") return elOrSrc.getAttribute("src") || null;
+  return null;
+}
+
+function canPlayNative() {
+  return !!(window.cordova && window.LimeTunaSpeech && LimeTunaSpeech.playSound);
+}
+
+function canPlayThenListen() {
+  return !!(window.cordova && window.LimeTunaSpeech && LimeTunaSpeech.playThenListen);
+}
+
+function preloadNativeSounds(sounds) {
+  if (!canPlayNative() || !LimeTunaSpeech.preloadSounds) return;
+  const clips = (sounds || []).map(nativeClipPath).filter(Boolean);
+  if (!clips.length) return;
+  LimeTunaSpeech.preloadSounds(
+    clips,
+    (info) => {
+      if (info && info.failed && info.failed.length) {
+        console.warn("[animals] native sounds failed to load:", info.failed);
+      }
+    },
+    (err) => console.warn("[animals] preloadSounds error:", err)
+  );
+}
+
+// Prompts and feedback play every round; animal clips are warmed per round instead.
+function preloadCommonNativeSounds() {
+  preloadNativeSounds([
+    ...soundPreQuestionRootEls,
+    ...soundPreQuestionAnimalEls,
+    ...soundOneMoreTimeEls,
+    soundWrongEl,
+    ...soundWrongVariantEls,
+    soundCorrectEl,
+    ...soundCorrectVariantEls
+  ]);
+}
+
 function playCorrectSequence(correct, variant, celebration, effect, onComplete) {
   const correctEl = getAudioElement(correct);
   if (correctEl) {
@@ -674,6 +742,19 @@ function parseErrorCode(err) {
   return null;
 }
 
+// ENGINE_CIRCUIT_OPEN carries how long native recognizer rebuilds stay paused.
+function parseRetryAfterMs(err) {
+  let obj = err;
+  if (typeof err === "string") {
+    try {
+      obj = JSON.parse(err);
+    } catch (e) {
+      return null;
+    }
+  }
+  return obj && typeof obj.retry_after_ms === "number" ? obj.retry_after_ms : null;
+}
+
 function isHardSttErrorCode(code) {
   return (
     code === "PERMISSION_DENIED" ||
@@ -755,6 +836,19 @@ function isAnimalMatch(results, animal) {
   return false;
 }
 
+function registerAnimalVocabulary() {
+  if (!window.LimeTunaSpeech || !LimeTunaSpeech.registerVocabulary) return;
+  const targets = ANIMAL_GROUPS.flat().map((animal) => ({
+    id: animal.name,
+    keywords: animal.keywords || [animal.name]
+  }));
+  LimeTunaSpeech.registerVocabulary(
+    targets,
+    (info) => console.log("[animals] vocabulary registered", info),
+    (err) => console.warn("[animals] registerVocabulary failed; using JS matching", err)
+  );
+}
+
 function initAnimalsGame() {
   progressEl = document.getElementById("animalsProgress");
   progressSummaryEl = document.getElementById("animalsProgressSummary");
@@ -946,11 +1040,38 @@ function startNewGame() {
   if (window.LimeTunaSpeech && window.cordova) {
     LimeTunaSpeech.init(
       ANIMALS_SPEECH_OPTIONS,
-      function () {
+      function (info) {
         console.log("LimeTunaSpeech.init success (animals)");
         sttEnabled = true;
+        registerAnimalVocabulary();
+        preloadCommonNativeSounds();
+        const modelInstalled = info && info.offline_model === "installed";
+        if (ANIMALS_SPEECH_OPTIONS.offlineFirst && LimeTunaSpeech.ensureOfflineModel
+            && !offlineModelRequested && !modelInstalled) {
+          // Fetches the on-device model once if the engine offers it; later rounds then skip the network.
+          offlineModelRequested = true;
+          LimeTunaSpeech.ensureOfflineModel(
+            { download: true },
+            (model) => console.log("Offline speech model (animals):", model.state),
+            (err) => {
+              // A failed check may be transient; let the next game ask again.
+              offlineModelRequested = false;
+              console.warn("Offline speech model check failed (animals):", err);
+            }
+          );
+        }
         statusEl.textContent = ANIMALS_STATUS_PROMPT;
-        startListeningForCurrentAnimal();
+        // First run on this device/recognizer: learn the room before round one.
+        const profile = info && info.profile;
+        if (LimeTunaSpeech.calibrate && profile && !profile.calibrated) {
+          LimeTunaSpeech.calibrate(
+            ANIMALS_CALIBRATION_MS,
+            () => startListeningForCurrentAnimal(),
+            () => startListeningForCurrentAnimal()
+          );
+        } else {
+          startListeningForCurrentAnimal();
+        }
       },
       function (err) {
         sttEnabled = false;
@@ -1002,6 +1123,7 @@ function updateUIForCurrentAnimal() {
   feedbackEl.style.color = "";
 }
 
+// options.prompt: clips to play before listening; natively via playThenListen when available.
 function startListeningForCurrentAnimal(options = {}) {
   const skipPreQuestion = !!options.skipPreQuestion;
   const isFirstAttempt = attemptCount === 0;
@@ -1022,8 +1144,13 @@ function startListeningForCurrentAnimal(options = {}) {
     return;
   }
   const attemptToken = (currentAttemptToken += 1);
+  if (isFirstAttempt) {
+    // Decoded while the child answers, so the celebration starts without a decode.
+    preloadNativeSounds([...(animalCelebrationEls[animal.name] || []), animalEffectEls[animal.name]]);
+  }
 
-  const beginListening = () => {
+  // nativePrompt: clip paths played natively right before the microphone opens.
+  const beginListening = (nativePrompt) => {
     if (recognizing) {
       console.log("Already recognizing; ignoring extra start.");
       return;
@@ -1032,57 +1159,85 @@ function startListeningForCurrentAnimal(options = {}) {
     recognizing = true;
     statusEl.textContent = ANIMALS_STATUS_PROMPT;
 
-    try {
-      LimeTunaSpeech.startLetter(
-        animal.name,
-        function (result) {
-          if (attemptToken !== currentAttemptToken) {
-            console.warn("[animals] stale result ignored", { attemptToken, currentAttemptToken });
-            return;
-          }
-          recognizing = false;
-          const rawText = result && result.text ? result.text : "";
-          const allResults =
-            result && Array.isArray(result.allResults) ? result.allResults.slice() : [];
-          const heard = [rawText, ...allResults];
-
-          const isCorrect = isAnimalMatch(heard, animal);
-          console.log("[animals] result", { animal: animal.name, rawText, allResults, isCorrect });
-          statusEl.textContent = ANIMALS_STATUS_PROMPT;
-
-          if (isCorrect) {
-            handleCorrect(animal);
-          } else {
-            handleIncorrect({ reason: "wrong", animal });
-          }
-        },
-        function (err) {
-          if (attemptToken !== currentAttemptToken) {
-            console.warn("[animals] stale error ignored", { attemptToken, currentAttemptToken, err });
-            return;
-          }
-          recognizing = false;
-          const code = parseErrorCode(err);
-          console.error("LimeTunaSpeech.startLetter error (animals):", err, "code=", code);
-
-          if (code === "NO_MATCH") {
-            statusEl.textContent = "We couldn't hear that clearly. Try again.";
-            handleIncorrect({ reason: "no_match", animal });
-            return;
-          }
+    const onResult = function (result) {
+      if (attemptToken !== currentAttemptToken) {
+        console.warn("[animals] stale result ignored", { attemptToken, currentAttemptToken });
+        return;
+      }
+      recognizing = false;
+      const rawText = result && result.text ? result.text : "";
+      const allResults =
+        result && Array.isArray(result.allResults) ? result.allResults.slice() : [];
+      const heard = [rawText, ...allResults];
+
+      // Native matcher reports matchedTarget once the vocabulary is registered.
+      const isCorrect =
+        result && result.matchedTarget !== undefined
+          ? result.matchedTarget === animal.name
+          : isAnimalMatch(heard, animal);
+      console.log("[animals] result", {
+        animal: animal.name,
+        rawText,
+        allResults,
+        matchedTarget: result ? result.matchedTarget : undefined,
+        matchStrategy: result ? result.matchStrategy : undefined,
+        isCorrect
+      });
+      statusEl.textContent = ANIMALS_STATUS_PROMPT;
+
+      if (isCorrect) {
+        handleCorrect(animal);
+      } else {
+        handleIncorrect({ reason: "wrong", animal });
+      }
+    };
+
+    const onError = function (err) {
+      if (attemptToken !== currentAttemptToken) {
+        console.warn("[animals] stale error ignored", { attemptToken, currentAttemptToken, err });
+        return;
+      }
+      recognizing = false;
+      const code = parseErrorCode(err);
+      console.error("LimeTunaSpeech.startLetter error (animals):", err, "code=", code);
 
-          if (isHardSttErrorCode(code)) {
-            sttFatalError = true;
-            sttEnabled = false;
-            statusEl.textContent = "Speech engine error. Showing animals without listening.";
-            advanceToNextAnimal({ skipListening: true });
-            return;
+      if (code === "NO_MATCH") {
+        statusEl.textContent = "We couldn't hear that clearly. Try again.";
+        handleIncorrect({ reason: "no_match", animal });
+        return;
+      }
+
+      if (code === "ENGINE_CIRCUIT_OPEN") {
+        // The speech service keeps failing; keep the animal up and listen again
+        // once native rebuilds resume, without using up an attempt.
+        const retryAfterMs = parseRetryAfterMs(err) || 5000;
+        statusEl.textContent = "Speech is taking a short break…";
+        setTimeout(() => {
+          if (attemptToken === currentAttemptToken && !recognizing) {
+            startListeningForCurrentAnimal({ skipPreQuestion: true });
           }
+        }, retryAfterMs + 100);
+        return;
+      }
 
-          statusEl.textContent = "Error starting speech. Retrying…";
-          retryOrAdvance();
-        }
-      );
+      if (isHardSttErrorCode(code)) {
+        sttFatalError = true;
+        sttEnabled = false;
+        statusEl.textContent = "Speech engine error. Showing animals without listening.";
+        advanceToNextAnimal({ skipListening: true });
+        return;
+      }
+
+      statusEl.textContent = "Error starting speech. Retrying…";
+      retryOrAdvance();
+    };
+
+    try {
+      if (nativePrompt && nativePrompt.length) {
+        LimeTunaSpeech.playThenListen(nativePrompt, animal.name, onResult, onError);
+      } else {
+        LimeTunaSpeech.startLetter(animal.name, onResult, onError);
+      }
     } catch (err) {
       console.error("LimeTunaSpeech.startLetter threw synchronously (animals)", err);
       recognizing = false;
@@ -1091,12 +1246,21 @@ function startListeningForCurrentAnimal(options = {}) {
     }
   };
 
+  let prompt = (options.prompt || []).filter(Boolean);
   if (!skipPreQuestion && isFirstAttempt) {
     const preSound = pickPreQuestionSound({ isGameStart: currentIndex === 0 });
-    if (preSound) {
-      playSound(preSound, beginListening);
-      return;
+    if (preSound) prompt = [preSound];
+  }
+
+  if (prompt.length) {
+    // Natively the microphone opens as the prompt ends, with no JS hop in between.
+    const clipPaths = prompt.map(nativeClipPath);
+    if (canPlayThenListen() && clipPaths.every(Boolean)) {
+      beginListening(clipPaths);
+    } else {
+      playAudioSequence(prompt, () => beginListening());
     }
+    return;
   }
 
   beginListening();
@@ -1163,17 +1327,13 @@ function handleIncorrect(options = {}) {
         if (retrySound) lastOneMoreTimeSound = retrySound;
       }
 
-      playSound(retrySound, () => {
-        startListeningForCurrentAnimal({ skipPreQuestion: true });
-      });
+      startListeningForCurrentAnimal({ skipPreQuestion: true, prompt: [retrySound] });
     } else {
       const wrongVariant = isFirstAttempt
         ? chooseRandomSound(soundWrongVariantEls, lastWrongVariantSound)
         : null;
       if (wrongVariant) lastWrongVariantSound = wrongVariant;
-      playAudioSequence([soundWrongEl, wrongVariant], () => {
-        startListeningForCurrentAnimal({ skipPreQuestion: true });
-      });
+      startListeningForCurrentAnimal({ skipPreQuestion: true, prompt: [soundWrongEl, wrongVariant] });
     }
   } else {
     feedbackEl.textContent = "✕ Wrong answer.";